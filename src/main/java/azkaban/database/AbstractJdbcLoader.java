@@ -21,19 +21,74 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.Deflater;
 
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 
+import azkaban.utils.GZIPUtils;
 import azkaban.utils.Props;
 
 public abstract class AbstractJdbcLoader {
 	/**
 	 * Used for when we store text data. Plain uses UTF8 encoding.
+	 * 
+	 * Each type knows how to encode and decode its bytes, so callers don't need
+	 * to special case the compression. DEFLATE is raw deflate at its fastest
+	 * level, which trades some ratio for much cheaper compression than GZIP.
+	 * BINARY compresses the same way as DEFLATE, but marks data in a binary
+	 * form rather than text, such as the ExecutableFlowBinaryCodec format.
 	 */
 	public static enum EncodingType {
-		PLAIN(1), GZIP(2);
+		PLAIN(1) {
+			@Override
+			public byte[] encode(byte[] data, int offset, int length) {
+				if (offset == 0 && length == data.length) {
+					return data;
+				}
+				return Arrays.copyOfRange(data, offset, offset + length);
+			}
+			
+			@Override
+			public byte[] decode(byte[] data) {
+				return data;
+			}
+		}, 
+		GZIP(2) {
+			@Override
+			public byte[] encode(byte[] data, int offset, int length) throws IOException {
+				return GZIPUtils.gzipBytes(data, offset, length);
+			}
+			
+			@Override
+			public byte[] decode(byte[] data) throws IOException {
+				return GZIPUtils.unGzipBytes(data);
+			}
+		}, 
+		DEFLATE(3) {
+			@Override
+			public byte[] encode(byte[] data, int offset, int length) throws IOException {
+				return GZIPUtils.deflateBytes(data, offset, length, Deflater.BEST_SPEED);
+			}
+			
+			@Override
+			public byte[] decode(byte[] data) throws IOException {
+				return GZIPUtils.inflateBytes(data);
+			}
+		},
+		BINARY(4) {
+			@Override
+			public byte[] encode(byte[] data, int offset, int length) throws IOException {
+				return GZIPUtils.deflateBytes(data, offset, length, Deflater.BEST_SPEED);
+			}
+			
+			@Override
+			public byte[] decode(byte[] data) throws IOException {
+				return GZIPUtils.inflateBytes(data);
+			}
+		};
 
 		private int numVal;
 
@@ -44,6 +99,14 @@ public abstract class AbstractJdbcLoader {
 		public int getNumVal() {
 			return numVal;
 		}
+		
+		public byte[] encode(byte[] data) throws IOException {
+			return encode(data, 0, data.length);
+		}
+		
+		public abstract byte[] encode(byte[] data, int offset, int length) throws IOException;
+		
+		public abstract byte[] decode(byte[] data) throws IOException;
 
 		public static EncodingType fromInteger(int x) {
 			switch (x) {
@@ -51,6 +114,10 @@ public abstract class AbstractJdbcLoader {
 				return PLAIN;
 			case 2:
 				return GZIP;
+			case 3:
+				return DEFLATE;
+			case 4:
+				return BINARY;
 			default:
 				return PLAIN;
 			}
@@ -17,7 +17,6 @@
 package azkaban.execapp;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -30,7 +29,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
-import org.codehaus.jackson.map.ObjectMapper;
 
 import azkaban.executor.ConnectorParams;
 import azkaban.executor.ExecutableFlowBase;
@@ -44,6 +42,9 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = Logger.getLogger(ExecutorServlet.class.getName());
 	public static final String JSON_MIME_TYPE = "application/json";
+	
+	// Longest time an update stream request is held open.
+	private static final long MAX_UPDATE_STREAM_WAIT_MS = 30000;
 
 	private AzkabanExecutorServer application;
 	private FlowRunnerManager flowRunnerManager;
@@ -65,9 +66,7 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 
 	protected void writeJSON(HttpServletResponse resp, Object obj) throws IOException {
 		resp.setContentType(JSON_MIME_TYPE);
-		ObjectMapper mapper = new ObjectMapper();
-		OutputStream stream = resp.getOutputStream();
-		mapper.writeValue(stream, obj);
+		JSONUtils.toJSON(obj, resp.getOutputStream());
 	}
 
 	@Override
@@ -85,9 +84,18 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 					//logger.info("Updated called");
 					handleAjaxUpdateRequest(req, respMap);
 				}
+				else if (action.equals(UPDATE_STREAM_ACTION)) {
+					handleAjaxUpdateStreamRequest(req, respMap);
+				}
 				else if (action.equals(PING_ACTION)) {
 					respMap.put("status", "alive");
 				}
+				else if (action.equals(STAGE_ACTION)) {
+					handleStageRequest(req, respMap);
+				}
+				else if (action.equals(STATS_ACTION)) {
+					respMap.putAll(flowRunnerManager.getExecutorStats());
+				}
 				else {
 					int execid = Integer.parseInt(getParam(req, EXECID_PARAM));
 					String user = getParam(req, USER_PARAM, null);
@@ -138,6 +146,22 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 		resp.flushBuffer();
 	}
 	
+	/**
+	 * Queues the listed project versions to be set up in the background.
+	 * Responds with the ones that were queued, leaving out those that are
+	 * already set up or queued.
+	 */
+	private void handleStageRequest(HttpServletRequest req, Map<String, Object> respMap) throws ServletException {
+		String projects = getParam(req, STAGE_PROJECTS_PARAM);
+		try {
+			respMap.put(RESPONSE_STAGED, flowRunnerManager.stageProjects(projects));
+			respMap.put(STATUS_PARAM, RESPONSE_SUCCESS);
+		} catch (ExecutorManagerException e) {
+			logger.error(e);
+			respMap.put(RESPONSE_ERROR, e.getMessage());
+		}
+	}
+	
 	private void handleModifyExecutionRequest(Map<String, Object> respMap, int execId, String user, HttpServletRequest req) throws ServletException {
 		if (!hasParam(req, MODIFY_EXECUTION_ACTION_TYPE)) {
 			respMap.put(RESPONSE_ERROR, "Modification type not set.");
@@ -244,33 +268,54 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 		}
 	}
 	
-	@SuppressWarnings("unchecked")
 	private void handleAjaxUpdateRequest(HttpServletRequest req, Map<String, Object> respMap) throws ServletException, IOException {
-		ArrayList<Object> updateTimesList = (ArrayList<Object>)JSONUtils.parseJSONFromString(getParam(req, UPDATE_TIME_LIST_PARAM));
-		ArrayList<Object> execIDList = (ArrayList<Object>)JSONUtils.parseJSONFromString(getParam(req, EXEC_ID_LIST_PARAM));
+		List<Integer> execIds = getExecIds(req);
+		List<Long> updateTimes = getUpdateTimes(req);
 		
-		ArrayList<Object> updateList = new ArrayList<Object>();
-		for (int i = 0; i < execIDList.size(); ++i) {
-			long updateTime = JSONUtils.getLongFromObject(updateTimesList.get(i));
-			int execId = (Integer)execIDList.get(i);
-			
-			ExecutableFlowBase flow = flowRunnerManager.getExecutableFlow(execId);
-			if (flow == null) {
-				Map<String, Object> errorResponse = new HashMap<String,Object>();
-				errorResponse.put(RESPONSE_ERROR, "Flow does not exist");
-				errorResponse.put(UPDATE_MAP_EXEC_ID, execId);
-				updateList.add(errorResponse);
-				continue;
-			}
-			
-			if (flow.getUpdateTime() > updateTime) {
-				updateList.add(flow.toUpdateObject(updateTime));
-			}
+		respMap.put(RESPONSE_UPDATED_FLOWS, flowRunnerManager.getFlowUpdates(execIds, updateTimes));
+	}
+	
+	/**
+	 * Long poll version of the update request. If none of the requested flows
+	 * have changed, the request is held until one does, another running flow
+	 * changes or the wait time runs out.
+	 */
+	private void handleAjaxUpdateStreamRequest(HttpServletRequest req, Map<String, Object> respMap) throws ServletException, IOException {
+		List<Integer> execIds = getExecIds(req);
+		List<Long> updateTimes = getUpdateTimes(req);
+		long waitMs = Math.min(Math.max(getLongParam(req, UPDATE_WAIT_MS_PARAM, 0), 0), MAX_UPDATE_STREAM_WAIT_MS);
+		
+		List<Object> updateList = null;
+		try {
+			updateList = flowRunnerManager.waitForFlowUpdates(execIds, updateTimes, waitMs);
+		} catch (InterruptedException e) {
+			logger.info("Update stream interrupted.");
+			updateList = flowRunnerManager.getFlowUpdates(execIds, updateTimes);
 		}
 		
 		respMap.put(RESPONSE_UPDATED_FLOWS, updateList);
 	}
 	
+	@SuppressWarnings("unchecked")
+	private List<Integer> getExecIds(HttpServletRequest req) throws ServletException, IOException {
+		List<Object> execIDList = (List<Object>)JSONUtils.parseJSONFromString(getParam(req, EXEC_ID_LIST_PARAM));
+		List<Integer> execIds = new ArrayList<Integer>();
+		for (Object execId: execIDList) {
+			execIds.add((Integer)execId);
+		}
+		return execIds;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<Long> getUpdateTimes(HttpServletRequest req) throws ServletException, IOException {
+		List<Object> updateTimesList = (List<Object>)JSONUtils.parseJSONFromString(getParam(req, UPDATE_TIME_LIST_PARAM));
+		List<Long> updateTimes = new ArrayList<Long>();
+		for (Object updateTime: updateTimesList) {
+			updateTimes.add(JSONUtils.getLongFromObject(updateTime));
+		}
+		return updateTimes;
+	}
+	
 	private void handleAjaxExecute(HttpServletRequest req, Map<String, Object> respMap, int execId) throws ServletException {
 		try {
 			flowRunnerManager.submitFlow(execId);
@@ -372,6 +417,18 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 		return Integer.parseInt(p);
 	}
 	
+	public long getLongParam(HttpServletRequest request, String name, long defaultVal) {
+		if (hasParam(request, name)) {
+			try {
+				return Long.parseLong(getParam(request, name));
+			} catch (Exception e) {
+				return defaultVal;
+			}
+		}
+		
+		return defaultVal;
+	}
+	
 	public int getIntParam(HttpServletRequest request, String name, int defaultVal) {
 		if (hasParam(request, name)) {
 			try {
@@ -21,15 +21,16 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
@@ -56,16 +57,18 @@ import azkaban.project.ProjectLoader;
 import azkaban.project.ProjectManagerException;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
-import azkaban.utils.SwapQueue;
 
 /**
  * Class that handles the running of a ExecutableFlow DAG
  * 
+ * Every node counts the in nodes it is still waiting on. When a job finishes,
+ * its job thread counts down its out nodes and queues the ones that reach 0.
+ * The flow thread sleeps until there is something queued, then runs, skips or
+ * cancels the queued nodes. Failures and the ends of flows are always handed
+ * to the flow thread.
  */
 public class FlowRunner extends EventHandler implements Runnable {
 	private static final Layout DEFAULT_LAYOUT = new PatternLayout("%d{dd-MM-yyyy HH:mm:ss z} %c{1} %p - %m\n");
-	// We check update every 5 minutes, just in case things get stuck. But for the most part, we'll be idling.
-	private static final long CHECK_WAIT_MS = 5*60*1000;
 	
 	private Logger logger;
 	private Layout loggerLayout = DEFAULT_LAYOUT;
@@ -73,6 +76,9 @@ public class FlowRunner extends EventHandler implements Runnable {
 	private File logFile;
 	
 	private ExecutorService executorService;
+	// If set, jobs run in the executor's shared job slots instead of executorService.
+	private JobSlotScheduler jobScheduler = null;
+	private int priority = 0;
 	private ExecutorLoader executorLoader;
 	private ProjectLoader projectLoader;
 	
@@ -83,7 +89,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 	private int numJobThreads = 10;
 	private ExecutionOptions.FailureAction failureAction;
 	
-	// Sync object for queuing
+	// Sync object for pausing, resuming and killing
 	private Object mainSyncObj = new Object();
 	
 	// Properties map
@@ -95,8 +101,11 @@ public class FlowRunner extends EventHandler implements Runnable {
 	private JobRunnerEventListener listener = new JobRunnerEventListener();
 	private Set<JobRunner> activeJobRunners = Collections.newSetFromMap(new ConcurrentHashMap<JobRunner, Boolean>());
 	
-	// Thread safe swap queue for finishedExecutions.
-	private SwapQueue<ExecutableNode> finishedNodes;
+	// Finished nodes the flow thread has to look at. These are failures, which
+	// may be retried, and end nodes, which finish their flow.
+	private ConcurrentLinkedQueue<ExecutableNode> finishedNodes = new ConcurrentLinkedQueue<ExecutableNode>();
+	// Nodes whose in nodes have all finished, waiting for the flow thread.
+	private ConcurrentLinkedQueue<ExecutableNode> readyNodes = new ConcurrentLinkedQueue<ExecutableNode>();
 	
 	// Used for pipelining
 	private Integer pipelineLevel = null;
@@ -111,13 +120,22 @@ public class FlowRunner extends EventHandler implements Runnable {
 	private String jobLogFileSize = "5MB";
 	private int jobLogNumFiles = 4;
 	
-	private boolean flowPaused = false;
-	private boolean flowFailed = false;
-	private boolean flowFinished = false;
-	private boolean flowKilled = false;
+	private volatile boolean flowPaused = false;
+	private volatile boolean flowFailed = false;
+	private volatile boolean flowFinished = false;
+	private volatile boolean flowKilled = false;
 	
 	// The following is state that will trigger a retry of all failed jobs
-	private boolean retryFailedJobs = false;
+	private volatile boolean retryFailedJobs = false;
+	
+	// When set, only the changed nodes are persisted while the flow runs and the
+	// serialized flow is rewritten at the start and end of the flow.
+	private boolean incrementalUpdates = false;
+	private long lastUpdatePersistTime = 0;
+	// If set, updates are written behind by the shared writer instead of inline.
+	private FlowUpdateWriter updateWriter = null;
+	// If set, job logs are uploaded while the jobs run.
+	private JobLogUploader jobLogUploader = null;
 	
 	
 	/**
@@ -159,7 +177,6 @@ public class FlowRunner extends EventHandler implements Runnable {
 		this.failureAction = options.getFailureAction();
 		this.proxyUsers = flow.getProxyUsers();
 		this.executorService = executorService;
-		this.finishedNodes = new SwapQueue<ExecutableNode>();
 	}
 
 	public FlowRunner setFlowWatcher(FlowWatcher watcher) {
@@ -177,6 +194,16 @@ public class FlowRunner extends EventHandler implements Runnable {
 		return this;
 	}
 	
+	/**
+	 * Runs the jobs in the shared job slots. The flow runs at most numJobThreads
+	 * jobs at once, and flows with a higher priority get free slots first.
+	 */
+	public FlowRunner setJobScheduler(JobSlotScheduler jobScheduler, int priority) {
+		this.jobScheduler = jobScheduler;
+		this.priority = priority;
+		return this;
+	}
+	
 	public FlowRunner setJobLogSettings(String jobLogFileSize, int jobLogNumFiles) {
 		this.jobLogFileSize = jobLogFileSize;
 		this.jobLogNumFiles = jobLogNumFiles;
@@ -189,13 +216,31 @@ public class FlowRunner extends EventHandler implements Runnable {
 		return this;
 	}
 	
+	public FlowRunner setIncrementalUpdates(boolean incrementalUpdates) {
+		this.incrementalUpdates = incrementalUpdates;
+		return this;
+	}
+	
+	public FlowRunner setUpdateWriter(FlowUpdateWriter updateWriter) {
+		this.updateWriter = updateWriter;
+		return this;
+	}
+	
+	public FlowRunner setJobLogUploader(JobLogUploader jobLogUploader) {
+		this.jobLogUploader = jobLogUploader;
+		return this;
+	}
+	
 	public File getExecutionDir() {
 		return execDir;
 	}
 	
 	public void run() {
 		try {
-			if (this.executorService == null) {
+			if (jobScheduler != null) {
+				jobScheduler.addFlow(execId, flow.getProjectId(), numJobThreads, priority);
+			}
+			else if (this.executorService == null) {
 				this.executorService = Executors.newFixedThreadPool(numJobThreads);
 			}
 			setupFlowExecution();
@@ -204,7 +249,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 			updateFlowReference();
 			
 			logger.info("Updating initial flow directory.");
-			updateFlow();
+			updateFlow(System.currentTimeMillis(), true, true);
 			logger.info("Fetching job and shared properties.");
 			loadAllProperties();
 
@@ -217,6 +262,9 @@ public class FlowRunner extends EventHandler implements Runnable {
 			flow.setStatus(Status.FAILED);
 		}
 		finally {
+			if (jobScheduler != null) {
+				jobScheduler.removeFlow(execId);
+			}
 			if (watcher != null) {
 				logger.info("Watcher is attached. Stopping watcher.");
 				watcher.stopWatcher();
@@ -227,7 +275,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 			logger.info("Setting end time for flow " + execId + " to " + System.currentTimeMillis());
 			closeLogger();
 			
-			updateFlow();
+			updateFlow(System.currentTimeMillis(), true, true);
 			this.fireEventListeners(Event.create(this, Type.FLOW_FINISHED));
 		}
 	}
@@ -267,7 +315,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 			logger.info("Running simulateously with " + pipelineExecId + ". Pipelining level " + pipelineLevel);
 		}
 		
-		// The current thread is used for interrupting blocks
+		// The current thread is woken up when there is work for it
 		flowRunnerThread = Thread.currentThread();
 		flowRunnerThread.setName("FlowRunner-exec-" + flow.getExecutionId());
 	}
@@ -283,10 +331,37 @@ public class FlowRunner extends EventHandler implements Runnable {
 		updateFlow(System.currentTimeMillis());
 	}
 	
-	private synchronized void updateFlow(long time) {
+	private void updateFlow(long time) {
+		updateFlow(time, !incrementalUpdates);
+	}
+	
+	private synchronized void updateFlow(long time, boolean rewriteFlowData) {
+		updateFlow(time, rewriteFlowData, false);
+	}
+	
+	/**
+	 * Updates the flow in the db. Unless writeThrough is set, the write is handed
+	 * to the update writer if there is one.
+	 */
+	private synchronized void updateFlow(long time, boolean rewriteFlowData, boolean writeThrough) {
 		try {
 			flow.setUpdateTime(time);
-			executorLoader.updateExecutableFlow(flow);
+			if (updateWriter != null && !writeThrough) {
+				updateWriter.enqueue(flow, lastUpdatePersistTime, rewriteFlowData);
+			}
+			else {
+				if (updateWriter != null) {
+					updateWriter.cancel(execId);
+				}
+				
+				if (rewriteFlowData) {
+					executorLoader.updateExecutableFlow(flow);
+				}
+				else {
+					executorLoader.updateExecutableFlowStatus(flow, lastUpdatePersistTime);
+				}
+			}
+			lastUpdatePersistTime = time;
 		} catch (ExecutorManagerException e) {
 			logger.error("Error updating flow.", e);
 		}
@@ -354,40 +429,41 @@ public class FlowRunner extends EventHandler implements Runnable {
 	 */
 	private void runFlow() throws Exception {
 		logger.info("Starting flows");
+		resetPendingInNodes(this.flow);
 		runReadyJob(this.flow);
 		updateFlow();
 		
 		while (!flowFinished) {
-			synchronized(mainSyncObj) {
-				if (flowPaused) {
-					try {
-						mainSyncObj.wait(CHECK_WAIT_MS);
-					} catch (InterruptedException e) {
-					}
-
-					continue;
-				}
-				else {
-					if (retryFailedJobs) {
-						retryAllFailures();
-					}
-					else if (!progressGraph()) {
-						try {
-							mainSyncObj.wait(CHECK_WAIT_MS);
-						} catch (InterruptedException e) {
-						}
-					}
-				}
+			if (flowPaused) {
+				waitForUpdates();
+			}
+			else if (retryFailedJobs) {
+				retryAllFailures();
+			}
+			else if (!progressGraph()) {
+				waitForUpdates();
 			}
 		}
 		
 		logger.info("Finishing up flow. Awaiting Termination");
-		executorService.shutdown();
+		if (executorService != null) {
+			executorService.shutdown();
+		}
 		
 		updateFlow();
 		logger.info("Finished Flow");
 	}
 	
+	/**
+	 * Blocks the flow thread until a job finishes or the flow is paused, resumed,
+	 * killed or retried.
+	 */
+	private void waitForUpdates() {
+		LockSupport.park(this);
+		// Clear any interrupt, otherwise park won't block again.
+		Thread.interrupted();
+	}
+	
 	private void retryAllFailures() throws IOException {
 		logger.info("Restarting all failed jobs");
 		
@@ -398,6 +474,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 		
 		ArrayList<ExecutableNode> retryJobs = new ArrayList<ExecutableNode>();
 		resetFailedState(this.flow, retryJobs);
+		resetPendingInNodes(this.flow);
 		
 		for (ExecutableNode node: retryJobs) {
 			if (node.getStatus() == Status.READY || node.getStatus() == Status.DISABLED) {
@@ -416,74 +493,113 @@ public class FlowRunner extends EventHandler implements Runnable {
 		updateFlow();
 	}
 
-	private boolean progressGraph() throws IOException {
-		finishedNodes.swap();
-
-		// The following nodes are finished, so we'll collect a list of outnodes
-		// that are candidates for running next.
-		HashSet<ExecutableNode> nodesToCheck = new HashSet<ExecutableNode>();
-		for (ExecutableNode node: finishedNodes) {
-			Set<String> outNodeIds = node.getOutNodes();
-			ExecutableFlowBase parentFlow = node.getParentFlow();
-			
-			// If a job is seen as failed, then we set the parent flow to FAILED_FINISHING
-			if (node.getStatus() == Status.FAILED) {
-				// The job cannot be retried or has run out of retry attempts. We will 
-				// fail the job and its flow now.
-				if (!retryJobIfPossible(node)) {
-					propagateStatus(node.getParentFlow(), Status.FAILED_FINISHING);
-					if (failureAction == FailureAction.CANCEL_ALL) {
-						this.kill();
-					}
-					this.flowFailed = true;
-				}
-				else {
-					nodesToCheck.add(node);
-					continue;
-				}
-			}
-
-			if (outNodeIds.isEmpty()) {
-				// There's no outnodes means it's the end of a flow, so we finalize
-				// and fire an event.
-				finalizeFlow(parentFlow);
-				finishExecutableNode(parentFlow);
-				
-				// If the parent has a parent, then we process
-				if (!(parentFlow instanceof ExecutableFlow)) {
-					outNodeIds = parentFlow.getOutNodes();
-					parentFlow = parentFlow.getParentFlow();
+	/**
+	 * Sets the number of unfinished in nodes that every node in the flow, and in
+	 * its embedded flows, is waiting on.
+	 */
+	private void resetPendingInNodes(ExecutableFlowBase flow) {
+		for (ExecutableNode node: flow.getExecutableNodes()) {
+			int pending = 0;
+			for (String inNodeId: node.getInNodes()) {
+				if (!Status.isStatusFinished(flow.getExecutableNode(inNodeId).getStatus())) {
+					pending++;
 				}
 			}
-
-			// Add all out nodes from the finished job. We'll check against this set to
-			// see if any are candidates for running.
-			for (String nodeId: outNodeIds) {
-				ExecutableNode outNode = parentFlow.getExecutableNode(nodeId);
-				nodesToCheck.add(outNode);
+			node.setPendingInNodes(pending);
+			
+			if (node instanceof ExecutableFlowBase) {
+				resetPendingInNodes((ExecutableFlowBase)node);
 			}
 		}
-
-		// Runs candidate jobs. The code will check to see if they are ready to run before 
-		// Instant kill or skip if necessary.
-		boolean jobsRun = false;
-		for (ExecutableNode node: nodesToCheck) {
-			if (Status.isStatusFinished(node.getStatus()) || 
-				Status.isStatusRunning(node.getStatus())) {
-				// Really shouldn't get in here.
+	}
+	
+	/**
+	 * Handles the finished nodes queued for the flow thread, then runs the ready
+	 * nodes. Returns false if there was nothing queued.
+	 */
+	private boolean progressGraph() throws IOException {
+		boolean progressed = false;
+		while (!flowPaused) {
+			ExecutableNode node = finishedNodes.poll();
+			if (node != null) {
+				progressFinishedNode(node);
+				progressed = true;
 				continue;
 			}
 			
-			jobsRun |= runReadyJob(node);
+			node = readyNodes.poll();
+			if (node == null) {
+				break;
+			}
+			// runReadyJob checks the node again, since a retry can queue it twice.
+			progressed |= runReadyJob(node);
 		}
 		
-		if (jobsRun || finishedNodes.getSize() > 0 ) {
+		if (progressed) {
 			updateFlow();
-			return true;
+		}
+		return progressed;
+	}
+	
+	private void progressFinishedNode(ExecutableNode node) {
+		// If a job is seen as failed, then we set the parent flow to FAILED_FINISHING
+		if (node.getStatus() == Status.FAILED) {
+			if (retryJobIfPossible(node)) {
+				readyNodes.add(node);
+				return;
+			}
+			
+			// The job cannot be retried or has run out of retry attempts. We will 
+			// fail the job and its flow now.
+			propagateStatus(node.getParentFlow(), Status.FAILED_FINISHING);
+			if (failureAction == FailureAction.CANCEL_ALL) {
+				this.kill();
+			}
+			this.flowFailed = true;
 		}
 		
-		return false;
+		if (node.getOutNodes().isEmpty()) {
+			// There's no outnodes means it's the end of a flow, so we finalize
+			// and fire an event. The flow then finishes in its parent flow.
+			ExecutableFlowBase parentFlow = node.getParentFlow();
+			finalizeFlow(parentFlow);
+			finishExecutableNode(parentFlow);
+		}
+		else {
+			releaseOutNodes(node);
+		}
 	}
+	
+	/**
+	 * Moves the graph on from a node that has finished. This is called from the
+	 * job threads as well as the flow thread.
+	 */
+	private void nodeFinished(ExecutableNode node) {
+		if (node == this.flow) {
+			return;
+		}
+		
+		if (node.getStatus() == Status.FAILED || node.getOutNodes().isEmpty()) {
+			finishedNodes.add(node);
+		}
+		else {
+			releaseOutNodes(node);
+		}
+		wakeUp();
+	}
+	
+	private void releaseOutNodes(ExecutableNode node) {
+		ExecutableFlowBase parentFlow = node.getParentFlow();
+		for (String outNodeId: node.getOutNodes()) {
+			ExecutableNode outNode = parentFlow.getExecutableNode(outNodeId);
+			// The count can drop below 0 if a retry recounted it while jobs were
+			// still finishing. Queuing it again is harmless.
+			if (outNode.inNodeFinished() <= 0) {
+				readyNodes.add(outNode);
+			}
+		}
+	}
+	
 	private boolean runReadyJob(ExecutableNode node) throws IOException {
 		if (Status.isStatusFinished(node.getStatus()) || 
 			Status.isStatusRunning(node.getStatus())) {
@@ -558,7 +674,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 	}
 	
 	private void finishExecutableNode(ExecutableNode node) {
-		finishedNodes.add(node);
+		nodeFinished(node);
 		fireEventListeners(Event.create(this, Type.JOB_FINISHED, node));
 	}
 	
@@ -709,7 +825,12 @@ public class FlowRunner extends EventHandler implements Runnable {
 		JobRunner runner = createJobRunner(node);
 		logger.info("Submitting job '" + node.getNestedId() + "' to run.");
 		try {
-			executorService.submit(runner);
+			if (jobScheduler != null) {
+				jobScheduler.submit(execId, runner);
+			}
+			else {
+				executorService.submit(runner);
+			}
 			activeJobRunners.add(runner);
 		} catch (RejectedExecutionException e) {
 			logger.error(e);
@@ -798,6 +919,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 		
 		jobRunner.setDelayStart(node.getDelayedExecution());
 		jobRunner.setLogSettings(logger, jobLogFileSize, jobLogNumFiles);
+		jobRunner.setLogUploader(jobLogUploader);
 		jobRunner.addListener(listener);
 
 		return jobRunner;
@@ -817,7 +939,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 			}
 		}
 		
-		interrupt();
+		wakeUp();
 	}
 	
 	public void resume(String user) {
@@ -842,7 +964,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 			}
 		}
 
-		interrupt();
+		wakeUp();
 	}
 	
 	public void kill(String user) {
@@ -852,7 +974,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 			kill();
 			updateFlow();
 		}
-		interrupt();
+		wakeUp();
 	}
 	
 	private void kill() {
@@ -873,6 +995,10 @@ public class FlowRunner extends EventHandler implements Runnable {
 			for (JobRunner runner : activeJobRunners) {
 				runner.kill();
 			}
+			// Killed jobs that are still waiting for a slot can finish now.
+			if (jobScheduler != null) {
+				jobScheduler.startKilledJobs(execId);
+			}
 		}
 	}
 	
@@ -880,7 +1006,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 		synchronized(mainSyncObj) {
 			logger.info("Retrying failures invoked by " + user);
 			retryFailedJobs = true;
-			interrupt();
+			wakeUp();
 		}
 	}
 	
@@ -980,8 +1106,8 @@ public class FlowRunner extends EventHandler implements Runnable {
 		logger.info("Resetting flow '" + flow.getNestedId() + "' from " + oldFlowState + " to " + flow.getStatus());
 	}
 	
-	private void interrupt() {
-		flowRunnerThread.interrupt();
+	private void wakeUp() {
+		LockSupport.unpark(flowRunnerThread);
 	}
 
 	private class JobRunnerEventListener implements EventListener {
@@ -994,24 +1120,23 @@ public class FlowRunner extends EventHandler implements Runnable {
 			
 			if (event.getType() == Type.JOB_STATUS_CHANGED) {
 				updateFlow();
+				// Lets listeners (i.e. update streams) know the flow has changed.
+				fireEventListeners(event);
 			}
 			else if (event.getType() == Type.JOB_FINISHED) {
 				ExecutableNode node = runner.getNode();
 				long seconds = (node.getEndTime() - node.getStartTime())/1000;
-				synchronized(mainSyncObj) {
-					logger.info("Job " + node.getNestedId() + " finished with status " + node.getStatus() + " in " + seconds + " seconds");
-					
-					// Cancellation is handled in the main thread, but if the flow is paused, the main thread is paused too.
-					// This unpauses the flow for cancellation.
-					if (flowPaused && node.getStatus() == Status.FAILED && failureAction == FailureAction.CANCEL_ALL) {
-						flowPaused = false;
-					}
-					
-					finishedNodes.add(node);
-					node.getParentFlow().setUpdateTime(System.currentTimeMillis());
-					interrupt();
-					fireEventListeners(event);
+				logger.info("Job " + node.getNestedId() + " finished with status " + node.getStatus() + " in " + seconds + " seconds");
+				
+				// Cancellation is handled in the main thread, but if the flow is paused, the main thread is paused too.
+				// This unpauses the flow for cancellation.
+				if (flowPaused && node.getStatus() == Status.FAILED && failureAction == FailureAction.CANCEL_ALL) {
+					flowPaused = false;
 				}
+				
+				node.getParentFlow().setUpdateTime(System.currentTimeMillis());
+				nodeFinished(node);
+				fireEventListeners(event);
 			}
 		}
 	}
@@ -1076,6 +1201,9 @@ public class FlowRunner extends EventHandler implements Runnable {
 	}
 	
 	public boolean isThreadPoolShutdown() {
+		if (executorService == null) {
+			return flowFinished;
+		}
 		return executorService.isShutdown();
 	}
 	
@@ -21,17 +21,21 @@ import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.Thread.State;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -42,6 +46,7 @@ import azkaban.execapp.event.EventListener;
 import azkaban.execapp.event.FlowWatcher;
 import azkaban.execapp.event.LocalFlowWatcher;
 import azkaban.execapp.event.RemoteFlowWatcher;
+import azkaban.executor.ConnectorParams;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutorLoader;
@@ -54,6 +59,8 @@ import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
+import azkaban.utils.WorkspaceBuilder;
+import azkaban.utils.WorkspaceBuilder.LinkMode;
 
 /**
  * Execution manager for the server side execution.
@@ -67,6 +74,15 @@ public class FlowRunnerManager implements EventListener {
 	private static final long RECENTLY_FINISHED_TIME_TO_LIVE = 60*1000; // recently finished secs to clean up. 1 minute
 	
 	private static final int DEFAULT_NUM_EXECUTING_FLOWS = 30;
+	private static final long DEFAULT_FLOW_UPDATE_WINDOW_MS = 250;
+	private static final long DEFAULT_LOG_UPLOAD_INTERVAL_MS = 10000;
+	private static final int DEFAULT_LOG_UPLOAD_MAX_PENDING_BYTES = 8*1024*1024;
+	private static final int DEFAULT_ARTIFACT_FETCH_THREADS = 4;
+	private static final int DEFAULT_STAGE_THREADS = 2;
+	private static final long DEFAULT_STAGE_MAX_BYTES = 20L*1024*1024*1024;
+	private static final String DEFAULT_WORKSPACE_LINK_MODE = "symlink";
+	private static final long DEFAULT_PROJECT_DISK_HIGH_WATERMARK_BYTES = 40L*1024*1024*1024;
+	private static final long DEFAULT_PROJECT_DISK_LOW_WATERMARK_BYTES = 30L*1024*1024*1024;
 	private Map<Pair<Integer,Integer>, ProjectVersion> installedProjects = new ConcurrentHashMap<Pair<Integer,Integer>, ProjectVersion>();
 	private Map<Integer, FlowRunner> runningFlows = new ConcurrentHashMap<Integer, FlowRunner>();
 	private Map<Integer, ExecutableFlow> recentlyFinishedFlows = new ConcurrentHashMap<Integer, ExecutableFlow>();
@@ -77,6 +93,9 @@ public class FlowRunnerManager implements EventListener {
 	private SubmitterThread submitterThread;
 	private CleanerThread cleanerThread;
 	private int numJobThreadPerFlow = 10;
+	// Runs the jobs of all flows in a fixed number of slots. Null if every flow
+	// has its own thread pool.
+	private JobSlotScheduler jobScheduler = null;
 	
 	private ExecutorLoader executorLoader;
 	private ProjectLoader projectLoader;
@@ -98,7 +117,37 @@ public class FlowRunnerManager implements EventListener {
 	// If true, jobs will validate proxy user against a list of valid proxy users.
 	private boolean validateProxyUser = false;
 	
+	// If true, running flows persist only changed nodes instead of the whole flow.
+	private boolean incrementalFlowUpdates = true;
+	
+	// Coalesces and batches flow updates. Null if updates are written inline.
+	private FlowUpdateWriter flowUpdateWriter = null;
+	// Uploads job logs while they run. Null if logs are only uploaded at the end.
+	private JobLogUploader jobLogUploader = null;
+	// Shares fetched project files between versions. Null if every version
+	// fetches and unzips its own copy.
+	private ProjectArtifactCache artifactCache = null;
+	// Sets up project versions ahead of their first execution.
+	private ExecutorService stagingService = null;
+	private long stageMaxBytes = DEFAULT_STAGE_MAX_BYTES;
+	private Set<Pair<Integer,Integer>> stagingProjects = Collections.newSetFromMap(new ConcurrentHashMap<Pair<Integer,Integer>, Boolean>());
+	// Evicts the least recently used project files when they take too much disk.
+	private ProjectVersionEvictor projectEvictor;
+	// Held while project versions are set up, and exclusively while they're deleted.
+	private final ReentrantReadWriteLock projectSetupLock = new ReentrantReadWriteLock();
+	// Links the project files into execution directories.
+	private WorkspaceBuilder workspaceBuilder;
+	private long lastSetupTimeMs = 0;
+	private long totalSetupTimeMs = 0;
+	private long numSetups = 0;
+	
 	private Object executionDirDeletionSync = new Object();
+	
+	// Bumped and notified whenever a running flow fires an event, so that update
+	// stream requests waiting on it can return right away.
+	private final Object flowUpdateSync = new Object();
+	private long flowUpdateVersion = 0;
+	private static final long FLOW_UPDATE_RECHECK_MS = 1000;
 		
 	public FlowRunnerManager(Props props, ExecutorLoader executorLoader, ProjectLoader projectLoader, ClassLoader parentClassLoader) throws IOException {
 		executionDirectory = new File(props.getString("azkaban.execution.dir", "executions"));
@@ -124,6 +173,14 @@ public class FlowRunnerManager implements EventListener {
 		numJobThreadPerFlow = props.getInt("flow.num.job.threads", numJobThreadPerFlow);
 		executorService = Executors.newFixedThreadPool(numThreads);
 		
+		// By default there are as many slots as the flows could use with their own pools.
+		int numJobSlots = props.getInt("executor.job.slots", numThreads * numJobThreadPerFlow);
+		if (numJobSlots > 0) {
+			int maxSlotsPerProject = props.getInt("executor.job.slots.per.project", numJobSlots);
+			jobScheduler = new JobSlotScheduler(numJobSlots, maxSlotsPerProject);
+			logger.info("Running jobs in " + numJobSlots + " shared job slots, at most " + maxSlotsPerProject + " per project.");
+		}
+		
 		this.executorLoader = executorLoader;
 		this.projectLoader = projectLoader;
 		
@@ -131,6 +188,34 @@ public class FlowRunnerManager implements EventListener {
 		this.jobLogNumFiles = azkabanProps.getInt("job.log.backup.index", 4);
 		
 		this.validateProxyUser = azkabanProps.getBoolean("proxy.user.lock.down", false);
+		this.incrementalFlowUpdates = azkabanProps.getBoolean("executor.flow.update.incremental", true);
+		long updateWindowMs = azkabanProps.getLong("executor.flow.update.window.ms", DEFAULT_FLOW_UPDATE_WINDOW_MS);
+		if (updateWindowMs > 0) {
+			flowUpdateWriter = new FlowUpdateWriter(executorLoader, updateWindowMs);
+		}
+		long logUploadIntervalMs = azkabanProps.getLong("executor.log.upload.interval.ms", DEFAULT_LOG_UPLOAD_INTERVAL_MS);
+		if (logUploadIntervalMs > 0) {
+			int maxPendingBytes = azkabanProps.getInt("executor.log.upload.max.pending.bytes", DEFAULT_LOG_UPLOAD_MAX_PENDING_BYTES);
+			jobLogUploader = new JobLogUploader(executorLoader, logUploadIntervalMs, maxPendingBytes);
+		}
+		
+		LinkMode linkMode = LinkMode.fromString(azkabanProps.getString("executor.workspace.link.mode", DEFAULT_WORKSPACE_LINK_MODE));
+		if (azkabanProps.getBoolean("executor.artifact.cache.enabled", true)) {
+			File artifactDir = new File(azkabanProps.getString("executor.artifact.cache.dir", new File(projectDirectory, "_artifacts").getPath()));
+			int fetchThreads = azkabanProps.getInt("executor.artifact.fetch.threads", DEFAULT_ARTIFACT_FETCH_THREADS);
+			// Copy on write workspaces link the cached files, so they must not be
+			// writable.
+			artifactCache = new ProjectArtifactCache(projectLoader, artifactDir, fetchThreads, linkMode == LinkMode.COPY_ON_WRITE);
+			stagingService = Executors.newFixedThreadPool(azkabanProps.getInt("executor.stage.threads", DEFAULT_STAGE_THREADS));
+			stageMaxBytes = azkabanProps.getLong("executor.stage.max.bytes", DEFAULT_STAGE_MAX_BYTES);
+		}
+		
+		long highWatermarkBytes = azkabanProps.getLong("executor.project.disk.high.watermark.bytes", DEFAULT_PROJECT_DISK_HIGH_WATERMARK_BYTES);
+		long lowWatermarkBytes = azkabanProps.getLong("executor.project.disk.low.watermark.bytes", DEFAULT_PROJECT_DISK_LOW_WATERMARK_BYTES);
+		projectEvictor = new ProjectVersionEvictor(installedProjects, artifactCache, highWatermarkBytes, lowWatermarkBytes);
+		
+		int workspaceThreads = azkabanProps.getInt("executor.workspace.threads", Runtime.getRuntime().availableProcessors());
+		workspaceBuilder = new WorkspaceBuilder(linkMode, workspaceThreads);
 		
 		submitterThread = new SubmitterThread(flowQueue);
 		submitterThread.start();
@@ -142,7 +227,7 @@ public class FlowRunnerManager implements EventListener {
 	}
 
 	private Map<Pair<Integer, Integer>, ProjectVersion> loadExistingProjects() {
-		Map<Pair<Integer, Integer>, ProjectVersion> allProjects = new HashMap<Pair<Integer,Integer>, ProjectVersion>();
+		Map<Pair<Integer, Integer>, ProjectVersion> allProjects = new ConcurrentHashMap<Pair<Integer,Integer>, ProjectVersion>();
 		for(File project : projectDirectory.listFiles(new FilenameFilter() {
 			
 			String pattern = "[0-9]+\\.[0-9]+";
@@ -241,8 +326,17 @@ public class FlowRunnerManager implements EventListener {
 						}
 						
 						if (currentTime - OLD_PROJECT_DIR_INTERVAL_MS > lastOldProjectCleanTime) {
-							logger.info("Cleaning old projects");
-							cleanOlderProjects();
+							projectSetupLock.writeLock().lock();
+							try {
+								logger.info("Cleaning old projects");
+								cleanOlderProjects();
+								
+								logger.info("Evicting projects over the disk quota");
+								projectEvictor.evict(getActiveProjectVersions());
+							}
+							finally {
+								projectSetupLock.writeLock().unlock();
+							}
 							
 							lastOldProjectCleanTime = currentTime;
 						}
@@ -312,6 +406,15 @@ public class FlowRunnerManager implements EventListener {
 			}
 		}
 		
+		private Set<Pair<Integer,Integer>> getActiveProjectVersions() {
+			HashSet<Pair<Integer,Integer>> activeProjectVersions = new HashSet<Pair<Integer,Integer>>();
+			for(FlowRunner runner: runningFlows.values()) {
+				ExecutableFlow flow = runner.getExecutableFlow();
+				activeProjectVersions.add(new Pair<Integer,Integer>(flow.getProjectId(), flow.getVersion()));
+			}
+			return activeProjectVersions;
+		}
+		
 		private void cleanOlderProjects() {
 			Map<Integer, ArrayList<ProjectVersion>> projectVersions = new HashMap<Integer, ArrayList<ProjectVersion>>();
 			for (ProjectVersion version : installedProjects.values() ) {
@@ -323,11 +426,7 @@ public class FlowRunnerManager implements EventListener {
 				versionList.add(version);
 			}
 			
-			HashSet<Pair<Integer,Integer>> activeProjectVersions = new HashSet<Pair<Integer,Integer>>();
-			for(FlowRunner runner: runningFlows.values()) {
-				ExecutableFlow flow = runner.getExecutableFlow();
-				activeProjectVersions.add(new Pair<Integer,Integer>(flow.getProjectId(), flow.getVersion()));
-			}
+			Set<Pair<Integer,Integer>> activeProjectVersions = getActiveProjectVersions();
 			
 			for (Map.Entry<Integer, ArrayList<ProjectVersion>> entry: projectVersions.entrySet()) {
 				//Integer projectId = entry.getKey();
@@ -371,52 +470,75 @@ public class FlowRunnerManager implements EventListener {
 			throw new ExecutorManagerException("Error loading flow with exec " + execId);
 		}
 		
-		// Sets up the project files and execution directory.
-		setupFlow(flow);
+		// Installed project versions aren't evicted while a flow is set up, until
+		// it shows up in the running flows.
+		projectSetupLock.readLock().lock();
+		try {
+			// Sets up the project files and execution directory.
+			setupFlow(flow);
 		
-		// Setup flow runner
-		FlowWatcher watcher = null;
-		ExecutionOptions options = flow.getExecutionOptions();
-		if (options.getPipelineExecutionId() != null) {
-			Integer pipelineExecId = options.getPipelineExecutionId();
-			FlowRunner runner = runningFlows.get(pipelineExecId);
+			// Setup flow runner
+			FlowWatcher watcher = null;
+			ExecutionOptions options = flow.getExecutionOptions();
+			if (options.getPipelineExecutionId() != null) {
+				Integer pipelineExecId = options.getPipelineExecutionId();
+				FlowRunner runner = runningFlows.get(pipelineExecId);
 			
-			if (runner != null) {
-				watcher = new LocalFlowWatcher(runner);
-			}
-			else {
-				watcher = new RemoteFlowWatcher(pipelineExecId, executorLoader);
+				if (runner != null) {
+					watcher = new LocalFlowWatcher(runner);
+				}
+				else {
+					watcher = new RemoteFlowWatcher(pipelineExecId, executorLoader);
+				}
 			}
-		}
 
-		int numJobThreads = numJobThreadPerFlow;
-		if(options.getFlowParameters().containsKey("flow.num.job.threads")) {
-			try{
-				int numJobs = Integer.valueOf(options.getFlowParameters().get("flow.num.job.threads"));
-				if(numJobs > 0 && numJobs <= numJobThreads) {
-					numJobThreads = numJobs;
+			int numJobThreads = numJobThreadPerFlow;
+			if(options.getFlowParameters().containsKey("flow.num.job.threads")) {
+				try{
+					int numJobs = Integer.valueOf(options.getFlowParameters().get("flow.num.job.threads"));
+					if(numJobs > 0 && numJobs <= numJobThreads) {
+						numJobThreads = numJobs;
+					}
+				} catch (Exception e) {
+					throw new ExecutorManagerException("Failed to set the number of job threads " + options.getFlowParameters().get("flow.num.job.threads") + " for flow " + execId, e);
+				}
+			}
+		
+			int priority = 0;
+			if (options.getFlowParameters().containsKey("flow.priority")) {
+				try {
+					priority = Integer.valueOf(options.getFlowParameters().get("flow.priority"));
+				} catch (NumberFormatException e) {
+					throw new ExecutorManagerException("Failed to set the priority " + options.getFlowParameters().get("flow.priority") + " for flow " + execId, e);
 				}
-			} catch (Exception e) {
-				throw new ExecutorManagerException("Failed to set the number of job threads " + options.getFlowParameters().get("flow.num.job.threads") + " for flow " + execId, e);
 			}
-		}
 		
-		FlowRunner runner = new FlowRunner(flow, executorLoader, projectLoader, jobtypeManager);
-		runner.setFlowWatcher(watcher)
-			.setJobLogSettings(jobLogChunkSize, jobLogNumFiles)
-			.setValidateProxyUser(validateProxyUser)
-			.setGlobalProps(globalProps)
-			.setNumJobThreads(numJobThreads)
-			.addListener(this);
+			FlowRunner runner = new FlowRunner(flow, executorLoader, projectLoader, jobtypeManager);
+			if (jobScheduler != null) {
+				runner.setJobScheduler(jobScheduler, priority);
+			}
+			runner.setFlowWatcher(watcher)
+				.setJobLogSettings(jobLogChunkSize, jobLogNumFiles)
+				.setValidateProxyUser(validateProxyUser)
+				.setIncrementalUpdates(incrementalFlowUpdates)
+				.setUpdateWriter(flowUpdateWriter)
+				.setJobLogUploader(jobLogUploader)
+				.setGlobalProps(globalProps)
+				.setNumJobThreads(numJobThreads)
+				.addListener(this);
 		
-		// Check again.
-		if (runningFlows.containsKey(execId)) {
-			throw new ExecutorManagerException("Execution " + execId + " is already running.");
-		}
+			// Check again.
+			if (runningFlows.containsKey(execId)) {
+				throw new ExecutorManagerException("Execution " + execId + " is already running.");
+			}
 		
-		// Finally, queue the sucker.
-		runningFlows.put(execId, runner);
-		flowQueue.add(runner);
+			// Finally, queue the sucker.
+			runningFlows.put(execId, runner);
+			flowQueue.add(runner);
+		}
+		finally {
+			projectSetupLock.readLock().unlock();
+		}
 	}
 	
 	private void setupFlow(ExecutableFlow flow) throws ExecutorManagerException {
@@ -426,22 +548,25 @@ public class FlowRunnerManager implements EventListener {
 		logger.info("Flow " + execId + " submitted with path " + execPath.getPath());
 		execPath.mkdirs();
 		
+		long startTime = System.currentTimeMillis();
+		
 		// We're setting up the installed projects. First time, it may take a while to set up.
 		Pair<Integer, Integer> projectVersionKey = new Pair<Integer,Integer>(flow.getProjectId(), flow.getVersion());
 		
-		// We set up project versions this way
-		ProjectVersion projectVersion = null;
-		synchronized(installedProjects) {
-			projectVersion = installedProjects.get(projectVersionKey);
-			if (projectVersion == null) {
-				projectVersion = new ProjectVersion(flow.getProjectId(), flow.getVersion());
-				installedProjects.put(projectVersionKey, projectVersion);
-			}
-		}
+		ProjectVersion projectVersion = getProjectVersion(projectVersionKey);
 
 		try {
-			projectVersion.setupProjectFiles(projectLoader, projectDirectory, logger);
-			projectVersion.copyCreateSymlinkDirectory(execPath);
+			if (artifactCache != null) {
+				projectVersion.setupProjectFiles(artifactCache, projectDirectory, logger);
+			}
+			else {
+				projectVersion.setupProjectFiles(projectLoader, projectDirectory, logger);
+			}
+			long linkStartTime = System.currentTimeMillis();
+			int numFiles = projectVersion.setupExecutionDirectory(execPath, workspaceBuilder);
+			long endTime = System.currentTimeMillis();
+			logger.info("Flow " + execId + " execution directory set up in " + (endTime - startTime) + " ms. Linked " + numFiles + " files in " + (endTime - linkStartTime) + " ms");
+			recordSetupTime(endTime - startTime);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (execPath.exists()) {
@@ -456,6 +581,109 @@ public class FlowRunnerManager implements EventListener {
 		}
 	}
 	
+	private ProjectVersion getProjectVersion(Pair<Integer, Integer> projectVersionKey) {
+		// We set up project versions this way
+		ProjectVersion projectVersion = null;
+		synchronized(installedProjects) {
+			projectVersion = installedProjects.get(projectVersionKey);
+			if (projectVersion == null) {
+				projectVersion = new ProjectVersion(projectVersionKey.getFirst(), projectVersionKey.getSecond());
+				installedProjects.put(projectVersionKey, projectVersion);
+			}
+		}
+		return projectVersion;
+	}
+	
+	/**
+	 * Stages a comma separated list of project versions, each written as
+	 * projectId.version. Returns the ones that were queued, leaving out those
+	 * that are already set up or queued. Nothing is staged if any of them is
+	 * malformed.
+	 */
+	public List<String> stageProjects(String projects) throws ExecutorManagerException {
+		List<Pair<Integer, Integer>> projectVersions = new ArrayList<Pair<Integer,Integer>>();
+		for (String project: projects.split(",")) {
+			project = project.trim();
+			if (project.isEmpty()) {
+				continue;
+			}
+			
+			String[] split = project.split("\\.");
+			if (split.length != 2) {
+				throw new ExecutorManagerException("Invalid project version " + project);
+			}
+			
+			try {
+				projectVersions.add(new Pair<Integer, Integer>(Integer.parseInt(split[0]), Integer.parseInt(split[1])));
+			}
+			catch (NumberFormatException e) {
+				throw new ExecutorManagerException("Invalid project version " + project);
+			}
+		}
+		
+		List<String> staged = new ArrayList<String>();
+		for (Pair<Integer, Integer> projectVersion: projectVersions) {
+			if (stageProject(projectVersion.getFirst(), projectVersion.getSecond())) {
+				staged.add(projectVersion.getFirst() + "." + projectVersion.getSecond());
+			}
+		}
+		
+		logger.info("Staging projects " + staged);
+		return staged;
+	}
+	
+	/**
+	 * Sets up the files of a project version in the background, ahead of its
+	 * first execution on this executor. Nothing is fetched once the cached
+	 * project files take up executor.stage.max.bytes.
+	 * 
+	 * Returns false if the version is already set up or being staged, or if
+	 * staging is disabled.
+	 */
+	public boolean stageProject(int projectId, int version) {
+		if (stagingService == null) {
+			return false;
+		}
+		
+		final Pair<Integer, Integer> projectVersionKey = new Pair<Integer,Integer>(projectId, version);
+		ProjectVersion installed = installedProjects.get(projectVersionKey);
+		if (installed != null && installed.isInstalled()) {
+			return false;
+		}
+		if (!stagingProjects.add(projectVersionKey)) {
+			return false;
+		}
+		
+		stagingService.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (artifactCache.getSizeBytes() >= stageMaxBytes) {
+						logger.info("Not staging project " + projectVersionKey + ". Cached files already take " + artifactCache.getSizeBytes() + " bytes");
+						return;
+					}
+					
+					long startTime = System.currentTimeMillis();
+					projectSetupLock.readLock().lock();
+					try {
+						getProjectVersion(projectVersionKey).setupProjectFiles(artifactCache, projectDirectory, logger);
+					}
+					finally {
+						projectSetupLock.readLock().unlock();
+					}
+					logger.info("Staged project " + projectVersionKey + " in " + (System.currentTimeMillis() - startTime) + " ms");
+				}
+				catch (Exception e) {
+					logger.error("Error staging project " + projectVersionKey, e);
+				}
+				finally {
+					stagingProjects.remove(projectVersionKey);
+				}
+			}
+		});
+		return true;
+	}
+	
 	public void cancelFlow(int execId, String user) throws ExecutorManagerException {
 		FlowRunner runner = runningFlows.get(execId);
 		
@@ -515,6 +743,108 @@ public class FlowRunnerManager implements EventListener {
 			logger.info("Flow " + flow.getExecutionId() + " is finished. Adding it to recently finished flows list.");
 			runningFlows.remove(flow.getExecutionId());
 		}
+		
+		notifyFlowUpdate();
+	}
+	
+	private void notifyFlowUpdate() {
+		synchronized(flowUpdateSync) {
+			flowUpdateVersion++;
+			flowUpdateSync.notifyAll();
+		}
+	}
+	
+	/**
+	 * Returns a counter that changes every time one of the running flows fires
+	 * an event. Used with waitForFlowUpdate.
+	 */
+	public long getFlowUpdateVersion() {
+		synchronized(flowUpdateSync) {
+			return flowUpdateVersion;
+		}
+	}
+	
+	/**
+	 * Blocks until a flow event happens after the given update version, or until
+	 * the wait time has passed. Returns true if there was an event.
+	 */
+	public boolean waitForFlowUpdate(long version, long waitMs) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + waitMs;
+		synchronized(flowUpdateSync) {
+			while (flowUpdateVersion == version) {
+				long remaining = endTime - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				flowUpdateSync.wait(remaining);
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * Returns the changes of the given flows since the given update times. Flows
+	 * that don't exist get an error entry.
+	 */
+	public List<Object> getFlowUpdates(List<Integer> execIds, List<Long> updateTimes) {
+		ArrayList<Object> updateList = new ArrayList<Object>();
+		for (int i = 0; i < execIds.size(); ++i) {
+			long updateTime = updateTimes.get(i);
+			int execId = execIds.get(i);
+			
+			ExecutableFlow flow = getExecutableFlow(execId);
+			if (flow == null) {
+				Map<String, Object> errorResponse = new HashMap<String,Object>();
+				errorResponse.put(ConnectorParams.RESPONSE_ERROR, "Flow does not exist");
+				errorResponse.put(ConnectorParams.UPDATE_MAP_EXEC_ID, execId);
+				updateList.add(errorResponse);
+				continue;
+			}
+			
+			if (flow.getUpdateTime() > updateTime) {
+				updateList.add(flow.toUpdateObject(updateTime));
+			}
+		}
+		
+		return updateList;
+	}
+	
+	/**
+	 * Long poll version of getFlowUpdates. If none of the given flows have
+	 * changed, waits up to waitMs for one to change. It also returns early when
+	 * another running flow changes, since the caller likely doesn't know it is
+	 * running here yet and will ask again with it included.
+	 */
+	public List<Object> waitForFlowUpdates(List<Integer> execIds, List<Long> updateTimes, long waitMs) throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+		long endTime = startTime + waitMs;
+		Set<Integer> knownExecIds = new HashSet<Integer>(execIds);
+		
+		long version = getFlowUpdateVersion();
+		List<Object> updateList = getFlowUpdates(execIds, updateTimes);
+		while (updateList.isEmpty() && !hasOtherFlowUpdates(knownExecIds, startTime)) {
+			long remaining = endTime - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+			
+			// Not every flow change fires an event (i.e. pause), so we recheck
+			// periodically as well.
+			waitForFlowUpdate(version, Math.min(remaining, FLOW_UPDATE_RECHECK_MS));
+			version = getFlowUpdateVersion();
+			updateList = getFlowUpdates(execIds, updateTimes);
+		}
+		
+		return updateList;
+	}
+	
+	private boolean hasOtherFlowUpdates(Set<Integer> execIds, long sinceTime) {
+		for (Map.Entry<Integer, FlowRunner> entry: runningFlows.entrySet()) {
+			if (!execIds.contains(entry.getKey()) && entry.getValue().getExecutableFlow().getUpdateTime() >= sinceTime) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	public LogData readFlowLogs(int execId, int startByte, int length) throws ExecutorManagerException {
@@ -680,6 +1010,92 @@ public class FlowRunnerManager implements EventListener {
 		return ids.toString();
 	}
 
+	public int getFlowUpdateQueueDepth() {
+		return flowUpdateWriter == null ? 0 : flowUpdateWriter.getQueueDepth();
+	}
+	
+	public long getNumCoalescedFlowUpdates() {
+		return flowUpdateWriter == null ? 0 : flowUpdateWriter.getNumCoalescedUpdates();
+	}
+	
+	public long getNumFlushedFlowUpdates() {
+		return flowUpdateWriter == null ? 0 : flowUpdateWriter.getNumFlushedUpdates();
+	}
+	
+	public long getNumFailedFlowUpdateFlushes() {
+		return flowUpdateWriter == null ? 0 : flowUpdateWriter.getNumFailedFlushes();
+	}
+	
+	public long getLastFlowUpdateFlushTimeMs() {
+		return flowUpdateWriter == null ? 0 : flowUpdateWriter.getLastFlushTimeMs();
+	}
+	
+	public double getAverageFlowUpdateFlushTimeMs() {
+		return flowUpdateWriter == null ? 0 : flowUpdateWriter.getAverageFlushTimeMs();
+	}
+	
+	private synchronized void recordSetupTime(long timeMs) {
+		lastSetupTimeMs = timeMs;
+		totalSetupTimeMs += timeMs;
+		numSetups++;
+	}
+	
+	public synchronized long getLastFlowSetupTimeMs() {
+		return lastSetupTimeMs;
+	}
+	
+	public synchronized double getAverageFlowSetupTimeMs() {
+		return numSetups == 0 ? 0 : (double)totalSetupTimeMs / numSetups;
+	}
+	
+	public long getProjectDiskHighWatermarkBytes() {
+		return projectEvictor.getHighWatermarkBytes();
+	}
+	
+	public long getProjectDiskLowWatermarkBytes() {
+		return projectEvictor.getLowWatermarkBytes();
+	}
+	
+	public long getProjectDiskFootprintBytes() {
+		return projectEvictor.getFootprintBytes();
+	}
+	
+	public long getNumEvictedProjectVersions() {
+		return projectEvictor.getNumEvictedVersions();
+	}
+	
+	public long getNumEvictedProjectArtifacts() {
+		return projectEvictor.getNumEvictedArtifacts();
+	}
+	
+	public long getEvictedProjectBytes() {
+		return projectEvictor.getEvictedBytes();
+	}
+	
+	public int getNumJobSlots() {
+		return jobScheduler == null ? 0 : jobScheduler.getNumSlots();
+	}
+	
+	public int getNumUsedJobSlots() {
+		return jobScheduler == null ? 0 : jobScheduler.getNumUsedSlots();
+	}
+	
+	public int getNumJobsWaitingForSlots() {
+		return jobScheduler == null ? 0 : jobScheduler.getNumQueuedJobs();
+	}
+	
+	public double getAverageJobSlotUtilization() {
+		return jobScheduler == null ? 0 : jobScheduler.getAverageSlotUtilization();
+	}
+	
+	public double getAverageJobSlotWaitTimeMs() {
+		return jobScheduler == null ? 0 : jobScheduler.getAverageWaitTimeMs();
+	}
+	
+	public long getMaxJobSlotWaitTimeMs() {
+		return jobScheduler == null ? 0 : jobScheduler.getMaxWaitTimeMs();
+	}
+	
 	public int getNumExecutingJobs() {
 		int jobCount = 0;
 		for (FlowRunner runner: runningFlows.values()) {
@@ -688,6 +1104,43 @@ public class FlowRunnerManager implements EventListener {
 		
 		return jobCount;
 	}
+	
+	/**
+	 * The load of this executor, which the web server uses to pick executors for
+	 * new executions. Memory is the host's physical memory when the jvm reports
+	 * it, since jobs mostly run in their own processes.
+	 */
+	@SuppressWarnings("deprecation")
+	public Map<String, Object> getExecutorStats() {
+		HashMap<String, Object> stats = new HashMap<String, Object>();
+		stats.put(ConnectorParams.STATS_NUM_RUNNING_FLOWS, getNumExecutingFlows());
+		stats.put(ConnectorParams.STATS_NUM_RUNNING_JOBS, getNumExecutingJobs());
+		stats.put(ConnectorParams.STATS_NUM_QUEUED_JOBS, getNumJobsWaitingForSlots());
+		
+		OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+		// The physical memory getters are deprecated in newer jdks, but their
+		// replacements don't exist in java 8.
+		if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+			com.sun.management.OperatingSystemMXBean sunOsBean = (com.sun.management.OperatingSystemMXBean)osBean;
+			stats.put(ConnectorParams.STATS_FREE_MEMORY, sunOsBean.getFreePhysicalMemorySize());
+			stats.put(ConnectorParams.STATS_TOTAL_MEMORY, sunOsBean.getTotalPhysicalMemorySize());
+		}
+		else {
+			Runtime runtime = Runtime.getRuntime();
+			stats.put(ConnectorParams.STATS_FREE_MEMORY, runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory());
+			stats.put(ConnectorParams.STATS_TOTAL_MEMORY, runtime.maxMemory());
+		}
+		
+		// Versions still being set up are listed too. They will be warm by the
+		// time another execution of them gets here.
+		ArrayList<String> projects = new ArrayList<String>();
+		for (Pair<Integer, Integer> projectVersion: installedProjects.keySet()) {
+			projects.add(projectVersion.getFirst() + "." + projectVersion.getSecond());
+		}
+		stats.put(ConnectorParams.STATS_PROJECTS, projects);
+		
+		return stats;
+	}
 
 	
 	
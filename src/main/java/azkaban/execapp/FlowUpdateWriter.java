@@ -0,0 +1,282 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.utils.Pair;
+
+/**
+ * Write-behind stage for flow updates on the executor.
+ *
+ * Flow runners enqueue their flow instead of writing it to the db. Updates to
+ * the same execution that arrive within the window are coalesced into one
+ * write, and everything that is due is flushed together as a jdbc batch.
+ * Updates for flows in a finished state skip the window.
+ */
+public class FlowUpdateWriter {
+	private static final Logger logger = Logger.getLogger(FlowUpdateWriter.class);
+
+	private final ExecutorLoader executorLoader;
+	private final long windowMs;
+
+	// Pending updates by exec id, in the order they were first queued.
+	private final LinkedHashMap<Integer, PendingUpdate> pendingUpdates = new LinkedHashMap<Integer, PendingUpdate>();
+	// Held while writing, so a cancel can wait for an in flight write to finish.
+	private final Object flushLock = new Object();
+	private final FlushThread flushThread;
+
+	private final AtomicLong numQueuedUpdates = new AtomicLong();
+	private final AtomicLong numCoalescedUpdates = new AtomicLong();
+	private final AtomicLong numFlushedUpdates = new AtomicLong();
+	private final AtomicLong numFlushes = new AtomicLong();
+	private final AtomicLong numFailedFlushes = new AtomicLong();
+	private final AtomicLong totalFlushTimeMs = new AtomicLong();
+	private volatile long lastFlushTimeMs = 0;
+
+	public FlowUpdateWriter(ExecutorLoader executorLoader, long windowMs) {
+		this.executorLoader = executorLoader;
+		this.windowMs = windowMs;
+
+		flushThread = new FlushThread();
+		flushThread.start();
+	}
+
+	/**
+	 * Queues the flow to be written. If the flow is already queued, the pending
+	 * write is kept and will cover this update as well.
+	 *
+	 * @param flow
+	 * @param lastUpdateTime time of the last update handed to the writer
+	 * @param rewriteFlowData whether the whole flow should be written, or only the
+	 *   nodes that changed since lastUpdateTime
+	 */
+	public void enqueue(ExecutableFlow flow, long lastUpdateTime, boolean rewriteFlowData) {
+		numQueuedUpdates.incrementAndGet();
+		boolean flushNow = Status.isStatusFinished(flow.getStatus());
+
+		synchronized (this) {
+			PendingUpdate update = pendingUpdates.get(flow.getExecutionId());
+			if (update == null) {
+				update = new PendingUpdate(flow, lastUpdateTime, rewriteFlowData, System.currentTimeMillis());
+				pendingUpdates.put(flow.getExecutionId(), update);
+			}
+			else {
+				numCoalescedUpdates.incrementAndGet();
+				update.merge(lastUpdateTime, rewriteFlowData);
+			}
+
+			if (flushNow) {
+				update.queueTime = 0;
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Drops any pending write for the execution and waits for one that is being
+	 * written to finish. Used before the flow is written directly, so a stale
+	 * queued update can't land after it.
+	 */
+	public void cancel(int execId) {
+		synchronized (this) {
+			pendingUpdates.remove(execId);
+		}
+
+		synchronized (flushLock) {
+			// Nothing to do. Just wait for the current flush.
+		}
+	}
+
+	public void shutdown() {
+		flushThread.shutdown();
+	}
+
+	private void flush(boolean all) {
+		List<PendingUpdate> dueUpdates = new ArrayList<PendingUpdate>();
+
+		synchronized (flushLock) {
+			synchronized (this) {
+				long dueTime = System.currentTimeMillis() - windowMs;
+				Iterator<PendingUpdate> iter = pendingUpdates.values().iterator();
+				while (iter.hasNext()) {
+					PendingUpdate update = iter.next();
+					if (all || update.queueTime <= dueTime) {
+						dueUpdates.add(update);
+						iter.remove();
+					}
+				}
+			}
+
+			if (dueUpdates.isEmpty()) {
+				return;
+			}
+
+			List<ExecutableFlow> flows = new ArrayList<ExecutableFlow>();
+			List<Pair<ExecutableFlow, Long>> statusUpdates = new ArrayList<Pair<ExecutableFlow, Long>>();
+			for (PendingUpdate update: dueUpdates) {
+				if (update.rewriteFlowData) {
+					flows.add(update.flow);
+				}
+				else {
+					statusUpdates.add(new Pair<ExecutableFlow, Long>(update.flow, update.lastUpdateTime));
+				}
+			}
+
+			long startTime = System.currentTimeMillis();
+			try {
+				if (!flows.isEmpty()) {
+					executorLoader.updateExecutableFlows(flows);
+				}
+				if (!statusUpdates.isEmpty()) {
+					executorLoader.updateExecutableFlowStatus(statusUpdates);
+				}
+				numFlushedUpdates.addAndGet(dueUpdates.size());
+			}
+			catch (ExecutorManagerException e) {
+				logger.error("Error writing " + dueUpdates.size() + " flow updates. Will retry.", e);
+				numFailedFlushes.incrementAndGet();
+				requeue(dueUpdates);
+			}
+			finally {
+				lastFlushTimeMs = System.currentTimeMillis() - startTime;
+				totalFlushTimeMs.addAndGet(lastFlushTimeMs);
+				numFlushes.incrementAndGet();
+			}
+		}
+	}
+
+	private synchronized void requeue(List<PendingUpdate> failedUpdates) {
+		long now = System.currentTimeMillis();
+		for (PendingUpdate failed: failedUpdates) {
+			PendingUpdate update = pendingUpdates.get(failed.flow.getExecutionId());
+			if (update == null) {
+				failed.queueTime = now;
+				pendingUpdates.put(failed.flow.getExecutionId(), failed);
+			}
+			else {
+				update.merge(failed.lastUpdateTime, failed.rewriteFlowData);
+			}
+		}
+	}
+
+	public synchronized int getQueueDepth() {
+		return pendingUpdates.size();
+	}
+
+	public long getWindowMs() {
+		return windowMs;
+	}
+
+	public long getNumQueuedUpdates() {
+		return numQueuedUpdates.get();
+	}
+
+	public long getNumCoalescedUpdates() {
+		return numCoalescedUpdates.get();
+	}
+
+	public long getNumFlushedUpdates() {
+		return numFlushedUpdates.get();
+	}
+
+	public long getNumFailedFlushes() {
+		return numFailedFlushes.get();
+	}
+
+	public long getLastFlushTimeMs() {
+		return lastFlushTimeMs;
+	}
+
+	public double getAverageFlushTimeMs() {
+		long flushes = numFlushes.get();
+		return flushes == 0 ? 0 : (double)totalFlushTimeMs.get() / flushes;
+	}
+
+	private static class PendingUpdate {
+		private final ExecutableFlow flow;
+		private long lastUpdateTime;
+		private boolean rewriteFlowData;
+		private long queueTime;
+
+		private PendingUpdate(ExecutableFlow flow, long lastUpdateTime, boolean rewriteFlowData, long queueTime) {
+			this.flow = flow;
+			this.lastUpdateTime = lastUpdateTime;
+			this.rewriteFlowData = rewriteFlowData;
+			this.queueTime = queueTime;
+		}
+
+		private void merge(long lastUpdateTime, boolean rewriteFlowData) {
+			// The flow object is live, so the pending write already sees the newest
+			// state. We only need to widen what it covers.
+			this.lastUpdateTime = Math.min(this.lastUpdateTime, lastUpdateTime);
+			this.rewriteFlowData |= rewriteFlowData;
+		}
+	}
+
+	private class FlushThread extends Thread {
+		private boolean shutdown = false;
+
+		public FlushThread() {
+			this.setName("FlowRunnerManager-Update-Writer-Thread");
+			this.setDaemon(true);
+		}
+
+		public void shutdown() {
+			shutdown = true;
+			this.interrupt();
+		}
+
+		public void run() {
+			while (!shutdown) {
+				try {
+					flush(false);
+
+					synchronized (FlowUpdateWriter.this) {
+						long waitTime = windowMs;
+						for (PendingUpdate update: pendingUpdates.values()) {
+							// The oldest update is first, so it decides how long to sleep.
+							waitTime = update.queueTime + windowMs - System.currentTimeMillis();
+							break;
+						}
+
+						if (waitTime > 0) {
+							FlowUpdateWriter.this.wait(waitTime);
+						}
+					}
+				} catch (InterruptedException e) {
+					logger.info("Interrupted. Probably to shut down.");
+				} catch (Throwable t) {
+					logger.error("Error in flow update writer.", t);
+				}
+			}
+
+			flush(true);
+		}
+	}
+}
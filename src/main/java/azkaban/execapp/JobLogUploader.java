@@ -0,0 +1,337 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Layout;
+import org.apache.log4j.Logger;
+import org.apache.log4j.RollingFileAppender;
+
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+
+/**
+ * Ships job logs to the db while the jobs are still running.
+ *
+ * Each running job attempt registers its log appender. A background thread
+ * periodically reads whatever was appended since the last pass and uploads it
+ * as new chunks at the next offset, so when the job finishes only the tail is
+ * left to upload. Rolled over files are followed using the appender's rollover
+ * count.
+ *
+ * While uploads fail, a log stops being read once maxPendingBytes of it are
+ * waiting, and reading picks up again when they have been uploaded.
+ */
+public class JobLogUploader {
+	private static final Logger logger = Logger.getLogger(JobLogUploader.class);
+
+	private final ExecutorLoader loader;
+	private final long intervalMs;
+	private final int maxPendingBytes;
+	private final Set<LogTail> tails = Collections.newSetFromMap(new ConcurrentHashMap<LogTail, Boolean>());
+	private final UploaderThread uploaderThread;
+
+	private final AtomicLong numBytesUploaded = new AtomicLong();
+	private final AtomicLong numUploads = new AtomicLong();
+	private final AtomicLong numFailedUploads = new AtomicLong();
+
+	public JobLogUploader(ExecutorLoader loader, long intervalMs, int maxPendingBytes) {
+		this.loader = loader;
+		this.intervalMs = intervalMs;
+		this.maxPendingBytes = maxPendingBytes;
+
+		uploaderThread = new UploaderThread();
+		uploaderThread.start();
+	}
+
+	/**
+	 * Starts following the log of a job attempt.
+	 */
+	public LogTail register(int execId, String name, int attempt, File logFile, TailedFileAppender appender) {
+		LogTail tail = new LogTail(execId, name, attempt, logFile, appender);
+		tails.add(tail);
+		return tail;
+	}
+
+	/**
+	 * Uploads what's left of the log and stops following it. The appender should
+	 * be closed first. If the upload fails, the log stays followed and the
+	 * background thread retries it.
+	 */
+	public void finish(LogTail tail) throws ExecutorManagerException {
+		tail.finish();
+		tail.upload(true);
+		tails.remove(tail);
+	}
+
+	public void shutdown() {
+		uploaderThread.shutdown();
+	}
+
+	public int getNumFollowedLogs() {
+		return tails.size();
+	}
+
+	public long getNumBytesUploaded() {
+		return numBytesUploaded.get();
+	}
+
+	public long getNumUploads() {
+		return numUploads.get();
+	}
+
+	public long getNumFailedUploads() {
+		return numFailedUploads.get();
+	}
+
+	/**
+	 * The upload state of one job attempt's log.
+	 */
+	public class LogTail {
+		private final int execId;
+		private final String name;
+		private final int attempt;
+		private final File logFile;
+		private final TailedFileAppender appender;
+
+		// Bytes of the log in the db so far, which is the offset of the next chunk.
+		private int uploadedBytes = 0;
+		// Read from the files, but not uploaded yet.
+		private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+		// Position in the active log file and its rollover count at the last read.
+		private long fileOffset = 0;
+		private int rollovers = 0;
+		// Set once the job is done, so the tail is dropped after its last upload.
+		private boolean finished = false;
+
+		private LogTail(int execId, String name, int attempt, File logFile, TailedFileAppender appender) {
+			this.execId = execId;
+			this.name = name;
+			this.attempt = attempt;
+			this.logFile = logFile;
+			this.appender = appender;
+		}
+
+		public synchronized int getUploadedBytes() {
+			return uploadedBytes;
+		}
+
+		private synchronized void finish() {
+			finished = true;
+		}
+
+		/**
+		 * Whether the job is done and all of its log is uploaded.
+		 */
+		private synchronized boolean isDone() {
+			return finished && pending.size() == 0;
+		}
+
+		/**
+		 * Bytes read from the log that haven't been uploaded yet.
+		 */
+		public synchronized int getPendingBytes() {
+			return pending.size();
+		}
+
+		/**
+		 * @param readAll whether to read the rest of the log even if too much of it
+		 * is waiting to be uploaded. Always true once the job is done.
+		 */
+		private synchronized void upload(boolean readAll) throws ExecutorManagerException {
+			if (readAll || finished || pending.size() < maxPendingBytes) {
+				try {
+					readNewData();
+				}
+				catch (IOException e) {
+					throw new ExecutorManagerException("Error reading log " + logFile, e);
+				}
+			}
+			else {
+				logger.warn("Log " + logFile + " has " + pending.size() + " bytes waiting to be uploaded. Not reading more of it until they are.");
+			}
+
+			if (pending.size() == 0) {
+				return;
+			}
+
+			// If this fails, the pending data is kept and retried on the next pass.
+			try {
+				loader.appendLogData(execId, name, attempt, uploadedBytes, pending.toByteArray(), pending.size());
+			}
+			catch (ExecutorManagerException e) {
+				numFailedUploads.incrementAndGet();
+				throw e;
+			}
+			numUploads.incrementAndGet();
+			numBytesUploaded.addAndGet(pending.size());
+			uploadedBytes += pending.size();
+			pending.reset();
+		}
+
+		private void readNewData() throws IOException {
+			// The files to read are opened while holding the appender's lock, so it
+			// can't write or roll them until we know which ones they are. Once open,
+			// they are read without the lock. A file that rolls over meanwhile is
+			// still the one we opened, and the next pass finds it as a backup.
+			List<RandomAccessFile> files = new ArrayList<RandomAccessFile>();
+			List<Long> startOffsets = new ArrayList<Long>();
+			List<Long> endOffsets = new ArrayList<Long>();
+			try {
+				synchronized (appender) {
+					int newRollovers = appender.getRollovers() - rollovers;
+					int maxBackupIndex = appender.getMaxBackupIndex();
+
+					if (newRollovers > 0) {
+						if (newRollovers > maxBackupIndex) {
+							logger.warn("Log " + logFile + " rolled over faster than it was uploaded. Some of it is lost.");
+							fileOffset = 0;
+							newRollovers = maxBackupIndex;
+						}
+
+						// The file we were reading is now backup number newRollovers. Finish
+						// it, then read the newer backups in full.
+						for (int i = newRollovers; i > 0; --i) {
+							openFile(new File(logFile.getPath() + "." + i), fileOffset, files, startOffsets, endOffsets);
+							fileOffset = 0;
+						}
+						rollovers = appender.getRollovers();
+					}
+
+					if (openFile(logFile, fileOffset, files, startOffsets, endOffsets)) {
+						fileOffset = endOffsets.get(endOffsets.size() - 1);
+					}
+				}
+
+				for (int i = 0; i < files.size(); ++i) {
+					readFile(files.get(i), startOffsets.get(i), endOffsets.get(i));
+				}
+			}
+			finally {
+				for (RandomAccessFile file: files) {
+					file.close();
+				}
+			}
+		}
+
+		/**
+		 * Opens the file if it exists, to read it from the offset up to its current
+		 * length.
+		 */
+		private boolean openFile(File file, long offset, List<RandomAccessFile> files, List<Long> startOffsets, List<Long> endOffsets) throws IOException {
+			if (!file.exists()) {
+				return false;
+			}
+
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			files.add(raf);
+			startOffsets.add(offset);
+			endOffsets.add(raf.length());
+			return true;
+		}
+
+		private void readFile(RandomAccessFile raf, long offset, long length) throws IOException {
+			if (length <= offset) {
+				return;
+			}
+
+			raf.seek(offset);
+			byte[] buffer = new byte[(int)Math.min(length - offset, 64*1024)];
+			long position = offset;
+			while (position < length) {
+				int read = raf.read(buffer, 0, (int)Math.min(buffer.length, length - position));
+				if (read < 0) {
+					break;
+				}
+				pending.write(buffer, 0, read);
+				position += read;
+			}
+		}
+	}
+
+	/**
+	 * Rolling file appender that counts its rollovers, so the uploader can tell
+	 * which backup file it was reading.
+	 */
+	public static class TailedFileAppender extends RollingFileAppender {
+		private int rollovers = 0;
+
+		public TailedFileAppender(Layout layout, String filename, boolean append) throws IOException {
+			super(layout, filename, append);
+		}
+
+		@Override
+		public synchronized void rollOver() {
+			super.rollOver();
+			rollovers++;
+		}
+
+		public synchronized int getRollovers() {
+			return rollovers;
+		}
+	}
+
+	private class UploaderThread extends Thread {
+		private boolean shutdown = false;
+
+		public UploaderThread() {
+			this.setName("FlowRunnerManager-Log-Uploader-Thread");
+			this.setDaemon(true);
+		}
+
+		public void shutdown() {
+			shutdown = true;
+			this.interrupt();
+		}
+
+		public void run() {
+			while (!shutdown) {
+				try {
+					synchronized (this) {
+						this.wait(intervalMs);
+					}
+
+					for (LogTail tail: tails) {
+						try {
+							tail.upload(false);
+							if (tail.isDone()) {
+								tails.remove(tail);
+							}
+						}
+						catch (ExecutorManagerException e) {
+							logger.error("Error uploading log for " + tail.execId + ":" + tail.name, e);
+						}
+					}
+				} catch (InterruptedException e) {
+					logger.info("Interrupted. Probably to shut down.");
+				} catch (Throwable t) {
+					logger.error("Error in log uploader.", t);
+				}
+			}
+		}
+	}
+}
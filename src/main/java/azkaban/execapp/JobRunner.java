@@ -31,7 +31,6 @@ import org.apache.log4j.Appender;
 import org.apache.log4j.EnhancedPatternLayout;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Logger;
-import org.apache.log4j.RollingFileAppender;
 
 import azkaban.execapp.event.BlockingStatus;
 import azkaban.execapp.event.Event;
@@ -65,6 +64,10 @@ public class JobRunner extends EventHandler implements Runnable {
 	
 	private Appender jobAppender;
 	private File logFile;
+	
+	// Uploads the log while the job runs, if set.
+	private JobLogUploader logUploader;
+	private JobLogUploader.LogTail logTail;
 	private String attachmentFileName;
 	
 	private Job job;
@@ -88,6 +91,8 @@ public class JobRunner extends EventHandler implements Runnable {
 
 	private long delayStartMs = 0;
 	private boolean killed = false;
+	// The shared slot the job runs in, if it runs on a JobSlotScheduler.
+	private JobSlotScheduler.JobSlot jobSlot = null;
 	private BlockingStatus currentBlockStatus = null;
 	
 	public JobRunner(ExecutableNode node, File workingDir, ExecutorLoader loader, JobTypeManager jobtypeManager) {
@@ -111,6 +116,14 @@ public class JobRunner extends EventHandler implements Runnable {
 		this.jobLogBackupIndex = numLogBackup;
 	}
 	
+	public void setLogUploader(JobLogUploader logUploader) {
+		this.logUploader = logUploader;
+	}
+	
+	public void setJobSlot(JobSlotScheduler.JobSlot jobSlot) {
+		this.jobSlot = jobSlot;
+	}
+	
 	public Props getProps() {
 		return props;
 	}
@@ -212,12 +225,16 @@ public class JobRunner extends EventHandler implements Runnable {
 
 			jobAppender = null;
 			try {
-				RollingFileAppender fileAppender = new RollingFileAppender(loggerLayout, absolutePath, true);
+				JobLogUploader.TailedFileAppender fileAppender = new JobLogUploader.TailedFileAppender(loggerLayout, absolutePath, true);
 				fileAppender.setMaxBackupIndex(jobLogBackupIndex);
 				fileAppender.setMaxFileSize(jobLogChunkSize);
 				jobAppender = fileAppender;
 				logger.addAppender(jobAppender);
 				logger.setAdditivity(false);
+				
+				if (logUploader != null) {
+					logTail = logUploader.register(executionId, node.getNestedId(), node.getAttempt(), logFile, fileAppender);
+				}
 			}
 			catch (IOException e) {
 				flowLogger.error("Could not open log file in " + workingDir + " for job " + this.jobId, e);
@@ -358,6 +375,17 @@ public class JobRunner extends EventHandler implements Runnable {
 			return;
 		}
 		
+		if (logTail != null) {
+			// Most of the log is already in the db. Just send the rest.
+			try {
+				logUploader.finish(logTail);
+			}
+			catch (ExecutorManagerException e) {
+				flowLogger.error("Error writing out logs for job " + this.node.getNestedId(), e);
+			}
+			return;
+		}
+		
 		try {
 			File[] files = logFile.getParentFile().listFiles(new FilenameFilter() {
 				@Override
@@ -411,6 +439,13 @@ public class JobRunner extends EventHandler implements Runnable {
 		createAttachmentFile();
 		createLogger();
 		boolean errorFound = false;
+		// Don't hold a shared slot while waiting, or the jobs this one waits on
+		// might not get one.
+		boolean mayWait = jobSlot != null && (delayStartMs > 0 || !pipelineJobs.isEmpty());
+		if (mayWait) {
+			jobSlot.release();
+		}
+
 		// Delay execution if necessary. Will return a true if something went wrong.
 		errorFound |= delayExecution();
 
@@ -418,6 +453,10 @@ public class JobRunner extends EventHandler implements Runnable {
 		// something went wrong.
 		errorFound |= blockOnPipeLine();
 
+		if (mayWait && !errorFound) {
+			jobSlot.reacquire();
+		}
+
 		// Start the node.
 		node.setStartTime(System.currentTimeMillis());
 		if (!errorFound && !isKilled()) {
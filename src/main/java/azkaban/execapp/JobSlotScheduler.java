@@ -0,0 +1,401 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the jobs of all the flows on an executor within a fixed number of job
+ * slots, instead of every flow having its own thread pool.
+ *
+ * Each flow is added with the most jobs it may run at once and a priority. A
+ * project may also be limited to a number of slots. When a slot frees up, it
+ * goes to the waiting job of the highest priority flow. Between flows of the
+ * same priority, the project with the fewest running jobs goes first, then the
+ * flow with the fewest running jobs, then the job that has waited longest.
+ *
+ * Jobs that are killed while they wait are started right away without a slot.
+ * They finish as killed without running anything.
+ *
+ * A job gives its slot back while it waits out a retry delay or on a pipelined
+ * flow's job, and waits for a slot again before it runs. Otherwise blocked
+ * jobs could hold all the slots the jobs they wait on need.
+ */
+public class JobSlotScheduler {
+	private static final Logger logger = Logger.getLogger(JobSlotScheduler.class);
+
+	private final int numSlots;
+	private final int maxSlotsPerProject;
+	private final ExecutorService threadPool;
+
+	// Flows by exec id, in the order they were added.
+	private final LinkedHashMap<Integer, FlowSlots> flows = new LinkedHashMap<Integer, FlowSlots>();
+	private final Map<Integer, Integer> runningJobsByProject = new HashMap<Integer, Integer>();
+	private int numUsedSlots = 0;
+	private int numQueuedJobs = 0;
+
+	private long numStartedJobs = 0;
+	private long totalWaitTimeMs = 0;
+	private long maxWaitTimeMs = 0;
+	// Sum of used slots over time, for the average utilization.
+	private long usedSlotTimeMs = 0;
+	private long lastUsageChangeTime;
+	private final long createTime;
+
+	public JobSlotScheduler(int numSlots, int maxSlotsPerProject) {
+		this.numSlots = numSlots;
+		this.maxSlotsPerProject = maxSlotsPerProject;
+		this.createTime = System.currentTimeMillis();
+		this.lastUsageChangeTime = createTime;
+
+		// Threads are only made for jobs that get a slot, so this is bounded by the
+		// number of slots plus the jobs waiting on a delay or pipeline and the
+		// killed jobs finishing.
+		threadPool = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				return new Thread(r, "JobSlotScheduler-" + threadCount.incrementAndGet());
+			}
+		});
+	}
+
+	/**
+	 * Adds a flow that will submit jobs.
+	 *
+	 * @param execId
+	 * @param projectId
+	 * @param maxJobs the most jobs the flow may run at once
+	 * @param priority flows with a higher priority get slots first
+	 */
+	public synchronized void addFlow(int execId, int projectId, int maxJobs, int priority) {
+		flows.put(execId, new FlowSlots(execId, projectId, maxJobs, priority));
+	}
+
+	/**
+	 * Removes a flow once it is done. Any jobs it still has waiting are started
+	 * without a slot.
+	 */
+	public synchronized void removeFlow(int execId) {
+		FlowSlots flow = flows.remove(execId);
+		if (flow != null) {
+			while (!flow.queue.isEmpty()) {
+				startJob(flow, flow.queue.poll(), false);
+			}
+		}
+	}
+
+	/**
+	 * Queues a job for a flow added with addFlow. It runs when it gets a slot.
+	 */
+	public synchronized void submit(int execId, JobRunner runner) {
+		FlowSlots flow = flows.get(execId);
+		if (flow == null) {
+			throw new RejectedExecutionException("Flow " + execId + " hasn't been added to the job scheduler.");
+		}
+
+		flow.queue.add(new QueuedJob(runner, System.currentTimeMillis()));
+		numQueuedJobs++;
+		dispatch();
+	}
+
+	/**
+	 * Starts the waiting jobs of the flow that have been killed, so the flow
+	 * doesn't wait for slots for jobs that won't run.
+	 */
+	public synchronized void startKilledJobs(int execId) {
+		FlowSlots flow = flows.get(execId);
+		if (flow == null) {
+			return;
+		}
+
+		for (Iterator<QueuedJob> iter = flow.queue.iterator(); iter.hasNext();) {
+			QueuedJob job = iter.next();
+			if (job.runner.isKilled()) {
+				iter.remove();
+				startJob(flow, job, false);
+			}
+		}
+	}
+
+	public void shutdown() {
+		threadPool.shutdown();
+	}
+
+	/**
+	 * Hands out free slots to the queued jobs.
+	 */
+	private void dispatch() {
+		while (numUsedSlots < numSlots) {
+			FlowSlots next = null;
+			for (FlowSlots flow: flows.values()) {
+				if (flow.queue.isEmpty() || flow.numRunningJobs >= flow.maxJobs ||
+						getRunningJobs(flow.projectId) >= maxSlotsPerProject) {
+					continue;
+				}
+
+				if (next == null || compare(flow, next) < 0) {
+					next = flow;
+				}
+			}
+
+			if (next == null) {
+				return;
+			}
+			startJob(next, next.queue.poll(), true);
+		}
+	}
+
+	private int compare(FlowSlots a, FlowSlots b) {
+		if (a.priority != b.priority) {
+			return a.priority > b.priority ? -1 : 1;
+		}
+
+		int projectJobsA = getRunningJobs(a.projectId);
+		int projectJobsB = getRunningJobs(b.projectId);
+		if (projectJobsA != projectJobsB) {
+			return projectJobsA < projectJobsB ? -1 : 1;
+		}
+
+		if (a.numRunningJobs != b.numRunningJobs) {
+			return a.numRunningJobs < b.numRunningJobs ? -1 : 1;
+		}
+
+		long queueTimeA = a.queue.peek().queueTime;
+		long queueTimeB = b.queue.peek().queueTime;
+		return queueTimeA < queueTimeB ? -1 : (queueTimeA == queueTimeB ? 0 : 1);
+	}
+
+	private void startJob(final FlowSlots flow, final QueuedJob job, final boolean useSlot) {
+		numQueuedJobs--;
+		if (job.slot != null) {
+			// A job that gave its slot back is already running on its own thread.
+			job.slot.resume(useSlot);
+		}
+		else {
+			final JobSlot slot = new JobSlot(flow, job.runner, useSlot);
+			job.runner.setJobSlot(slot);
+			try {
+				threadPool.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							job.runner.run();
+						}
+						finally {
+							slot.release();
+						}
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				logger.error("Job scheduler is shut down. Dropping job in flow " + flow.execId, e);
+				return;
+			}
+
+			if (useSlot) {
+				long waitTime = System.currentTimeMillis() - job.queueTime;
+				numStartedJobs++;
+				totalWaitTimeMs += waitTime;
+				maxWaitTimeMs = Math.max(maxWaitTimeMs, waitTime);
+			}
+		}
+
+		// The job can't release its slot before this, since that takes the lock.
+		if (useSlot) {
+			changeUsedSlots(1, System.currentTimeMillis());
+			flow.numRunningJobs++;
+			runningJobsByProject.put(flow.projectId, getRunningJobs(flow.projectId) + 1);
+		}
+	}
+
+	private void releaseSlot(FlowSlots flow) {
+		changeUsedSlots(-1, System.currentTimeMillis());
+		flow.numRunningJobs--;
+
+		int projectJobs = getRunningJobs(flow.projectId) - 1;
+		if (projectJobs > 0) {
+			runningJobsByProject.put(flow.projectId, projectJobs);
+		}
+		else {
+			runningJobsByProject.remove(flow.projectId);
+		}
+
+		dispatch();
+	}
+
+	private void changeUsedSlots(int delta, long now) {
+		usedSlotTimeMs += numUsedSlots * (now - lastUsageChangeTime);
+		lastUsageChangeTime = now;
+		numUsedSlots += delta;
+	}
+
+	private int getRunningJobs(int projectId) {
+		Integer running = runningJobsByProject.get(projectId);
+		return running == null ? 0 : running;
+	}
+
+	public int getNumSlots() {
+		return numSlots;
+	}
+
+	public synchronized int getNumUsedSlots() {
+		return numUsedSlots;
+	}
+
+	public synchronized int getNumQueuedJobs() {
+		return numQueuedJobs;
+	}
+
+	/**
+	 * The average share of slots in use since the scheduler was created.
+	 */
+	public synchronized double getAverageSlotUtilization() {
+		long now = System.currentTimeMillis();
+		long elapsed = now - createTime;
+		if (elapsed <= 0 || numSlots <= 0) {
+			return 0;
+		}
+
+		long usedTime = usedSlotTimeMs + numUsedSlots * (now - lastUsageChangeTime);
+		return (double)usedTime / ((double)elapsed * numSlots);
+	}
+
+	public synchronized long getNumStartedJobs() {
+		return numStartedJobs;
+	}
+
+	public synchronized double getAverageWaitTimeMs() {
+		return numStartedJobs == 0 ? 0 : (double)totalWaitTimeMs / numStartedJobs;
+	}
+
+	public synchronized long getMaxWaitTimeMs() {
+		return maxWaitTimeMs;
+	}
+
+	private static class FlowSlots {
+		private final int execId;
+		private final int projectId;
+		private final int maxJobs;
+		private final int priority;
+		private final LinkedList<QueuedJob> queue = new LinkedList<QueuedJob>();
+		private int numRunningJobs = 0;
+
+		private FlowSlots(int execId, int projectId, int maxJobs, int priority) {
+			this.execId = execId;
+			this.projectId = projectId;
+			this.maxJobs = maxJobs;
+			this.priority = priority;
+		}
+	}
+
+	private static class QueuedJob {
+		private final JobRunner runner;
+		private final long queueTime;
+		// Set if the job is already running and waits to get its slot back.
+		private final JobSlot slot;
+
+		private QueuedJob(JobRunner runner, long queueTime) {
+			this(runner, queueTime, null);
+		}
+
+		private QueuedJob(JobRunner runner, long queueTime, JobSlot slot) {
+			this.runner = runner;
+			this.queueTime = queueTime;
+			this.slot = slot;
+		}
+	}
+
+	/**
+	 * The slot a started job runs in, which the job can give back while it
+	 * blocks.
+	 */
+	public class JobSlot {
+		private final FlowSlots flow;
+		private final JobRunner runner;
+		private boolean held;
+		private boolean resumed = false;
+
+		private JobSlot(FlowSlots flow, JobRunner runner, boolean held) {
+			this.flow = flow;
+			this.runner = runner;
+			this.held = held;
+		}
+
+		/**
+		 * Gives the slot back, if the job holds one.
+		 */
+		public void release() {
+			synchronized (JobSlotScheduler.this) {
+				if (held) {
+					held = false;
+					releaseSlot(flow);
+				}
+			}
+		}
+
+		/**
+		 * Waits until the job gets a slot again. Returns without one if the job is
+		 * killed or its flow is removed meanwhile.
+		 */
+		public void reacquire() {
+			boolean interrupted = false;
+			synchronized (JobSlotScheduler.this) {
+				if (held || runner.isKilled() || flows.get(flow.execId) != flow) {
+					return;
+				}
+
+				resumed = false;
+				// Ahead of the flow's jobs that haven't started.
+				flow.queue.addFirst(new QueuedJob(runner, System.currentTimeMillis(), this));
+				numQueuedJobs++;
+				dispatch();
+				// Killing the job or removing the flow wakes this up, so it can't be
+				// left holding a slot it doesn't know about.
+				while (!resumed) {
+					try {
+						JobSlotScheduler.this.wait();
+					}
+					catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void resume(boolean useSlot) {
+			held = useSlot;
+			resumed = true;
+			JobSlotScheduler.this.notifyAll();
+		}
+	}
+}
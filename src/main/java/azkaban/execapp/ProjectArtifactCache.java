@@ -0,0 +1,309 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectLoader;
+import azkaban.project.ProjectManagerException;
+import azkaban.utils.Utils;
+
+/**
+ * Executor side cache of unzipped project archives, keyed by the md5 hash of
+ * the uploaded archive. Project versions that were uploaded with the same
+ * archive share one entry, so it's only fetched once.
+ *
+ * Concurrent requests for the same archive wait on a single fetch, while
+ * requests for different archives proceed in parallel. Entries are only
+ * removed when asked to, see ProjectVersionEvictor.
+ *
+ * The cached files can be made read only, so workspaces that hard link them
+ * can't change them in place.
+ */
+public class ProjectArtifactCache {
+	private static final Logger logger = Logger.getLogger(ProjectArtifactCache.class);
+	private static final String TEMP_PREFIX = "_temp.";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final ProjectLoader projectLoader;
+	private final File cacheDir;
+	private final int fetchThreads;
+	private final boolean readOnlyFiles;
+
+	private final ConcurrentHashMap<String, Object> fetchLocks = new ConcurrentHashMap<String, Object>();
+	private final ConcurrentHashMap<String, CachedArtifact> artifacts = new ConcurrentHashMap<String, CachedArtifact>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong sizeBytes = new AtomicLong();
+
+	public ProjectArtifactCache(ProjectLoader projectLoader, File cacheDir, int fetchThreads) {
+		this(projectLoader, cacheDir, fetchThreads, false);
+	}
+
+	public ProjectArtifactCache(ProjectLoader projectLoader, File cacheDir, int fetchThreads, boolean readOnlyFiles) {
+		this.projectLoader = projectLoader;
+		this.cacheDir = cacheDir.getAbsoluteFile();
+		this.fetchThreads = fetchThreads;
+		this.readOnlyFiles = readOnlyFiles;
+
+		if (!this.cacheDir.exists()) {
+			this.cacheDir.mkdirs();
+		}
+		cleanTempFiles();
+		loadArtifacts();
+	}
+
+	/**
+	 * Returns the directory holding the unzipped files of the project version,
+	 * fetching them first if they aren't cached yet.
+	 */
+	public File getProjectFiles(int projectId, int version) throws ProjectManagerException, IOException {
+		ProjectFileHandler handler = projectLoader.getUploadedFileInfo(projectId, version);
+		if (handler == null) {
+			throw new ProjectManagerException("No uploaded file for project " + projectId + " version " + version);
+		}
+		else if (!"zip".equals(handler.getFileType())) {
+			throw new IOException("The file type hasn't been decided yet.");
+		}
+
+		String key = toHex(handler.getMd5Hash());
+		File artifactDir = new File(cacheDir, key);
+		CachedArtifact artifact = artifacts.get(key);
+		if (artifact != null) {
+			hitCount.incrementAndGet();
+			artifact.lastUsedTime = System.currentTimeMillis();
+			return artifactDir;
+		}
+
+		synchronized (getLock(key)) {
+			// Another thread may have fetched it while we waited.
+			artifact = artifacts.get(key);
+			if (artifact != null) {
+				hitCount.incrementAndGet();
+				artifact.lastUsedTime = System.currentTimeMillis();
+				return artifactDir;
+			}
+
+			missCount.incrementAndGet();
+			fetch(handler, key, artifactDir);
+			return artifactDir;
+		}
+	}
+
+	/**
+	 * Deletes the cached files of an archive. Returns false if it isn't cached.
+	 */
+	public boolean remove(String key) throws IOException {
+		synchronized (getLock(key)) {
+			CachedArtifact artifact = artifacts.remove(key);
+			if (artifact == null) {
+				return false;
+			}
+
+			sizeBytes.addAndGet(-artifact.sizeBytes);
+			FileUtils.deleteDirectory(new File(cacheDir, key));
+			logger.info("Removed cached files " + key + ", " + artifact.sizeBytes + " bytes");
+			return true;
+		}
+	}
+
+	/**
+	 * Keys of the cached archives, which are also the names of their directories.
+	 */
+	public Set<String> getKeys() {
+		return new HashSet<String>(artifacts.keySet());
+	}
+
+	/**
+	 * Returns the size of the cached files of an archive, or -1 if it isn't
+	 * cached.
+	 */
+	public long getSizeBytes(String key) {
+		CachedArtifact artifact = artifacts.get(key);
+		return artifact == null ? -1 : artifact.sizeBytes;
+	}
+
+	/**
+	 * Returns the last time the files of an archive were asked for, or -1 if it
+	 * isn't cached.
+	 */
+	public long getLastUsedTime(String key) {
+		CachedArtifact artifact = artifacts.get(key);
+		return artifact == null ? -1 : artifact.lastUsedTime;
+	}
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Disk space used by the cached files.
+	 */
+	public long getSizeBytes() {
+		return sizeBytes.get();
+	}
+
+	private void fetch(ProjectFileHandler handler, String key, File artifactDir) throws ProjectManagerException, IOException {
+		long startTime = System.currentTimeMillis();
+		File tempFile = new File(cacheDir, TEMP_PREFIX + key + ".zip");
+		File tempDir = new File(cacheDir, TEMP_PREFIX + key);
+		try {
+			projectLoader.fetchUploadedFile(handler, tempFile, fetchThreads);
+			long fetchTime = System.currentTimeMillis();
+
+			ZipFile zip = new ZipFile(tempFile);
+			try {
+				Utils.unzip(zip, tempDir);
+			}
+			finally {
+				zip.close();
+			}
+
+			if (readOnlyFiles) {
+				setReadOnly(tempDir);
+			}
+			long size = FileUtils.sizeOfDirectory(tempDir);
+			if (!tempDir.renameTo(artifactDir)) {
+				throw new IOException("Error moving " + tempDir + " to " + artifactDir);
+			}
+			artifacts.put(key, new CachedArtifact(size, System.currentTimeMillis()));
+			sizeBytes.addAndGet(size);
+			logger.info("Cached project " + handler.getProjectId() + " version " + handler.getVersion() + " as " + key
+					+ ". Fetched in " + (fetchTime - startTime) + " ms, unzipped in " + (System.currentTimeMillis() - fetchTime) + " ms");
+		}
+		finally {
+			tempFile.delete();
+			if (tempDir.exists()) {
+				FileUtils.deleteDirectory(tempDir);
+			}
+		}
+	}
+
+	private Object getLock(String key) {
+		Object lock = fetchLocks.get(key);
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = fetchLocks.putIfAbsent(key, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
+	/**
+	 * Picks up the entries cached before a restart. They count as last used
+	 * when they were fetched. They may have been cached while files were left
+	 * writable, so they are made read only again if need be.
+	 */
+	private void loadArtifacts() {
+		File[] files = cacheDir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file: files) {
+			if (file.isDirectory()) {
+				if (readOnlyFiles) {
+					try {
+						setReadOnly(file);
+					}
+					catch (IOException e) {
+						logger.error("Error making cached files " + file + " read only", e);
+					}
+				}
+				long size = FileUtils.sizeOfDirectory(file);
+				artifacts.put(file.getName(), new CachedArtifact(size, file.lastModified()));
+				sizeBytes.addAndGet(size);
+			}
+		}
+	}
+
+	/**
+	 * Removes whatever was left behind by fetches that didn't finish.
+	 */
+	private void cleanTempFiles() {
+		File[] files = cacheDir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file: files) {
+			if (file.getName().startsWith(TEMP_PREFIX)) {
+				logger.info("Removing unfinished fetch " + file);
+				FileUtils.deleteQuietly(file);
+			}
+		}
+	}
+
+	/**
+	 * Takes write permission off every file under dir. Directories are left
+	 * writable so entries can still be removed.
+	 */
+	private static void setReadOnly(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException("Error listing " + dir);
+		}
+
+		for (File file: files) {
+			if (file.isDirectory()) {
+				setReadOnly(file);
+			}
+			else if (!file.setWritable(false, false)) {
+				throw new IOException("Error making " + file + " read only");
+			}
+		}
+	}
+
+	private static class CachedArtifact {
+		private final long sizeBytes;
+		private volatile long lastUsedTime;
+
+		private CachedArtifact(long sizeBytes, long lastUsedTime) {
+			this.sizeBytes = sizeBytes;
+			this.lastUsedTime = lastUsedTime;
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b: bytes) {
+			builder.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+		}
+		return builder.toString();
+	}
+}
@@ -18,6 +18,8 @@ package azkaban.execapp;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.zip.ZipFile;
 
 import org.apache.commons.io.FileUtils;
@@ -29,21 +31,27 @@ import azkaban.project.ProjectManagerException;
 
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.Utils;
+import azkaban.utils.WorkspaceBuilder;
 
 public class ProjectVersion implements Comparable<ProjectVersion> {
 	private final int projectId;
 	private final int version;
 	private File installedDir;
+	private volatile long lastUsedTime;
+	// Size of the installed files, measured the first time it's asked for.
+	private long sizeBytes = -1;
 	
 	public ProjectVersion(int projectId, int version) {
 		this.projectId = projectId;
 		this.version = version;
+		this.lastUsedTime = System.currentTimeMillis();
 	}
 	
 	public ProjectVersion(int projectId, int version, File installedDir) {
 		this.projectId = projectId;
 		this.version = version;
 		this.installedDir = installedDir;
+		this.lastUsedTime = installedDir.lastModified();
 	}
 
 	public int getProjectId() {
@@ -54,12 +62,55 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
 		return version;
 	}
 	
+	public synchronized boolean isInstalled() {
+		return installedDir != null && installedDir.exists();
+	}
+	
+	/**
+	 * Last time the version was set up or used for an execution.
+	 */
+	public long getLastUsedTime() {
+		return lastUsedTime;
+	}
+	
+	/**
+	 * Returns the key of the cached files the installed directory links to, or
+	 * null if the files aren't from the artifact cache.
+	 */
+	public synchronized String getArtifactKey() {
+		if (installedDir == null || !Files.isSymbolicLink(installedDir.toPath())) {
+			return null;
+		}
+		
+		try {
+			return Files.readSymbolicLink(installedDir.toPath()).getFileName().toString();
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Disk space taken by the installed files. Files linked from the artifact
+	 * cache are accounted for by the cache, so those take none.
+	 */
+	public synchronized long getSizeBytes() {
+		if (!isInstalled() || Files.isSymbolicLink(installedDir.toPath())) {
+			return 0;
+		}
+		if (sizeBytes < 0) {
+			sizeBytes = FileUtils.sizeOfDirectory(installedDir);
+		}
+		return sizeBytes;
+	}
+	
 	public synchronized void setupProjectFiles(ProjectLoader projectLoader, File projectDir, Logger logger) throws ProjectManagerException, IOException {
 		String projectVersion = String.valueOf(projectId) + "." + String.valueOf(version);
 		if (installedDir == null) {
 			installedDir = new File(projectDir, projectVersion);
 		}
 		
+		lastUsedTime = System.currentTimeMillis();
 		if (!installedDir.exists()) {
 			
 			logger.info("First time executing new project. Setting up in directory " + installedDir.getPath());
@@ -88,6 +139,29 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
 		}
 	}
 	
+	/**
+	 * Sets up the project files from the artifact cache. The installed directory
+	 * is a link to the cached files, which may be shared with other versions.
+	 */
+	public synchronized void setupProjectFiles(ProjectArtifactCache artifactCache, File projectDir, Logger logger) throws ProjectManagerException, IOException {
+		String projectVersion = String.valueOf(projectId) + "." + String.valueOf(version);
+		if (installedDir == null) {
+			installedDir = new File(projectDir, projectVersion);
+		}
+		
+		lastUsedTime = System.currentTimeMillis();
+		if (!installedDir.exists()) {
+			logger.info("First time executing new project. Linking directory " + installedDir.getPath() + " to cached files.");
+			File artifactDir = artifactCache.getProjectFiles(projectId, version);
+			
+			// A link left behind to files that are no longer cached doesn't exist
+			// as far as File is concerned, but still has to be removed.
+			Path link = installedDir.toPath();
+			Files.deleteIfExists(link);
+			Files.createSymbolicLink(link, artifactDir.getAbsoluteFile().toPath());
+		}
+	}
+	
 	public synchronized void copyCreateSymlinkDirectory(File executionDir) throws IOException {
 		if (installedDir == null || !installedDir.exists()) {
 			throw new IOException("Installed dir doesn't exist");
@@ -98,11 +172,28 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
 		FileIOUtils.createDeepSymlink(installedDir, executionDir);
 	}
 	
+	/**
+	 * Links the project files into the execution directory with the given
+	 * builder. Returns the number of files linked.
+	 */
+	public synchronized int setupExecutionDirectory(File executionDir, WorkspaceBuilder builder) throws IOException {
+		if (installedDir == null || !installedDir.exists()) {
+			throw new IOException("Installed dir doesn't exist");
+		}
+		lastUsedTime = System.currentTimeMillis();
+		return builder.build(installedDir, executionDir);
+	}
+	
 	public synchronized void deleteDirectory() throws IOException {
 		System.out.println("Deleting old unused project versin " + installedDir);
-		if (installedDir != null && installedDir.exists()) {
+		if (installedDir != null && Files.isSymbolicLink(installedDir.toPath())) {
+			// Only the link goes, even if the files it points to are gone.
+			Files.delete(installedDir.toPath());
+		}
+		else if (installedDir != null && installedDir.exists()) {
 			FileUtils.deleteDirectory(installedDir);
 		}
+		sizeBytes = -1;
 	}
 
 	@Override
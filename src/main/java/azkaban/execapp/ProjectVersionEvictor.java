@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import azkaban.utils.Pair;
+
+/**
+ * Keeps the disk space taken by installed project versions under a quota.
+ *
+ * Once the footprint goes over the high watermark, the least recently used
+ * files are deleted until it's back under the low watermark. Files in the
+ * artifact cache go along with every version linked to them, and only once
+ * none of those versions are in use.
+ */
+public class ProjectVersionEvictor {
+	private static final Logger logger = Logger.getLogger(ProjectVersionEvictor.class);
+
+	private final Map<Pair<Integer,Integer>, ProjectVersion> installedProjects;
+	// Null if versions aren't set up from the artifact cache.
+	private final ProjectArtifactCache artifactCache;
+	private final long highWatermarkBytes;
+	private final long lowWatermarkBytes;
+
+	private long numEvictedVersions = 0;
+	private long numEvictedArtifacts = 0;
+	private long evictedBytes = 0;
+
+	public ProjectVersionEvictor(Map<Pair<Integer,Integer>, ProjectVersion> installedProjects, ProjectArtifactCache artifactCache, long highWatermarkBytes, long lowWatermarkBytes) {
+		this.installedProjects = installedProjects;
+		this.artifactCache = artifactCache;
+		this.highWatermarkBytes = highWatermarkBytes;
+		this.lowWatermarkBytes = Math.min(lowWatermarkBytes, highWatermarkBytes);
+	}
+
+	public long getHighWatermarkBytes() {
+		return highWatermarkBytes;
+	}
+
+	public long getLowWatermarkBytes() {
+		return lowWatermarkBytes;
+	}
+
+	public synchronized long getNumEvictedVersions() {
+		return numEvictedVersions;
+	}
+
+	public synchronized long getNumEvictedArtifacts() {
+		return numEvictedArtifacts;
+	}
+
+	public synchronized long getEvictedBytes() {
+		return evictedBytes;
+	}
+
+	/**
+	 * Disk space taken by the installed versions and the artifact cache.
+	 */
+	public long getFootprintBytes() {
+		long footprint = artifactCache == null ? 0 : artifactCache.getSizeBytes();
+		for (ProjectVersion version: installedProjects.values()) {
+			footprint += version.getSizeBytes();
+		}
+		return footprint;
+	}
+
+	/**
+	 * Evicts the least recently used files if the footprint is over the high
+	 * watermark. Versions in activeVersions are never evicted. The caller makes
+	 * sure no other versions are set up in the meantime. Returns the number of
+	 * versions evicted.
+	 */
+	public synchronized int evict(Set<Pair<Integer,Integer>> activeVersions) {
+		List<DiskEntry> entries = getDiskEntries();
+		long footprint = 0;
+		for (DiskEntry entry: entries) {
+			footprint += entry.sizeBytes;
+		}
+		if (footprint <= highWatermarkBytes) {
+			return 0;
+		}
+
+		logger.info("Project files take " + footprint + " bytes, over " + highWatermarkBytes + ". Evicting down to " + lowWatermarkBytes);
+		Collections.sort(entries);
+		int evicted = 0;
+		for (DiskEntry entry: entries) {
+			if (footprint <= lowWatermarkBytes) {
+				break;
+			}
+			else if (entry.isActive(activeVersions)) {
+				continue;
+			}
+
+			try {
+				for (ProjectVersion version: entry.versions) {
+					logger.info("Evicting project " + version.getProjectId() + ":" + version.getVersion() + ", last used " + version.getLastUsedTime());
+					version.deleteDirectory();
+					installedProjects.remove(new Pair<Integer,Integer>(version.getProjectId(), version.getVersion()));
+					++evicted;
+					++numEvictedVersions;
+				}
+				if (entry.artifactKey != null && artifactCache.remove(entry.artifactKey)) {
+					++numEvictedArtifacts;
+				}
+			}
+			catch (IOException e) {
+				logger.error("Error evicting project files", e);
+				continue;
+			}
+
+			footprint -= entry.sizeBytes;
+			evictedBytes += entry.sizeBytes;
+		}
+
+		if (footprint > lowWatermarkBytes) {
+			logger.warn("Project files still take " + footprint + " bytes. The rest is in use.");
+		}
+		return evicted;
+	}
+
+	/**
+	 * Groups the installed versions by the files they take up on disk.
+	 */
+	private List<DiskEntry> getDiskEntries() {
+		Map<String, DiskEntry> artifactEntries = new HashMap<String, DiskEntry>();
+		List<DiskEntry> entries = new ArrayList<DiskEntry>();
+		if (artifactCache != null) {
+			for (String key: artifactCache.getKeys()) {
+				DiskEntry entry = new DiskEntry(key, artifactCache.getSizeBytes(key), artifactCache.getLastUsedTime(key));
+				artifactEntries.put(key, entry);
+				entries.add(entry);
+			}
+		}
+
+		for (ProjectVersion version: installedProjects.values()) {
+			if (!version.isInstalled()) {
+				continue;
+			}
+
+			DiskEntry entry = null;
+			String key = version.getArtifactKey();
+			if (key != null) {
+				entry = artifactEntries.get(key);
+			}
+			if (entry == null) {
+				entry = new DiskEntry(null, version.getSizeBytes(), version.getLastUsedTime());
+				entries.add(entry);
+			}
+			entry.add(version);
+		}
+		return entries;
+	}
+
+	private static class DiskEntry implements Comparable<DiskEntry> {
+		private final String artifactKey;
+		private final long sizeBytes;
+		private final List<ProjectVersion> versions = new ArrayList<ProjectVersion>();
+		private long lastUsedTime;
+
+		private DiskEntry(String artifactKey, long sizeBytes, long lastUsedTime) {
+			this.artifactKey = artifactKey;
+			this.sizeBytes = sizeBytes;
+			this.lastUsedTime = lastUsedTime;
+		}
+
+		private void add(ProjectVersion version) {
+			versions.add(version);
+			lastUsedTime = Math.max(lastUsedTime, version.getLastUsedTime());
+		}
+
+		private boolean isActive(Set<Pair<Integer,Integer>> activeVersions) {
+			for (ProjectVersion version: versions) {
+				if (activeVersions.contains(new Pair<Integer,Integer>(version.getProjectId(), version.getVersion()))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int compareTo(DiskEntry o) {
+			return lastUsedTime < o.lastUsedTime ? -1 : (lastUsedTime == o.lastUsedTime ? 0 : 1);
+		}
+	}
+}
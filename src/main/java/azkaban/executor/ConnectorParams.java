@@ -23,6 +23,7 @@ public interface ConnectorParams {
 	public static final String USER_PARAM = "user";
 	
 	public static final String UPDATE_ACTION = "update";
+	public static final String UPDATE_STREAM_ACTION = "updateStream";
 	public static final String STATUS_ACTION = "status";
 	public static final String EXECUTE_ACTION = "execute";
 	public static final String CANCEL_ACTION = "cancel";
@@ -32,6 +33,8 @@ public interface ConnectorParams {
 	public static final String LOG_ACTION = "log";
 	public static final String ATTACHMENTS_ACTION = "attachments";
 	public static final String METADATA_ACTION = "metadata";
+	public static final String STAGE_ACTION = "stage";
+	public static final String STATS_ACTION = "stats";
 	
 	public static final String MODIFY_EXECUTION_ACTION = "modifyExecution";
 	public static final String MODIFY_EXECUTION_ACTION_TYPE = "modifyType";
@@ -49,6 +52,8 @@ public interface ConnectorParams {
 	public static final String STATUS_PARAM = "status";
 	public static final String NODES_PARAM = "nodes";
 	public static final String EXECPATH_PARAM = "execpath";
+	// Comma separated list of projectId.version
+	public static final String STAGE_PROJECTS_PARAM = "projects";
 	
 	public static final String RESPONSE_NOTFOUND = "notfound";
 	public static final String RESPONSE_ERROR = "error";
@@ -56,6 +61,15 @@ public interface ConnectorParams {
 	public static final String RESPONSE_ALIVE = "alive";
 	public static final String RESPONSE_UPDATETIME = "lasttime";
 	public static final String RESPONSE_UPDATED_FLOWS = "updated";
+	public static final String RESPONSE_STAGED = "staged";
+	
+	public static final String STATS_NUM_RUNNING_FLOWS = "numRunningFlows";
+	public static final String STATS_NUM_RUNNING_JOBS = "numRunningJobs";
+	public static final String STATS_NUM_QUEUED_JOBS = "numQueuedJobs";
+	public static final String STATS_FREE_MEMORY = "freeMemory";
+	public static final String STATS_TOTAL_MEMORY = "totalMemory";
+	// List of projectId.version installed on the executor
+	public static final String STATS_PROJECTS = "projects";
 	
 	public static final int NODE_NAME_INDEX = 0;
 	public static final int NODE_STATUS_INDEX = 1;
@@ -64,6 +78,7 @@ public interface ConnectorParams {
 
 	public static final String UPDATE_TIME_LIST_PARAM = "updatetime";
 	public static final String EXEC_ID_LIST_PARAM = "executionId";
+	public static final String UPDATE_WAIT_MS_PARAM = "waitms";
 	
 	public static final String FORCED_FAILED_MARKER = ".failed";
 	
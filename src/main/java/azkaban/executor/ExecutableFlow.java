@@ -15,6 +15,7 @@
  */
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -219,7 +220,43 @@ public class ExecutableFlow extends ExecutableFlowBase {
 
 		}
 	}
-	
+
+	@Override
+	void writeBinary(ExecutableFlowBinaryCodec.Writer writer) {
+		super.writeBinary(writer);
+
+		writer.writeInt(executionId);
+		writer.writeString(executionPath);
+		writer.writeInt(projectId);
+		writer.writeInt(scheduleId);
+		writer.writeString(submitUser);
+		writer.writeInt(version);
+		writer.writeTime(submitTime);
+		writer.writeStrings(proxyUsers);
+		executionOptions.writeBinary(writer);
+	}
+
+	@Override
+	void readBinary(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		super.readBinary(reader);
+
+		this.executionId = reader.readInt();
+		this.executionPath = reader.readString();
+		this.projectId = reader.readInt();
+		this.scheduleId = reader.readInt();
+		this.submitUser = reader.readString();
+		this.version = reader.readInt();
+		this.submitTime = reader.readTime();
+
+		int numProxyUsers = reader.readSize();
+		for (int i = 0; i < numProxyUsers; ++i) {
+			this.proxyUsers.add(reader.readString());
+		}
+
+		this.executionOptions = new ExecutionOptions();
+		this.executionOptions.readBinary(reader);
+	}
+
 	public Map<String, Object> toUpdateObject(long lastUpdateTime) {
 		Map<String, Object> updateData = super.toUpdateObject(lastUpdateTime);
 		updateData.put(EXECUTIONID_PARAM, this.executionId);
@@ -15,6 +15,7 @@
  */
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -254,7 +255,47 @@ public class ExecutableFlowBase extends ExecutableNode {
 			this.flowProps.put(source, flowProps);
 		}
 	}
-	
+
+	@Override
+	void writeBinary(ExecutableFlowBinaryCodec.Writer writer) {
+		super.writeBinary(writer);
+
+		writer.writeString(flowId);
+		writer.writeInt(executableNodes.size());
+		for (ExecutableNode node: executableNodes.values()) {
+			writer.writeBoolean(node instanceof ExecutableFlowBase);
+			node.writeBinary(writer);
+		}
+
+		writer.writeInt(flowProps.size());
+		for (FlowProps fprop: flowProps.values()) {
+			writer.writeString(fprop.getSource());
+			writer.writeString(fprop.getInheritedSource());
+		}
+	}
+
+	@Override
+	void readBinary(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		super.readBinary(reader);
+
+		this.flowId = reader.readString();
+		int numNodes = reader.readInt();
+		for (int i = 0; i < numNodes; ++i) {
+			ExecutableNode node = reader.readBoolean() ? new ExecutableFlowBase() : new ExecutableNode();
+			node.readBinary(reader);
+			node.setParentFlow(this);
+
+			executableNodes.put(node.getId(), node);
+		}
+
+		int numProps = reader.readInt();
+		for (int i = 0; i < numProps; ++i) {
+			String source = reader.readString();
+			String inheritedSource = reader.readString();
+			this.flowProps.put(source, new FlowProps(inheritedSource, source));
+		}
+	}
+
 	public Map<String, Object> toUpdateObject(long lastUpdateTime) {
 		Map<String, Object> updateData = super.toUpdateObject();
 		
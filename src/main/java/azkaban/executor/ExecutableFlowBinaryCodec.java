@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of an ExecutableFlow, stored deflated as EncodingType.BINARY.
+ * It holds the same data as the json from toObject(), but the nodes write
+ * themselves straight into the buffer, and read themselves back, without the
+ * maps and lists in between.
+ *
+ * Integers are zig-zag varints. Strings are interned: the first time a string
+ * is written it goes out in full, after that only its index. So each node id
+ * is written once, and the in and out nodes referring to it take a byte or
+ * two. Times are varints of the difference to the previous time written,
+ * which keeps them to a few bytes since a flow's times are close together.
+ */
+public class ExecutableFlowBinaryCodec {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int FORMAT_VERSION = 1;
+	private static final long NO_TIME = -1;
+
+	public static byte[] encode(ExecutableFlow flow) {
+		Writer writer = new Writer();
+		writer.writeInt(FORMAT_VERSION);
+		flow.writeBinary(writer);
+		return writer.toByteArray();
+	}
+
+	public static ExecutableFlow decode(byte[] data) throws IOException {
+		Reader reader = new Reader(data);
+		int version = reader.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unknown binary flow format version " + version);
+		}
+
+		ExecutableFlow flow = new ExecutableFlow();
+		flow.readBinary(reader);
+		return flow;
+	}
+
+	public static class Writer {
+		private byte[] buffer = new byte[4096];
+		private int size = 0;
+		private long lastTime = 0;
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		private Writer() {
+		}
+
+		public void writeBoolean(boolean value) {
+			writeByte(value ? 1 : 0);
+		}
+
+		public void writeInt(int value) {
+			writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+		}
+
+		public void writeLong(long value) {
+			writeVarLong((value << 1) ^ (value >> 63));
+		}
+
+		/**
+		 * Writes -1 as a single byte, and any other time as the difference to
+		 * the last one written.
+		 */
+		public void writeTime(long time) {
+			if (time == NO_TIME) {
+				writeByte(0);
+				return;
+			}
+
+			long delta = time - lastTime;
+			lastTime = time;
+			writeVarLong(((delta << 1) ^ (delta >> 63)) + 1);
+		}
+
+		/**
+		 * Null is 0, a string seen before is its index times 2 plus 2, and a new
+		 * string is its length in bytes times 2 plus 1, followed by the bytes.
+		 */
+		public void writeString(String value) {
+			if (value == null) {
+				writeByte(0);
+				return;
+			}
+
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeVarLong(((long)index << 1) + 2);
+				return;
+			}
+
+			strings.put(value, strings.size());
+			byte[] bytes = value.getBytes(UTF8);
+			writeVarLong(((long)bytes.length << 1) + 1);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		/**
+		 * Writes the size plus one, so a null collection is 0.
+		 */
+		public void writeStrings(Collection<String> values) {
+			if (values == null) {
+				writeByte(0);
+				return;
+			}
+
+			writeInt(values.size() + 1);
+			for (String value: values) {
+				writeString(value);
+			}
+		}
+
+		public void writeStringMap(Map<String, String> values) {
+			if (values == null) {
+				writeByte(0);
+				return;
+			}
+
+			writeInt(values.size() + 1);
+			for (Map.Entry<String, String> entry: values.entrySet()) {
+				writeString(entry.getKey());
+				writeString(entry.getValue());
+			}
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[size++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[size++] = (byte)value;
+		}
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			buffer[size++] = (byte)value;
+		}
+
+		private void ensureCapacity(int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+			}
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+	}
+
+	public static class Reader {
+		private final byte[] buffer;
+		private int position = 0;
+		private long lastTime = 0;
+		private final List<String> strings = new ArrayList<String>();
+
+		private Reader(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		public boolean readBoolean() throws IOException {
+			return readByte() != 0;
+		}
+
+		public int readInt() throws IOException {
+			long value = readVarLong();
+			return (int)((value >>> 1) ^ -(value & 1));
+		}
+
+		public long readLong() throws IOException {
+			long value = readVarLong();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		public long readTime() throws IOException {
+			long value = readVarLong();
+			if (value == 0) {
+				return NO_TIME;
+			}
+
+			value -= 1;
+			lastTime += (value >>> 1) ^ -(value & 1);
+			return lastTime;
+		}
+
+		public String readString() throws IOException {
+			long value = readVarLong();
+			if (value == 0) {
+				return null;
+			}
+			else if ((value & 1) == 0) {
+				int index = (int)((value - 2) >>> 1);
+				if (index < 0 || index >= strings.size()) {
+					throw new IOException("Unknown string index " + index);
+				}
+				return strings.get(index);
+			}
+
+			int length = (int)(value >>> 1);
+			if (length < 0 || length > buffer.length - position) {
+				throw new IOException("String of " + length + " bytes runs past the end of the data");
+			}
+			String string = new String(buffer, position, length, UTF8);
+			position += length;
+			strings.add(string);
+			return string;
+		}
+
+		/**
+		 * Returns the number of entries written with writeStrings or
+		 * writeStringMap, or -1 if it was null.
+		 */
+		public int readSize() throws IOException {
+			return readInt() - 1;
+		}
+
+		private long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = readByte();
+				value |= (long)(b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed varint at " + position);
+		}
+
+		private byte readByte() throws IOException {
+			if (position >= buffer.length) {
+				throw new IOException("Unexpected end of binary flow data");
+			}
+			return buffer[position++];
+		}
+	}
+}
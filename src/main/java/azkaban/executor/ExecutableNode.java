@@ -16,6 +16,7 @@
 
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -24,6 +25,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import azkaban.flow.Node;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
@@ -71,6 +74,8 @@ public class ExecutableNode {
 	
 	// Transient. These values aren't saved, but rediscovered.
 	private ExecutableFlowBase parentFlow; 
+	// Transient. The number of in nodes the executor is still waiting on.
+	private final AtomicInteger pendingInNodes = new AtomicInteger();
 	
 	public ExecutableNode(Node node) {
 		this.id = node.getId();
@@ -169,6 +174,22 @@ public class ExecutableNode {
 		return outNodes;
 	}
 	
+	public int getPendingInNodes() {
+		return pendingInNodes.get();
+	}
+	
+	public void setPendingInNodes(int pending) {
+		pendingInNodes.set(pending);
+	}
+	
+	/**
+	 * Called when one of the in nodes finishes. Returns the number of in nodes
+	 * that are still pending, so the caller that brings it to 0 can run the node.
+	 */
+	public int inNodeFinished() {
+		return pendingInNodes.decrementAndGet();
+	}
+	
 	public Set<String> getInNodes() {
 		return inNodes;
 	}
@@ -348,6 +369,89 @@ public class ExecutableNode {
 		fillExecutableFromMapObject(wrapper);
 	}
 
+	/**
+	 * Writes the same fields as fillMapFromExecutable, in the binary format.
+	 */
+	void writeBinary(ExecutableFlowBinaryCodec.Writer writer) {
+		writer.writeString(id);
+		writer.writeString(type);
+		writer.writeInt(status.getNumVal());
+		writer.writeTime(startTime);
+		writer.writeTime(endTime);
+		writer.writeTime(updateTime);
+		writer.writeInt(attempt);
+		writer.writeStrings(inNodes);
+		writer.writeStrings(outNodes);
+		writer.writeString(propsSource);
+		writer.writeString(jobSource);
+
+		if (outputProps != null && outputProps.size() > 0) {
+			writer.writeStringMap(PropsUtils.toStringMap(outputProps, true));
+		}
+		else {
+			writer.writeStringMap(null);
+		}
+
+		if (pastAttempts != null) {
+			writer.writeInt(pastAttempts.size() + 1);
+			for (ExecutionAttempt pastAttempt: pastAttempts) {
+				writer.writeInt(pastAttempt.getAttempt());
+				writer.writeTime(pastAttempt.getStartTime());
+				writer.writeTime(pastAttempt.getEndTime());
+				writer.writeInt(pastAttempt.getStatus().getNumVal());
+			}
+		}
+		else {
+			writer.writeInt(0);
+		}
+	}
+
+	void readBinary(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		this.id = reader.readString();
+		this.type = reader.readString();
+		this.status = Status.fromInteger(reader.readInt());
+		this.startTime = reader.readTime();
+		this.endTime = reader.readTime();
+		this.updateTime = reader.readTime();
+		this.attempt = reader.readInt();
+
+		this.inNodes = readNodeIds(reader);
+		this.outNodes = readNodeIds(reader);
+		this.propsSource = reader.readString();
+		this.jobSource = reader.readString();
+
+		int numOutputProps = reader.readSize();
+		if (numOutputProps >= 0) {
+			Props outputProps = new Props();
+			for (int i = 0; i < numOutputProps; ++i) {
+				outputProps.put(reader.readString(), reader.readString());
+			}
+			this.outputProps = outputProps;
+		}
+
+		int numPastAttempts = reader.readSize();
+		if (numPastAttempts >= 0) {
+			ArrayList<ExecutionAttempt> attempts = new ArrayList<ExecutionAttempt>(numPastAttempts);
+			for (int i = 0; i < numPastAttempts; ++i) {
+				int pastAttempt = reader.readInt();
+				long startTime = reader.readTime();
+				long endTime = reader.readTime();
+				Status status = Status.fromInteger(reader.readInt());
+				attempts.add(new ExecutionAttempt(pastAttempt, startTime, endTime, status));
+			}
+			this.pastAttempts = attempts;
+		}
+	}
+
+	private static Set<String> readNodeIds(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		int size = reader.readSize();
+		Set<String> ids = new HashSet<String>(Math.max(size, 0) * 2);
+		for (int i = 0; i < size; ++i) {
+			ids.add(reader.readString());
+		}
+		return ids;
+	}
+
 	public Map<String, Object> toUpdateObject() {
 		Map<String, Object> updatedNodeMap = new HashMap<String,Object>();
 		updatedNodeMap.put(ID_PARAM, getId());
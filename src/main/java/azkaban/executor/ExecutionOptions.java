@@ -16,6 +16,7 @@
 
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 
 import azkaban.executor.mail.DefaultMailCreator;
+import azkaban.utils.JSONUtils;
 import azkaban.utils.TypedMapWrapper;
 
 /**
@@ -244,4 +246,92 @@ public class ExecutionOptions {
 		
 		return options;
 	}
+
+	/**
+	 * Writes the options for ExecutableFlowBinaryCodec. The disabled jobs can
+	 * nest, so anything other than a plain job id goes in as json.
+	 */
+	void writeBinary(ExecutableFlowBinaryCodec.Writer writer) {
+		writer.writeStringMap(flowParameters);
+		writer.writeBoolean(notifyOnFirstFailure);
+		writer.writeBoolean(notifyOnLastFailure);
+		writer.writeStrings(successEmails);
+		writer.writeStrings(failureEmails);
+		writer.writeInt(failureAction.ordinal());
+		writeNullableInt(writer, pipelineLevel);
+		writeNullableInt(writer, pipelineExecId);
+		writeNullableInt(writer, queueLevel);
+		writer.writeString(concurrentOption);
+		writer.writeBoolean(failureEmailsOverride);
+		writer.writeBoolean(successEmailsOverride);
+		writer.writeString(mailCreator);
+
+		if (initiallyDisabledJobs == null) {
+			writer.writeInt(0);
+			return;
+		}
+		writer.writeInt(initiallyDisabledJobs.size() + 1);
+		for (Object disabled: initiallyDisabledJobs) {
+			if (disabled == null || disabled instanceof String) {
+				writer.writeBoolean(false);
+				writer.writeString((String)disabled);
+			}
+			else {
+				writer.writeBoolean(true);
+				writer.writeString(JSONUtils.toJSON(disabled));
+			}
+		}
+	}
+
+	void readBinary(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		int numFlowParameters = reader.readSize();
+		flowParameters = new HashMap<String, String>();
+		for (int i = 0; i < numFlowParameters; ++i) {
+			flowParameters.put(reader.readString(), reader.readString());
+		}
+
+		notifyOnFirstFailure = reader.readBoolean();
+		notifyOnLastFailure = reader.readBoolean();
+		successEmails = readStringList(reader);
+		failureEmails = readStringList(reader);
+		failureAction = FailureAction.values()[reader.readInt()];
+		pipelineLevel = readNullableInt(reader);
+		pipelineExecId = readNullableInt(reader);
+		queueLevel = readNullableInt(reader);
+		concurrentOption = reader.readString();
+		failureEmailsOverride = reader.readBoolean();
+		successEmailsOverride = reader.readBoolean();
+		mailCreator = reader.readString();
+
+		int numDisabled = reader.readSize();
+		initiallyDisabledJobs = numDisabled < 0 ? null : new ArrayList<Object>(numDisabled);
+		for (int i = 0; i < numDisabled; ++i) {
+			if (reader.readBoolean()) {
+				initiallyDisabledJobs.add(JSONUtils.parseJSONFromString(reader.readString()));
+			}
+			else {
+				initiallyDisabledJobs.add(reader.readString());
+			}
+		}
+	}
+
+	private static void writeNullableInt(ExecutableFlowBinaryCodec.Writer writer, Integer value) {
+		writer.writeBoolean(value != null);
+		if (value != null) {
+			writer.writeInt(value);
+		}
+	}
+
+	private static Integer readNullableInt(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		return reader.readBoolean() ? Integer.valueOf(reader.readInt()) : null;
+	}
+
+	private static ArrayList<String> readStringList(ExecutableFlowBinaryCodec.Reader reader) throws IOException {
+		int size = reader.readSize();
+		ArrayList<String> values = new ArrayList<String>(Math.max(size, 0));
+		for (int i = 0; i < size; ++i) {
+			values.add(reader.readString());
+		}
+		return values;
+	}
 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * In memory trigram index over the project names, flow ids and submit users
+ * that appear in the execution history.
+ *
+ * A "name contains" search is resolved against the index into the exact set of
+ * matching values, which the db can then look up through its indexes instead
+ * of scanning every row with LIKE '%term%'. There are few distinct names
+ * compared to executions, so the index stays small.
+ */
+public class ExecutionSearchIndex {
+	private static final Logger logger = Logger.getLogger(ExecutionSearchIndex.class);
+	private static final int GRAM_LENGTH = 3;
+
+	private final ExecutorLoader loader;
+	private final long refreshIntervalMs;
+
+	private volatile Terms<Integer> projects;
+	private volatile Terms<String> flows;
+	private volatile Terms<String> users;
+	private volatile long lastRefreshTime = -1;
+
+	public ExecutionSearchIndex(ExecutorLoader loader, long refreshIntervalMs) {
+		this.loader = loader;
+		this.refreshIntervalMs = refreshIntervalMs;
+	}
+
+	/**
+	 * Reloads the names from the db.
+	 */
+	public synchronized void refresh() throws ExecutorManagerException {
+		long startTime = System.currentTimeMillis();
+
+		Terms<Integer> newProjects = new Terms<Integer>();
+		for (Map.Entry<Integer, String> entry: loader.fetchProjectNames().entrySet()) {
+			newProjects.add(entry.getValue(), entry.getKey());
+		}
+
+		Terms<String> newFlows = new Terms<String>();
+		for (String flowId: loader.fetchExecutedFlowIds()) {
+			newFlows.add(flowId, flowId);
+		}
+
+		Terms<String> newUsers = new Terms<String>();
+		for (String user: loader.fetchSubmitUsers()) {
+			newUsers.add(user, user);
+		}
+
+		projects = newProjects;
+		flows = newFlows;
+		users = newUsers;
+		lastRefreshTime = System.currentTimeMillis();
+
+		logger.info("Indexed " + newProjects.size() + " projects, " + newFlows.size() + " flows and "
+				+ newUsers.size() + " users in " + (lastRefreshTime - startTime) + " ms");
+	}
+
+	/**
+	 * Adds the names of a newly submitted execution, so it can be found before
+	 * the next refresh.
+	 */
+	public void addExecution(ExecutableFlow flow) {
+		if (lastRefreshTime < 0) {
+			return;
+		}
+
+		// The flow doesn't carry the project name, so a project we haven't seen
+		// yet means reloading the names on the next search.
+		if (!projects.hasValue(flow.getProjectId())) {
+			lastRefreshTime = -1;
+		}
+		flows.add(flow.getFlowId(), flow.getFlowId());
+		users.add(flow.getSubmitUser(), flow.getSubmitUser());
+	}
+
+	/**
+	 * Ids of the projects whose name contains the term, ignoring case. Returns
+	 * null if the term doesn't narrow anything down.
+	 */
+	public Set<Integer> findProjects(String contains) throws ExecutorManagerException {
+		checkRefresh();
+		return projects.find(contains);
+	}
+
+	/**
+	 * Flow ids containing the term, ignoring case. Returns null if the term
+	 * doesn't narrow anything down.
+	 */
+	public Set<String> findFlows(String contains) throws ExecutorManagerException {
+		checkRefresh();
+		return flows.find(contains);
+	}
+
+	/**
+	 * Submit users containing the term, ignoring case. Returns null if the term
+	 * doesn't narrow anything down.
+	 */
+	public Set<String> findUsers(String contains) throws ExecutorManagerException {
+		checkRefresh();
+		return users.find(contains);
+	}
+
+	public long getLastRefreshTime() {
+		return lastRefreshTime;
+	}
+
+	private void checkRefresh() throws ExecutorManagerException {
+		if (lastRefreshTime < 0 || System.currentTimeMillis() - lastRefreshTime > refreshIntervalMs) {
+			synchronized (this) {
+				if (lastRefreshTime < 0 || System.currentTimeMillis() - lastRefreshTime > refreshIntervalMs) {
+					refresh();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Distinct lower cased names, the values they map to, and a posting list of
+	 * name indexes for every trigram.
+	 */
+	private static class Terms<T> {
+		private final Map<String, Integer> termIndexes = new HashMap<String, Integer>();
+		private final List<String> terms = new ArrayList<String>();
+		private final List<Set<T>> values = new ArrayList<Set<T>>();
+		private final Map<String, List<Integer>> postings = new HashMap<String, List<Integer>>();
+		private final Set<T> allValues = new HashSet<T>();
+
+		private synchronized void add(String name, T value) {
+			if (name == null) {
+				return;
+			}
+
+			String term = name.toLowerCase();
+			Integer index = termIndexes.get(term);
+			if (index == null) {
+				index = terms.size();
+				termIndexes.put(term, index);
+				terms.add(term);
+				values.add(new HashSet<T>());
+
+				for (String gram: grams(term)) {
+					List<Integer> posting = postings.get(gram);
+					if (posting == null) {
+						posting = new ArrayList<Integer>();
+						postings.put(gram, posting);
+					}
+					posting.add(index);
+				}
+			}
+
+			values.get(index).add(value);
+			allValues.add(value);
+		}
+
+		private synchronized Set<T> find(String contains) {
+			if (contains == null || contains.isEmpty()) {
+				return null;
+			}
+
+			String query = contains.toLowerCase();
+			Set<T> result = new HashSet<T>();
+			if (query.length() < GRAM_LENGTH) {
+				for (int i = 0; i < terms.size(); ++i) {
+					if (terms.get(i).contains(query)) {
+						result.addAll(values.get(i));
+					}
+				}
+			}
+			else {
+				for (Integer index: candidates(query)) {
+					if (terms.get(index).contains(query)) {
+						result.addAll(values.get(index));
+					}
+				}
+			}
+
+			if (!allValues.isEmpty() && result.size() == allValues.size()) {
+				return null;
+			}
+			return result;
+		}
+
+		/**
+		 * Term indexes that have every trigram of the query.
+		 */
+		private Set<Integer> candidates(String query) {
+			List<List<Integer>> lists = new ArrayList<List<Integer>>();
+			for (String gram: grams(query)) {
+				List<Integer> posting = postings.get(gram);
+				if (posting == null) {
+					return Collections.emptySet();
+				}
+				lists.add(posting);
+			}
+
+			List<Integer> smallest = lists.get(0);
+			for (List<Integer> list: lists) {
+				if (list.size() < smallest.size()) {
+					smallest = list;
+				}
+			}
+
+			Set<Integer> candidates = new HashSet<Integer>(smallest);
+			for (List<Integer> list: lists) {
+				if (list != smallest) {
+					candidates.retainAll(new HashSet<Integer>(list));
+				}
+			}
+			return candidates;
+		}
+
+		private synchronized boolean hasValue(T value) {
+			return allValues.contains(value);
+		}
+
+		private synchronized int size() {
+			return terms.size();
+		}
+
+		private static Set<String> grams(String term) {
+			Set<String> grams = new HashSet<String>();
+			for (int i = 0; i + GRAM_LENGTH <= term.length(); ++i) {
+				grams.add(term.substring(i, i + GRAM_LENGTH));
+			}
+			return grams;
+		}
+	}
+}
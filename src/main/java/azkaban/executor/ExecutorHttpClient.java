@@ -0,0 +1,263 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Props;
+
+/**
+ * Shared http client used by the web server to talk to the executor servers.
+ *
+ * Connections are pooled per executor host:port route and kept alive between
+ * calls, so the updater thread, log fetches and execution commands don't pay
+ * for a new tcp connection each time.
+ */
+public class ExecutorHttpClient {
+	private static final Logger logger = Logger.getLogger(ExecutorHttpClient.class);
+
+	public static final String MAX_CONNECTIONS_PER_ROUTE = "executor.connection.max.per.route";
+	public static final String MAX_CONNECTIONS_TOTAL = "executor.connection.max.total";
+	public static final String CONNECTION_TIMEOUT_MS = "executor.connection.timeout.ms";
+	public static final String SOCKET_TIMEOUT_MS = "executor.socket.timeout.ms";
+	public static final String KEEP_ALIVE_MS = "executor.connection.keepalive.ms";
+	public static final String IDLE_TIMEOUT_MS = "executor.connection.idle.timeout.ms";
+
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	private static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 100;
+	private static final int DEFAULT_CONNECTION_TIMEOUT_MS = 10000;
+	// No limit, like the calls before the pool, since log and jmx fetches can
+	// take a while. Set executor.socket.timeout.ms to bound them.
+	private static final int DEFAULT_SOCKET_TIMEOUT_MS = 0;
+	private static final long DEFAULT_KEEP_ALIVE_MS = 30000;
+	private static final long DEFAULT_IDLE_TIMEOUT_MS = 60000;
+
+	private static final ResponseHandler<Object> JSON_RESPONSE_HANDLER = new ResponseHandler<Object>() {
+		@Override
+		public Object handleResponse(HttpResponse response) throws IOException {
+			StatusLine statusLine = response.getStatusLine();
+			HttpEntity entity = response.getEntity();
+			if (statusLine.getStatusCode() >= 300) {
+				EntityUtils.consume(entity);
+				throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+			}
+			return entity == null ? null : JSONUtils.parseJSONFromStream(entity.getContent());
+		}
+	};
+
+	private final PoolingClientConnectionManager connectionManager;
+	private final DefaultHttpClient httpClient;
+	private final long idleTimeoutMs;
+	private final int maxPerRoute;
+
+	private final AtomicLong numRequests = new AtomicLong();
+	private final AtomicLong numFailedRequests = new AtomicLong();
+	private final AtomicLong numConnectionsCreated = new AtomicLong();
+	private final AtomicLong numConnectionsReused = new AtomicLong();
+	private final AtomicLong lastIdleEvictTime = new AtomicLong(System.currentTimeMillis());
+
+	public ExecutorHttpClient(Props props) {
+		maxPerRoute = props.getInt(MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+		int maxTotal = props.getInt(MAX_CONNECTIONS_TOTAL, DEFAULT_MAX_CONNECTIONS_TOTAL);
+		int connectionTimeout = props.getInt(CONNECTION_TIMEOUT_MS, DEFAULT_CONNECTION_TIMEOUT_MS);
+		int socketTimeout = props.getInt(SOCKET_TIMEOUT_MS, DEFAULT_SOCKET_TIMEOUT_MS);
+		final long keepAliveMs = props.getLong(KEEP_ALIVE_MS, DEFAULT_KEEP_ALIVE_MS);
+		idleTimeoutMs = props.getLong(IDLE_TIMEOUT_MS, DEFAULT_IDLE_TIMEOUT_MS);
+
+		connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault()) {
+			@Override
+			protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schreg) {
+				return new CountingConnectionOperator(schreg);
+			}
+		};
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		connectionManager.setMaxTotal(maxTotal);
+
+		httpClient = new DefaultHttpClient(connectionManager);
+		HttpParams params = httpClient.getParams();
+		HttpConnectionParams.setConnectionTimeout(params, connectionTimeout);
+		HttpConnectionParams.setSoTimeout(params, socketTimeout);
+		HttpConnectionParams.setStaleCheckingEnabled(params, true);
+		HttpConnectionParams.setTcpNoDelay(params, true);
+
+		httpClient.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+			private final ConnectionKeepAliveStrategy defaultStrategy = new DefaultConnectionKeepAliveStrategy();
+
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				// Honor the server's Keep-Alive header if it sends one, otherwise
+				// use our own limit rather than keeping the connection forever.
+				long duration = defaultStrategy.getKeepAliveDuration(response, context);
+				return duration > 0 ? Math.min(duration, keepAliveMs) : keepAliveMs;
+			}
+		});
+
+		logger.info("Executor http client pool created with " + maxPerRoute + " connections per executor, " + maxTotal + " total.");
+	}
+
+	/**
+	 * Issues a GET and returns the body as a string. The connection is returned
+	 * to the pool once the response has been consumed.
+	 */
+	public String httpGet(URI uri) throws IOException {
+		return httpGet(uri, new BasicResponseHandler());
+	}
+
+	/**
+	 * Issues a GET and parses the json body as it's read off the connection,
+	 * without holding the whole response in a String first.
+	 */
+	public Object httpGetJSON(URI uri) throws IOException {
+		return httpGet(uri, JSON_RESPONSE_HANDLER);
+	}
+
+	private <T> T httpGet(URI uri, final ResponseHandler<T> responseHandler) throws IOException {
+		numRequests.incrementAndGet();
+		evictIdleConnections();
+
+		HttpGet httpget = new HttpGet(uri);
+		final HttpContext context = new BasicHttpContext();
+		try {
+			return httpClient.execute(httpget, new ResponseHandler<T>() {
+				@Override
+				public T handleResponse(HttpResponse response) throws IOException {
+					countReuse(context);
+					return responseHandler.handleResponse(response);
+				}
+			}, context);
+		} catch (IOException e) {
+			numFailedRequests.incrementAndGet();
+			httpget.abort();
+			throw e;
+		} catch (RuntimeException e) {
+			numFailedRequests.incrementAndGet();
+			httpget.abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * Counts the request as a reuse if the connection that got the response had
+	 * already served a request before this one.
+	 */
+	private void countReuse(HttpContext context) {
+		HttpConnection conn = (HttpConnection)context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+		if (conn != null && conn.isOpen() && conn.getMetrics().getRequestCount() > 1) {
+			numConnectionsReused.incrementAndGet();
+		}
+	}
+
+	private void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+		long lastEvict = lastIdleEvictTime.get();
+		if (now - lastEvict > idleTimeoutMs && lastIdleEvictTime.compareAndSet(lastEvict, now)) {
+			connectionManager.closeExpiredConnections();
+			connectionManager.closeIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public void shutdown() {
+		connectionManager.shutdown();
+	}
+
+	public long getNumRequests() {
+		return numRequests.get();
+	}
+
+	public long getNumFailedRequests() {
+		return numFailedRequests.get();
+	}
+
+	public long getNumConnectionsCreated() {
+		return numConnectionsCreated.get();
+	}
+
+	/**
+	 * Number of requests that got a response over an already open connection.
+	 */
+	public long getNumConnectionsReused() {
+		return numConnectionsReused.get();
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxPerRoute;
+	}
+
+	public int getNumLeasedConnections() {
+		return connectionManager.getTotalStats().getLeased();
+	}
+
+	public int getNumAvailableConnections() {
+		return connectionManager.getTotalStats().getAvailable();
+	}
+
+	public int getNumPendingConnections() {
+		return connectionManager.getTotalStats().getPending();
+	}
+
+	/**
+	 * Connection operator that counts each newly opened connection, so we can
+	 * tell how often requests are served from the pool.
+	 */
+	private class CountingConnectionOperator extends DefaultClientConnectionOperator {
+		public CountingConnectionOperator(SchemeRegistry schemes) {
+			super(schemes);
+		}
+
+		@Override
+		public void openConnection(
+				OperatedClientConnection conn,
+				HttpHost target,
+				InetAddress local,
+				HttpContext context,
+				HttpParams params) throws IOException {
+			numConnectionsCreated.incrementAndGet();
+			super.openConnection(conn, target, local, context, params);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An executor server the web server can send executions to, with the load it
+ * last reported.
+ *
+ * Between reports, the executions sent to it are counted here so that a burst
+ * of submissions doesn't all go to the executor that looked idle.
+ */
+public class ExecutorInfo {
+	private final String host;
+	private final int port;
+
+	private boolean hasStats = false;
+	private long statsUpdateTime = -1;
+	private int numRunningFlows = 0;
+	private int numRunningJobs = 0;
+	private int numQueuedJobs = 0;
+	private long freeMemory = 0;
+	private long totalMemory = 0;
+	private Set<String> projects = new HashSet<String>();
+
+	public ExecutorInfo(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public String getHostPort() {
+		return host + ":" + port;
+	}
+
+	/**
+	 * Sets the load from the stats action response of the executor.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void updateStats(Map<String, Object> stats, long updateTime) {
+		numRunningFlows = getInt(stats, ConnectorParams.STATS_NUM_RUNNING_FLOWS);
+		numRunningJobs = getInt(stats, ConnectorParams.STATS_NUM_RUNNING_JOBS);
+		numQueuedJobs = getInt(stats, ConnectorParams.STATS_NUM_QUEUED_JOBS);
+		freeMemory = getLong(stats, ConnectorParams.STATS_FREE_MEMORY);
+		totalMemory = getLong(stats, ConnectorParams.STATS_TOTAL_MEMORY);
+
+		projects = new HashSet<String>();
+		List<String> projectList = (List<String>)stats.get(ConnectorParams.STATS_PROJECTS);
+		if (projectList != null) {
+			projects.addAll(projectList);
+		}
+
+		hasStats = true;
+		statsUpdateTime = updateTime;
+	}
+
+	/**
+	 * The executor didn't answer, or is too old to report its load. The counts
+	 * sent to it from here are kept.
+	 */
+	public synchronized void setStatsUnavailable(long updateTime) {
+		hasStats = false;
+		statsUpdateTime = updateTime;
+	}
+
+	/**
+	 * Counts an execution sent to the executor until its next report.
+	 */
+	public synchronized void addExecution(int projectId, int version) {
+		numRunningFlows++;
+		projects.add(projectId + "." + version);
+	}
+
+	public synchronized boolean hasStats() {
+		return hasStats;
+	}
+
+	public synchronized long getStatsUpdateTime() {
+		return statsUpdateTime;
+	}
+
+	public synchronized int getNumRunningFlows() {
+		return numRunningFlows;
+	}
+
+	public synchronized int getNumRunningJobs() {
+		return numRunningJobs;
+	}
+
+	public synchronized int getNumQueuedJobs() {
+		return numQueuedJobs;
+	}
+
+	public synchronized long getFreeMemory() {
+		return freeMemory;
+	}
+
+	public synchronized long getTotalMemory() {
+		return totalMemory;
+	}
+
+	/**
+	 * The share of the executor's memory in use, from 0 to 1.
+	 */
+	public synchronized double getMemoryPressure() {
+		if (totalMemory <= 0) {
+			return 0;
+		}
+		return 1 - (double)freeMemory / totalMemory;
+	}
+
+	public synchronized boolean hasProjectVersion(int projectId, int version) {
+		return projects.contains(projectId + "." + version);
+	}
+
+	@Override
+	public synchronized String toString() {
+		if (!hasStats) {
+			return getHostPort() + " flows=" + numRunningFlows + " (no stats)";
+		}
+		return getHostPort() + " flows=" + numRunningFlows + " jobs=" + numRunningJobs +
+				" queuedJobs=" + numQueuedJobs + " freeMemory=" + freeMemory + "/" + totalMemory +
+				" projects=" + projects.size();
+	}
+
+	private static int getInt(Map<String, Object> stats, String key) {
+		Number value = (Number)stats.get(key);
+		return value == null ? 0 : value.intValue();
+	}
+
+	private static long getLong(Map<String, Object> stats, String key) {
+		Number value = (Number)stats.get(key);
+		return value == null ? 0 : value.longValue();
+	}
+}
@@ -17,6 +17,7 @@
 package azkaban.executor;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +32,12 @@ public interface ExecutorLoader {
 	
 	public Map<Integer,Pair<ExecutionReference, ExecutableFlow>> fetchActiveFlows() throws ExecutorManagerException;
 
+	/**
+	 * Flows submitted since submittedAfter that are still preparing and have no
+	 * active reference, so they haven't been sent to an executor. Oldest first.
+	 */
+	public List<ExecutableFlow> fetchQueuedFlows(long submittedAfter) throws ExecutorManagerException;
+
 	public List<ExecutableFlow> fetchFlowHistory(int skip, int num) throws ExecutorManagerException;
 
 	public List<ExecutableFlow> fetchFlowHistory(int projectId, String flowId, int skip, int num) throws ExecutorManagerException;
@@ -39,6 +46,24 @@ public interface ExecutorLoader {
 
 	public List<ExecutableFlow> fetchFlowHistory(String projContain, String flowContains, String userNameContains, int status, long startData, long endData, int skip, int num) throws ExecutorManagerException;
 
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int skip, int num) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int projectId, String flowId, int skip, int num) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int projectId, String flowId, int skip, int num, Status status) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> fetchFlowSummariesBefore(int projectId, String flowId, int beforeExecId, int num) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> fetchFlowSummaries(String projContain, String flowContains, String userNameContains, int status, long startData, long endData, int skip, int num) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> searchFlowSummaries(Collection<Integer> projectIds, Collection<String> flowIds, Collection<String> submitUsers, int status, long startData, long endData, int beforeExecId, int skip, int num) throws ExecutorManagerException;
+
+	public Map<Integer, String> fetchProjectNames() throws ExecutorManagerException;
+
+	public List<String> fetchExecutedFlowIds() throws ExecutorManagerException;
+
+	public List<String> fetchSubmitUsers() throws ExecutorManagerException;
+
 	public void addActiveExecutableReference(ExecutionReference ref) throws ExecutorManagerException;
 
 	public void removeActiveExecutableReference(int execId) throws ExecutorManagerException;
@@ -50,11 +75,19 @@ public interface ExecutorLoader {
 	public List<Object> fetchAttachments(int execId, String name, int attempt) throws ExecutorManagerException;
 
 	public void uploadLogFile(int execId, String name, int attempt, File ... files) throws ExecutorManagerException;
+
+	public void appendLogData(int execId, String name, int attempt, int startByte, byte[] data, int length) throws ExecutorManagerException;
 	
 	public void uploadAttachmentFile(ExecutableNode node, File file) throws ExecutorManagerException;
 
 	public void updateExecutableFlow(ExecutableFlow flow) throws ExecutorManagerException;
 
+	public void updateExecutableFlows(List<ExecutableFlow> flows) throws ExecutorManagerException;
+	
+	public void updateExecutableFlowStatus(ExecutableFlow flow, long lastUpdateTime) throws ExecutorManagerException;
+
+	public void updateExecutableFlowStatus(List<Pair<ExecutableFlow, Long>> flows) throws ExecutorManagerException;
+
 	public void uploadExecutableNode(ExecutableNode node, Props inputParams) throws ExecutorManagerException; 
 
 	public List<ExecutableJobInfo> fetchJobInfoAttempts(int execId, String jobId) throws ExecutorManagerException;
@@ -62,6 +95,8 @@ public interface ExecutorLoader {
 	public ExecutableJobInfo fetchJobInfo(int execId, String jobId, int attempt) throws ExecutorManagerException;
 	
 	public List<ExecutableJobInfo> fetchJobHistory(int projectId, String jobId, int skip, int size) throws ExecutorManagerException;
+
+	public List<ExecutableJobInfo> fetchJobHistoryBefore(int projectId, String jobId, int beforeExecId, int beforeAttempt, int size) throws ExecutorManagerException;
 	
 	public void updateExecutableNode(ExecutableNode node) throws ExecutorManagerException;
 
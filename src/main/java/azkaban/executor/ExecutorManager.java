@@ -22,6 +22,8 @@ import java.lang.Thread.State;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,14 +31,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.ResponseHandler;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.BasicResponseHandler;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
@@ -59,8 +61,27 @@ import azkaban.utils.Props;
 public class ExecutorManager extends EventHandler implements ExecutorManagerAdapter {
 	private static Logger logger = Logger.getLogger(ExecutorManager.class);
 	private ExecutorLoader executorLoader;
-	private String executorHost;
-	private int executorPort;
+	
+	// The executors new executions go to, and how one is picked. Stats are
+	// fetched from an executor when its last ones are older than the refresh.
+	private List<ExecutorInfo> executors;
+	private ExecutorSelector executorSelector;
+	private String executorSelectorName;
+	private long executorStatsRefreshMs;
+	private final Object executorSelectSync = new Object();
+	
+	// Submitted executions wait in the submission queue until the dispatcher
+	// thread finds an executor running fewer than executor.max.running.flows
+	// and hands them to the dispatch pool. They're already in the db as
+	// preparing, so the ones still waiting are queued again on restart.
+	private static final long DISPATCH_CHECK_MS = 1000;
+	private static final long DEFAULT_QUEUE_RECOVERY_WINDOW_MS = 24*60*60*1000l;
+	private SubmissionQueue submissionQueue;
+	private DispatcherThread dispatcherThread;
+	private ExecutorService dispatchPool;
+	private int maxRunningFlowsPerExecutor;
+	private ConcurrentHashMap<Integer, ExecutorInfo> dispatchingFlows = new ConcurrentHashMap<Integer, ExecutorInfo>();
+	private AtomicLong numFailedDispatches = new AtomicLong();
 	
 	private CleanerThread cleanerThread;
 	
@@ -68,8 +89,21 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	private ConcurrentHashMap<Integer, ExecutableFlow> recentlyFinished = new ConcurrentHashMap<Integer, ExecutableFlow>();
 
 	private ExecutingManagerUpdaterThread executingManager;
+	private ExecutorHttpClient executorHttpClient;
+	
+	// Update streams are long polls against each executor that return as soon
+	// as a flow changes. The regular update poll is kept as a fallback.
+	private static final long UPDATE_STREAM_RETRY_MS = 5000;
+	private boolean updateStreamEnabled;
+	private long updateStreamWaitMs;
+	private long fallbackPollIntervalMs;
+	private ConcurrentHashMap<ConnectionInfo, UpdateStreamThread> updateStreams = new ConcurrentHashMap<ConnectionInfo, UpdateStreamThread>();
+	private final Object updateSync = new Object();
 	
 	private static final long DEFAULT_EXECUTION_LOGS_RETENTION_MS = 3*4*7*24*60*60*1000l;
+	
+	private static final long DEFAULT_SEARCH_INDEX_REFRESH_MS = 60*60*1000l;
+	private ExecutionSearchIndex searchIndex;
 	private long lastCleanerThreadCheckTime = -1;
 	
 	private long lastThreadCheckTime = -1;
@@ -82,12 +116,22 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	public ExecutorManager(Props props, ExecutorLoader loader, Map<String, Alerter> alters) throws ExecutorManagerException {
 		this.executorLoader = loader;
 		this.loadRunningFlows();
-		executorHost = props.getString("executor.host", "localhost");
-		executorPort = props.getInt("executor.port");
+		executorHttpClient = new ExecutorHttpClient(props);
+		updateStreamEnabled = props.getBoolean("executor.update.stream.enabled", true);
+		updateStreamWaitMs = props.getLong("executor.update.stream.wait.ms", 20000);
+		fallbackPollIntervalMs = props.getLong("executor.update.fallback.poll.ms", 10000);
+		executors = loadExecutors(props);
+		executorSelectorName = props.getString("executor.selector", ExecutorSelectors.LEAST_FLOWS);
+		executorSelector = ExecutorSelectors.create(executorSelectorName);
+		executorStatsRefreshMs = props.getLong("executor.stats.refresh.ms", 5000);
+		maxRunningFlowsPerExecutor = props.getInt("executor.max.running.flows", 30);
 		
 		alerters = alters;
 		
 		cacheDir = new File(props.getString("cache.directory", "cache"));
+		
+		searchIndex = new ExecutionSearchIndex(executorLoader, 
+				props.getLong("executor.search.index.refresh.ms", DEFAULT_SEARCH_INDEX_REFRESH_MS));
 
 		executingManager = new ExecutingManagerUpdaterThread();
 		executingManager.start();
@@ -96,6 +140,23 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		cleanerThread = new CleanerThread(executionLogsRetentionMs);
 		cleanerThread.start();
 		
+		// Last, since recovering the queue can finish flows and dispatching starts
+		// them, which needs the rest set up.
+		int numDispatchThreads = props.getInt("executor.dispatch.threads", 4);
+		if (numDispatchThreads > 0) {
+			submissionQueue = new SubmissionQueue(props.getInt("executor.queue.max.size", 10000), numDispatchThreads);
+			loadQueuedFlows(props.getLong("executor.queue.recovery.window.ms", DEFAULT_QUEUE_RECOVERY_WINDOW_MS));
+			dispatchPool = Executors.newFixedThreadPool(numDispatchThreads, new ThreadFactory() {
+				private final AtomicInteger threadCount = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(Runnable r) {
+					return new Thread(r, "AzkabanWebServer-Dispatch-" + threadCount.incrementAndGet());
+				}
+			});
+			dispatcherThread = new DispatcherThread();
+			dispatcherThread.start();
+		}
 	}
 	
 	@Override
@@ -121,19 +182,49 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		return this.lastCleanerThreadCheckTime;
 	}
 	
+	public ExecutorHttpClient getExecutorHttpClient() {
+		return executorHttpClient;
+	}
+	
+	/**
+	 * Reads executor.hosts, a comma separated list of host:port. Without it, the
+	 * single executor.host and executor.port are used.
+	 */
+	private List<ExecutorInfo> loadExecutors(Props props) throws ExecutorManagerException {
+		ArrayList<ExecutorInfo> executors = new ArrayList<ExecutorInfo>();
+		if (!props.containsKey("executor.hosts")) {
+			executors.add(new ExecutorInfo(props.getString("executor.host", "localhost"), props.getInt("executor.port")));
+			return executors;
+		}
+		
+		for (String hostPort: props.getStringList("executor.hosts")) {
+			String[] split = hostPort.split(":");
+			try {
+				executors.add(new ExecutorInfo(split[0], Integer.parseInt(split[1])));
+			}
+			catch (RuntimeException e) {
+				throw new ExecutorManagerException("Invalid executor host:port " + hostPort, e);
+			}
+		}
+		if (executors.isEmpty()) {
+			throw new ExecutorManagerException("No executors set in executor.hosts");
+		}
+		return executors;
+	}
+	
 	@Override
 	public Set<String> getPrimaryServerHosts() {
-		// Only one for now. More probably later.
 		HashSet<String> ports = new HashSet<String>();
-		ports.add(executorHost + ":" + executorPort);
+		for (ExecutorInfo executor: executors) {
+			ports.add(executor.getHostPort());
+		}
 		return ports;
 	}
 	
 	@Override
 	public Set<String> getAllActiveExecutorServerHosts() {
 		// Includes non primary server/hosts
-		HashSet<String> ports = new HashSet<String>();
-		ports.add(executorHost + ":" + executorPort);
+		Set<String> ports = getPrimaryServerHosts();
 		for(Pair<ExecutionReference, ExecutableFlow> running: runningFlows.values()) {
 			ExecutionReference ref = running.getFirst();
 			ports.add(ref.getHost() + ":" + ref.getPort());
@@ -146,12 +237,49 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		runningFlows.putAll(executorLoader.fetchActiveFlows());
 	}
 	
+	private void loadQueuedFlows(long recoveryWindowMs) throws ExecutorManagerException {
+		List<ExecutableFlow> flows = executorLoader.fetchQueuedFlows(System.currentTimeMillis() - recoveryWindowMs);
+		int numQueued = 0;
+		for (ExecutableFlow flow: flows) {
+			try {
+				submissionQueue.add(flow, SUBMIT_PRIORITY_NORMAL);
+				numQueued++;
+			}
+			catch (ExecutorManagerException e) {
+				logger.error("Not queueing execution " + flow.getExecutionId() + ". " + e.getMessage());
+				finishUndispatchedFlow(flow, Status.FAILED);
+			}
+		}
+		if (numQueued > 0) {
+			logger.info("Queued " + numQueued + " executions that weren't dispatched before the restart");
+		}
+	}
+	
+	/**
+	 * The running flows, and the submitted ones that haven't been dispatched yet.
+	 */
+	private List<ExecutableFlow> getActiveFlows() {
+		ArrayList<ExecutableFlow> flows = new ArrayList<ExecutableFlow>();
+		for (Pair<ExecutionReference, ExecutableFlow> ref : runningFlows.values()) {
+			flows.add(ref.getSecond());
+		}
+		if (submissionQueue != null) {
+			for (ExecutableFlow flow: submissionQueue.getFlows()) {
+				// It's in both between being dispatched and leaving the queue.
+				if (!runningFlows.containsKey(flow.getExecutionId())) {
+					flows.add(flow);
+				}
+			}
+		}
+		return flows;
+	}
+	
 	@Override
 	public List<Integer> getRunningFlows(int projectId, String flowId) {
 		ArrayList<Integer> executionIds = new ArrayList<Integer>();
-		for (Pair<ExecutionReference, ExecutableFlow> ref : runningFlows.values()) {
-			if (ref.getSecond().getFlowId().equals(flowId) && ref.getSecond().getProjectId() == projectId) {
-				executionIds.add(ref.getFirst().getExecId());
+		for (ExecutableFlow flow : getActiveFlows()) {
+			if (flow.getFlowId().equals(flowId) && flow.getProjectId() == projectId) {
+				executionIds.add(flow.getExecutionId());
 			}
 		}
 		return executionIds;
@@ -159,8 +287,8 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	
 	@Override
 	public boolean isFlowRunning(int projectId, String flowId) {
-		for (Pair<ExecutionReference, ExecutableFlow> ref : runningFlows.values()) {
-			if (ref.getSecond().getProjectId() == projectId && ref.getSecond().getFlowId().equals(flowId)) {
+		for (ExecutableFlow flow : getActiveFlows()) {
+			if (flow.getProjectId() == projectId && flow.getFlowId().equals(flowId)) {
 				return true;
 			}
 		}
@@ -170,25 +298,30 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	@Override
 	public ExecutableFlow getExecutableFlow(int execId) throws ExecutorManagerException {
 		Pair<ExecutionReference, ExecutableFlow> active = runningFlows.get(execId);
-		if (active == null) {
-			return executorLoader.fetchExecutableFlow(execId);
+		if (active != null) {
+			return active.getSecond();
 		}
-		return active.getSecond();
+		
+		ExecutableFlow queued = submissionQueue == null ? null : submissionQueue.getFlow(execId);
+		if (queued != null) {
+			return queued;
+		}
+		ExecutableFlow finished = recentlyFinished.get(execId);
+		if (finished != null) {
+			return finished;
+		}
+		return executorLoader.fetchExecutableFlow(execId);
 	}
 	
 	@Override
 	public List<ExecutableFlow> getRunningFlows() {
-		ArrayList<ExecutableFlow> flows = new ArrayList<ExecutableFlow>();
-		for (Pair<ExecutionReference, ExecutableFlow> ref : runningFlows.values()) {
-			flows.add(ref.getSecond());
-		}
-		return flows;
+		return getActiveFlows();
 	}
 	
 	public String getRunningFlowIds() {
 		List<Integer> allIds = new ArrayList<Integer>();
-		for (Pair<ExecutionReference, ExecutableFlow> ref : runningFlows.values()) {
-			allIds.add(ref.getSecond().getExecutionId());
+		for (ExecutableFlow flow : getActiveFlows()) {
+			allIds.add(flow.getExecutionId());
 		}
 		Collections.sort(allIds);
 		return allIds.toString();
@@ -244,6 +377,11 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		return nodes;
 	}
 	
+	@Override
+	public List<ExecutableJobInfo> getExecutableJobsBefore(Project project, String jobId, int beforeExecId, int beforeAttempt, int size) throws ExecutorManagerException {
+		return executorLoader.fetchJobHistoryBefore(project.getId(), jobId, beforeExecId, beforeAttempt, size);
+	}
+	
 	@Override
 	public int getNumberOfJobExecutions(Project project, String jobId) throws ExecutorManagerException{
 		return executorLoader.fetchNumExecutableNodes(project.getId(), jobId);
@@ -355,6 +493,12 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		synchronized(exFlow) {
 			Pair<ExecutionReference, ExecutableFlow> pair = runningFlows.get(exFlow.getExecutionId());
 			if (pair == null) {
+				ExecutableFlow queued = submissionQueue == null ? null : submissionQueue.getFlow(exFlow.getExecutionId());
+				if (queued != null && submissionQueue.remove(exFlow.getExecutionId())) {
+					logger.info("Cancelled execution " + exFlow.getExecutionId() + " before it was dispatched");
+					finishUndispatchedFlow(queued, Status.KILLED);
+					return;
+				}
 				throw new ExecutorManagerException("Execution " + exFlow.getExecutionId() + " of flow " + exFlow.getFlowId() + " isn't running.");
 			}
 			callExecutorServer(pair.getFirst(), ConnectorParams.CANCEL_ACTION, userId);
@@ -486,6 +630,11 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	
 	@Override
 	public String submitExecutableFlow(ExecutableFlow exflow, String userId) throws ExecutorManagerException {
+		return submitExecutableFlow(exflow, userId, SUBMIT_PRIORITY_NORMAL);
+	}
+	
+	@Override
+	public String submitExecutableFlow(ExecutableFlow exflow, String userId, int priority) throws ExecutorManagerException {
 		synchronized(exflow) {
 			logger.info("Submitting execution flow " + exflow.getFlowId() + " by " + userId);
 
@@ -523,27 +672,172 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 				}
 			}
 			
+			// Checked before uploading too, so a full queue doesn't leave failed
+			// executions behind.
+			if (submissionQueue != null) {
+				submissionQueue.checkNotFull();
+			}
+			
 			// The exflow id is set by the loader. So it's unavailable until after this call.
 			executorLoader.uploadExecutableFlow(exflow);
+			searchIndex.addExecution(exflow);
 			
-			// We create an active flow reference in the datastore. If the upload fails, we remove the reference.
-			ExecutionReference reference = new ExecutionReference(exflow.getExecutionId(), executorHost, executorPort);
-			executorLoader.addActiveExecutableReference(reference);
-			try {
-				callExecutorServer(reference,	ConnectorParams.EXECUTE_ACTION);
-				runningFlows.put(exflow.getExecutionId(), new Pair<ExecutionReference, ExecutableFlow>(reference, exflow));
+			if (submissionQueue != null) {
+				try {
+					submissionQueue.add(exflow, priority);
+				}
+				catch (ExecutorManagerException e) {
+					finishUndispatchedFlow(exflow, Status.FAILED);
+					throw e;
+				}
 				
-				message += "Execution submitted successfully with exec id " + exflow.getExecutionId();
-			}
-			catch (ExecutorManagerException e) {
-				executorLoader.removeActiveExecutableReference(reference.getExecId());
-				throw e;
+				message += "Execution queued with exec id " + exflow.getExecutionId();
+				return message;
 			}
 			
+			ExecutorInfo executor = selectExecutor(exflow.getProjectId(), exflow.getVersion(), executors);
+			dispatchExecution(exflow, executor);
+			message += "Execution submitted successfully with exec id " + exflow.getExecutionId();
 			return message;
 		}
 	}
 	
+	/**
+	 * Sends an uploaded flow to the executor.
+	 */
+	private void dispatchExecution(ExecutableFlow exflow, ExecutorInfo executor) throws ExecutorManagerException {
+		// We create an active flow reference in the datastore. If the upload fails, we remove the reference.
+		ExecutionReference reference = new ExecutionReference(exflow.getExecutionId(), executor.getHost(), executor.getPort());
+		executorLoader.addActiveExecutableReference(reference);
+		try {
+			callExecutorServer(reference,	ConnectorParams.EXECUTE_ACTION);
+			runningFlows.put(exflow.getExecutionId(), new Pair<ExecutionReference, ExecutableFlow>(reference, exflow));
+		}
+		catch (ExecutorManagerException e) {
+			executorLoader.removeActiveExecutableReference(reference.getExecId());
+			throw e;
+		}
+	}
+	
+	private void dispatchQueuedFlow(ExecutableFlow exflow, ExecutorInfo executor) {
+		int execId = exflow.getExecutionId();
+		try {
+			synchronized(exflow) {
+				dispatchExecution(exflow, executor);
+			}
+			logger.info("Dispatched execution " + execId + " to " + executor.getHostPort());
+		}
+		catch (ExecutorManagerException e) {
+			numFailedDispatches.incrementAndGet();
+			logger.error("Error dispatching execution " + execId + " to " + executor.getHostPort(), e);
+			finishUndispatchedFlow(exflow, Status.FAILED);
+		}
+		finally {
+			dispatchingFlows.remove(execId);
+			submissionQueue.done(execId);
+		}
+	}
+	
+	/**
+	 * Ends a flow that never made it to an executor.
+	 */
+	private void finishUndispatchedFlow(ExecutableFlow exflow, Status status) {
+		failEverything(exflow);
+		exflow.setStatus(status);
+		exflow.setUpdateTime(System.currentTimeMillis());
+		try {
+			executorLoader.updateExecutableFlow(exflow);
+		}
+		catch (ExecutorManagerException e) {
+			logger.error("Error updating execution " + exflow.getExecutionId(), e);
+		}
+		
+		recentlyFinished.put(exflow.getExecutionId(), exflow);
+		fireEventListeners(Event.create(exflow, Type.FLOW_FINISHED));
+	}
+	
+	/**
+	 * The executors running fewer than executor.max.running.flows, counting the
+	 * flows being dispatched to them.
+	 */
+	private List<ExecutorInfo> getExecutorsWithRoom() {
+		if (maxRunningFlowsPerExecutor <= 0) {
+			return executors;
+		}
+		
+		HashMap<String, Integer> numFlows = new HashMap<String, Integer>();
+		for (Pair<ExecutionReference, ExecutableFlow> running: runningFlows.values()) {
+			ExecutionReference ref = running.getFirst();
+			addFlowCount(numFlows, ref.getHost() + ":" + ref.getPort());
+		}
+		for (ExecutorInfo executor: dispatchingFlows.values()) {
+			addFlowCount(numFlows, executor.getHostPort());
+		}
+		
+		ArrayList<ExecutorInfo> withRoom = new ArrayList<ExecutorInfo>();
+		for (ExecutorInfo executor: executors) {
+			Integer count = numFlows.get(executor.getHostPort());
+			if (count == null || count < maxRunningFlowsPerExecutor) {
+				withRoom.add(executor);
+			}
+		}
+		return withRoom;
+	}
+	
+	private void addFlowCount(Map<String, Integer> numFlows, String hostPort) {
+		Integer count = numFlows.get(hostPort);
+		numFlows.put(hostPort, count == null ? 1 : count + 1);
+	}
+	
+	
+	/**
+	 * Picks the executor for a new execution out of the candidates and counts
+	 * the execution against it.
+	 */
+	private ExecutorInfo selectExecutor(int projectId, int version, List<ExecutorInfo> candidates) {
+		if (executors.size() == 1) {
+			return executors.get(0);
+		}
+		
+		synchronized(executorSelectSync) {
+			refreshExecutorStats();
+			ExecutorInfo executor = candidates.size() == 1 ? candidates.get(0) : executorSelector.select(candidates, projectId, version);
+			executor.addExecution(projectId, version);
+			return executor;
+		}
+	}
+	
+	private void refreshExecutorStats() {
+		for (ExecutorInfo executor: executors) {
+			long now = System.currentTimeMillis();
+			if (now - executor.getStatsUpdateTime() < executorStatsRefreshMs) {
+				continue;
+			}
+			
+			try {
+				executor.updateStats(callExecutorServer(executor.getHost(), executor.getPort(), ConnectorParams.STATS_ACTION, null, null, (Pair<String,String>[])null), now);
+			}
+			catch (IOException e) {
+				logger.warn("Couldn't get stats of executor " + executor.getHostPort() + ": " + e.getMessage());
+				executor.setStatsUnavailable(now);
+			}
+		}
+	}
+	
+	public String getExecutorSelectorName() {
+		return executorSelectorName;
+	}
+	
+	/**
+	 * The load of each executor as last seen here.
+	 */
+	public List<String> getExecutorLoads() {
+		ArrayList<String> loads = new ArrayList<String>();
+		for (ExecutorInfo executor: executors) {
+			loads.add(executor.toString());
+		}
+		return loads;
+	}
 	
 	private void cleanOldExecutionLogs(long millis) {
 		try {
@@ -588,6 +882,14 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	}
 	
 	private Map<String, Object> callExecutorServer(String host, int port, String action, Integer executionId, String user, Pair<String,String> ... params) throws IOException {
+		return callExecutorServer(host, port, action, executionId, user, params == null ? null : Arrays.asList(params));
+	}
+	
+	/**
+	 * Takes the parameters as a list, so callers building them don't create a
+	 * generic varargs array.
+	 */
+	private Map<String, Object> callExecutorServer(String host, int port, String action, Integer executionId, String user, List<Pair<String,String>> params) throws IOException {
 		URIBuilder builder = new URIBuilder();
 		builder.setScheme("http")
 			.setHost(host)
@@ -617,22 +919,8 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 			throw new IOException(e);
 		}
 		
-		ResponseHandler<String> responseHandler = new BasicResponseHandler();
-		
-		HttpClient httpclient = new DefaultHttpClient();
-		HttpGet httpget = new HttpGet(uri);
-		String response = null;
-		try {
-			response = httpclient.execute(httpget, responseHandler);
-		} catch (IOException e) {
-			throw e;
-		}
-		finally {
-			httpclient.getConnectionManager().shutdown();
-		}
-		
 		@SuppressWarnings("unchecked")
-		Map<String, Object> jsonResponse = (Map<String, Object>)JSONUtils.parseJSONFromString(response);
+		Map<String, Object> jsonResponse = (Map<String, Object>)executorHttpClient.httpGetJSON(uri);
 		String error = (String)jsonResponse.get(ConnectorParams.RESPONSE_ERROR);
 		if (error != null) {
 			throw new IOException(error);
@@ -641,6 +929,53 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		return jsonResponse;
 	}
 	
+	@Override
+	public List<String> stageProjects(Collection<Pair<Integer, Integer>> projectVersions) throws ExecutorManagerException {
+		if (projectVersions.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		// Each version is staged where its next execution would most likely go.
+		HashMap<ExecutorInfo, StringBuilder> projectsByExecutor = new HashMap<ExecutorInfo, StringBuilder>();
+		for (Pair<Integer, Integer> projectVersion: projectVersions) {
+			ExecutorInfo executor = executors.get(0);
+			if (executors.size() > 1) {
+				synchronized(executorSelectSync) {
+					refreshExecutorStats();
+					executor = executorSelector.select(executors, projectVersion.getFirst(), projectVersion.getSecond());
+				}
+			}
+			
+			StringBuilder projects = projectsByExecutor.get(executor);
+			if (projects == null) {
+				projects = new StringBuilder();
+				projectsByExecutor.put(executor, projects);
+			}
+			else {
+				projects.append(",");
+			}
+			projects.append(projectVersion.getFirst()).append(".").append(projectVersion.getSecond());
+		}
+		
+		ArrayList<String> allStaged = new ArrayList<String>();
+		for (Map.Entry<ExecutorInfo, StringBuilder> entry: projectsByExecutor.entrySet()) {
+			ExecutorInfo executor = entry.getKey();
+			try {
+				Pair<String,String> projectsParam = new Pair<String,String>(ConnectorParams.STAGE_PROJECTS_PARAM, entry.getValue().toString());
+				Map<String, Object> response = callExecutorServer(executor.getHost(), executor.getPort(), ConnectorParams.STAGE_ACTION, null, null, Collections.singletonList(projectsParam));
+				
+				@SuppressWarnings("unchecked")
+				List<String> staged = (List<String>)response.get(ConnectorParams.RESPONSE_STAGED);
+				if (staged != null) {
+					allStaged.addAll(staged);
+				}
+			} catch (IOException e) {
+				throw new ExecutorManagerException(e);
+			}
+		}
+		return allStaged;
+	}
+	
 	@Override
 	public Map<String, Object> callExecutorJMX(String hostPort, String action, String mBean) throws IOException {
 		URIBuilder builder = new URIBuilder();
@@ -663,22 +998,8 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 			throw new IOException(e);
 		}
 		
-		ResponseHandler<String> responseHandler = new BasicResponseHandler();
-		
-		HttpClient httpclient = new DefaultHttpClient();
-		HttpGet httpget = new HttpGet(uri);
-		String response = null;
-		try {
-			response = httpclient.execute(httpget, responseHandler);
-		} catch (IOException e) {
-			throw e;
-		}
-		finally {
-			httpclient.getConnectionManager().shutdown();
-		}
-		
 		@SuppressWarnings("unchecked")
-		Map<String, Object> jsonResponse = (Map<String, Object>)JSONUtils.parseJSONFromString(response);
+		Map<String, Object> jsonResponse = (Map<String, Object>)executorHttpClient.httpGetJSON(uri);
 		String error = (String)jsonResponse.get(ConnectorParams.RESPONSE_ERROR);
 		if (error != null) {
 			throw new IOException(error);
@@ -686,9 +1007,45 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		return jsonResponse;
 	}
 	
+	public int getNumQueuedFlows() {
+		return submissionQueue == null ? 0 : submissionQueue.getNumQueued();
+	}
+	
+	public int getNumDispatchingFlows() {
+		return submissionQueue == null ? 0 : submissionQueue.getNumDispatching();
+	}
+	
+	public double getAverageQueueWaitTimeMs() {
+		return submissionQueue == null ? 0 : submissionQueue.getAverageWaitTimeMs();
+	}
+	
+	public long getMaxQueueWaitTimeMs() {
+		return submissionQueue == null ? 0 : submissionQueue.getMaxWaitTimeMs();
+	}
+	
+	public long getOldestQueuedFlowWaitTimeMs() {
+		return submissionQueue == null ? 0 : submissionQueue.getOldestWaitTimeMs();
+	}
+	
+	public long getNumRejectedSubmissions() {
+		return submissionQueue == null ? 0 : submissionQueue.getNumRejected();
+	}
+	
+	public long getNumFailedDispatches() {
+		return numFailedDispatches.get();
+	}
+	
 	@Override
 	public void shutdown() {
+		if (dispatcherThread != null) {
+			dispatcherThread.shutdown();
+			dispatchPool.shutdown();
+		}
 		executingManager.shutdown();
+		for (UpdateStreamThread stream: updateStreams.values()) {
+			stream.shutdown();
+		}
+		executorHttpClient.shutdown();
 	}
 	
 	private class ExecutingManagerUpdaterThread extends Thread {
@@ -724,33 +1081,30 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 					
 					if (exFlowMap.size() > 0) {
 						for (Map.Entry<ConnectionInfo, List<ExecutableFlow>> entry: exFlowMap.entrySet()) {
-							List<Long> updateTimesList = new ArrayList<Long>();
-							List<Integer> executionIdsList = new ArrayList<Integer>();
-						
 							ConnectionInfo connection = entry.getKey();
 							
-							updaterStage = "Starting update flows on " + connection.getHost() + ":" + connection.getPort();
-							
-							// We pack the parameters of the same host together before we query.
-							fillUpdateTimeAndExecId(entry.getValue(), executionIdsList, updateTimesList);
-							
-							Pair<String,String> updateTimes = new Pair<String, String>(
-									ConnectorParams.UPDATE_TIME_LIST_PARAM, 
-									JSONUtils.toJSON(updateTimesList));
-							Pair<String,String> executionIds = new Pair<String, String>(
-									ConnectorParams.EXEC_ID_LIST_PARAM, 
-									JSONUtils.toJSON(executionIdsList));
+							// When the executor is streaming updates to us, we only poll it once
+							// in a while as a fallback.
+							if (updateStreamEnabled) {
+								UpdateStreamThread stream = getUpdateStream(connection);
+								long currentTime = System.currentTimeMillis();
+								if (stream.isConnected() && currentTime - stream.getLastFallbackPollTime() < fallbackPollIntervalMs) {
+									continue;
+								}
+								stream.setLastFallbackPollTime(currentTime);
+							}
 							
+							updaterStage = "Starting update flows on " + connection.getHost() + ":" + connection.getPort();
 							
 							Map<String, Object> results = null;
 							try {
-								results = callExecutorServer(connection.getHost(), connection.getPort(), ConnectorParams.UPDATE_ACTION, null, null, executionIds, updateTimes);
+								results = fetchExecutorUpdates(connection, entry.getValue(), ConnectorParams.UPDATE_ACTION, -1);
 							} catch (IOException e) {
 								logger.error(e);
 								for (ExecutableFlow flow: entry.getValue()) {
 									Pair<ExecutionReference, ExecutableFlow> pair = runningFlows.get(flow.getExecutionId());
 									
-									updaterStage = "Failed to get update. Doing some clean up for flow " + pair.getSecond().getExecutionId();
+									updaterStage = "Failed to get update. Doing some clean up for flow " + flow.getExecutionId();
 									
 									if (pair != null) {
 										ExecutionReference ref = pair.getFirst();
@@ -770,26 +1124,8 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 							
 							// We gets results
 							if (results != null) {
-								List<Map<String,Object>> executionUpdates = (List<Map<String,Object>>)results.get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
-								for (Map<String,Object> updateMap: executionUpdates) {
-									try {
-										ExecutableFlow flow = updateExecution(updateMap);
-										
-										updaterStage = "Updated flow " + flow.getExecutionId();
-										
-										if (isFinished(flow)) {
-											finishedFlows.add(flow);
-											finalizeFlows.add(flow);
-										}
-									} catch (ExecutorManagerException e) {
-										ExecutableFlow flow = e.getExecutableFlow();
-										logger.error(e);
-
-										if (flow != null) {
-											logger.error("Finalizing flow " + flow.getExecutionId());
-											finalizeFlows.add(flow);
-										}
-									}
+								synchronized(updateSync) {
+									applyExecutorUpdates(results, finishedFlows, finalizeFlows);
 								}
 							}
 						}
@@ -797,20 +1133,8 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 						updaterStage = "Evicting old recently finished flows.";
 						
 						evictOldRecentlyFinished(recentlyFinishedLifetimeMs);
-						// Add new finished
-						for (ExecutableFlow flow: finishedFlows) {
-							if(flow.getScheduleId() >= 0 && flow.getStatus() == Status.SUCCEEDED){
-								ScheduleStatisticManager.invalidateCache(flow.getScheduleId(), cacheDir);
-							}
-							fireEventListeners(Event.create(flow, Type.FLOW_FINISHED));
-							recentlyFinished.put(flow.getExecutionId(), flow);
-						}
-						
-						updaterStage = "Finalizing " + finalizeFlows.size() + " error flows.";
-						
-						// Kill error flows
-						for (ExecutableFlow flow: finalizeFlows) {
-							finalizeFlows(flow);
+						synchronized(updateSync) {
+							completeFlows(finishedFlows, finalizeFlows);
 						}
 					}
 					
@@ -835,6 +1159,179 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		}
 	}
 	
+	/**
+	 * Asks the executor for updates on the given flows. For the update stream
+	 * action, the executor holds the request for up to waitMs if nothing changed.
+	 */
+	private Map<String, Object> fetchExecutorUpdates(ConnectionInfo connection, List<ExecutableFlow> flows, String action, long waitMs) throws IOException {
+		List<Long> updateTimesList = new ArrayList<Long>();
+		List<Integer> executionIdsList = new ArrayList<Integer>();
+		
+		// We pack the parameters of the same host together before we query.
+		fillUpdateTimeAndExecId(flows, executionIdsList, updateTimesList);
+		
+		Pair<String,String> updateTimes = new Pair<String, String>(
+				ConnectorParams.UPDATE_TIME_LIST_PARAM, 
+				JSONUtils.toJSON(updateTimesList));
+		Pair<String,String> executionIds = new Pair<String, String>(
+				ConnectorParams.EXEC_ID_LIST_PARAM, 
+				JSONUtils.toJSON(executionIdsList));
+		
+		List<Pair<String,String>> params = new ArrayList<Pair<String,String>>();
+		params.add(executionIds);
+		params.add(updateTimes);
+		if (waitMs >= 0) {
+			params.add(new Pair<String, String>(
+					ConnectorParams.UPDATE_WAIT_MS_PARAM, 
+					String.valueOf(waitMs)));
+		}
+		return callExecutorServer(connection.getHost(), connection.getPort(), action, null, null, params);
+	}
+	
+	/**
+	 * Applies the executor's update response to the running flows. Flows that
+	 * have finished or errored are added to the passed in lists.
+	 */
+	@SuppressWarnings("unchecked")
+	private void applyExecutorUpdates(Map<String, Object> results, List<ExecutableFlow> finishedFlows, List<ExecutableFlow> finalizeFlows) {
+		List<Map<String,Object>> executionUpdates = (List<Map<String,Object>>)results.get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
+		for (Map<String,Object> updateMap: executionUpdates) {
+			try {
+				ExecutableFlow flow = updateExecution(updateMap);
+				
+				updaterStage = "Updated flow " + flow.getExecutionId();
+				
+				if (isFinished(flow)) {
+					finishedFlows.add(flow);
+					finalizeFlows.add(flow);
+				}
+			} catch (ExecutorManagerException e) {
+				ExecutableFlow flow = e.getExecutableFlow();
+				logger.error(e);
+
+				if (flow != null) {
+					logger.error("Finalizing flow " + flow.getExecutionId());
+					finalizeFlows.add(flow);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Moves finished flows to the recently finished list and finalizes them.
+	 * Flows that were already finalized by another update path are skipped.
+	 */
+	private void completeFlows(List<ExecutableFlow> finishedFlows, List<ExecutableFlow> finalizeFlows) {
+		// Add new finished
+		for (ExecutableFlow flow: finishedFlows) {
+			if (!runningFlows.containsKey(flow.getExecutionId())) {
+				continue;
+			}
+			if(flow.getScheduleId() >= 0 && flow.getStatus() == Status.SUCCEEDED){
+				ScheduleStatisticManager.invalidateCache(flow.getScheduleId(), cacheDir);
+			}
+			recentlyFinished.put(flow.getExecutionId(), flow);
+			fireEventListeners(Event.create(flow, Type.FLOW_FINISHED));
+		}
+		
+		updaterStage = "Finalizing " + finalizeFlows.size() + " error flows.";
+		
+		// Kill error flows
+		for (ExecutableFlow flow: finalizeFlows) {
+			if (!runningFlows.containsKey(flow.getExecutionId())) {
+				continue;
+			}
+			finalizeFlows(flow);
+		}
+	}
+	
+	private UpdateStreamThread getUpdateStream(ConnectionInfo connection) {
+		UpdateStreamThread stream = updateStreams.get(connection);
+		if (stream == null || !stream.isAlive()) {
+			UpdateStreamThread newStream = new UpdateStreamThread(connection);
+			if (stream == null ? updateStreams.putIfAbsent(connection, newStream) == null : updateStreams.replace(connection, stream, newStream)) {
+				newStream.start();
+				stream = newStream;
+			}
+			else {
+				stream = updateStreams.get(connection);
+			}
+		}
+		
+		return stream;
+	}
+	
+	/**
+	 * Holds a long poll open against one executor so that flow status changes
+	 * are pushed to us as soon as they happen. The updater thread polls this
+	 * executor at the normal rate whenever the stream isn't connected.
+	 */
+	private class UpdateStreamThread extends Thread {
+		private final ConnectionInfo connection;
+		private volatile boolean shutdown = false;
+		private volatile boolean connected = false;
+		private volatile long lastFallbackPollTime = -1;
+		
+		public UpdateStreamThread(ConnectionInfo connection) {
+			this.connection = connection;
+			this.setName("ExecutorManagerUpdateStream-" + connection.getHost() + ":" + connection.getPort());
+			this.setDaemon(true);
+		}
+		
+		public boolean isConnected() {
+			return connected;
+		}
+		
+		public long getLastFallbackPollTime() {
+			return lastFallbackPollTime;
+		}
+		
+		public void setLastFallbackPollTime(long time) {
+			lastFallbackPollTime = time;
+		}
+		
+		public void shutdown() {
+			shutdown = true;
+			this.interrupt();
+		}
+		
+		public void run() {
+			while (!shutdown) {
+				List<ExecutableFlow> flows = getFlowToExecutorMap().get(connection);
+				if (flows == null || flows.isEmpty()) {
+					break;
+				}
+				
+				Map<String, Object> results = null;
+				try {
+					results = fetchExecutorUpdates(connection, flows, ConnectorParams.UPDATE_STREAM_ACTION, updateStreamWaitMs);
+					connected = true;
+				} catch (Exception e) {
+					if (connected) {
+						logger.error("Update stream to " + connection.getHost() + ":" + connection.getPort() + " failed. Falling back to polling.", e);
+					}
+					connected = false;
+					
+					try {
+						Thread.sleep(UPDATE_STREAM_RETRY_MS);
+					} catch (InterruptedException ie) {
+					}
+					continue;
+				}
+				
+				ArrayList<ExecutableFlow> finishedFlows = new ArrayList<ExecutableFlow>();
+				ArrayList<ExecutableFlow> finalizeFlows = new ArrayList<ExecutableFlow>();
+				synchronized(updateSync) {
+					applyExecutorUpdates(results, finishedFlows, finalizeFlows);
+					completeFlows(finishedFlows, finalizeFlows);
+				}
+			}
+			
+			connected = false;
+			updateStreams.remove(connection, this);
+		}
+	}
+	
 	private void finalizeFlows(ExecutableFlow flow) {
 
 		int execId = flow.getExecutionId();
@@ -869,8 +1366,13 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 			
 			updaterStage = "finalizing flow " + execId + " cleaning from memory";
 			runningFlows.remove(execId);
-			fireEventListeners(Event.create(dsFlow, Type.FLOW_FINISHED));
+			if (dispatcherThread != null) {
+				synchronized(dispatcherThread) {
+					dispatcherThread.notify();
+				}
+			}
 			recentlyFinished.put(execId, dsFlow);
+			fireEventListeners(Event.create(dsFlow, Type.FLOW_FINISHED));
 
 		} catch (ExecutorManagerException e) {
 			logger.error(e);
@@ -1011,8 +1513,11 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 		ref.setNextCheckTime(0);
 		ref.setNumErrors(0);
 		Status oldStatus = flow.getStatus();
-		flow.applyUpdateObject(updateData);
+		List<ExecutableNode> updatedNodes = new ArrayList<ExecutableNode>();
+		flow.applyUpdateObject(updateData, updatedNodes);
 		Status newStatus = flow.getStatus();
+		// The executor only sends flows whose state changed.
+		fireEventListeners(Event.create(flow, Type.EXTERNAL_FLOW_UPDATED, updatedNodes));
 		
 		ExecutionOptions options = flow.getExecutionOptions();
 		if (oldStatus != newStatus && newStatus.equals(Status.FAILED_FINISHING)) {
@@ -1068,7 +1573,8 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 	private Map<ConnectionInfo, List<ExecutableFlow>> getFlowToExecutorMap() {
 		HashMap<ConnectionInfo, List<ExecutableFlow>> exFlowMap = new HashMap<ConnectionInfo, List<ExecutableFlow>>();
 		
-		ConnectionInfo lastPort = new ConnectionInfo(executorHost, executorPort);
+		ExecutorInfo firstExecutor = executors.get(0);
+		ConnectionInfo lastPort = new ConnectionInfo(firstExecutor.getHost(), firstExecutor.getPort());
 		for (Pair<ExecutionReference, ExecutableFlow> runningFlow: runningFlows.values()) {
 			ExecutionReference ref = runningFlow.getFirst();
 			ExecutableFlow flow = runningFlow.getSecond();
@@ -1171,6 +1677,138 @@ public class ExecutorManager extends EventHandler implements ExecutorManagerAdap
 				projectId, flowId, from, length, status);
 	}
 
+	@Override
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(
+			int skip, int size) throws ExecutorManagerException {
+		return executorLoader.fetchFlowSummaries(skip, size);
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(
+			String flowIdContains, int skip, int size) 
+			throws ExecutorManagerException {
+		return executorLoader.fetchFlowSummaries(
+				null, flowIdContains, null, 0, -1, -1, skip, size);
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(
+			String projContain, 
+			String flowContain, 
+			String userContain, 
+			int status, 
+			long begin, 
+			long end, 
+			int skip, 
+			int size) throws ExecutorManagerException {
+		return executorLoader.fetchFlowSummaries(
+				projContain, flowContain, userContain, status, begin, end, skip, size);
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> searchExecutableFlowSummaries(
+			String projContain, 
+			String flowContain, 
+			String userContain, 
+			int status, 
+			long begin, 
+			long end, 
+			int beforeExecId, 
+			int skip, 
+			int size) throws ExecutorManagerException {
+		return executorLoader.searchFlowSummaries(
+				searchIndex.findProjects(projContain), 
+				searchIndex.findFlows(flowContain), 
+				searchIndex.findUsers(userContain), 
+				status, 
+				begin, 
+				end, 
+				beforeExecId, 
+				skip, 
+				size);
+	}
+	
+	@Override
+	public int getExecutableFlowSummaries(
+			int projectId, 
+			String flowId, 
+			int from, 
+			int length, 
+			List<ExecutableFlowSummary> outputList) 
+			throws ExecutorManagerException {
+		outputList.addAll(executorLoader.fetchFlowSummaries(
+				projectId, flowId, from, length));
+		return executorLoader.fetchNumExecutableFlows(projectId, flowId);
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(
+			int projectId, String flowId, int from, int length, Status status) 
+			throws ExecutorManagerException {
+		return executorLoader.fetchFlowSummaries(
+				projectId, flowId, from, length, status);
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> getExecutableFlowSummariesBefore(
+			int projectId, String flowId, int beforeExecId, int length) 
+			throws ExecutorManagerException {
+		return executorLoader.fetchFlowSummariesBefore(
+				projectId, flowId, beforeExecId, length);
+	}
+
+	/**
+	 * Takes the next waiting execution whenever an executor has room and hands
+	 * it to the dispatch pool. The submission queue limits the dispatches going
+	 * at once to the size of the pool.
+	 */
+	private class DispatcherThread extends Thread {
+		private volatile boolean shutdown = false;
+		
+		public DispatcherThread() {
+			this.setName("AzkabanWebServer-Dispatcher-Thread");
+		}
+		
+		public void shutdown() {
+			shutdown = true;
+			this.interrupt();
+		}
+		
+		public void run() {
+			while (!shutdown) {
+				try {
+					List<ExecutorInfo> withRoom = getExecutorsWithRoom();
+					if (withRoom.isEmpty()) {
+						synchronized(this) {
+							wait(DISPATCH_CHECK_MS);
+						}
+						continue;
+					}
+					
+					final ExecutableFlow exflow = submissionQueue.take(DISPATCH_CHECK_MS);
+					if (exflow == null) {
+						continue;
+					}
+					
+					final ExecutorInfo executor = selectExecutor(exflow.getProjectId(), exflow.getVersion(), withRoom);
+					dispatchingFlows.put(exflow.getExecutionId(), executor);
+					dispatchPool.execute(new Runnable() {
+						@Override
+						public void run() {
+							dispatchQueuedFlow(exflow, executor);
+						}
+					});
+				}
+				catch (InterruptedException e) {
+					logger.info("Interrupted. Probably to shut down.");
+				}
+				catch (Exception e) {
+					logger.error("Error dispatching executions", e);
+				}
+			}
+		}
+	}
+	
 	/* 
 	 * cleaner thread to clean up execution_logs, etc in DB. Runs every day.
 	 * 
@@ -2,6 +2,7 @@ package azkaban.executor;
 
 import java.io.IOException;
 import java.lang.Thread.State;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -9,6 +10,7 @@ import java.util.Set;
 import azkaban.project.Project;
 import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Pair;
 
 public interface ExecutorManagerAdapter{
 	
@@ -59,6 +61,10 @@ public interface ExecutorManagerAdapter{
 	public static final String INFO_USER_ID = "userId";
 	public static final String INFO_LOG = "logData";
 	
+	// Queued submissions with a higher priority are dispatched first.
+	public static final int SUBMIT_PRIORITY_NORMAL = 0;
+	public static final int SUBMIT_PRIORITY_SLA = 10;
+	
 	public boolean isFlowRunning(int projectId, String flowId);
 	
 	public ExecutableFlow getExecutableFlow(int execId) throws ExecutorManagerException;
@@ -81,7 +87,29 @@ public interface ExecutorManagerAdapter{
 
 	public List<ExecutableFlow> getExecutableFlows(int projectId, String flowId, int from, int length, Status status) throws ExecutorManagerException;
 
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(int skip, int size) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(String flowIdContains, int skip, int size) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(String projContain, String flowContain, String userContain, int status, long begin, long end, int skip, int size) throws ExecutorManagerException;
+
+	/**
+	 * Like the filtered getExecutableFlowSummaries, but resolves the name terms
+	 * through an in memory index so the db can use its indexes. Results are
+	 * paged by exec id: pass the last exec id of the previous page as
+	 * beforeExecId, or 0 for the first page.
+	 */
+	public List<ExecutableFlowSummary> searchExecutableFlowSummaries(String projContain, String flowContain, String userContain, int status, long begin, long end, int beforeExecId, int skip, int size) throws ExecutorManagerException;
+
+	public int getExecutableFlowSummaries(int projectId, String flowId, int from, int length, List<ExecutableFlowSummary> outputList) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> getExecutableFlowSummaries(int projectId, String flowId, int from, int length, Status status) throws ExecutorManagerException;
+
+	public List<ExecutableFlowSummary> getExecutableFlowSummariesBefore(int projectId, String flowId, int beforeExecId, int length) throws ExecutorManagerException;
+
 	public List<ExecutableJobInfo> getExecutableJobs(Project project, String jobId, int skip, int size) throws ExecutorManagerException;
+
+	public List<ExecutableJobInfo> getExecutableJobsBefore(Project project, String jobId, int beforeExecId, int beforeAttempt, int size) throws ExecutorManagerException;
 	
 	public int getNumberOfJobExecutions(Project project, String jobId) throws ExecutorManagerException;
 	
@@ -117,6 +145,18 @@ public interface ExecutorManagerAdapter{
 
 	public String submitExecutableFlow(ExecutableFlow exflow, String userId) throws ExecutorManagerException;
 	
+	/**
+	 * Submits the flow ahead of the ones waiting with a lower priority.
+	 */
+	public String submitExecutableFlow(ExecutableFlow exflow, String userId, int priority) throws ExecutorManagerException;
+	
+	/**
+	 * Asks the executor to set up the given project versions in the background,
+	 * ahead of their executions. Each pair is a project id and version. Returns
+	 * the ones the executor queued, as projectId.version.
+	 */
+	public List<String> stageProjects(Collection<Pair<Integer, Integer>> projectVersions) throws ExecutorManagerException;
+	
 	public Map<String, Object> callExecutorJMX(String hostPort, String action, String mBean) throws IOException;
 
 	public void shutdown();
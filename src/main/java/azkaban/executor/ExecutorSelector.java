@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.List;
+
+/**
+ * Picks the executor that runs a new execution. Set with executor.selector to
+ * one of the names in ExecutorSelectors, or to a class implementing this with
+ * a no argument constructor.
+ */
+public interface ExecutorSelector {
+	/**
+	 * @param executors all the configured executors, never empty
+	 * @param projectId
+	 * @param version the project version the execution runs
+	 * @return one of the executors
+	 */
+	public ExecutorInfo select(List<ExecutorInfo> executors, int projectId, int version);
+}
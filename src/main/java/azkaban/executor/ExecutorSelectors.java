@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.List;
+
+import azkaban.utils.Utils;
+
+/**
+ * The built in executor selectors.
+ *
+ * All of them put the executors that reported their load last before the ones
+ * that didn't, which are down or run an older version. Ties go to the executor
+ * running the fewest flows, then to the first one configured.
+ */
+public class ExecutorSelectors {
+	public static final String LEAST_FLOWS = "flows";
+	public static final String LEAST_MEMORY = "memory";
+	public static final String PROJECT_AFFINITY = "affinity";
+
+	/**
+	 * Creates the selector by its name, or by its class name.
+	 */
+	public static ExecutorSelector create(String name) throws ExecutorManagerException {
+		if (name.equals(LEAST_FLOWS)) {
+			return new LeastFlowsSelector();
+		}
+		else if (name.equals(LEAST_MEMORY)) {
+			return new LeastMemorySelector();
+		}
+		else if (name.equals(PROJECT_AFFINITY)) {
+			return new ProjectAffinitySelector();
+		}
+
+		try {
+			Class<?> selectorClass = ExecutorSelectors.class.getClassLoader().loadClass(name);
+			return (ExecutorSelector)Utils.callConstructor(selectorClass);
+		}
+		catch (Exception e) {
+			throw new ExecutorManagerException("Couldn't create executor selector " + name, e);
+		}
+	}
+
+	/**
+	 * Picks the smallest executor by compare.
+	 */
+	public static abstract class ComparingSelector implements ExecutorSelector {
+		@Override
+		public ExecutorInfo select(List<ExecutorInfo> executors, int projectId, int version) {
+			ExecutorInfo selected = null;
+			for (ExecutorInfo executor: executors) {
+				if (selected == null || compareExecutors(executor, selected, projectId, version) < 0) {
+					selected = executor;
+				}
+			}
+			return selected;
+		}
+
+		private int compareExecutors(ExecutorInfo a, ExecutorInfo b, int projectId, int version) {
+			if (a.hasStats() != b.hasStats()) {
+				return a.hasStats() ? -1 : 1;
+			}
+
+			int compare = compare(a, b, projectId, version);
+			if (compare != 0) {
+				return compare;
+			}
+			return Integer.compare(a.getNumRunningFlows(), b.getNumRunningFlows());
+		}
+
+		protected abstract int compare(ExecutorInfo a, ExecutorInfo b, int projectId, int version);
+	}
+
+	/**
+	 * Picks the executor running the fewest flows.
+	 */
+	public static class LeastFlowsSelector extends ComparingSelector {
+		@Override
+		protected int compare(ExecutorInfo a, ExecutorInfo b, int projectId, int version) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Picks the executor using the smallest share of its memory. Shares within
+	 * 5% of each other count as the same, so flows spread out between reports.
+	 */
+	public static class LeastMemorySelector extends ComparingSelector {
+		private static final double BUCKET_SIZE = 0.05;
+
+		@Override
+		protected int compare(ExecutorInfo a, ExecutorInfo b, int projectId, int version) {
+			return Long.compare(getBucket(a), getBucket(b));
+		}
+
+		private long getBucket(ExecutorInfo executor) {
+			return (long)(executor.getMemoryPressure() / BUCKET_SIZE);
+		}
+	}
+
+	/**
+	 * Picks the executor that already has the project version set up, so the
+	 * execution skips fetching and unpacking it. An executor with the version is
+	 * passed over when it runs more than maxExtraFlows flows more than the least
+	 * busy executor.
+	 */
+	public static class ProjectAffinitySelector extends ComparingSelector {
+		private final int maxExtraFlows;
+
+		public ProjectAffinitySelector() {
+			this(2);
+		}
+
+		public ProjectAffinitySelector(int maxExtraFlows) {
+			this.maxExtraFlows = maxExtraFlows;
+		}
+
+		@Override
+		public ExecutorInfo select(List<ExecutorInfo> executors, int projectId, int version) {
+			int minFlows = Integer.MAX_VALUE;
+			for (ExecutorInfo executor: executors) {
+				minFlows = Math.min(minFlows, executor.getNumRunningFlows());
+			}
+
+			ExecutorInfo selected = null;
+			for (ExecutorInfo executor: executors) {
+				if (executor.hasStats() && executor.hasProjectVersion(projectId, version) &&
+						executor.getNumRunningFlows() <= minFlows + maxExtraFlows &&
+						(selected == null || executor.getNumRunningFlows() < selected.getNumRunningFlows())) {
+					selected = executor;
+				}
+			}
+			return selected != null ? selected : super.select(executors, projectId, version);
+		}
+
+		@Override
+		protected int compare(ExecutorInfo a, ExecutorInfo b, int projectId, int version) {
+			return 0;
+		}
+	}
+}
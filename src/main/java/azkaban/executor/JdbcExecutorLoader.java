@@ -17,15 +17,19 @@
 package azkaban.executor;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -53,10 +57,28 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 	private static final Logger logger = 
 			Logger.getLogger(JdbcExecutorLoader.class);
 
+	public static final String LOG_CHUNK_SIZE = "executor.log.chunk.size";
+	public static final String LOG_BATCH_SIZE = "executor.log.batch.size";
+	public static final String LOG_ENCODING = "executor.log.encoding";
+	public static final String FLOW_ENCODING = "executor.flow.encoding";
+	
+	private static final int DEFAULT_LOG_CHUNK_SIZE = 50*1024;
+	private static final int DEFAULT_LOG_BATCH_SIZE = 20;
+
 	private EncodingType defaultEncodingType = EncodingType.GZIP;
+	private EncodingType logEncodingType = EncodingType.GZIP;
+	private int logChunkSize = DEFAULT_LOG_CHUNK_SIZE;
+	private int logBatchSize = DEFAULT_LOG_BATCH_SIZE;
 	
 	public JdbcExecutorLoader(Props props) {
 		super(props);
+		
+		logChunkSize = props.getInt(LOG_CHUNK_SIZE, DEFAULT_LOG_CHUNK_SIZE);
+		logBatchSize = Math.max(1, props.getInt(LOG_BATCH_SIZE, DEFAULT_LOG_BATCH_SIZE));
+		logEncodingType = EncodingType.valueOf(
+				props.getString(LOG_ENCODING, EncodingType.GZIP.name()).toUpperCase());
+		defaultEncodingType = EncodingType.valueOf(
+				props.getString(FLOW_ENCODING, EncodingType.GZIP.name()).toUpperCase());
 	}
 
 	public EncodingType getDefaultEncodingType() {
@@ -67,6 +89,30 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		this.defaultEncodingType = defaultEncodingType;
 	}
 	
+	public EncodingType getLogEncodingType() {
+		return logEncodingType;
+	}
+	
+	public void setLogEncodingType(EncodingType logEncodingType) {
+		this.logEncodingType = logEncodingType;
+	}
+	
+	public int getLogChunkSize() {
+		return logChunkSize;
+	}
+	
+	public void setLogChunkSize(int logChunkSize) {
+		this.logChunkSize = logChunkSize;
+	}
+	
+	public int getLogBatchSize() {
+		return logBatchSize;
+	}
+	
+	public void setLogBatchSize(int logBatchSize) {
+		this.logBatchSize = Math.max(1, logBatchSize);
+	}
+	
 	@Override
 	public synchronized void uploadExecutableFlow(ExecutableFlow flow) 
 			throws ExecutorManagerException {
@@ -125,10 +171,16 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 	@Override
 	public void updateExecutableFlow(ExecutableFlow flow) 
 			throws ExecutorManagerException {
+		updateExecutableFlows(Collections.singletonList(flow));
+	}
+	
+	@Override
+	public void updateExecutableFlows(List<ExecutableFlow> flows) 
+			throws ExecutorManagerException {
 		Connection connection = this.getConnection();
 		
 		try {
-			updateExecutableFlow(connection, flow, defaultEncodingType);
+			updateExecutableFlows(connection, flows, defaultEncodingType);
 		}
 		finally {
 			DbUtils.closeQuietly(connection);
@@ -138,37 +190,49 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 	private void updateExecutableFlow(
 			Connection connection, ExecutableFlow flow, EncodingType encType) 
 			throws ExecutorManagerException {
+		updateExecutableFlows(connection, Collections.singletonList(flow), encType);
+	}
+	
+	private void updateExecutableFlows(
+			Connection connection, List<ExecutableFlow> flows, EncodingType encType) 
+			throws ExecutorManagerException {
 		final String UPDATE_EXECUTABLE_FLOW_DATA = 
 				"UPDATE execution_flows " + 
 						"SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? " + 
 						"WHERE exec_id=?";
+		final String DELETE_NODE_STATUS = 
+				"DELETE FROM execution_node_status WHERE exec_id=?";
 		QueryRunner runner = new QueryRunner();
 		
-		String json = JSONUtils.toJSON(flow.toObject());
-		byte[] data = null;
-		try {
-			byte[] stringData = json.getBytes("UTF-8");
-			data = stringData;
-	
-			if (encType == EncodingType.GZIP) {
-				data = GZIPUtils.gzipBytes(stringData);
+		Object[][] params = new Object[flows.size()][];
+		Object[][] execIds = new Object[flows.size()][];
+		for (int i = 0; i < params.length; ++i) {
+			ExecutableFlow flow = flows.get(i);
+			byte[] data = null;
+			try {
+				data = encodeExecutableFlow(flow, encType);
 			}
-		}
-		catch (IOException e) {
-			throw new ExecutorManagerException("Error encoding the execution flow.");
-		}
-		
-		try {
-			runner.update(
-					connection, 
-					UPDATE_EXECUTABLE_FLOW_DATA, 
+			catch (IOException e) {
+				throw new ExecutorManagerException("Error encoding the execution flow.");
+			}
+			
+			params[i] = new Object[] {
 					flow.getStatus().getNumVal(), 
 					flow.getUpdateTime(), 
 					flow.getStartTime(), 
 					flow.getEndTime(), 
 					encType.getNumVal(), 
 					data, 
-					flow.getExecutionId());
+					flow.getExecutionId()};
+			execIds[i] = new Object[] {flow.getExecutionId()};
+		}
+		
+		try {
+			runner.batch(connection, UPDATE_EXECUTABLE_FLOW_DATA, params);
+			
+			// The blob now holds the latest state of every node, so any incremental
+			// node rows are redundant.
+			runner.batch(connection, DELETE_NODE_STATUS, execIds);
 			connection.commit();
 		}
 		catch (SQLException e) {
@@ -176,6 +240,137 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		}
 	}
 	
+	@Override
+	public void updateExecutableFlowStatus(ExecutableFlow flow, long lastUpdateTime) 
+			throws ExecutorManagerException {
+		updateExecutableFlowStatus(Collections.singletonList(
+				new Pair<ExecutableFlow, Long>(flow, lastUpdateTime)));
+	}
+	
+	@Override
+	public void updateExecutableFlowStatus(List<Pair<ExecutableFlow, Long>> flows) 
+			throws ExecutorManagerException {
+		final String UPDATE_EXECUTABLE_FLOW_STATUS = 
+				"UPDATE execution_flows " + 
+						"SET status=?,update_time=?,start_time=?,end_time=? " + 
+						"WHERE exec_id=?";
+		final String UPDATE_NODE_STATUS = 
+				"UPDATE execution_node_status " + 
+						"SET attempt=?,status=?,start_time=?,end_time=?,update_time=? " + 
+						"WHERE exec_id=? AND node_id=?";
+		final String INSERT_NODE_STATUS = 
+				"INSERT INTO execution_node_status " + 
+						"(attempt, status, start_time, end_time, update_time, exec_id, node_id) " + 
+						"values (?,?,?,?,?,?,?)";
+		
+		Object[][] flowParams = new Object[flows.size()][];
+		List<Object[]> nodeParams = new ArrayList<Object[]>();
+		for (int i = 0; i < flowParams.length; ++i) {
+			ExecutableFlow flow = flows.get(i).getFirst();
+			flowParams[i] = new Object[] {
+					flow.getStatus().getNumVal(), 
+					flow.getUpdateTime(), 
+					flow.getStartTime(), 
+					flow.getEndTime(), 
+					flow.getExecutionId()};
+			
+			List<ExecutableNode> updatedNodes = new ArrayList<ExecutableNode>();
+			findUpdatedNodes(flow, flows.get(i).getSecond(), updatedNodes);
+			for (ExecutableNode node: updatedNodes) {
+				nodeParams.add(new Object[] {
+						node.getAttempt(), 
+						node.getStatus().getNumVal(), 
+						node.getStartTime(), 
+						node.getEndTime(), 
+						node.getUpdateTime(), 
+						flow.getExecutionId(), 
+						node.getNestedId()});
+			}
+		}
+		
+		Connection connection = this.getConnection();
+		QueryRunner runner = new QueryRunner();
+		try {
+			runner.batch(connection, UPDATE_EXECUTABLE_FLOW_STATUS, flowParams);
+			
+			if (!nodeParams.isEmpty()) {
+				Object[][] params = nodeParams.toArray(new Object[nodeParams.size()][]);
+				
+				// Update the rows we already have, then insert the ones that didn't
+				// exist yet. Portable across mysql and h2 unlike an upsert.
+				int[] updated = runner.batch(connection, UPDATE_NODE_STATUS, params);
+				List<Object[]> inserts = new ArrayList<Object[]>();
+				for (int i = 0; i < updated.length; ++i) {
+					if (updated[i] == 0) {
+						inserts.add(params[i]);
+					}
+				}
+				if (!inserts.isEmpty()) {
+					runner.batch(
+							connection, 
+							INSERT_NODE_STATUS, 
+							inserts.toArray(new Object[inserts.size()][]));
+				}
+			}
+			connection.commit();
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error updating flow status.", e);
+		}
+		finally {
+			DbUtils.closeQuietly(connection);
+		}
+	}
+	
+	private void findUpdatedNodes(
+			ExecutableFlowBase flow, long lastUpdateTime, List<ExecutableNode> updatedNodes) {
+		for (ExecutableNode node: flow.getExecutableNodes()) {
+			if (node.getUpdateTime() >= lastUpdateTime) {
+				updatedNodes.add(node);
+			}
+			if (node instanceof ExecutableFlowBase) {
+				findUpdatedNodes((ExecutableFlowBase)node, lastUpdateTime, updatedNodes);
+			}
+		}
+	}
+	
+	/**
+	 * Flows persisted with updateExecutableFlowStatus keep their node state in
+	 * execution_node_status until the full flow_data blob is rewritten. This
+	 * applies those rows on top of the stale blob.
+	 */
+	private void applyNodeStatus(ExecutableFlow flow) 
+			throws ExecutorManagerException {
+		if (flow == null || Status.isStatusFinished(flow.getStatus())) {
+			return;
+		}
+		
+		QueryRunner runner = createQueryRunner();
+		try {
+			List<Object[]> rows = runner.query(
+					FetchNodeStatusHandler.FETCH_NODE_STATUS, 
+					new FetchNodeStatusHandler(), 
+					flow.getExecutionId());
+			for (Object[] row: rows) {
+				ExecutableNode node = flow.getExecutableNodePath((String)row[0]);
+				long updateTime = (Long)row[5];
+				if (node == null || node.getUpdateTime() > updateTime) {
+					continue;
+				}
+				
+				node.setAttempt((Integer)row[1]);
+				node.setStatus((Status)row[2]);
+				node.setStartTime((Long)row[3]);
+				node.setEndTime((Long)row[4]);
+				node.setUpdateTime(updateTime);
+			}
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException(
+					"Error fetching node status for " + flow.getExecutionId(), e);
+		}
+	}
+	
 	@Override
 	public ExecutableFlow fetchExecutableFlow(int id) 
 			throws ExecutorManagerException {
@@ -185,7 +380,9 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		try {
 			List<ExecutableFlow> properties = runner.query(
 					FetchExecutableFlows.FETCH_EXECUTABLE_FLOW, flowHandler, id);
-			return properties.get(0);
+			ExecutableFlow flow = properties.get(0);
+			applyNodeStatus(flow);
+			return flow;
 		}
 		catch (SQLException e) {
 			throw new ExecutorManagerException("Error fetching flow id " + id, e);
@@ -203,6 +400,11 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 					runner.query(
 							FetchActiveExecutableFlows.FETCH_ACTIVE_EXECUTABLE_FLOW, 
 							flowHandler);
+			for (Pair<ExecutionReference, ExecutableFlow> pair: properties.values()) {
+				if (pair != null) {
+					applyNodeStatus(pair.getSecond());
+				}
+			}
 			return properties;
 		}
 		catch (SQLException e) {
@@ -210,6 +412,28 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		}
 	}
 	
+	@Override
+	public List<ExecutableFlow> fetchQueuedFlows(long submittedAfter) 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		FetchExecutableFlows flowHandler = new FetchExecutableFlows();
+
+		try {
+			List<ExecutableFlow> flows = runner.query(
+					FetchExecutableFlows.FETCH_QUEUED_EXECUTABLE_FLOWS, 
+					flowHandler, 
+					Status.PREPARING.getNumVal(), 
+					submittedAfter);
+			for (ExecutableFlow flow: flows) {
+				applyNodeStatus(flow);
+			}
+			return flows;
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching queued flows", e);
+		}
+	}
+	
 	@Override
 	public int fetchNumExecutableFlows() throws ExecutorManagerException {
 		QueryRunner runner = createQueryRunner();
@@ -331,12 +555,266 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 			long endTime, 
 			int skip, 
 			int num) throws ExecutorManagerException {
-		String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY;
 		ArrayList<Object> params = new ArrayList<Object>();
+		String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY + 
+				createFlowHistoryFilter(projContain, flowContains, userNameContains, 
+						status, startTime, endTime, skip, num, params);
+		
+		QueryRunner runner = createQueryRunner();
+		FetchExecutableFlows flowHandler = new FetchExecutableFlows();
+
+		try {
+			List<ExecutableFlow> properties = runner.query(
+					query, flowHandler, params.toArray());
+			return properties;
+		} catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching active flows", e);
+		}
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int skip, int num) 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		
+		try {
+			return runner.query(
+					FetchExecutableFlowSummaries.FETCH_ALL_FLOW_SUMMARIES, 
+					new FetchExecutableFlowSummaries(), 
+					skip, 
+					num);
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching flow history", e);
+		}
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(
+			int projectId, String flowId, int skip, int num) 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		
+		try {
+			return runner.query(
+					FetchExecutableFlowSummaries.FETCH_FLOW_SUMMARIES, 
+					new FetchExecutableFlowSummaries(), 
+					projectId, 
+					flowId, 
+					skip, 
+					num);
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching flow history", e);
+		}
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(
+			int projectId, String flowId, int skip, int num, Status status) 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		
+		try {
+			return runner.query(
+					FetchExecutableFlowSummaries.FETCH_FLOW_SUMMARIES_BY_STATUS, 
+					new FetchExecutableFlowSummaries(), 
+					projectId, 
+					flowId, 
+					status.getNumVal(), 
+					skip, 
+					num);
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching flow history", e);
+		}
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummariesBefore(
+			int projectId, String flowId, int beforeExecId, int num) 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		
+		try {
+			return runner.query(
+					FetchExecutableFlowSummaries.FETCH_FLOW_SUMMARIES_BEFORE, 
+					new FetchExecutableFlowSummaries(), 
+					projectId, 
+					flowId, 
+					beforeExecId, 
+					num);
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching flow history", e);
+		}
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(
+			String projContain, 
+			String flowContains, 
+			String userNameContains, 
+			int status, 
+			long startTime, 
+			long endTime, 
+			int skip, 
+			int num) throws ExecutorManagerException {
+		ArrayList<Object> params = new ArrayList<Object>();
+		String query = FetchExecutableFlowSummaries.FETCH_BASE_FLOW_SUMMARY_QUERY + 
+				createFlowHistoryFilter(projContain, flowContains, userNameContains, 
+						status, startTime, endTime, skip, num, params);
+		
+		QueryRunner runner = createQueryRunner();
+		try {
+			return runner.query(
+					query, new FetchExecutableFlowSummaries(), params.toArray());
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching flow history", e);
+		}
+	}
+	
+	@Override
+	public List<ExecutableFlowSummary> searchFlowSummaries(
+			Collection<Integer> projectIds, 
+			Collection<String> flowIds, 
+			Collection<String> submitUsers, 
+			int status, 
+			long startTime, 
+			long endTime, 
+			int beforeExecId, 
+			int skip, 
+			int num) throws ExecutorManagerException {
+		if ((projectIds != null && projectIds.isEmpty()) || 
+				(flowIds != null && flowIds.isEmpty()) || 
+				(submitUsers != null && submitUsers.isEmpty())) {
+			return Collections.<ExecutableFlowSummary>emptyList();
+		}
+		
+		ArrayList<String> clauses = new ArrayList<String>();
+		ArrayList<Object> params = new ArrayList<Object>();
+		addInClause("ef.project_id", projectIds, clauses, params);
+		addInClause("ef.flow_id", flowIds, clauses, params);
+		addInClause("ef.submit_user", submitUsers, clauses, params);
+		
+		if (status != 0) {
+			clauses.add("ef.status = ?");
+			params.add(status);
+		}
+		if (startTime > 0) {
+			clauses.add("ef.start_time > ?");
+			params.add(startTime);
+		}
+		if (endTime > 0) {
+			clauses.add("ef.end_time < ?");
+			params.add(endTime);
+		}
+		if (beforeExecId > 0) {
+			clauses.add("ef.exec_id < ?");
+			params.add(beforeExecId);
+		}
+		
+		StringBuilder query = new StringBuilder(
+				FetchExecutableFlowSummaries.FETCH_BASE_FLOW_SUMMARY_QUERY);
+		for (int i = 0; i < clauses.size(); ++i) {
+			query.append(i == 0 ? "WHERE " : " AND ");
+			query.append(clauses.get(i));
+		}
+		query.append(" ORDER BY ef.exec_id DESC LIMIT ?, ?");
+		params.add(Math.max(skip, 0));
+		params.add(num);
+		
+		QueryRunner runner = createQueryRunner();
+		try {
+			return runner.query(
+					query.toString(), 
+					new FetchExecutableFlowSummaries(), 
+					params.toArray());
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error searching flow history", e);
+		}
+	}
+	
+	private void addInClause(
+			String column, 
+			Collection<?> values, 
+			List<String> clauses, 
+			List<Object> params) {
+		if (values == null) {
+			return;
+		}
+		
+		StringBuilder clause = new StringBuilder(column).append(" IN (");
+		boolean first = true;
+		for (Object value: values) {
+			clause.append(first ? "?" : ",?");
+			params.add(value);
+			first = false;
+		}
+		clauses.add(clause.append(")").toString());
+	}
+	
+	@Override
+	public Map<Integer, String> fetchProjectNames() 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		try {
+			return runner.query(
+					FetchProjectNamesHandler.FETCH_PROJECT_NAMES, 
+					new FetchProjectNamesHandler());
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching project names", e);
+		}
+	}
+	
+	@Override
+	public List<String> fetchExecutedFlowIds() throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		try {
+			return runner.query(
+					FetchSearchTermsHandler.FETCH_FLOW_IDS, 
+					new FetchSearchTermsHandler());
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching flow ids", e);
+		}
+	}
+	
+	@Override
+	public List<String> fetchSubmitUsers() throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		try {
+			return runner.query(
+					FetchSearchTermsHandler.FETCH_SUBMIT_USERS, 
+					new FetchSearchTermsHandler());
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error fetching submit users", e);
+		}
+	}
+	
+	/**
+	 * Builds the join, where and limit clauses of a filtered history query on
+	 * execution_flows aliased as ef, adding the query parameters to params.
+	 */
+	private String createFlowHistoryFilter(
+			String projContain, 
+			String flowContains, 
+			String userNameContains, 
+			int status, 
+			long startTime, 
+			long endTime, 
+			int skip, 
+			int num, 
+			List<Object> params) {
+		String query = "";
 		
 		boolean first = true;
 		if (projContain != null && !projContain.isEmpty()) {
-			query += " ef JOIN projects p ON ef.project_id = p.id WHERE name LIKE ?";
+			query += " JOIN projects p ON ef.project_id = p.id WHERE p.name LIKE ?";
 			params.add('%'+projContain+'%');
 			first = false;
 		}
@@ -350,7 +828,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 				query += " AND ";
 			}
 
-			query += " flow_id LIKE ?";
+			query += " ef.flow_id LIKE ?";
 			params.add('%'+flowContains+'%');
 		}
 		
@@ -362,7 +840,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 			else {
 				query += " AND ";
 			}
-			query += " submit_user LIKE ?";
+			query += " ef.submit_user LIKE ?";
 			params.add('%'+userNameContains+'%');
 		}
 		
@@ -374,7 +852,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 			else {
 				query += " AND ";
 			}
-			query += " status = ?";
+			query += " ef.status = ?";
 			params.add(status);
 		}
 		
@@ -386,7 +864,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 			else {
 				query += " AND ";
 			}
-			query += " start_time > ?";
+			query += " ef.start_time > ?";
 			params.add(startTime);
 		}
 		
@@ -398,26 +876,17 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 			else {
 				query += " AND "; 
 			}
-			query += " end_time < ?";
+			query += " ef.end_time < ?";
 			params.add(endTime);
 		}
 		
 		if (skip > -1 && num > 0) {
-			query += "  ORDER BY exec_id DESC LIMIT ?, ?";
+			query += "  ORDER BY ef.exec_id DESC LIMIT ?, ?";
 			params.add(skip);
 			params.add(num);
 		}
 		
-		QueryRunner runner = createQueryRunner();
-		FetchExecutableFlows flowHandler = new FetchExecutableFlows();
-
-		try {
-			List<ExecutableFlow> properties = runner.query(
-					query, flowHandler, params.toArray());
-			return properties;
-		} catch (SQLException e) {
-			throw new ExecutorManagerException("Error fetching active flows", e);
-		}
+		return query;
 	}
 	
 	@Override
@@ -488,9 +957,8 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		byte[] inputParam = null;
 		if (inputProps != null) {
 			try {
-				String jsonString =
-						JSONUtils.toJSON(PropsUtils.toHierarchicalMap(inputProps));
-				inputParam = GZIPUtils.gzipString(jsonString, "UTF-8");
+				inputParam = JSONUtils.toGzippedJSONBytes(
+						PropsUtils.toHierarchicalMap(inputProps));
 			}
 			catch (IOException e) {
 				throw new ExecutorManagerException("Error encoding input params");
@@ -532,9 +1000,8 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		Props outputProps = node.getOutputProps();
 		if (outputProps != null) {
 			try {
-				String jsonString =
-						JSONUtils.toJSON(PropsUtils.toHierarchicalMap(outputProps));
-				outputParam = GZIPUtils.gzipString(jsonString, "UTF-8");
+				outputParam = JSONUtils.toGzippedJSONBytes(
+						PropsUtils.toHierarchicalMap(outputProps));
 			}
 			catch (IOException e) {
 				throw new ExecutorManagerException("Error encoding input params");
@@ -656,6 +1123,32 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		}
 	}
 	
+	@Override
+	public List<ExecutableJobInfo> fetchJobHistoryBefore(
+			int projectId, String jobId, int beforeExecId, int beforeAttempt, int size) 
+			throws ExecutorManagerException {
+		QueryRunner runner = createQueryRunner();
+		
+		try {
+			List<ExecutableJobInfo> info = runner.query(
+					FetchExecutableJobHandler.FETCH_PROJECT_EXECUTABLE_NODE_BEFORE,
+					new FetchExecutableJobHandler(), 
+					projectId, 
+					jobId, 
+					beforeExecId, 
+					beforeExecId, 
+					beforeAttempt, 
+					size);
+			if (info == null || info.isEmpty()) {
+				return null;
+			}
+			return info;
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error querying job info " + jobId, e);
+		}
+	}
+	
 	@Override
 	public List<ExecutableJobInfo> fetchJobHistory(
 			int projectId, String jobId, int skip, int size) 
@@ -741,7 +1234,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		Connection connection = getConnection();
 		try {
 			uploadLogFile(
-					connection, execId, name, attempt, files, defaultEncodingType);
+					connection, execId, name, attempt, files, logEncodingType);
 			connection.commit();
 		}
 		catch (SQLException e) {
@@ -762,62 +1255,92 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 			int attempt, 
 			File[] files, 
 			EncodingType encType) throws ExecutorManagerException, IOException {
-		// 50K buffer... if logs are greater than this, we chunk.
-		// However, we better prevent large log files from being uploaded somehow
-		byte[] buffer = new byte[50*1024];
-		int pos = 0;
-		int length = buffer.length;
-		int startByte = 0;
+		// The files are uploaded as one continuous log.
+		List<InputStream> streams = new ArrayList<InputStream>();
 		try {
 			for (int i = 0; i < files.length; ++i) {
-				File file = files[i];
-				
-				BufferedInputStream bufferedStream = new BufferedInputStream(new FileInputStream(file));
-				try {
-					int size = bufferedStream.read(buffer, pos, length);
-					while (size >= 0) {
-						if (pos + size == buffer.length) {
-							// Flush here.
-							uploadLogPart(
-									connection, 
-									execId, 
-									name, 
-									attempt, 
-									startByte, 
-									startByte + buffer.length, 
-									encType, 
-									buffer, 
-									buffer.length);
-							
-							pos = 0;
-							length = buffer.length;
-							startByte += buffer.length;
-						}
-						else {
-							// Usually end of file.
-							pos += size;
-							length = buffer.length - pos;
-						}
-						size = bufferedStream.read(buffer, pos, length);
+				streams.add(new BufferedInputStream(new FileInputStream(files[i])));
+			}
+			
+			uploadLogStream(
+					connection, 
+					execId, 
+					name, 
+					attempt, 
+					0, 
+					new SequenceInputStream(Collections.enumeration(streams)), 
+					encType);
+		}
+		finally {
+			for (InputStream stream: streams) {
+				IOUtils.closeQuietly(stream);
+			}
+		}
+	}
+	
+	@Override
+	public void appendLogData(
+			int execId, String name, int attempt, int startByte, byte[] data, int length) 
+			throws ExecutorManagerException {
+		Connection connection = getConnection();
+		try {
+			uploadLogStream(
+					connection, 
+					execId, 
+					name, 
+					attempt, 
+					startByte, 
+					new ByteArrayInputStream(data, 0, length), 
+					logEncodingType);
+			connection.commit();
+		}
+		catch (SQLException e) {
+			throw new ExecutorManagerException("Error committing log", e);
+		}
+		catch (IOException e) {
+			throw new ExecutorManagerException("Error committing log", e);
+		}
+		finally {
+			DbUtils.closeQuietly(connection);
+		}
+	}
+	
+	private void uploadLogStream(
+			Connection connection, 
+			int execId, 
+			String name, 
+			int attempt, 
+			int startByte, 
+			InputStream stream, 
+			EncodingType encType) throws ExecutorManagerException, IOException {
+		// Logs are cut into fixed size chunks, which are the unit that fetchLogs
+		// reads back, and the chunks are inserted a batch at a time.
+		byte[] buffer = new byte[logChunkSize];
+		List<Object[]> batch = new ArrayList<Object[]>(logBatchSize);
+		int pos = 0;
+		try {
+			int size = stream.read(buffer, pos, buffer.length - pos);
+			while (size >= 0) {
+				pos += size;
+				if (pos == buffer.length) {
+					batch.add(createLogPart(
+							execId, name, attempt, startByte, encType, buffer, pos));
+					if (batch.size() >= logBatchSize) {
+						uploadLogParts(connection, batch);
 					}
-				} finally {
-					IOUtils.closeQuietly(bufferedStream);
+					
+					startByte += pos;
+					pos = 0;
 				}
+				size = stream.read(buffer, pos, buffer.length - pos);
 			}
 			
 			// Final commit of buffer.
 			if (pos > 0) {
-				uploadLogPart(
-						connection, 
-						execId, 
-						name, 
-						attempt, 
-						startByte, 
-						startByte + pos, 
-						encType, 
-						buffer, 
-						pos);
+				batch.add(createLogPart(
+						execId, name, attempt, startByte, encType, buffer, pos));
 			}
+			uploadLogParts(connection, batch);
 		}
 		catch (SQLException e) {
 			throw new ExecutorManagerException("Error writing log part.", e);
@@ -827,41 +1350,47 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		}
 	}
 	
-	private void uploadLogPart(
-			Connection connection, 
+	private Object[] createLogPart(
 			int execId, 
 			String name, 
 			int attempt, 
 			int startByte, 
-			int endByte, 
 			EncodingType encType, 
 			byte[] buffer, 
-			int length) throws SQLException, IOException {
+			int length) throws IOException {
+		// Encoding always copies, so the buffer can be reused for the next chunk.
+		byte[] buf = encType == EncodingType.PLAIN 
+				? Arrays.copyOf(buffer, length) 
+				: encType.encode(buffer, 0, length);
+		
+		return new Object[] {
+				execId, 
+				name, 
+				attempt, 
+				encType.getNumVal(), 
+				startByte, 
+				startByte + length, 
+				buf, 
+				DateTime.now().getMillis()};
+	}
+	
+	private void uploadLogParts(Connection connection, List<Object[]> batch) 
+			throws SQLException {
 		final String INSERT_EXECUTION_LOGS = 
 				"INSERT INTO execution_logs " + 
 						"(exec_id, name, attempt, enc_type, start_byte, end_byte, " + 
 						"log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
 		
-		QueryRunner runner = new QueryRunner();
-		byte[] buf = buffer;
-		if (encType == EncodingType.GZIP) {
-			buf = GZIPUtils.gzipBytes(buf, 0, length);
-		}
-		else if (length < buf.length) {
-			buf = Arrays.copyOf(buffer, length);
+		if (batch.isEmpty()) {
+			return;
 		}
 		
-		runner.update(
+		QueryRunner runner = new QueryRunner();
+		runner.batch(
 				connection, 
 				INSERT_EXECUTION_LOGS, 
-				execId, 
-				name, 
-				attempt, 
-				encType.getNumVal(), 
-				startByte, 
-				startByte + length, 
-				buf, 
-				DateTime.now().getMillis());
+				batch.toArray(new Object[batch.size()][]));
+		batch.clear();
 	}
 	
 	@Override
@@ -973,11 +1502,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 						? this.endByte - startByte - offset
 						: endByte - startByte - offset;
 				try {
-					byte[] buffer = data;
-					if (encType == EncodingType.GZIP) {
-						buffer = GZIPUtils.unGzipBytes(data);
-					}
-
+					byte[] buffer = encType.decode(data);
 					byteStream.write(buffer, offset, length);
 				}
 				catch (IOException e) {
@@ -1011,7 +1536,13 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 				"SELECT exec_id, project_id, version, flow_id, job_id, " + 
 						"start_time, end_time, status, attempt FROM execution_jobs " +
 						"WHERE project_id=? AND job_id=? " + 
-						"ORDER BY exec_id DESC LIMIT ?, ? ";
+						"ORDER BY exec_id DESC, attempt DESC LIMIT ?, ? ";
+		private static String FETCH_PROJECT_EXECUTABLE_NODE_BEFORE =
+				"SELECT exec_id, project_id, version, flow_id, job_id, " + 
+						"start_time, end_time, status, attempt FROM execution_jobs " +
+						"WHERE project_id=? AND job_id=? " + 
+						"AND (exec_id<? OR (exec_id=? AND attempt<?)) " + 
+						"ORDER BY exec_id DESC, attempt DESC LIMIT ?";
 
 		@Override
 		public List<ExecutableJobInfo> handle(ResultSet rs) throws SQLException {
@@ -1096,15 +1627,13 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 				Props outputProps = null;
 				try {
 					if (input != null) {
-						String jsonInputString = GZIPUtils.unGzipString(input, "UTF-8");
 						inputProps = PropsUtils.fromHierarchicalMap(
-								(Map<String, Object>)JSONUtils.parseJSONFromString(jsonInputString));
+								(Map<String, Object>)JSONUtils.parseJSONFromGzippedBytes(input));
 						
 					}
 					if (output != null) {
-						String jsonOutputString = GZIPUtils.unGzipString(output, "UTF-8");
 						outputProps = PropsUtils.fromHierarchicalMap(
-								(Map<String, Object>) JSONUtils.parseJSONFromString(jsonOutputString));
+								(Map<String, Object>)JSONUtils.parseJSONFromGzippedBytes(output));
 					}
 				}
 				catch (IOException e) {
@@ -1118,10 +1647,8 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 				Props props = null;
 				try {
 					if (params != null) {
-						String jsonProps = GZIPUtils.unGzipString(params, "UTF-8");
-
 						props = PropsUtils.fromHierarchicalMap(
-								(Map<String, Object>)JSONUtils.parseJSONFromString(jsonProps));
+								(Map<String, Object>)JSONUtils.parseJSONFromGzippedBytes(params));
 					}
 				}
 				catch (IOException e) {
@@ -1138,7 +1665,8 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		private static String FETCH_ACTIVE_EXECUTABLE_FLOW = 
 				"SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data " + 
 						"flow_data, ax.host host, ax.port port, ax.update_time " + 
-						"axUpdateTime " + 
+						"axUpdateTime, ex.status status, ex.update_time update_time, " + 
+						"ex.start_time start_time, ex.end_time end_time " + 
 						"FROM execution_flows ex " + 
 						"INNER JOIN active_executing_flows ax ON ex.exec_id = ax.exec_id";
 		
@@ -1164,22 +1692,9 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 				}
 				else {
 					EncodingType encType = EncodingType.fromInteger(encodingType);
-					Object flowObj;
 					try {
-						// Convoluted way to inflate strings. Should find common package or
-						// helper function.
-						if (encType == EncodingType.GZIP) {
-							// Decompress the sucker.
-							String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-							flowObj = JSONUtils.parseJSONFromString(jsonString);
-						}
-						else {
-							String jsonString = new String(data, "UTF-8");
-							flowObj = JSONUtils.parseJSONFromString(jsonString);
-						}
-						
-						ExecutableFlow exFlow = 
-								ExecutableFlow.createExecutableFlowFromObject(flowObj);
+						ExecutableFlow exFlow = decodeExecutableFlow(data, encType);
+						applyFlowStatus(exFlow, rs, 7);
 						ExecutionReference ref = new ExecutionReference(id, host, port);
 						ref.setUpdateTime(updateTime);
 						
@@ -1199,23 +1714,30 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 	private static class FetchExecutableFlows 
 			implements ResultSetHandler<List<ExecutableFlow>> {
 		private static String FETCH_BASE_EXECUTABLE_FLOW_QUERY = 
-				"SELECT exec_id, enc_type, flow_data FROM execution_flows ";
+				"SELECT ef.exec_id, ef.enc_type, ef.flow_data, ef.status, ef.update_time, ef.start_time, ef.end_time " +
+						"FROM execution_flows ef ";
 		private static String FETCH_EXECUTABLE_FLOW = 
-				"SELECT exec_id, enc_type, flow_data FROM execution_flows " +
+				"SELECT exec_id, enc_type, flow_data, status, update_time, start_time, end_time FROM execution_flows " +
 						"WHERE exec_id=?";
 		//private static String FETCH_ACTIVE_EXECUTABLE_FLOW = 
 		//	"SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data " +
 		//			"FROM execution_flows ex " +
 		//			"INNER JOIN active_executing_flows ax ON ex.exec_id = ax.exec_id";
 		private static String FETCH_ALL_EXECUTABLE_FLOW_HISTORY = 
-				"SELECT exec_id, enc_type, flow_data FROM execution_flows " +
+				"SELECT exec_id, enc_type, flow_data, status, update_time, start_time, end_time FROM execution_flows " +
 						"ORDER BY exec_id DESC LIMIT ?, ?";
 		private static String FETCH_EXECUTABLE_FLOW_HISTORY = 
-				"SELECT exec_id, enc_type, flow_data FROM execution_flows " +
+				"SELECT exec_id, enc_type, flow_data, status, update_time, start_time, end_time FROM execution_flows " +
 						"WHERE project_id=? AND flow_id=? " +
 						"ORDER BY exec_id DESC LIMIT ?, ?";
+		private static String FETCH_QUEUED_EXECUTABLE_FLOWS = 
+				"SELECT ef.exec_id, ef.enc_type, ef.flow_data, ef.status, ef.update_time, ef.start_time, ef.end_time " +
+						"FROM execution_flows ef " +
+						"LEFT JOIN active_executing_flows ax ON ef.exec_id = ax.exec_id " +
+						"WHERE ef.status=? AND ef.submit_time>=? AND ax.exec_id IS NULL " +
+						"ORDER BY ef.exec_id";
 		private static String FETCH_EXECUTABLE_FLOW_BY_STATUS = 
-				"SELECT exec_id, enc_type, flow_data FROM execution_flows " +
+				"SELECT exec_id, enc_type, flow_data, status, update_time, start_time, end_time FROM execution_flows " +
 						"WHERE project_id=? AND flow_id=? AND status=? " +
 						"ORDER BY exec_id DESC LIMIT ?, ?";
 		
@@ -1233,22 +1755,9 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 				
 				if (data != null) {
 					EncodingType encType = EncodingType.fromInteger(encodingType);
-					Object flowObj;
 					try {
-						// Convoluted way to inflate strings. Should find common package 
-						// or helper function.
-						if (encType == EncodingType.GZIP) {
-							// Decompress the sucker.
-							String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-							flowObj = JSONUtils.parseJSONFromString(jsonString);
-						}
-						else {
-							String jsonString = new String(data, "UTF-8");
-							flowObj = JSONUtils.parseJSONFromString(jsonString);
-						}
-						
-						ExecutableFlow exFlow = 
-								ExecutableFlow.createExecutableFlowFromObject(flowObj);
+						ExecutableFlow exFlow = decodeExecutableFlow(data, encType);
+						applyFlowStatus(exFlow, rs, 4);
 						execFlows.add(exFlow);
 					}
 					catch (IOException e) {
@@ -1261,6 +1770,161 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader
 		}
 	}
 	
+	private static class FetchExecutableFlowSummaries 
+			implements ResultSetHandler<List<ExecutableFlowSummary>> {
+		private static String FETCH_BASE_FLOW_SUMMARY_QUERY = 
+				"SELECT ef.exec_id, ef.project_id, ef.version, ef.flow_id, ef.status, ef.submit_user, " +
+						"ef.submit_time, ef.update_time, ef.start_time, ef.end_time " +
+						"FROM execution_flows ef ";
+		private static String FETCH_ALL_FLOW_SUMMARIES = 
+				FETCH_BASE_FLOW_SUMMARY_QUERY + 
+						"ORDER BY ef.exec_id DESC LIMIT ?, ?";
+		private static String FETCH_FLOW_SUMMARIES = 
+				FETCH_BASE_FLOW_SUMMARY_QUERY + 
+						"WHERE ef.project_id=? AND ef.flow_id=? " +
+						"ORDER BY ef.exec_id DESC LIMIT ?, ?";
+		private static String FETCH_FLOW_SUMMARIES_BY_STATUS = 
+				FETCH_BASE_FLOW_SUMMARY_QUERY + 
+						"WHERE ef.project_id=? AND ef.flow_id=? AND ef.status=? " +
+						"ORDER BY ef.exec_id DESC LIMIT ?, ?";
+		private static String FETCH_FLOW_SUMMARIES_BEFORE = 
+				FETCH_BASE_FLOW_SUMMARY_QUERY + 
+						"WHERE ef.project_id=? AND ef.flow_id=? AND ef.exec_id<? " +
+						"ORDER BY ef.exec_id DESC LIMIT ?";
+		
+		@Override
+		public List<ExecutableFlowSummary> handle(ResultSet rs) 
+				throws SQLException {
+			if (!rs.next()) {
+				return Collections.<ExecutableFlowSummary>emptyList();
+			}
+			
+			List<ExecutableFlowSummary> summaries = 
+					new ArrayList<ExecutableFlowSummary>();
+			do {
+				summaries.add(new ExecutableFlowSummary(
+						rs.getInt(1), 
+						rs.getInt(2), 
+						rs.getInt(3), 
+						rs.getString(4), 
+						Status.fromInteger(rs.getInt(5)), 
+						rs.getString(6), 
+						rs.getLong(7), 
+						rs.getLong(8), 
+						rs.getLong(9), 
+						rs.getLong(10)));
+			} while (rs.next());
+			
+			return summaries;
+		}
+	}
+	
+	/**
+	 * BINARY rows hold the ExecutableFlowBinaryCodec format, deflated. Every
+	 * other type holds the json from toObject(), gzipped or as is.
+	 */
+	private static byte[] encodeExecutableFlow(
+			ExecutableFlow flow, EncodingType encType) throws IOException {
+		if (encType == EncodingType.BINARY) {
+			return encType.encode(ExecutableFlowBinaryCodec.encode(flow));
+		}
+		
+		if (encType == EncodingType.GZIP) {
+			return JSONUtils.toGzippedJSONBytes(flow.toObject());
+		}
+		return JSONUtils.toJSONBytes(flow.toObject());
+	}
+	
+	private static ExecutableFlow decodeExecutableFlow(
+			byte[] data, EncodingType encType) throws IOException {
+		if (encType == EncodingType.BINARY) {
+			return ExecutableFlowBinaryCodec.decode(encType.decode(data));
+		}
+		
+		Object flowObj = encType == EncodingType.GZIP ? 
+				JSONUtils.parseJSONFromGzippedBytes(data) : JSONUtils.parseJSONFromBytes(data);
+		return ExecutableFlow.createExecutableFlowFromObject(flowObj);
+	}
+	
+	/**
+	 * The flow level columns are kept current by updateExecutableFlowStatus even
+	 * when the flow_data blob isn't, so prefer them if they're newer.
+	 */
+	private static void applyFlowStatus(
+			ExecutableFlow flow, ResultSet rs, int firstColumn) throws SQLException {
+		long updateTime = rs.getLong(firstColumn + 1);
+		if (updateTime <= flow.getUpdateTime()) {
+			return;
+		}
+		
+		flow.setStatus(Status.fromInteger(rs.getInt(firstColumn)));
+		flow.setUpdateTime(updateTime);
+		flow.setStartTime(rs.getLong(firstColumn + 2));
+		flow.setEndTime(rs.getLong(firstColumn + 3));
+	}
+	
+	private static class FetchNodeStatusHandler 
+			implements ResultSetHandler<List<Object[]>> {
+		private static String FETCH_NODE_STATUS = 
+				"SELECT node_id, attempt, status, start_time, end_time, update_time " + 
+						"FROM execution_node_status WHERE exec_id=?";
+		
+		@Override
+		public List<Object[]> handle(ResultSet rs) throws SQLException {
+			if (!rs.next()) {
+				return Collections.<Object[]>emptyList();
+			}
+			
+			List<Object[]> rows = new ArrayList<Object[]>();
+			do {
+				rows.add(new Object[] {
+						rs.getString(1), 
+						rs.getInt(2), 
+						Status.fromInteger(rs.getInt(3)), 
+						rs.getLong(4), 
+						rs.getLong(5), 
+						rs.getLong(6)});
+			} while (rs.next());
+			
+			return rows;
+		}
+	}
+	
+	private static class FetchSearchTermsHandler 
+			implements ResultSetHandler<List<String>> {
+		private static String FETCH_FLOW_IDS = 
+				"SELECT DISTINCT flow_id FROM execution_flows";
+		private static String FETCH_SUBMIT_USERS = 
+				"SELECT DISTINCT submit_user FROM execution_flows";
+		
+		@Override
+		public List<String> handle(ResultSet rs) throws SQLException {
+			List<String> terms = new ArrayList<String>();
+			while (rs.next()) {
+				String term = rs.getString(1);
+				if (term != null) {
+					terms.add(term);
+				}
+			}
+			return terms;
+		}
+	}
+	
+	private static class FetchProjectNamesHandler 
+			implements ResultSetHandler<Map<Integer, String>> {
+		private static String FETCH_PROJECT_NAMES = 
+				"SELECT id, name FROM projects";
+		
+		@Override
+		public Map<Integer, String> handle(ResultSet rs) throws SQLException {
+			Map<Integer, String> names = new HashMap<Integer, String>();
+			while (rs.next()) {
+				names.put(rs.getInt(1), rs.getString(2));
+			}
+			return names;
+		}
+	}
+	
 	private static class IntHandler implements ResultSetHandler<Integer> {
 		private static String NUM_EXECUTIONS = 
 				"SELECT COUNT(1) FROM execution_flows";
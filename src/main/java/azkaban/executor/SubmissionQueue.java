@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Executions submitted to the web server that haven't been sent to an executor
+ * yet. Higher priorities are taken first, and executions of the same priority
+ * in the order they were added.
+ *
+ * Once taken, an execution counts as dispatching until done is called. At most
+ * maxDispatching executions are dispatching at once, and adding fails once
+ * maxQueued executions are waiting.
+ */
+public class SubmissionQueue {
+	private final int maxQueued;
+	private final int maxDispatching;
+
+	private final PriorityQueue<QueuedExecution> queue = new PriorityQueue<QueuedExecution>();
+	// Both the waiting and the dispatching executions.
+	private final HashMap<Integer, QueuedExecution> executions = new HashMap<Integer, QueuedExecution>();
+	private long nextSequence = 0;
+	private int numDispatching = 0;
+
+	private long numAdded = 0;
+	private long numRejected = 0;
+	private long numTaken = 0;
+	private long totalWaitTimeMs = 0;
+	private long maxWaitTimeMs = 0;
+
+	public SubmissionQueue(int maxQueued, int maxDispatching) {
+		this.maxQueued = maxQueued;
+		this.maxDispatching = maxDispatching;
+	}
+
+	/**
+	 * @throws ExecutorManagerException if the queue is full
+	 */
+	public synchronized void add(ExecutableFlow flow, int priority) throws ExecutorManagerException {
+		checkNotFull();
+
+		QueuedExecution execution = new QueuedExecution(flow, priority, nextSequence++, System.currentTimeMillis());
+		queue.add(execution);
+		executions.put(flow.getExecutionId(), execution);
+		numAdded++;
+		notifyAll();
+	}
+
+	/**
+	 * @throws ExecutorManagerException if the queue is full
+	 */
+	public synchronized void checkNotFull() throws ExecutorManagerException {
+		if (queue.size() >= maxQueued) {
+			numRejected++;
+			throw new ExecutorManagerException("Too many executions waiting for an executor (" + queue.size() + "). Try again later.");
+		}
+	}
+
+	/**
+	 * Takes the next execution to dispatch. Waits up to timeoutMs for one, and
+	 * for a dispatch to finish if maxDispatching are already going.
+	 *
+	 * @return null if there was none in time
+	 */
+	public synchronized ExecutableFlow take(long timeoutMs) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + timeoutMs;
+		while (queue.isEmpty() || numDispatching >= maxDispatching) {
+			long waitTime = endTime - System.currentTimeMillis();
+			if (waitTime <= 0) {
+				return null;
+			}
+			wait(waitTime);
+		}
+
+		QueuedExecution execution = queue.poll();
+		numDispatching++;
+
+		long waitTime = System.currentTimeMillis() - execution.queueTime;
+		numTaken++;
+		totalWaitTimeMs += waitTime;
+		maxWaitTimeMs = Math.max(maxWaitTimeMs, waitTime);
+		return execution.flow;
+	}
+
+	/**
+	 * Marks a taken execution as dispatched, or failed to.
+	 */
+	public synchronized void done(int execId) {
+		if (executions.remove(execId) != null) {
+			numDispatching--;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Removes an execution that is still waiting.
+	 *
+	 * @return false if it isn't waiting, which includes it being dispatched
+	 */
+	public synchronized boolean remove(int execId) {
+		QueuedExecution execution = executions.get(execId);
+		if (execution == null || !queue.remove(execution)) {
+			return false;
+		}
+
+		executions.remove(execId);
+		return true;
+	}
+
+	/**
+	 * The execution if it's waiting or dispatching.
+	 */
+	public synchronized ExecutableFlow getFlow(int execId) {
+		QueuedExecution execution = executions.get(execId);
+		return execution == null ? null : execution.flow;
+	}
+
+	/**
+	 * The waiting and dispatching executions.
+	 */
+	public synchronized List<ExecutableFlow> getFlows() {
+		ArrayList<ExecutableFlow> flows = new ArrayList<ExecutableFlow>(executions.size());
+		for (QueuedExecution execution: executions.values()) {
+			flows.add(execution.flow);
+		}
+		return flows;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	public int getMaxDispatching() {
+		return maxDispatching;
+	}
+
+	public synchronized int getNumQueued() {
+		return queue.size();
+	}
+
+	public synchronized int getNumDispatching() {
+		return numDispatching;
+	}
+
+	public synchronized long getNumAdded() {
+		return numAdded;
+	}
+
+	public synchronized long getNumRejected() {
+		return numRejected;
+	}
+
+	/**
+	 * How long the executions taken so far waited.
+	 */
+	public synchronized double getAverageWaitTimeMs() {
+		return numTaken == 0 ? 0 : (double)totalWaitTimeMs / numTaken;
+	}
+
+	public synchronized long getMaxWaitTimeMs() {
+		return maxWaitTimeMs;
+	}
+
+	/**
+	 * How long the oldest waiting execution has waited so far.
+	 */
+	public synchronized long getOldestWaitTimeMs() {
+		long oldestQueueTime = Long.MAX_VALUE;
+		for (QueuedExecution execution: queue) {
+			oldestQueueTime = Math.min(oldestQueueTime, execution.queueTime);
+		}
+		return queue.isEmpty() ? 0 : System.currentTimeMillis() - oldestQueueTime;
+	}
+
+	private static class QueuedExecution implements Comparable<QueuedExecution> {
+		private final ExecutableFlow flow;
+		private final int priority;
+		private final long sequence;
+		private final long queueTime;
+
+		private QueuedExecution(ExecutableFlow flow, int priority, long sequence, long queueTime) {
+			this.flow = flow;
+			this.priority = priority;
+			this.sequence = sequence;
+			this.queueTime = queueTime;
+		}
+
+		@Override
+		public int compareTo(QueuedExecution o) {
+			if (priority != o.priority) {
+				return priority > o.priority ? -1 : 1;
+			}
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+}
@@ -42,10 +42,88 @@ public class JmxExecutorManager implements JmxExecutorManagerMBean {
 		return new ArrayList<String>(manager.getPrimaryServerHosts());
 	}
 
+	@Override
+	public String getExecutorSelector() {
+		return manager.getExecutorSelectorName();
+	}
+
+	@Override
+	public List<String> getExecutorLoads() {
+		return manager.getExecutorLoads();
+	}
+
 	@Override
 	public String getRunningFlows() {
 		return manager.getRunningFlowIds();
 	}
 
-	
+	@Override
+	public int getNumQueuedFlows() {
+		return manager.getNumQueuedFlows();
+	}
+
+	@Override
+	public int getNumDispatchingFlows() {
+		return manager.getNumDispatchingFlows();
+	}
+
+	@Override
+	public double getAverageQueueWaitTimeMs() {
+		return manager.getAverageQueueWaitTimeMs();
+	}
+
+	@Override
+	public long getMaxQueueWaitTimeMs() {
+		return manager.getMaxQueueWaitTimeMs();
+	}
+
+	@Override
+	public long getOldestQueuedFlowWaitTimeMs() {
+		return manager.getOldestQueuedFlowWaitTimeMs();
+	}
+
+	@Override
+	public long getNumRejectedSubmissions() {
+		return manager.getNumRejectedSubmissions();
+	}
+
+	@Override
+	public long getNumFailedDispatches() {
+		return manager.getNumFailedDispatches();
+	}
+
+	@Override
+	public long getNumExecutorRequests() {
+		return manager.getExecutorHttpClient().getNumRequests();
+	}
+
+	@Override
+	public long getNumFailedExecutorRequests() {
+		return manager.getExecutorHttpClient().getNumFailedRequests();
+	}
+
+	@Override
+	public long getNumExecutorConnectionsCreated() {
+		return manager.getExecutorHttpClient().getNumConnectionsCreated();
+	}
+
+	@Override
+	public long getNumExecutorConnectionsReused() {
+		return manager.getExecutorHttpClient().getNumConnectionsReused();
+	}
+
+	@Override
+	public int getNumLeasedExecutorConnections() {
+		return manager.getExecutorHttpClient().getNumLeasedConnections();
+	}
+
+	@Override
+	public int getNumAvailableExecutorConnections() {
+		return manager.getExecutorHttpClient().getNumAvailableConnections();
+	}
+
+	@Override
+	public int getNumPendingExecutorConnections() {
+		return manager.getExecutorHttpClient().getNumPendingConnections();
+	}
 }
@@ -23,4 +23,52 @@ public interface JmxExecutorManagerMBean {
 
 	@DisplayName("OPERATION: getPrimaryExecutorHostPorts")
 	public List<String> getPrimaryExecutorHostPorts();
+
+	@DisplayName("OPERATION: getExecutorSelector")
+	public String getExecutorSelector();
+
+	@DisplayName("OPERATION: getExecutorLoads")
+	public List<String> getExecutorLoads();
+
+	@DisplayName("OPERATION: getNumQueuedFlows")
+	public int getNumQueuedFlows();
+
+	@DisplayName("OPERATION: getNumDispatchingFlows")
+	public int getNumDispatchingFlows();
+
+	@DisplayName("OPERATION: getAverageQueueWaitTimeMs")
+	public double getAverageQueueWaitTimeMs();
+
+	@DisplayName("OPERATION: getMaxQueueWaitTimeMs")
+	public long getMaxQueueWaitTimeMs();
+
+	@DisplayName("OPERATION: getOldestQueuedFlowWaitTimeMs")
+	public long getOldestQueuedFlowWaitTimeMs();
+
+	@DisplayName("OPERATION: getNumRejectedSubmissions")
+	public long getNumRejectedSubmissions();
+
+	@DisplayName("OPERATION: getNumFailedDispatches")
+	public long getNumFailedDispatches();
+
+	@DisplayName("OPERATION: getNumExecutorRequests")
+	public long getNumExecutorRequests();
+
+	@DisplayName("OPERATION: getNumFailedExecutorRequests")
+	public long getNumFailedExecutorRequests();
+
+	@DisplayName("OPERATION: getNumExecutorConnectionsCreated")
+	public long getNumExecutorConnectionsCreated();
+
+	@DisplayName("OPERATION: getNumExecutorConnectionsReused")
+	public long getNumExecutorConnectionsReused();
+
+	@DisplayName("OPERATION: getNumLeasedExecutorConnections")
+	public int getNumLeasedExecutorConnections();
+
+	@DisplayName("OPERATION: getNumAvailableExecutorConnections")
+	public int getNumAvailableExecutorConnections();
+
+	@DisplayName("OPERATION: getNumPendingExecutorConnections")
+	public int getNumPendingExecutorConnections();
 }
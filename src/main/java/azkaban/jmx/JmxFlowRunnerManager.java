@@ -59,4 +59,104 @@ public class JmxFlowRunnerManager implements JmxFlowRunnerManagerMBean {
 		return manager.getRunningFlowIds();
 	}
 
+	@Override
+	public int getFlowUpdateQueueDepth() {
+		return manager.getFlowUpdateQueueDepth();
+	}
+
+	@Override
+	public long getNumCoalescedFlowUpdates() {
+		return manager.getNumCoalescedFlowUpdates();
+	}
+
+	@Override
+	public long getNumFlushedFlowUpdates() {
+		return manager.getNumFlushedFlowUpdates();
+	}
+
+	@Override
+	public long getNumFailedFlowUpdateFlushes() {
+		return manager.getNumFailedFlowUpdateFlushes();
+	}
+
+	@Override
+	public long getLastFlowUpdateFlushTimeMs() {
+		return manager.getLastFlowUpdateFlushTimeMs();
+	}
+
+	@Override
+	public double getAverageFlowUpdateFlushTimeMs() {
+		return manager.getAverageFlowUpdateFlushTimeMs();
+	}
+
+	@Override
+	public long getLastFlowSetupTimeMs() {
+		return manager.getLastFlowSetupTimeMs();
+	}
+
+	@Override
+	public double getAverageFlowSetupTimeMs() {
+		return manager.getAverageFlowSetupTimeMs();
+	}
+
+	@Override
+	public long getProjectDiskHighWatermarkBytes() {
+		return manager.getProjectDiskHighWatermarkBytes();
+	}
+
+	@Override
+	public long getProjectDiskLowWatermarkBytes() {
+		return manager.getProjectDiskLowWatermarkBytes();
+	}
+
+	@Override
+	public long getProjectDiskFootprintBytes() {
+		return manager.getProjectDiskFootprintBytes();
+	}
+
+	@Override
+	public long getNumEvictedProjectVersions() {
+		return manager.getNumEvictedProjectVersions();
+	}
+
+	@Override
+	public long getNumEvictedProjectArtifacts() {
+		return manager.getNumEvictedProjectArtifacts();
+	}
+
+	@Override
+	public long getEvictedProjectBytes() {
+		return manager.getEvictedProjectBytes();
+	}
+
+	@Override
+	public int getNumJobSlots() {
+		return manager.getNumJobSlots();
+	}
+
+	@Override
+	public int getNumUsedJobSlots() {
+		return manager.getNumUsedJobSlots();
+	}
+
+	@Override
+	public int getNumJobsWaitingForSlots() {
+		return manager.getNumJobsWaitingForSlots();
+	}
+
+	@Override
+	public double getAverageJobSlotUtilization() {
+		return manager.getAverageJobSlotUtilization();
+	}
+
+	@Override
+	public double getAverageJobSlotWaitTimeMs() {
+		return manager.getAverageJobSlotWaitTimeMs();
+	}
+
+	@Override
+	public long getMaxJobSlotWaitTimeMs() {
+		return manager.getMaxJobSlotWaitTimeMs();
+	}
+
 }
@@ -30,4 +30,64 @@ public interface JmxFlowRunnerManagerMBean {
 	
 	@DisplayName("OPERATION: getTotalNumRunningJobs")
 	public int countTotalNumRunningJobs();
+	
+	@DisplayName("OPERATION: getFlowUpdateQueueDepth")
+	public int getFlowUpdateQueueDepth();
+	
+	@DisplayName("OPERATION: getNumCoalescedFlowUpdates")
+	public long getNumCoalescedFlowUpdates();
+	
+	@DisplayName("OPERATION: getNumFlushedFlowUpdates")
+	public long getNumFlushedFlowUpdates();
+	
+	@DisplayName("OPERATION: getNumFailedFlowUpdateFlushes")
+	public long getNumFailedFlowUpdateFlushes();
+	
+	@DisplayName("OPERATION: getLastFlowUpdateFlushTimeMs")
+	public long getLastFlowUpdateFlushTimeMs();
+	
+	@DisplayName("OPERATION: getAverageFlowUpdateFlushTimeMs")
+	public double getAverageFlowUpdateFlushTimeMs();
+	
+	@DisplayName("OPERATION: getLastFlowSetupTimeMs")
+	public long getLastFlowSetupTimeMs();
+	
+	@DisplayName("OPERATION: getAverageFlowSetupTimeMs")
+	public double getAverageFlowSetupTimeMs();
+	
+	@DisplayName("OPERATION: getProjectDiskHighWatermarkBytes")
+	public long getProjectDiskHighWatermarkBytes();
+	
+	@DisplayName("OPERATION: getProjectDiskLowWatermarkBytes")
+	public long getProjectDiskLowWatermarkBytes();
+	
+	@DisplayName("OPERATION: getProjectDiskFootprintBytes")
+	public long getProjectDiskFootprintBytes();
+	
+	@DisplayName("OPERATION: getNumEvictedProjectVersions")
+	public long getNumEvictedProjectVersions();
+	
+	@DisplayName("OPERATION: getNumEvictedProjectArtifacts")
+	public long getNumEvictedProjectArtifacts();
+	
+	@DisplayName("OPERATION: getEvictedProjectBytes")
+	public long getEvictedProjectBytes();
+	
+	@DisplayName("OPERATION: getNumJobSlots")
+	public int getNumJobSlots();
+	
+	@DisplayName("OPERATION: getNumUsedJobSlots")
+	public int getNumUsedJobSlots();
+	
+	@DisplayName("OPERATION: getNumJobsWaitingForSlots")
+	public int getNumJobsWaitingForSlots();
+	
+	@DisplayName("OPERATION: getAverageJobSlotUtilization")
+	public double getAverageJobSlotUtilization();
+	
+	@DisplayName("OPERATION: getAverageJobSlotWaitTimeMs")
+	public double getAverageJobSlotWaitTimeMs();
+	
+	@DisplayName("OPERATION: getMaxJobSlotWaitTimeMs")
+	public long getMaxJobSlotWaitTimeMs();
 }
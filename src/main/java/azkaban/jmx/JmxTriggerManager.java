@@ -55,4 +55,29 @@ public class JmxTriggerManager implements JmxTriggerManagerMBean {
 		// TODO Auto-generated method stub
 		return jmxStats.getScannerThreadStage();
 	}
+
+	@Override
+	public int getNumPendingTriggerFirings() {
+		return jmxStats.getNumPendingTriggerFirings();
+	}
+
+	@Override
+	public double getAverageTriggerLatenessMs() {
+		return jmxStats.getAverageTriggerLatenessMs();
+	}
+
+	@Override
+	public long getMaxTriggerLatenessMs() {
+		return jmxStats.getMaxTriggerLatenessMs();
+	}
+
+	@Override
+	public long getNumFailedTriggerActions() {
+		return jmxStats.getNumFailedTriggerActions();
+	}
+
+	@Override
+	public long getNumTimedOutTriggerActions() {
+		return jmxStats.getNumTimedOutTriggerActions();
+	}
 }
@@ -28,4 +28,19 @@ public interface JmxTriggerManagerMBean {
 	
 	@DisplayName("OPERATION: getScannerThreadStage")
 	public String getScannerThreadStage();
+	
+	@DisplayName("OPERATION: getNumPendingTriggerFirings")
+	public int getNumPendingTriggerFirings();
+	
+	@DisplayName("OPERATION: getAverageTriggerLatenessMs")
+	public double getAverageTriggerLatenessMs();
+	
+	@DisplayName("OPERATION: getMaxTriggerLatenessMs")
+	public long getMaxTriggerLatenessMs();
+	
+	@DisplayName("OPERATION: getNumFailedTriggerActions")
+	public long getNumFailedTriggerActions();
+	
+	@DisplayName("OPERATION: getNumTimedOutTriggerActions")
+	public long getNumTimedOutTriggerActions();
 }
@@ -16,12 +16,15 @@
 
 package azkaban.project;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -30,8 +33,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
@@ -56,7 +65,9 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 	private static final Logger logger = Logger.getLogger(JdbcProjectLoader.class);
 
 	private static final int CHUCK_SIZE = 1024*1024*10;
+	private static final int DEFAULT_UPLOAD_BATCH_CHUNKS = 4;
 	private File tempDir;
+	private int uploadBatchChunks;
 
 	private EncodingType defaultEncodingType = EncodingType.GZIP;
 	
@@ -66,6 +77,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 		if (!tempDir.exists()) {
 			tempDir.mkdirs();
 		}
+		uploadBatchChunks = Math.max(1, props.getInt("project.upload.batch.chunks", DEFAULT_UPLOAD_BATCH_CHUNKS));
 	}
 	
 	@Override
@@ -255,77 +267,26 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 	@Override
 	public void uploadProjectFile(Project project, int version, String filetype, String filename, File localFile, String uploader) throws ProjectManagerException {
 		logger.info("Uploading to " + project.getName() + " version:" + version + " file:" + filename);
-		Connection connection = getConnection();
-
+		ProjectFileUploadStream upload = openProjectFileUpload(project, version, filetype, filename, uploader);
+		InputStream input = null;
 		try {
-			uploadProjectFile(connection, project, version, filetype, filename, localFile, uploader);
-			connection.commit();
+			input = new FileInputStream(localFile);
+			IOUtils.copyLarge(input, upload);
+			upload.commit();
 			logger.info("Commiting upload " + localFile.getName());
 		}
-		catch (SQLException e) {
-			logger.error(e);
-			throw new ProjectManagerException("Error getting DB connection.", e);
+		catch (IOException e) {
+			throw new ProjectManagerException("Error chunking file " + filename, e);
 		}
 		finally {
-			DbUtils.closeQuietly(connection);
+			IOUtils.closeQuietly(input);
+			IOUtils.closeQuietly(upload);
 		}
 	}
 
-	private void uploadProjectFile(Connection connection, Project project, int version, String filetype, String filename, File localFile, String uploader) throws ProjectManagerException {
-		QueryRunner runner = new QueryRunner();
-		long updateTime = System.currentTimeMillis();
-		
-		logger.info("Creating message digest for upload " + localFile.getName());
-		byte[] md5 = null;
-		try {
-			md5 = Md5Hasher.md5Hash(localFile);
-		} catch (IOException e) {
-			throw new ProjectManagerException("Error getting md5 hash.", e);
-		}
-		
-		logger.info("Md5 hash created");
-		// Really... I doubt we'll get a > 2gig file. So int casting it is!
-		byte[] buffer = new byte[CHUCK_SIZE];
-		final String INSERT_PROJECT_FILES = "INSERT INTO project_files (project_id, version, chunk, size, file) values (?,?,?,?,?)";
-
-		//int numChunks = (localFileSize / buffer.length) + 1;
-		BufferedInputStream bufferedStream = null;
-		int chunk = 0;
-		try {
-			bufferedStream = new BufferedInputStream(new FileInputStream(localFile));
-			int size = bufferedStream.read(buffer);
-			while (size >= 0) {
-				logger.info("Read bytes for " + filename + " size:" + size);
-				byte[] buf = buffer;
-				if (size < buffer.length) {
-					buf = Arrays.copyOfRange(buffer, 0, size);
-				}
-				try {
-					logger.info("Running update for " + filename + " chunk " + chunk);
-					runner.update(connection, INSERT_PROJECT_FILES, project.getId(), version, chunk, size, buf);
-					logger.info("Finished update for " + filename + " chunk " + chunk);
-				} catch (SQLException e) {
-					throw new ProjectManagerException("Error chunking", e);
-				}
-				++chunk;
-				
-				size = bufferedStream.read(buffer);
-			}
-		} catch (IOException e) {
-			throw new ProjectManagerException("Error chunking file " + filename);
-		} finally {
-			IOUtils.closeQuietly(bufferedStream);
-		}
-
-		final String INSERT_PROJECT_VERSION =
-				"INSERT INTO project_versions (project_id, version, upload_time, uploader, file_type, file_name, md5, num_chunks) values (?,?,?,?,?,?,?,?)";
-
-		try {
-			runner.update(connection, INSERT_PROJECT_VERSION, project.getId(), version, updateTime, uploader, filetype, filename, md5, chunk);
-		} catch (SQLException e) {
-			logger.error(e);
-			throw new ProjectManagerException("Error updating project version " + project.getName(), e);
-		}
+	@Override
+	public ProjectFileUploadStream openProjectFileUpload(Project project, int version, String filetype, String filename, String uploader) throws ProjectManagerException {
+		return new ChunkedUploadStream(getConnection(), project, version, filetype, filename, uploader);
 	}
 
 	@Override
@@ -358,7 +319,18 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 		return handler;
 	}
 	
-	private ProjectFileHandler getUploadedFile(Connection connection, int projectId, int version) throws ProjectManagerException {
+	@Override
+	public ProjectFileHandler getUploadedFileInfo(int projectId, int version) throws ProjectManagerException {
+		Connection connection = getConnection();
+		try {
+			return getUploadedFileInfo(connection, projectId, version);
+		}
+		finally {
+			DbUtils.closeQuietly(connection);
+		}
+	}
+	
+	private ProjectFileHandler getUploadedFileInfo(Connection connection, int projectId, int version) throws ProjectManagerException {
 		QueryRunner runner = new QueryRunner();
 		ProjectVersionResultHandler pfHandler = new ProjectVersionResultHandler();
 		
@@ -373,15 +345,26 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 			return null;
 		}
 		
-		ProjectFileHandler projHandler = projectFiles.get(0);
+		return projectFiles.get(0);
+	}
+	
+	private ProjectFileHandler getUploadedFile(Connection connection, int projectId, int version) throws ProjectManagerException {
+		QueryRunner runner = new QueryRunner();
+		ProjectFileHandler projHandler = getUploadedFileInfo(connection, projectId, version);
+		if (projHandler == null) {
+			return null;
+		}
+		
 		int numChunks = projHandler.getNumChunks();
-		BufferedOutputStream bStream = null;
+		MessageDigest digest = Md5Hasher.getMd5Digest();
+		OutputStream bStream = null;
 		File file = null;
 		try {
 			try {
 				file = File.createTempFile(projHandler.getFileName(), String.valueOf(version), tempDir);
 		
-				bStream = new BufferedOutputStream(new FileOutputStream(file));
+				// The hash is computed as the file is written, instead of reading it back.
+				bStream = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(file)), digest);
 			}
 			catch (IOException e) {
 				throw new ProjectManagerException("Error creating temp file for stream.");
@@ -418,25 +401,254 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 			IOUtils.closeQuietly(bStream);
 		}
 		
-		// Check md5.
-		byte[] md5 = null;
+		checkMd5(projHandler, digest.digest());
+		projHandler.setLocalFile(file);
+		return projHandler;
+	}
+	
+	@Override
+	public void fetchUploadedFile(ProjectFileHandler handler, File localFile, int numThreads) throws ProjectManagerException {
+		int projectId = handler.getProjectId();
+		int version = handler.getVersion();
+		int numChunks = handler.getNumChunks();
+		logger.info("Fetching " + numChunks + " chunks of project " + projectId + " version " + version + " with " + numThreads + " threads");
+		
+		// Chunks are fetched in parallel, each over its own connection, but written
+		// in order so the hash can be computed in the same pass. At most two chunks
+		// per thread are held in memory.
+		int window = Math.max(1, numThreads) * 2;
+		ExecutorService fetchService = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+		MessageDigest digest = Md5Hasher.getMd5Digest();
+		OutputStream bStream = null;
 		try {
-			md5 = Md5Hasher.md5Hash(file);
-		} catch (IOException e) {
-			throw new ProjectManagerException("Error getting md5 hash.", e);
+			try {
+				bStream = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(localFile)), digest);
+			}
+			catch (IOException e) {
+				throw new ProjectManagerException("Error creating file " + localFile, e);
+			}
+			
+			int nextChunk = 0;
+			for (; nextChunk < numChunks && nextChunk < window; ++nextChunk) {
+				pending.add(fetchService.submit(new ChunkFetcher(projectId, version, nextChunk)));
+			}
+			
+			while (!pending.isEmpty()) {
+				byte[] data = null;
+				try {
+					data = pending.removeFirst().get();
+				}
+				catch (InterruptedException e) {
+					throw new ProjectManagerException("Interrupted fetching project " + projectId + " version " + version, e);
+				}
+				catch (ExecutionException e) {
+					throw new ProjectManagerException("Error fetching project " + projectId + " version " + version, e.getCause());
+				}
+				
+				if (nextChunk < numChunks) {
+					pending.add(fetchService.submit(new ChunkFetcher(projectId, version, nextChunk)));
+					nextChunk++;
+				}
+				
+				if (data != null) {
+					try {
+						bStream.write(data);
+					}
+					catch (IOException e) {
+						throw new ProjectManagerException("Error writing file", e);
+					}
+				}
+			}
+		}
+		finally {
+			IOUtils.closeQuietly(bStream);
+			for (Future<byte[]> future: pending) {
+				future.cancel(true);
+			}
+			fetchService.shutdownNow();
 		}
 		
-		if (Arrays.equals(projHandler.getMd5Hash(), md5)) {
+		checkMd5(handler, digest.digest());
+	}
+	
+	private void checkMd5(ProjectFileHandler handler, byte[] md5) throws ProjectManagerException {
+		if (Arrays.equals(handler.getMd5Hash(), md5)) {
 			logger.info("Md5 Hash is valid");
 		}
 		else {
 			throw new ProjectManagerException("Md5 Hash failed on retrieval of file");
 		}
-		
-		projHandler.setLocalFile(file);
-		return projHandler;
 	}
 	
+	/**
+	 * Fetches a single chunk of an uploaded file over its own connection.
+	 */
+	private class ChunkFetcher implements Callable<byte[]> {
+		private final int projectId;
+		private final int version;
+		private final int chunk;
+		
+		private ChunkFetcher(int projectId, int version, int chunk) {
+			this.projectId = projectId;
+			this.version = version;
+			this.chunk = chunk;
+		}
+		
+		@Override
+		public byte[] call() throws Exception {
+			QueryRunner runner = createQueryRunner();
+			List<byte[]> data = null;
+			try {
+				data = runner.query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE, new ProjectFileChunkResultHandler(), projectId, version, chunk, chunk + 1);
+			}
+			catch (SQLException e) {
+				logger.error(e);
+				throw new ProjectManagerException("Query for chunk " + chunk + " of project " + projectId + " version " + version + " failed.", e);
+			}
+			
+			return data.isEmpty() ? null : data.get(0);
+		}
+	}
+
+	/**
+	 * Cuts the written bytes into chunks and inserts them in batches, hashing
+	 * them on the way. Everything goes in one transaction, which is only
+	 * committed along with the version row.
+	 */
+	private class ChunkedUploadStream extends ProjectFileUploadStream {
+		private static final String INSERT_PROJECT_FILES = "INSERT INTO project_files (project_id, version, chunk, size, file) values (?,?,?,?,?)";
+		private static final String INSERT_PROJECT_VERSION =
+				"INSERT INTO project_versions (project_id, version, upload_time, uploader, file_type, file_name, md5, num_chunks) values (?,?,?,?,?,?,?,?)";
+
+		private final Connection connection;
+		private final QueryRunner runner = new QueryRunner();
+		private final MessageDigest digest = Md5Hasher.getMd5Digest();
+		private final long updateTime = System.currentTimeMillis();
+		private final Project project;
+		private final int version;
+		private final String filetype;
+		private final String filename;
+		private final String uploader;
+
+		private final List<Object[]> batch = new ArrayList<Object[]>();
+		private byte[] buffer = new byte[CHUCK_SIZE];
+		private int bufferSize = 0;
+		private int numChunks = 0;
+		private boolean closed = false;
+
+		private ChunkedUploadStream(Connection connection, Project project, int version, String filetype, String filename, String uploader) {
+			this.connection = connection;
+			this.project = project;
+			this.version = version;
+			this.filetype = filetype;
+			this.filename = filename;
+			this.uploader = uploader;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte)b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Upload of " + filename + " is already closed.");
+			}
+
+			digest.update(b, off, len);
+			while (len > 0) {
+				int size = Math.min(len, buffer.length - bufferSize);
+				System.arraycopy(b, off, buffer, bufferSize, size);
+				bufferSize += size;
+				off += size;
+				len -= size;
+
+				if (bufferSize == buffer.length) {
+					try {
+						addChunk();
+					}
+					catch (SQLException e) {
+						throw new IOException("Error chunking " + filename, e);
+					}
+				}
+			}
+		}
+
+		@Override
+		public byte[] commit() throws ProjectManagerException {
+			if (closed) {
+				throw new ProjectManagerException("Upload of " + filename + " is already closed.");
+			}
+
+			byte[] md5 = digest.digest();
+			try {
+				if (bufferSize > 0) {
+					addChunk();
+				}
+				insertBatch();
+				runner.update(connection, INSERT_PROJECT_VERSION, project.getId(), version, updateTime, uploader, filetype, filename, md5, numChunks);
+				connection.commit();
+			}
+			catch (SQLException e) {
+				logger.error(e);
+				abort();
+				throw new ProjectManagerException("Error updating project version " + project.getName(), e);
+			}
+
+			logger.info("Uploaded " + filename + " to " + project.getName() + " version:" + version + " in " + numChunks + " chunks");
+			closed = true;
+			DbUtils.closeQuietly(connection);
+			return md5;
+		}
+
+		@Override
+		public void abort() {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			batch.clear();
+			buffer = null;
+			DbUtils.rollbackAndCloseQuietly(connection);
+		}
+
+		@Override
+		public void close() {
+			abort();
+		}
+
+		private void addChunk() throws SQLException {
+			byte[] chunk = buffer;
+			if (bufferSize < buffer.length) {
+				chunk = Arrays.copyOfRange(buffer, 0, bufferSize);
+			}
+			else {
+				// The full buffer is handed to the batch, so start a new one.
+				buffer = new byte[CHUCK_SIZE];
+			}
+
+			batch.add(new Object[] {project.getId(), version, numChunks, bufferSize, chunk});
+			++numChunks;
+			bufferSize = 0;
+			if (batch.size() >= uploadBatchChunks) {
+				insertBatch();
+			}
+		}
+
+		private void insertBatch() throws SQLException {
+			if (batch.isEmpty()) {
+				return;
+			}
+
+			logger.info("Inserting chunks " + (numChunks - batch.size()) + " to " + (numChunks - 1) + " of " + filename);
+			runner.batch(connection, INSERT_PROJECT_FILES, batch.toArray(new Object[batch.size()][]));
+			batch.clear();
+		}
+	}
+
 	@Override
 	public void changeProjectVersion(Project project, int version, String user) throws ProjectManagerException {
 		long timestamp = System.currentTimeMillis();
@@ -513,16 +725,15 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 		QueryRunner runner = new QueryRunner();
 		final String UPDATE_PROJECT_SETTINGS = "UPDATE projects SET enc_type=?, settings_blob=? WHERE id=?";
 		
-		String json = JSONUtils.toJSON(project.toObject());
 		byte[] data = null;
 		try {
-			byte[] stringData = json.getBytes("UTF-8");
-			data = stringData;
-	
 			if (encType == EncodingType.GZIP) {
-				data = GZIPUtils.gzipBytes(stringData);
+				data = JSONUtils.toGzippedJSONBytes(project.toObject());
+			}
+			else {
+				data = JSONUtils.toJSONBytes(project.toObject());
 			}
-			logger.debug("NumChars: " + json.length() + " UTF-8:" + stringData.length + " Gzip:"+ data.length);
+			logger.debug("Encoded " + encType + " settings size:" + data.length);
 		} catch(IOException e) {
 			throw new ProjectManagerException("Failed to encode. ", e);
 		}
@@ -622,6 +833,18 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 		return events;
 	}
 
+	@Override
+	public List<ProjectLogEvent> getProjectEventsBefore(Project project, long beforeTime, long beforeId, int num) throws ProjectManagerException {
+		QueryRunner runner = createQueryRunner();
+		
+		ProjectLogsResultHandler logHandler = new ProjectLogsResultHandler();
+		try {
+			return runner.query(ProjectLogsResultHandler.SELECT_PROJECT_EVENTS_BEFORE, logHandler, project.getId(), beforeTime, beforeTime, beforeId, num);
+		} catch (SQLException e) {
+			throw new ProjectManagerException("Error fetching events for project " + project.getName(), e);
+		}
+	}
+
 	@Override
 	public void updateDescription(Project project, String description, String user) throws ProjectManagerException {
 		QueryRunner runner = createQueryRunner();
@@ -703,14 +926,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 
 		try {
 			QueryRunner runner = new QueryRunner();
-			String json = JSONUtils.toJSON(flow.toObject());
-			byte[] stringData = json.getBytes("UTF-8");
-			byte[] data = stringData;
-
-			logger.info("UTF-8 size:" + data.length);
-			if (defaultEncodingType == EncodingType.GZIP) {
-				data = GZIPUtils.gzipBytes(stringData);
-			}
+			byte[] data = encodeFlow(flow, defaultEncodingType);
 
 			logger.info("Flow upload " + flow.getId() + " is byte size " + data.length);
 			final String UPDATE_FLOW = "UPDATE project_flows SET encoding_type=?,json=? WHERE project_id=? AND version=? AND flow_id=?";
@@ -739,17 +955,19 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 		this.defaultEncodingType = defaultEncodingType;
 	}
 
-	private void uploadFlow(Connection connection, Project project, int version, Flow flow, EncodingType encType) throws ProjectManagerException, IOException {
-		QueryRunner runner = new QueryRunner();
-		String json = JSONUtils.toJSON(flow.toObject());
-		byte[] stringData = json.getBytes("UTF-8");
-		byte[] data = stringData;
-
-		logger.info("UTF-8 size:" + data.length);
+	/**
+	 * Writes the flow's json straight into the blob bytes, gzipped if asked.
+	 */
+	private static byte[] encodeFlow(Flow flow, EncodingType encType) throws IOException {
 		if (encType == EncodingType.GZIP) {
-			data = GZIPUtils.gzipBytes(stringData);
+			return JSONUtils.toGzippedJSONBytes(flow.toObject());
 		}
-		
+		return JSONUtils.toJSONBytes(flow.toObject());
+	}
+
+	private void uploadFlow(Connection connection, Project project, int version, Flow flow, EncodingType encType) throws ProjectManagerException, IOException {
+		QueryRunner runner = new QueryRunner();
+		byte[] data = encodeFlow(flow, encType);
 		logger.info("Flow upload " + flow.getId() + " is byte size " + data.length);
 		final String INSERT_FLOW = "INSERT INTO project_flows (project_id, version, flow_id, modified_time, encoding_type, json) values (?,?,?,?,?,?)";
 		try {
@@ -1041,16 +1259,12 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 					EncodingType encType = EncodingType.fromInteger(encodingType);
 					Object blobObj;
 					try {
-						// Convoluted way to inflate strings. Should find common package or helper function.
 						if (encType == EncodingType.GZIP) {
-							// Decompress the sucker.
-							String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-							blobObj = JSONUtils.parseJSONFromString(jsonString);
+							blobObj = JSONUtils.parseJSONFromGzippedBytes(data);
 						}
 						else {
-							String jsonString = new String(data, "UTF-8");
-							blobObj = JSONUtils.parseJSONFromString(jsonString);
-						}	
+							blobObj = JSONUtils.parseJSONFromBytes(data);
+						}
 						project = Project.projectFromObject(blobObj);
 					} catch (IOException e) {
 						throw new SQLException("Failed to get project.", e);
@@ -1132,15 +1346,11 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 				
 				Object flowObj = null;
 				try {
-					// Convoluted way to inflate strings. Should find common package or helper function.
 					if (encType == EncodingType.GZIP) {
-						// Decompress the sucker.
-						String jsonString = GZIPUtils.unGzipString(dataBytes, "UTF-8");
-						flowObj = JSONUtils.parseJSONFromString(jsonString);
+						flowObj = JSONUtils.parseJSONFromGzippedBytes(dataBytes);
 					}
 					else {
-						String jsonString = new String(dataBytes, "UTF-8");
-						flowObj = JSONUtils.parseJSONFromString(jsonString);
+						flowObj = JSONUtils.parseJSONFromBytes(dataBytes);
 					}
 					
 					Flow flow = Flow.flowFromObject(flowObj);
@@ -1202,8 +1412,12 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 	}
 	
 	private static class ProjectLogsResultHandler implements ResultSetHandler<List<ProjectLogEvent>> {
+		// Events that share a time are ordered by id, so pages don't depend on
+		// the order the db happens to return them in.
 		private static String SELECT_PROJECT_EVENTS_ORDER =
-				"SELECT project_id, event_type, event_time, username, message FROM project_events WHERE project_id=? ORDER BY event_time DESC LIMIT ? OFFSET ?";
+				"SELECT project_id, event_type, event_time, username, message, id FROM project_events WHERE project_id=? ORDER BY event_time DESC, id DESC LIMIT ? OFFSET ?";
+		private static String SELECT_PROJECT_EVENTS_BEFORE =
+				"SELECT project_id, event_type, event_time, username, message, id FROM project_events WHERE project_id=? AND (event_time<? OR (event_time=? AND id<?)) ORDER BY event_time DESC, id DESC LIMIT ?";
 		
 		@Override
 		public List<ProjectLogEvent> handle(ResultSet rs) throws SQLException {
@@ -1218,8 +1432,9 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements ProjectLoad
 				long eventTime = rs.getLong(3);
 				String username = rs.getString(4);
 				String message = rs.getString(5);
+				long id = rs.getLong(6);
 				
-				ProjectLogEvent event = new ProjectLogEvent(projectId, EventType.fromInteger(eventType), eventTime, username, message);
+				ProjectLogEvent event = new ProjectLogEvent(projectId, id, EventType.fromInteger(eventType), eventTime, username, message);
 				events.add(event);
 			} while (rs.next());
 			
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import java.io.OutputStream;
+
+/**
+ * Stream that uploads a project file as it's written. Nothing is visible until
+ * commit is called. Closing the stream without committing drops whatever was
+ * written.
+ */
+public abstract class ProjectFileUploadStream extends OutputStream {
+	/**
+	 * Stores the rest of the file and records the version. Returns the md5
+	 * hash of everything that was written.
+	 */
+	public abstract byte[] commit() throws ProjectManagerException;
+
+	/**
+	 * Drops the upload.
+	 */
+	public abstract void abort();
+}
@@ -111,11 +111,29 @@ public interface ProjectLoader {
 	 */
 	public List<ProjectLogEvent> getProjectEvents(Project project, int num, int skip) throws ProjectManagerException;
 	
+	/**
+	 * Returns the events for a project that come after the given one, newest
+	 * first. Events are ordered by time, and events that share a time by id.
+	 * 
+	 * @param project
+	 * @param beforeTime the time of the last event on the previous page
+	 * @param beforeId the id of the last event on the previous page
+	 * @param num
+	 * @return
+	 */
+	public List<ProjectLogEvent> getProjectEventsBefore(Project project, long beforeTime, long beforeId, int num) throws ProjectManagerException;
+	
 	/**
 	 * Will upload the files and return the version number of the file uploaded.
 	 */
 	public void uploadProjectFile(Project project, int version, String filetype, String filename, File localFile, String user) throws ProjectManagerException;
-	
+
+	/**
+	 * Opens a stream that uploads the file as it's written. The md5 hash is
+	 * computed on the way, and the version is only recorded on commit.
+	 */
+	public ProjectFileUploadStream openProjectFileUpload(Project project, int version, String filetype, String filename, String user) throws ProjectManagerException;
+
 	/**
 	 * Get file that's uploaded.
 	 * 
@@ -130,6 +148,24 @@ public interface ProjectLoader {
 	 */
 	public ProjectFileHandler getUploadedFile(int projectId, int version) throws ProjectManagerException;
 	
+	/**
+	 * Get the details of an uploaded file, without fetching the file itself.
+	 * Returns null if there is no such version.
+	 * 
+	 * @return
+	 */
+	public ProjectFileHandler getUploadedFileInfo(int projectId, int version) throws ProjectManagerException;
+	
+	/**
+	 * Fetches the uploaded file into localFile, with up to numThreads chunks
+	 * being fetched at once. The md5 hash is checked as the file is written.
+	 * 
+	 * @param handler
+	 * @param localFile
+	 * @param numThreads
+	 */
+	public void fetchUploadedFile(ProjectFileHandler handler, File localFile, int numThreads) throws ProjectManagerException;
+	
 	/**
 	 * Changes and commits different project version.
 	 * 
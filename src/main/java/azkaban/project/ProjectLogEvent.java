@@ -73,13 +73,22 @@ public class ProjectLogEvent {
 	}
 	
 	private final int projectId;
+	private final long id;
 	private final String user;
 	private final long time;
 	private final EventType type;
 	private final String message;
 
 	public ProjectLogEvent(int projectId, EventType type, long time, String user, String message) {
+		this(projectId, -1, type, time, user, message);
+	}
+
+	/**
+	 * @param id the event's row id, which orders events that share a time
+	 */
+	public ProjectLogEvent(int projectId, long id, EventType type, long time, String user, String message) {
 		this.projectId = projectId;
+		this.id = id;
 		this.user = user;
 		this.time = time;
 		this.type = type;
@@ -90,6 +99,10 @@ public class ProjectLogEvent {
 		return projectId;
 	}
 
+	public long getId() {
+		return id;
+	}
+
 	public String getUser() {
 		return user;
 	}
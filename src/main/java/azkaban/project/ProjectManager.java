@@ -16,8 +16,11 @@
 
 package azkaban.project;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -25,9 +28,11 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.log4j.Logger;
 
 import azkaban.flow.Flow;
@@ -37,13 +42,13 @@ import azkaban.user.User;
 import azkaban.user.Permission.Type;
 import azkaban.utils.DirectoryFlowLoader;
 import azkaban.utils.Props;
-import azkaban.utils.Utils;
 
 public class ProjectManager {
 	private static final Logger logger = Logger.getLogger(ProjectManager.class);
 	
 	private ConcurrentHashMap<Integer, Project> projectsById = new ConcurrentHashMap<Integer, Project>();
 	private ConcurrentHashMap<String, Project> projectsByName = new ConcurrentHashMap<String, Project>();
+	private ConcurrentHashMap<Integer, Integer> reservedVersions = new ConcurrentHashMap<Integer, Integer>();
 	private final ProjectLoader projectLoader;
 	private final Props props;
 	private final File tempDir;
@@ -237,6 +242,10 @@ public class ProjectManager {
 		return projectLoader.getProjectEvents(project, results, skip);
 	}
 	
+	public List<ProjectLogEvent> getProjectEventLogsBefore(Project project, long beforeTime, long beforeId, int results) throws ProjectManagerException {
+		return projectLoader.getProjectEventsBefore(project, beforeTime, beforeId, results);
+	}
+	
 	public Props getProperties(Project project, String source) throws ProjectManagerException {
 		return projectLoader.fetchProjectProperty(project, source);
 	}
@@ -302,67 +311,78 @@ public class ProjectManager {
 	public void uploadProject(Project project, File archive, String fileType, User uploader) throws ProjectManagerException {
 		logger.info("Uploading files to " + project.getName());
 		
-		// Unzip.
-		File file = null;
+		if (fileType == null) {
+			throw new ProjectManagerException("Unknown file type for " + archive.getName());
+		}
+		else if (!"zip".equals(fileType)) {
+			throw new ProjectManagerException("Unsupported archive type for file " + archive.getName());
+		}
+		
+		// The archive is read once. The flows are loaded from the zip entries as
+		// the bytes go by, while the same bytes are hashed and stored.
+		int newVersion = reserveVersion(project);
+		logger.info("Validating Flow and uploading file to db " + archive.getName() + " as version " + newVersion);
+		DirectoryFlowLoader loader = new DirectoryFlowLoader(logger);
+		ProjectFileUploadStream upload = projectLoader.openProjectFileUpload(project, newVersion, fileType, archive.getName(), uploader.getUserId());
+		InputStream input = null;
+		boolean committed = false;
 		try {
-			if (fileType == null) {
-				throw new ProjectManagerException("Unknown file type for " + archive.getName());
-			}
-			else if ("zip".equals(fileType)) {
-				file = unzipFile(archive);
-			}
-			else {
-				throw new ProjectManagerException("Unsupported archive type for file " + archive.getName());
+			input = new TeeInputStream(new BufferedInputStream(new FileInputStream(archive)), upload);
+			loader.loadProjectFlow(new ZipInputStream(input));
+			if(!loader.getErrors().isEmpty()) {
+				logger.error("Error found in upload to " + project.getName() + ". Cleaning up.");
+				
+				StringBuffer errorMessage = new StringBuffer();
+				errorMessage.append("Error found in upload. Cannot upload.\n");
+				for (String error: loader.getErrors()) {
+					errorMessage.append(error);
+					errorMessage.append('\n');
+				}
+
+				throw new ProjectManagerException(errorMessage.toString());
 			}
+			
+			// Whatever follows the last entry still has to be stored.
+			IOUtils.copyLarge(input, NullOutputStream.NULL_OUTPUT_STREAM);
+			upload.commit();
+			committed = true;
 		} catch(IOException e) {
 			throw new ProjectManagerException("Error unzipping file.", e);
 		}
-
-		logger.info("Validating Flow for upload " + archive.getName());
-		DirectoryFlowLoader loader = new DirectoryFlowLoader(logger);
-		loader.loadProjectFlow(file);
-		if(!loader.getErrors().isEmpty()) {
-			logger.error("Error found in upload to " + project.getName() + ". Cleaning up.");
-			
-			try {
-				FileUtils.deleteDirectory(file);
-			} catch (IOException e) {
-				file.deleteOnExit();
-				e.printStackTrace();
+		finally {
+			IOUtils.closeQuietly(input);
+			if (!committed) {
+				upload.abort();
+				// Hand the version out again, unless another upload took the next one.
+				reservedVersions.remove(project.getId(), newVersion);
 			}
-			
-			StringBuffer errorMessage = new StringBuffer();
-			errorMessage.append("Error found in upload. Cannot upload.\n");
-			for (String error: loader.getErrors()) {
-				errorMessage.append(error);
-				errorMessage.append('\n');
-			}
-
-			throw new ProjectManagerException(errorMessage.toString());
 		}
 		
 		Map<String, Props> jobProps = loader.getJobProps();
 		List<Props> propProps = loader.getProps();
+		Map<String, Flow> flows = loader.getFlowMap();
+		for (Flow flow: flows.values()) {
+			flow.setProjectId(project.getId());
+			flow.setVersion(newVersion);
+		}
+		
+		logger.info("Uploading flow to db " + archive.getName());
+		projectLoader.uploadFlows(project, newVersion, flows.values());
 		
 		synchronized(project) {
-			int newVersion = projectLoader.getLatestProjectVersion(project) + 1;
-			Map<String, Flow> flows = loader.getFlowMap();
-			for (Flow flow: flows.values()) {
-				flow.setProjectId(project.getId());
-				flow.setVersion(newVersion);
+			if (newVersion < project.getVersion()) {
+				// A later upload finished first, so it stays the current version.
+				logger.warn("Project " + project.getName() + " is already at version " + project.getVersion() + ". Not switching to " + newVersion);
+			}
+			else {
+				logger.info("Changing project versions " + archive.getName());
+				projectLoader.changeProjectVersion(project, newVersion, uploader.getUserId());
+				project.setFlows(flows);
+				logger.info("Uploading Job properties");
+				projectLoader.uploadProjectProperties(project, new ArrayList<Props>(jobProps.values()));
+				logger.info("Uploading Props properties");
+				projectLoader.uploadProjectProperties(project, propProps);
 			}
-			
-			logger.info("Uploading file to db " + archive.getName());
-			projectLoader.uploadProjectFile(project, newVersion, fileType, archive.getName(), archive, uploader.getUserId());
-			logger.info("Uploading flow to db " + archive.getName());
-			projectLoader.uploadFlows(project, newVersion, flows.values());
-			logger.info("Changing project versions " + archive.getName());
-			projectLoader.changeProjectVersion(project, newVersion, uploader.getUserId());
-			project.setFlows(flows);
-			logger.info("Uploading Job properties");
-			projectLoader.uploadProjectProperties(project, new ArrayList<Props>(jobProps.values()));
-			logger.info("Uploading Props properties");
-			projectLoader.uploadProjectProperties(project, propProps);
 		}
 	
 		//TODO: find something else to load triggers
@@ -381,14 +401,8 @@ public class ProjectManager {
 //			}
 //		}
 		
-		logger.info("Uploaded project files. Cleaning up temp files.");
+		logger.info("Uploaded project files.");
 		projectLoader.postEvent(project, EventType.UPLOADED, uploader.getUserId(), "Uploaded project files zip " + archive.getName());
-		try {
-			FileUtils.deleteDirectory(file);
-		} catch (IOException e) {
-			file.deleteOnExit();
-			e.printStackTrace();
-		}
 
 		logger.info("Cleaning up old install files older than " + (project.getVersion() - projectVersionRetention));
 		projectLoader.cleanOlderProjectVersion(project.getId(), project.getVersion() - projectVersionRetention);
@@ -398,12 +412,20 @@ public class ProjectManager {
 		projectLoader.updateFlow(project, flow.getVersion(), flow);
 	}
 	
-	private File unzipFile(File archiveFile) throws IOException {
-		ZipFile zipfile = new ZipFile(archiveFile);
-		File unzipped = Utils.createTempDir(tempDir);
-		Utils.unzip(zipfile, unzipped);
-
-		return unzipped;
+	/**
+	 * Picks the version for a new upload. Uploads run outside the project lock,
+	 * so the versions handed out are remembered until they show up in the db.
+	 */
+	private int reserveVersion(Project project) throws ProjectManagerException {
+		synchronized(project) {
+			int newVersion = projectLoader.getLatestProjectVersion(project) + 1;
+			Integer reserved = reservedVersions.get(project.getId());
+			if (reserved != null && reserved >= newVersion) {
+				newVersion = reserved + 1;
+			}
+			reservedVersions.put(project.getId(), newVersion);
+			return newVersion;
+		}
 	}
 
 	public void postProjectEvent(Project project, EventType type, String user,String message) {
@@ -23,7 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
@@ -59,7 +59,7 @@ public class ScheduleStatisticManager {
 		Schedule schedule = scheduleManager.getSchedule(scheduleId);
 
 		try {
-			List<ExecutableFlow> executables = executorManager.getExecutableFlows(schedule.getProjectId(), schedule.getFlowName(), 0, STAT_NUMBERS, Status.SUCCEEDED);
+			List<ExecutableFlowSummary> executables = executorManager.getExecutableFlowSummaries(schedule.getProjectId(), schedule.getFlowName(), 0, STAT_NUMBERS, Status.SUCCEEDED);
 
 			long average = 0;
 			long min = Integer.MAX_VALUE;
@@ -70,7 +70,7 @@ public class ScheduleStatisticManager {
 				max = 0;
 			}
 			else {
-				for (ExecutableFlow flow : executables) {
+				for (ExecutableFlowSummary flow : executables) {
 					long time = flow.getEndTime() - flow.getStartTime();
 					average += time;
 					if (time < min) {
@@ -94,7 +94,7 @@ public class Condition {
 		}
 	}
 	
-	private void updateNextCheckTime() {
+	public void updateNextCheckTime() {
 		long time = Long.MAX_VALUE;
 		for(ConditionChecker checker : checkers.values()) {
 			time = Math.min(time, checker.getNextCheckTime());
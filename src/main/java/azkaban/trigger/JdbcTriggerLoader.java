@@ -31,7 +31,6 @@ import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
 import azkaban.database.AbstractJdbcLoader;
-import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Props;
 
@@ -198,16 +197,15 @@ public class JdbcTriggerLoader extends AbstractJdbcLoader implements TriggerLoad
 		
 	private void updateTrigger(Connection connection, Trigger t, EncodingType encType) throws TriggerLoaderException {
 
-		String json = JSONUtils.toJSON(t.toJson());
 		byte[] data = null;
 		try {
-			byte[] stringData = json.getBytes("UTF-8");
-			data = stringData;
-	
 			if (encType == EncodingType.GZIP) {
-				data = GZIPUtils.gzipBytes(stringData);
+				data = JSONUtils.toGzippedJSONBytes(t.toJson());
+			}
+			else {
+				data = JSONUtils.toJSONBytes(t.toJson());
 			}
-			logger.debug("NumChars: " + json.length() + " UTF-8:" + stringData.length + " Gzip:"+ data.length);
+			logger.debug("Encoded " + encType + " trigger size:" + data.length);
 		}
 		catch (IOException e) {
 			throw new TriggerLoaderException("Error encoding the trigger " + t.toString());
@@ -272,16 +270,12 @@ public class JdbcTriggerLoader extends AbstractJdbcLoader implements TriggerLoad
 					EncodingType encType = EncodingType.fromInteger(encodingType);
 
 					try {
-						// Convoluted way to inflate strings. Should find common package or helper function.
 						if (encType == EncodingType.GZIP) {
-							// Decompress the sucker.
-							String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-							jsonObj = JSONUtils.parseJSONFromString(jsonString);
+							jsonObj = JSONUtils.parseJSONFromGzippedBytes(data);
 						}
 						else {
-							String jsonString = new String(data, "UTF-8");
-							jsonObj = JSONUtils.parseJSONFromString(jsonString);
-						}	
+							jsonObj = JSONUtils.parseJSONFromBytes(data);
+						}
 					} catch (IOException e) {
 						throw new SQLException("Error reconstructing trigger data " );
 					}
@@ -58,6 +58,9 @@ public class Trigger {
 	}
 	
 	public void updateNextCheckTime() {
+		// Checkers like sla checkers only learn their check time when evaluated.
+		triggerCondition.updateNextCheckTime();
+		expireCondition.updateNextCheckTime();
 		this.nextCheckTime = Math.min(triggerCondition.getNextCheckTime(), expireCondition.getNextCheckTime());
 	}
 	
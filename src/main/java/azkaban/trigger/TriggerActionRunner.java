@@ -0,0 +1,275 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the actions of fired triggers on a pool of threads, so a slow action
+ * doesn't hold up the triggers fired after it.
+ *
+ * The actions of one trigger run one at a time, in order, and after the
+ * actions of its earlier firings. Actions of different triggers run at the
+ * same time. An action that runs longer than the timeout, counted from when it
+ * starts, is interrupted and the trigger's next action starts, even if the
+ * interrupt doesn't stop it.
+ *
+ * With no threads, the actions run on the calling thread and never time out.
+ */
+public class TriggerActionRunner {
+	private static Logger logger = Logger.getLogger(TriggerActionRunner.class);
+
+	private final long actionTimeoutMs;
+	// Null if actions run on the calling thread.
+	private ExecutorService actionPool = null;
+	private ScheduledExecutorService timeoutTimer = null;
+
+	// The firings of each trigger that haven't finished, the running one first.
+	private final HashMap<Integer, LinkedList<Firing>> firings = new HashMap<Integer, LinkedList<Firing>>();
+	private int numPendingFirings = 0;
+
+	private long numFirings = 0;
+	private long totalLatenessMs = 0;
+	private long maxLatenessMs = 0;
+	private long numFailedActions = 0;
+	private long numTimedOutActions = 0;
+
+	public TriggerActionRunner(int numThreads, long actionTimeoutMs) {
+		this.actionTimeoutMs = actionTimeoutMs;
+		if (numThreads > 0) {
+			actionPool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+				private final AtomicInteger threadCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					return new Thread(r, "TriggerManager-Action-" + threadCount.incrementAndGet());
+				}
+			});
+			if (actionTimeoutMs > 0) {
+				timeoutTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "TriggerManager-Action-Timeout-Thread");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Runs the actions of a trigger that was due at scheduledTime.
+	 */
+	public void fire(Trigger t, List<TriggerAction> actions, long scheduledTime) {
+		Firing firing = new Firing(t, actions, scheduledTime);
+		if (actionPool == null) {
+			firing.recordStart();
+			for (TriggerAction action : actions) {
+				firing.runAction(action);
+			}
+			return;
+		}
+
+		synchronized (this) {
+			numPendingFirings++;
+			LinkedList<Firing> triggerFirings = firings.get(t.getTriggerId());
+			if (triggerFirings != null) {
+				triggerFirings.add(firing);
+				return;
+			}
+			triggerFirings = new LinkedList<Firing>();
+			triggerFirings.add(firing);
+			firings.put(t.getTriggerId(), triggerFirings);
+		}
+		firing.runNextAction();
+	}
+
+	public void shutdown() {
+		if (actionPool != null) {
+			actionPool.shutdown();
+		}
+		if (timeoutTimer != null) {
+			timeoutTimer.shutdownNow();
+		}
+	}
+
+	private void finished(Firing firing) {
+		Firing next = null;
+		synchronized (this) {
+			numPendingFirings--;
+			LinkedList<Firing> triggerFirings = firings.get(firing.triggerId);
+			triggerFirings.removeFirst();
+			if (triggerFirings.isEmpty()) {
+				firings.remove(firing.triggerId);
+			}
+			else {
+				next = triggerFirings.getFirst();
+			}
+		}
+		if (next != null) {
+			next.runNextAction();
+		}
+	}
+
+	/**
+	 * Firings waiting for their trigger's earlier firings or running.
+	 */
+	public synchronized int getNumPendingFirings() {
+		return numPendingFirings;
+	}
+
+	public synchronized long getNumFirings() {
+		return numFirings;
+	}
+
+	/**
+	 * How long after their scheduled time the firings started their actions.
+	 */
+	public synchronized double getAverageLatenessMs() {
+		return numFirings == 0 ? 0 : (double)totalLatenessMs / numFirings;
+	}
+
+	public synchronized long getMaxLatenessMs() {
+		return maxLatenessMs;
+	}
+
+	public synchronized long getNumFailedActions() {
+		return numFailedActions;
+	}
+
+	public synchronized long getNumTimedOutActions() {
+		return numTimedOutActions;
+	}
+
+	private class Firing {
+		private final int triggerId;
+		private final List<TriggerAction> actions;
+		private final long scheduledTime;
+		private int nextAction = 0;
+
+		private Firing(Trigger t, List<TriggerAction> actions, long scheduledTime) {
+			this.triggerId = t.getTriggerId();
+			this.actions = actions;
+			this.scheduledTime = scheduledTime;
+		}
+
+		private void recordStart() {
+			long lateness = Math.max(0, System.currentTimeMillis() - scheduledTime);
+			synchronized (TriggerActionRunner.this) {
+				numFirings++;
+				totalLatenessMs += lateness;
+				maxLatenessMs = Math.max(maxLatenessMs, lateness);
+			}
+		}
+
+		private void runAction(TriggerAction action) {
+			try {
+				logger.info("Doing action " + action.getDescription() + " of trigger " + triggerId);
+				action.doAction();
+			} catch (Throwable th) {
+				synchronized (TriggerActionRunner.this) {
+					numFailedActions++;
+				}
+				logger.error("Failed to do action " + action.getDescription() + " of trigger " + triggerId, th);
+			}
+		}
+
+		/**
+		 * Starts the next action on the pool, or finishes the firing if there are
+		 * none left.
+		 */
+		private void runNextAction() {
+			if (nextAction == actions.size()) {
+				finished(this);
+				return;
+			}
+
+			final boolean first = nextAction == 0;
+			final TriggerAction action = actions.get(nextAction++);
+			final AtomicBoolean done = new AtomicBoolean(false);
+			final Future<?>[] runFuture = new Future<?>[1];
+			final ScheduledFuture<?>[] timeoutFuture = new ScheduledFuture<?>[1];
+			final Runnable timeout = new Runnable() {
+				@Override
+				public void run() {
+					if (done.compareAndSet(false, true)) {
+						synchronized (TriggerActionRunner.this) {
+							numTimedOutActions++;
+						}
+						logger.error("Action " + action.getDescription() + " of trigger " + triggerId + " timed out after " + actionTimeoutMs + " ms");
+						synchronized (runFuture) {
+							runFuture[0].cancel(true);
+						}
+						runNextAction();
+					}
+				}
+			};
+
+			synchronized (runFuture) {
+				try {
+					runFuture[0] = actionPool.submit(new Runnable() {
+						@Override
+						public void run() {
+							// The timeout starts when the action does, so time spent waiting
+							// for a thread doesn't count and a waiting action is never
+							// cancelled.
+							if (timeoutTimer != null) {
+								synchronized (runFuture) {
+									try {
+										timeoutFuture[0] = timeoutTimer.schedule(timeout, actionTimeoutMs, TimeUnit.MILLISECONDS);
+									} catch (RejectedExecutionException e) {
+										// Shutting down.
+									}
+								}
+							}
+
+							if (first) {
+								recordStart();
+							}
+							runAction(action);
+							if (done.compareAndSet(false, true)) {
+								synchronized (runFuture) {
+									if (timeoutFuture[0] != null) {
+										timeoutFuture[0].cancel(false);
+									}
+								}
+								runNextAction();
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					logger.error("Shut down before doing action " + action.getDescription() + " of trigger " + triggerId);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Triggers ordered by the time they are next due to be checked, so finding the
+ * due ones doesn't look at the others.
+ *
+ * A trigger stays in the queue after it is polled until it is removed, and
+ * scheduling it again replaces its due time. Replaced entries are left in the
+ * heap and dropped when they reach the top.
+ */
+public class TriggerCheckQueue {
+	private final PriorityQueue<Entry> heap = new PriorityQueue<Entry>();
+	// The current entry of every trigger, including the polled ones.
+	private final HashMap<Trigger, Entry> entries = new HashMap<Trigger, Entry>();
+	private long nextSequence = 0;
+
+	/**
+	 * Sets when the trigger is next due, adding it if it isn't in the queue.
+	 */
+	public synchronized void schedule(Trigger t, long dueTime) {
+		Entry entry = new Entry(t, dueTime, nextSequence++);
+		entries.put(t, entry);
+		heap.add(entry);
+	}
+
+	public synchronized void remove(Trigger t) {
+		entries.remove(t);
+	}
+
+	public synchronized boolean contains(Trigger t) {
+		return entries.containsKey(t);
+	}
+
+	/**
+	 * Takes the triggers due by the given time, earliest first. They stay in the
+	 * queue, but won't be returned again until they are scheduled again.
+	 */
+	public synchronized List<Trigger> pollDue(long now) {
+		List<Trigger> due = new ArrayList<Trigger>();
+		while (!heap.isEmpty()) {
+			Entry entry = heap.peek();
+			if (entries.get(entry.trigger) != entry) {
+				heap.poll();
+			}
+			else if (entry.dueTime <= now) {
+				heap.poll();
+				due.add(entry.trigger);
+			}
+			else {
+				break;
+			}
+		}
+		return due;
+	}
+
+	/**
+	 * @return Long.MAX_VALUE if no trigger is scheduled
+	 */
+	public synchronized long getNextDueTime() {
+		while (!heap.isEmpty()) {
+			Entry entry = heap.peek();
+			if (entries.get(entry.trigger) == entry) {
+				return entry.dueTime;
+			}
+			heap.poll();
+		}
+		return Long.MAX_VALUE;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private static class Entry implements Comparable<Entry> {
+		private final Trigger trigger;
+		private final long dueTime;
+		private final long sequence;
+
+		private Entry(Trigger trigger, long dueTime, long sequence) {
+			this.trigger = trigger;
+			this.dueTime = dueTime;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			if (dueTime != o.dueTime) {
+				return dueTime < o.dueTime ? -1 : 1;
+			}
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+}
@@ -17,15 +17,14 @@
 package azkaban.trigger;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.apache.log4j.Logger;
 
 import azkaban.execapp.event.Event;
@@ -34,11 +33,21 @@ import azkaban.execapp.event.EventListener;
 import azkaban.execapp.event.Event.Type;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutorManager;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.project.Project;
+import azkaban.project.ProjectManager;
+import azkaban.trigger.builtin.BasicTimeChecker;
+import azkaban.trigger.builtin.ExecuteFlowAction;
+import azkaban.utils.Pair;
 import azkaban.utils.Props;
 
 public class TriggerManager extends EventHandler implements TriggerManagerAdapter{
 	private static Logger logger = Logger.getLogger(TriggerManager.class);
 	public static final long DEFAULT_SCANNER_INTERVAL_MS = 60000;
+	public static final long DEFAULT_STAGE_LOOKAHEAD_MS = 60*60*1000;
+	public static final long DEFAULT_STAGE_INTERVAL_MS = 5*60*1000;
+	public static final int DEFAULT_ACTION_THREADS = 10;
+	public static final long DEFAULT_ACTION_TIMEOUT_MS = 5*60*1000;
 
 	private static Map<Integer, Trigger> triggerIdMap = new ConcurrentHashMap<Integer, Trigger>();
 	
@@ -47,6 +56,9 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 	private TriggerLoader triggerLoader;
 
 	private final TriggerScannerThread runnerThread;
+	private final TriggerActionRunner actionRunner;
+	// Null if executors aren't told about upcoming executions.
+	private ProjectStagingThread stagingThread = null;
 	private long lastRunnerThreadCheckTime = -1;
 	private long runnerThreadIdleTime = -1;
 	private LocalTriggerJMX jmxStats = new LocalTriggerJMX();
@@ -63,6 +75,9 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 		
 		long scannerInterval = props.getLong("trigger.scan.interval", DEFAULT_SCANNER_INTERVAL_MS);
 		runnerThread = new TriggerScannerThread(scannerInterval);
+		int actionThreads = props.getInt("trigger.action.threads", DEFAULT_ACTION_THREADS);
+		long actionTimeout = props.getLong("trigger.action.timeout.ms", DEFAULT_ACTION_TIMEOUT_MS);
+		actionRunner = new TriggerActionRunner(actionThreads, actionTimeout);
 
 		checkerTypeLoader = new CheckerTypeLoader();
 		actionTypeLoader = new ActionTypeLoader();
@@ -79,6 +94,12 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 		
 		executorManager.addListener(listener);
 		
+		long stageLookahead = props.getLong("trigger.project.stage.lookahead.ms", DEFAULT_STAGE_LOOKAHEAD_MS);
+		if (stageLookahead > 0) {
+			long stageInterval = props.getLong("trigger.project.stage.interval.ms", DEFAULT_STAGE_INTERVAL_MS);
+			stagingThread = new ProjectStagingThread(executorManager, stageLookahead, stageInterval);
+		}
+		
 		logger.info("TriggerManager loaded.");
 	}
 
@@ -98,6 +119,9 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 		}
 		
 		runnerThread.start();
+		if (stagingThread != null) {
+			stagingThread.start();
+		}
 	}
 	
 	protected CheckerTypeLoader getCheckerLoader() {
@@ -174,16 +198,31 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 		return checkerTypeLoader.getSupportedCheckers();
 	}
 	
+	/**
+	 * Checks each trigger when it's due instead of checking all of them every
+	 * scan. A trigger is due just after its next check time. Triggers whose next
+	 * check time has passed, like execution triggers, are checked every scan
+	 * interval. Triggers monitoring an execution, like sla triggers, are also
+	 * checked as soon as it updates or finishes.
+	 */
 	private class TriggerScannerThread extends Thread {
-		private BlockingQueue<Trigger> triggers;
-		private Map<Integer, ExecutableFlow> justFinishedFlows;
+		private final TriggerCheckQueue dueTriggers;
+		// Triggers by the execution they monitor.
+		private final Map<Integer, Set<Trigger>> monitoringTriggers;
+		// Executions that updated or finished since the last pass. Drained by the
+		// scanner, so executor updates don't wait on a scan.
+		private final Queue<Integer> updatedExecutions;
+		// Guards waking the scanner, separately from syncObj.
+		private final Object wakeLock = new Object();
+		private boolean wakeRequested = false;
 		private boolean shutdown = false;
 		//private AtomicBoolean stillAlive = new AtomicBoolean(true);
 		private final long scannerInterval;
 		
 		public TriggerScannerThread(long scannerInterval) {
-			triggers = new PriorityBlockingQueue<Trigger>(1, new TriggerComparator());
-			justFinishedFlows = new ConcurrentHashMap<Integer, ExecutableFlow>();
+			dueTriggers = new TriggerCheckQueue();
+			monitoringTriggers = new HashMap<Integer, Set<Trigger>>();
+			updatedExecutions = new ConcurrentLinkedQueue<Integer>();
 			this.setName("TriggerRunnerManager-Trigger-Scanner-Thread");
 			this.scannerInterval = scannerInterval;
 		}
@@ -195,110 +234,199 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 			this.interrupt();
 		}
 		
-		public void addJustFinishedFlow(ExecutableFlow flow) {
-			synchronized (syncObj) {
-				justFinishedFlows.put(flow.getExecutionId(), flow);		
+		/**
+		 * Checks the triggers monitoring the execution on the next pass. Doesn't
+		 * take syncObj, so it returns without waiting for a running scan.
+		 */
+		public void checkMonitoringTriggers(ExecutableFlow flow) {
+			updatedExecutions.add(flow.getExecutionId());
+			wake();
+		}
+		
+		private void scheduleMonitoringTriggers() {
+			long now = System.currentTimeMillis();
+			Integer execId;
+			while ((execId = updatedExecutions.poll()) != null) {
+				Set<Trigger> monitoring = monitoringTriggers.get(execId);
+				if (monitoring == null) {
+					continue;
+				}
+				
+				for (Trigger t : monitoring) {
+					logger.info("Monitored execution " + execId + " changed. Checking trigger earlier " + t.getTriggerId());
+					dueTriggers.schedule(t, now);
+				}
+			}
+		}
+		
+		private void wake() {
+			synchronized (wakeLock) {
+				wakeRequested = true;
+				wakeLock.notify();
 			}
 		}
 		
 		public void addTrigger(Trigger t) {
 			synchronized (syncObj) {
 				t.updateNextCheckTime();
-				triggers.add(t);	
+				long now = System.currentTimeMillis();
+				Integer execId = getMonitoredExecution(t);
+				// Triggers monitoring an execution may have missed its updates.
+				long dueTime = execId != null ? now : getDueTime(t, now, now);
+				if (dueTime < dueTriggers.getNextDueTime()) {
+					wake();
+				}
+				dueTriggers.schedule(t, dueTime);
+				
+				if (execId != null) {
+					Set<Trigger> monitoring = monitoringTriggers.get(execId);
+					if (monitoring == null) {
+						monitoring = new HashSet<Trigger>();
+						monitoringTriggers.put(execId, monitoring);
+					}
+					monitoring.add(t);
+				}
 			}
 		}
 		
 		public void deleteTrigger(Trigger t) {
-			triggers.remove(t);
+			synchronized (syncObj) {
+				if (t == null) {
+					return;
+				}
+				dueTriggers.remove(t);
+				
+				Integer execId = getMonitoredExecution(t);
+				Set<Trigger> monitoring = execId == null ? null : monitoringTriggers.get(execId);
+				if (monitoring != null) {
+					monitoring.remove(t);
+					if (monitoring.isEmpty()) {
+						monitoringTriggers.remove(execId);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Checks the trigger on the next pass, whatever its next check time.
+		 */
+		public void checkSoon(Trigger t) {
+			synchronized (syncObj) {
+				if (dueTriggers.contains(t)) {
+					dueTriggers.schedule(t, System.currentTimeMillis());
+					wake();
+				}
+			}
+		}
+		
+		/**
+		 * Time checkers are met just after their check time. A check time that
+		 * has passed means the trigger waits on something else, so it's due at
+		 * pastDueTime.
+		 */
+		private long getDueTime(Trigger t, long pastDueTime, long now) {
+			long nextCheckTime = t.getNextCheckTime();
+			if (nextCheckTime < now) {
+				return pastDueTime;
+			}
+			return nextCheckTime == Long.MAX_VALUE ? nextCheckTime : nextCheckTime + 1;
+		}
+		
+		private Integer getMonitoredExecution(Trigger t) {
+			if (t.getInfo() == null || !t.getInfo().containsKey("monitored.finished.execution")) {
+				return null;
+			}
+			return Integer.valueOf((String) t.getInfo().get("monitored.finished.execution"));
 		}
 
 		public void run() {
 			//while(stillAlive.get()) {
 			while(!shutdown) {
+				long idleTime;
 				synchronized (syncObj) {
+					lastRunnerThreadCheckTime = System.currentTimeMillis();
+					
+					scannerStage = "Ready to check due triggers at " + lastRunnerThreadCheckTime;
+					
 					try {
-						lastRunnerThreadCheckTime = System.currentTimeMillis();
-						
-						scannerStage = "Ready to start a new scan cycle at " + lastRunnerThreadCheckTime;
-						
-						try {
-							checkAllTriggers();
-							justFinishedFlows.clear();
-						} catch(Exception e) {
-							e.printStackTrace();
-							logger.error(e.getMessage());
-						} catch(Throwable t) {
-							t.printStackTrace();
-							logger.error(t.getMessage());
-						}
+						scheduleMonitoringTriggers();
+						checkDueTriggers();
+					} catch(Exception e) {
+						e.printStackTrace();
+						logger.error(e.getMessage());
+					} catch(Throwable t) {
+						t.printStackTrace();
+						logger.error(t.getMessage());
+					}
+				
+					scannerStage = "Done checking due triggers.";
 					
-						scannerStage = "Done flipping all triggers.";
-						
-						runnerThreadIdleTime = scannerInterval - (System.currentTimeMillis() - lastRunnerThreadCheckTime);
-	
-						if(runnerThreadIdleTime < 0) {
-							logger.error("Trigger manager thread " + this.getName() + " is too busy!");
-						} else {
-							syncObj.wait(runnerThreadIdleTime);
+					long now = System.currentTimeMillis();
+					if (now - lastRunnerThreadCheckTime > scannerInterval) {
+						logger.error("Trigger manager thread " + this.getName() + " is too busy!");
+					}
+					
+					// Wakes up at least every scan interval, so the last check time
+					// shows the thread is alive.
+					long wakeTime = Math.min(dueTriggers.getNextDueTime(), lastRunnerThreadCheckTime + scannerInterval);
+					runnerThreadIdleTime = wakeTime - now;
+					idleTime = runnerThreadIdleTime;
+				}
+				
+				// Waits outside syncObj, so triggers can be added and executions
+				// updated meanwhile. A wake during the pass skips the wait.
+				try {
+					synchronized (wakeLock) {
+						if (!wakeRequested && idleTime > 0) {
+							wakeLock.wait(idleTime);
 						}
-					} catch(InterruptedException e) {
-						logger.info("Interrupted. Probably to shut down.");
+						wakeRequested = false;
 					}
+				} catch(InterruptedException e) {
+					logger.info("Interrupted. Probably to shut down.");
 				}
 			}
 		}
 		
-		private void checkAllTriggers() throws TriggerManagerException {
-			long now = System.currentTimeMillis();
-			
-			// sweep through the rest of them
-			for(Trigger t : triggers) {
-				scannerStage = "Checking for trigger " + t.getTriggerId();
-				
-				boolean shouldSkip = true;
-				if(shouldSkip && t.getInfo() != null && t.getInfo().containsKey("monitored.finished.execution")) {
-					int execId = Integer.valueOf((String) t.getInfo().get("monitored.finished.execution"));
-					if(justFinishedFlows.containsKey(execId)) {
-						logger.info("Monitored execution has finished. Checking trigger earlier " + t.getTriggerId());
-						shouldSkip = false;
-					}
-				}
-				if(shouldSkip && t.getNextCheckTime() > now) {
-					shouldSkip = false;
-				}
-
-				if(shouldSkip) {
-					logger.info("Skipping trigger" + t.getTriggerId() + " until " + t.getNextCheckTime());
+		private void checkDueTriggers() {
+			for(Trigger t : dueTriggers.pollDue(System.currentTimeMillis())) {
+				// An earlier trigger's actions may have removed it.
+				if (!dueTriggers.contains(t)) {
+					continue;
 				}
 				
+				scannerStage = "Checking for trigger " + t.getTriggerId();
 				logger.info("Checking trigger " + t.getTriggerId());
-				if(t.getStatus().equals(TriggerStatus.READY)) {
-					if(t.triggerConditionMet()) {
-						onTriggerTrigger(t);
-					} else if (t.expireConditionMet()) {
-						onTriggerExpire(t);
+				// Triggers without a check time are late from when they're met.
+				long scheduledTime = t.getNextCheckTime() > 0 ? t.getNextCheckTime() : System.currentTimeMillis();
+				try {
+					if(t.getStatus().equals(TriggerStatus.READY)) {
+						if(t.triggerConditionMet()) {
+							onTriggerTrigger(t, scheduledTime);
+						} else if (t.expireConditionMet()) {
+							onTriggerExpire(t, scheduledTime);
+						}
+					}
+					if(t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
+						removeTrigger(t);
 					}
+				} catch (Throwable th) {
+					// Polled triggers are only checked again once scheduled, so a
+					// failing one must not stop the rest.
+					logger.error("Failed to check trigger " + t.getTriggerId(), th);
 				}
-				if(t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
-					removeTrigger(t);
-				} else {
+				
+				if (dueTriggers.contains(t)) {
 					t.updateNextCheckTime();
+					long now = System.currentTimeMillis();
+					dueTriggers.schedule(t, getDueTime(t, now + scannerInterval, now));
 				}
 			}
 		}
 		
-		private void onTriggerTrigger(Trigger t) throws TriggerManagerException {
-			List<TriggerAction> actions = t.getTriggerActions();
-			for(TriggerAction action : actions) {
-				try {
-					logger.info("Doing trigger actions");
-					action.doAction();
-				} catch (Exception e) {
-					logger.error("Failed to do action " + action.getDescription(), e);
-				} catch (Throwable th) {
-					logger.error("Failed to do action " + action.getDescription(), th);
-				}
-			}
+		private void onTriggerTrigger(Trigger t, long scheduledTime) throws TriggerManagerException {
+			logger.info("Doing trigger actions");
+			actionRunner.fire(t, t.getTriggerActions(), scheduledTime);
 			if(t.isResetOnTrigger()) {
 				t.resetTriggerConditions();
 				t.resetExpireCondition();
@@ -313,18 +441,9 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 			}
 		}
 		
-		private void onTriggerExpire(Trigger t) throws TriggerManagerException {
-			List<TriggerAction> expireActions = t.getExpireActions();
-			for(TriggerAction action : expireActions) {
-				try {
-					logger.info("Doing expire actions");
-					action.doAction();
-				} catch (Exception e) {
-					logger.error("Failed to do expire action " + action.getDescription(), e);
-				} catch (Throwable th) {
-					logger.error("Failed to do expire action " + action.getDescription(), th);
-				}
-			}
+		private void onTriggerExpire(Trigger t, long scheduledTime) throws TriggerManagerException {
+			logger.info("Doing expire actions");
+			actionRunner.fire(t, t.getExpireActions(), scheduledTime);
 			if(t.isResetOnExpire()) {
 				t.resetTriggerConditions();
 				t.resetExpireCondition();
@@ -338,21 +457,6 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 				throw new TriggerManagerException(e);
 			}
 		}
-		
-		private class TriggerComparator implements Comparator<Trigger> {
-			@Override
-			public int compare(Trigger arg0, Trigger arg1) {
-				long first = arg1.getNextCheckTime();
-				long second = arg0.getNextCheckTime();
-				
-				if(first == second) {
-					return 0;
-				} else if (first < second) {
-					return 1;
-				}
-				return -1;
-			}
-		}
 	}
 	
 	public Trigger getTrigger(int triggerId) {
@@ -364,6 +468,7 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 	public void expireTrigger(int triggerId) {
 		Trigger t = getTrigger(triggerId);
 		t.setStatus(TriggerStatus.EXPIRED);
+		runnerThread.checkSoon(t);
 //		updateAgent(t);
 	}
 
@@ -418,6 +523,109 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 	@Override
 	public void shutdown() {
 		runnerThread.shutdown();
+		actionRunner.shutdown();
+		if (stagingThread != null) {
+			stagingThread.shutdown();
+		}
+	}
+	
+	/**
+	 * Returns the project versions that time triggered flow executions will run
+	 * by the given time, as pairs of project id and version.
+	 */
+	public Set<Pair<Integer, Integer>> getUpcomingProjectVersions(long until) {
+		Set<Pair<Integer, Integer>> upcoming = new HashSet<Pair<Integer,Integer>>();
+		ProjectManager projectManager = ExecuteFlowAction.getProjectManager();
+		if (projectManager == null) {
+			return upcoming;
+		}
+		
+		for (Trigger t : triggerIdMap.values()) {
+			if (!t.getStatus().equals(TriggerStatus.READY)) {
+				continue;
+			}
+			
+			long nextTime = Long.MAX_VALUE;
+			for (ConditionChecker checker : t.getTriggerCondition().getCheckers().values()) {
+				if (checker instanceof BasicTimeChecker) {
+					nextTime = Math.min(nextTime, checker.getNextCheckTime());
+				}
+			}
+			if (nextTime > until) {
+				continue;
+			}
+			
+			for (TriggerAction action : t.getTriggerActions()) {
+				if (action instanceof ExecuteFlowAction) {
+					// The execution will run whatever version is current at the time.
+					Project project = projectManager.getProject(((ExecuteFlowAction) action).getProjectId());
+					if (project != null) {
+						upcoming.add(new Pair<Integer, Integer>(project.getId(), project.getVersion()));
+					}
+				}
+			}
+		}
+		
+		return upcoming;
+	}
+	
+	/**
+	 * Periodically tells the executor which project versions scheduled flows
+	 * are about to run, so it can set them up before the executions arrive.
+	 */
+	private class ProjectStagingThread extends Thread {
+		private final ExecutorManager executorManager;
+		private final long lookaheadMs;
+		private final long intervalMs;
+		private boolean shutdown = false;
+		
+		// Versions already sent, so they aren't sent again on every pass.
+		private Set<Pair<Integer, Integer>> sentVersions = new HashSet<Pair<Integer,Integer>>();
+		
+		public ProjectStagingThread(ExecutorManager executorManager, long lookaheadMs, long intervalMs) {
+			this.executorManager = executorManager;
+			this.lookaheadMs = lookaheadMs;
+			this.intervalMs = intervalMs;
+			this.setName("TriggerManager-Project-Staging-Thread");
+			this.setDaemon(true);
+		}
+		
+		public void shutdown() {
+			shutdown = true;
+			this.interrupt();
+		}
+		
+		public void run() {
+			while (!shutdown) {
+				try {
+					stageUpcomingProjects();
+				} catch (Exception e) {
+					logger.error("Error staging upcoming projects", e);
+				}
+				
+				synchronized (this) {
+					try {
+						wait(intervalMs);
+					} catch (InterruptedException e) {
+						logger.info("Interrupted. Probably to shut down.");
+					}
+				}
+			}
+		}
+		
+		private void stageUpcomingProjects() throws ExecutorManagerException {
+			Set<Pair<Integer, Integer>> upcoming = getUpcomingProjectVersions(System.currentTimeMillis() + lookaheadMs);
+			
+			Set<Pair<Integer, Integer>> toSend = new HashSet<Pair<Integer,Integer>>(upcoming);
+			toSend.removeAll(sentVersions);
+			if (!toSend.isEmpty()) {
+				List<String> staged = executorManager.stageProjects(toSend);
+				logger.info("Executor staging " + staged + " of upcoming project versions " + toSend);
+			}
+			
+			// Only remember what's still upcoming, so the set doesn't keep growing.
+			sentVersions = upcoming;
+		}
 	}
 
 	@Override
@@ -475,6 +683,31 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 		public String getScannerThreadStage() {
 			return scannerStage;
 		}
+
+		@Override
+		public int getNumPendingTriggerFirings() {
+			return actionRunner.getNumPendingFirings();
+		}
+
+		@Override
+		public double getAverageTriggerLatenessMs() {
+			return actionRunner.getAverageLatenessMs();
+		}
+
+		@Override
+		public long getMaxTriggerLatenessMs() {
+			return actionRunner.getMaxLatenessMs();
+		}
+
+		@Override
+		public long getNumFailedTriggerActions() {
+			return actionRunner.getNumFailedActions();
+		}
+
+		@Override
+		public long getNumTimedOutTriggerActions() {
+			return actionRunner.getNumTimedOutActions();
+		}
 		
 	}
 
@@ -494,13 +727,13 @@ public class TriggerManager extends EventHandler implements TriggerManagerAdapte
 		
 		@Override
 		public void handleEvent(Event event) {
-			// this needs to be fixed for perf
-			synchronized (syncObj) {
-				ExecutableFlow flow = (ExecutableFlow) event.getRunner();
-				if (event.getType() == Type.FLOW_FINISHED) {
-					logger.info("Flow finish event received. " + flow.getExecutionId() );
-					runnerThread.addJustFinishedFlow(flow);
-				}
+			ExecutableFlow flow = (ExecutableFlow) event.getRunner();
+			if (event.getType() == Type.FLOW_FINISHED) {
+				logger.info("Flow finish event received. " + flow.getExecutionId() );
+				runnerThread.checkMonitoringTriggers(flow);
+			}
+			else if (event.getType() == Type.EXTERNAL_FLOW_UPDATED) {
+				runnerThread.checkMonitoringTriggers(flow);
 			}
 		}
 	}
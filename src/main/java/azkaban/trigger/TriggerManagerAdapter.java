@@ -53,6 +53,11 @@ public interface TriggerManagerAdapter {
 		public long getScannerIdleTime();
 		public Map<String, Object> getAllJMXMbeans();
 		public String getScannerThreadStage();
+		public int getNumPendingTriggerFirings();
+		public double getAverageTriggerLatenessMs();
+		public long getMaxTriggerLatenessMs();
+		public long getNumFailedTriggerActions();
+		public long getNumTimedOutTriggerActions();
 	}
 	
 }
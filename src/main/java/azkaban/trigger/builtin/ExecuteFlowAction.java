@@ -232,7 +232,9 @@ public class ExecuteFlowAction implements TriggerAction {
 		exflow.setExecutionOptions(executionOptions);
 		
 		try{
-			executorManager.submitExecutableFlow(exflow, submitUser);
+			// Flows with an sla get to an executor ahead of the others.
+			int priority = slaOptions != null && !slaOptions.isEmpty() ? ExecutorManagerAdapter.SUBMIT_PRIORITY_SLA : ExecutorManagerAdapter.SUBMIT_PRIORITY_NORMAL;
+			executorManager.submitExecutableFlow(exflow, submitUser, priority);
 //			Map<String, Object> outputProps = new HashMap<String, Object>();
 //			outputProps.put(EXEC_ID, exflow.getExecutionId());
 //			context.put(actionId, outputProps);
@@ -36,6 +36,7 @@ public class SlaChecker implements ConditionChecker{
 
 	private static final Logger logger = Logger.getLogger(SlaChecker.class);
 	public static final String type = "SlaChecker";
+	public static final long DEFAULT_RECHECK_INTERVAL_MS = 10*60*1000;
 	
 	private String id;
 	private SlaOption slaOption;
@@ -43,6 +44,7 @@ public class SlaChecker implements ConditionChecker{
 	private long checkTime = -1;
 	
 	private static ExecutorManagerAdapter executorManager;
+	private static long recheckIntervalMs = DEFAULT_RECHECK_INTERVAL_MS;
 	
 	public SlaChecker(String id, SlaOption slaOption, int execId) {
 		this.id = id;
@@ -54,6 +56,10 @@ public class SlaChecker implements ConditionChecker{
 		executorManager = em;
 	}
 	
+	public static void setRecheckInterval(long intervalMs) {
+		recheckIntervalMs = intervalMs;
+	}
+	
 	private Boolean isSlaMissed(ExecutableFlow flow) {
 		String type = slaOption.getType();
 		logger.info("flow is " + flow.getStatus());
@@ -284,8 +290,16 @@ public class SlaChecker implements ConditionChecker{
 	public void setContext(Map<String, Object> context) {
 	}
 
+	/**
+	 * The sla deadline, once the flow or job has started. Until then the trigger
+	 * manager checks the sla when the execution updates or finishes, and every
+	 * recheck interval in case it missed the update.
+	 */
 	@Override
 	public long getNextCheckTime() {
+		if (checkTime < 0) {
+			return System.currentTimeMillis() + recheckIntervalMs;
+		}
 		return checkTime;
 	}
 	
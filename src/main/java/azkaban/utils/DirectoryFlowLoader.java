@@ -16,6 +16,7 @@
 
 package azkaban.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
@@ -24,10 +25,15 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import azkaban.flow.CommonJobProperties;
@@ -78,6 +84,64 @@ public class DirectoryFlowLoader {
 	}
 	
 	public void loadProjectFlow(File baseDirectory) {
+		init();
+		
+		// Load all the props files and create the Node objects
+		loadProjectFromDir(baseDirectory.getPath(), baseDirectory, null);
+		
+		resolveFlows();
+	}
+	
+	/**
+	 * Loads the flows from a zipped project while it's being read, without
+	 * extracting it. Only the job and properties files are kept in memory, and
+	 * the rest of the stream is left unread after the last entry.
+	 */
+	public void loadProjectFlow(ZipInputStream zip) throws IOException {
+		init();
+		
+		ArchiveDir root = new ArchiveDir();
+		ZipEntry entry = null;
+		while ((entry = zip.getNextEntry()) != null) {
+			if (entry.isDirectory()) {
+				continue;
+			}
+			
+			String path = entry.getName();
+			while (path.startsWith("/")) {
+				path = path.substring(1);
+			}
+			int index = path.lastIndexOf('/');
+			String name = path.substring(index + 1);
+			if (name.startsWith(".")) {
+				continue;
+			}
+			
+			boolean isProperties = hasSuffix(name, PROPERTY_SUFFIX);
+			if (isProperties || hasSuffix(name, JOB_SUFFIX)) {
+				ArchiveDir dir = root;
+				if (index > 0) {
+					for (String dirName: path.substring(0, index).split("/")) {
+						dir = dir.getSubDir(dirName);
+					}
+				}
+				
+				byte[] data = IOUtils.toByteArray(zip);
+				if (isProperties) {
+					dir.propertyFiles.put(path, data);
+				}
+				else {
+					dir.jobFiles.put(path, data);
+				}
+			}
+		}
+		
+		loadProjectFromArchive(root, null);
+		
+		resolveFlows();
+	}
+	
+	private void init() {
 		propsList = new ArrayList<Props>();
 		flowPropsList = new ArrayList<FlowProps>();
 		jobPropsMap = new HashMap<String, Props>();
@@ -88,10 +152,9 @@ public class DirectoryFlowLoader {
 		nodeDependencies = new HashMap<String, Map<String, Edge>>();
 		rootNodes = new HashSet<String>();
 		flowDependencies = new HashMap<String, Set<String>>();
-		
-		// Load all the props files and create the Node objects
-		loadProjectFromDir(baseDirectory.getPath(), baseDirectory, null);
-		
+	}
+	
+	private void resolveFlows() {
 		// Create edges and find missing dependencies
 		resolveDependencies();
 		
@@ -125,41 +188,11 @@ public class DirectoryFlowLoader {
 		// Load all Job files. If there's a duplicate name, then we don't load
 		File[] jobFiles = dir.listFiles(new SuffixFilter(JOB_SUFFIX));
 		for (File file: jobFiles) {
-			String jobName = getNameWithoutExtension(file);
+			String jobName = getNameWithoutExtension(file.getName());
 			try {
-				if (!duplicateJobs.contains(jobName)) {
-					if (jobPropsMap.containsKey(jobName)) {
-						errors.add("Duplicate job names found '" + jobName + "'.");
-						duplicateJobs.add(jobName);
-						jobPropsMap.remove(jobName);
-						nodeMap.remove(jobName);
-					}
-					else {
-						Props prop = new Props(parent, file);
-						String relative = getRelativeFilePath(base, file.getPath());
-						prop.setSource(relative);
-						
-						Node node = new Node(jobName);
-						String type = prop.getString("type", null);
-						if(type == null) {
-							errors.add("Job doesn't have type set '" + jobName + "'.");
-						}
-
-						node.setType(type);
-
-						node.setJobSource(relative);
-						if (parent != null) {
-							node.setPropsSource(parent.getSource());
-						}
-
-						// Force root node
-						if(prop.getBoolean(CommonJobProperties.ROOT_NODE, false)) {
-							rootNodes.add(jobName);
-						}
-						
-						jobPropsMap.put(jobName, prop);
-						nodeMap.put(jobName, node);
-					}
+				if (!isDuplicateJob(jobName)) {
+					Props prop = new Props(parent, file);
+					addJob(jobName, getRelativeFilePath(base, file.getPath()), prop, parent);
 				}
 			} catch (IOException e) {
 				errors.add("Error loading job file " + file.getName() + ":" + e.getMessage());
@@ -172,6 +205,73 @@ public class DirectoryFlowLoader {
 		}
 	}
 	
+	private void loadProjectFromArchive(ArchiveDir dir, Props parent) throws IOException {
+		for (Map.Entry<String, byte[]> file: dir.propertyFiles.entrySet()) {
+			String relative = file.getKey();
+			parent = new Props(parent, new ByteArrayInputStream(file.getValue()));
+			parent.setSource(relative);
+			flowPropsList.add(new FlowProps(parent));
+			
+			logger.info("Adding " + relative);
+			propsList.add(parent);
+		}
+		
+		for (Map.Entry<String, byte[]> file: dir.jobFiles.entrySet()) {
+			String relative = file.getKey();
+			String jobName = getNameWithoutExtension(relative.substring(relative.lastIndexOf('/') + 1));
+			if (!isDuplicateJob(jobName)) {
+				Props prop = new Props(parent, new ByteArrayInputStream(file.getValue()));
+				addJob(jobName, relative, prop, parent);
+			}
+		}
+		
+		for (ArchiveDir subDir: dir.subDirs.values()) {
+			loadProjectFromArchive(subDir, parent);
+		}
+	}
+	
+	/**
+	 * Jobs that share a name are all dropped, with an error.
+	 */
+	private boolean isDuplicateJob(String jobName) {
+		if (duplicateJobs.contains(jobName)) {
+			return true;
+		}
+		else if (jobPropsMap.containsKey(jobName)) {
+			errors.add("Duplicate job names found '" + jobName + "'.");
+			duplicateJobs.add(jobName);
+			jobPropsMap.remove(jobName);
+			nodeMap.remove(jobName);
+			return true;
+		}
+		return false;
+	}
+	
+	private void addJob(String jobName, String relative, Props prop, Props parent) {
+		prop.setSource(relative);
+		
+		Node node = new Node(jobName);
+		String type = prop.getString("type", null);
+		if(type == null) {
+			errors.add("Job doesn't have type set '" + jobName + "'.");
+		}
+
+		node.setType(type);
+
+		node.setJobSource(relative);
+		if (parent != null) {
+			node.setPropsSource(parent.getSource());
+		}
+
+		// Force root node
+		if(prop.getBoolean(CommonJobProperties.ROOT_NODE, false)) {
+			rootNodes.add(jobName);
+		}
+		
+		jobPropsMap.put(jobName, prop);
+		nodeMap.put(jobName, node);
+	}
+	
 	private void resolveEmbeddedFlows() {
 		for (String flowId: flowDependencies.keySet()) {
 			HashSet<String> visited = new HashSet<String>();
@@ -354,8 +454,7 @@ public class DirectoryFlowLoader {
 		visited.remove(node.getId());
 	}
 	
-	private String getNameWithoutExtension(File file) {
-		String filename = file.getName();
+	private String getNameWithoutExtension(String filename) {
 		int index = filename.lastIndexOf('.');
 		
 		return index < 0 ? filename : filename.substring(0, index);
@@ -383,7 +482,30 @@ public class DirectoryFlowLoader {
 		public boolean accept(File pathname) {
 			String name = pathname.getName();
 			
-			return pathname.isFile() && !pathname.isHidden() && name.length() > suffix.length() && name.endsWith(suffix);
+			return pathname.isFile() && !pathname.isHidden() && hasSuffix(name, suffix);
+		}
+	}
+
+	private static boolean hasSuffix(String name, String suffix) {
+		return name.length() > suffix.length() && name.endsWith(suffix);
+	}
+
+	/**
+	 * Directory of a zipped project. Files are loaded in the same order as
+	 * from disk: properties sorted by name, then jobs, then sub directories.
+	 */
+	private static class ArchiveDir {
+		private final TreeMap<String, byte[]> propertyFiles = new TreeMap<String, byte[]>();
+		private final LinkedHashMap<String, byte[]> jobFiles = new LinkedHashMap<String, byte[]>();
+		private final TreeMap<String, ArchiveDir> subDirs = new TreeMap<String, ArchiveDir>();
+
+		private ArchiveDir getSubDir(String name) {
+			ArchiveDir dir = subDirs.get(name);
+			if (dir == null) {
+				dir = new ArchiveDir();
+				subDirs.put(name, dir);
+			}
+			return dir;
 		}
 	}
 }
@@ -17,18 +17,13 @@
 package azkaban.utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.commons.io.IOUtils;
@@ -37,6 +32,7 @@ import org.apache.commons.io.IOUtils;
  * Runs a few unix commands. Created this so that I can move to JNI in the future.
  */
 public class FileIOUtils {
+	private static WorkspaceBuilder symlinkBuilder = null;
 	
 	public static class PrefixSuffixFileFilter implements FileFilter {
 		private String prefix;
@@ -81,116 +77,17 @@ public class FileIOUtils {
 	}
 	
 	/**
-	 * Run a unix command that will symlink files, and recurse into directories.
+	 * Symlinks files, and recurses into directories.
 	 */
 	public static void createDeepSymlink(File sourceDir, File destDir) throws IOException {
-		if (!sourceDir.exists()) {
-			throw new IOException("Source directory " + sourceDir.getPath() + " doesn't exist");
-		}
-		else if (!destDir.exists()) {
-			throw new IOException("Destination directory " + destDir.getPath() + " doesn't exist");
-		}
-		else if (sourceDir.isFile() && destDir.isFile()) {
-			throw new IOException("Source or Destination is not a directory.");
-		}
-		
-		Set<String> paths = new HashSet<String>();
-		createDirsFindFiles(sourceDir, sourceDir, destDir, paths);
-		
-		StringBuffer buffer = new StringBuffer();
-		//buffer.append("sh '");
-		for (String path: paths) {
-			File sourceLink = new File(sourceDir, path);
-			path = "." + path;
-			
-			buffer.append("ln -s ").append(sourceLink.getAbsolutePath()).append("/*").append(" ").append(path).append(";");
-		}
-		
-		//buffer.append("'");
-		String command = buffer.toString();
-		//System.out.println(command);
-		ProcessBuilder builder = new ProcessBuilder().command("sh", "-c", command);
-		builder.directory(destDir);
-
-		// XXX what about stopping threads ??
-		Process process = builder.start();
-		try {
-			NullLogger errorLogger = new NullLogger(process.getErrorStream());
-			NullLogger inputLogger = new NullLogger(process.getInputStream());
-			errorLogger.start();
-			inputLogger.start();
-			
-			try {
-				if (process.waitFor() < 0) {
-					// Assume that the error will be in standard out. Otherwise it'll be in standard in.
-					String errorMessage = errorLogger.getLastMessages();
-					if (errorMessage.isEmpty()) {
-						errorMessage = inputLogger.getLastMessages();
-					}
-					
-					throw new IOException(errorMessage);
-				}
-				
-			//	System.out.println(errorLogger.getLastMessages());
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		} finally {
-			IOUtils.closeQuietly(process.getInputStream());
-			IOUtils.closeQuietly(process.getOutputStream());
-			IOUtils.closeQuietly(process.getErrorStream());
-		}
-	}
-	
-	private static void createDirsFindFiles(File baseDir, File sourceDir, File destDir, Set<String> paths) {
-		File[] srcList = sourceDir.listFiles();
-		String path = getRelativePath(baseDir, sourceDir);
-		paths.add(path);
-		
-		for (File file: srcList) {
-			if (file.isDirectory()) {
-				File newDestDir = new File(destDir, file.getName());
-				newDestDir.mkdirs();
-				createDirsFindFiles(baseDir, file, newDestDir, paths);
-			}
-		}
+		getSymlinkBuilder().build(sourceDir, destDir);
 	}
 	
-	private static String getRelativePath(File basePath, File sourceDir) {
-		return sourceDir.getPath().substring(basePath.getPath().length());
-	}
-	
-	private static class NullLogger extends Thread {
-		private final BufferedReader inputReader;
-		private CircularBuffer<String> buffer = new CircularBuffer<String>(5);
-		
-		public NullLogger(InputStream stream) {
-			inputReader = new BufferedReader(new InputStreamReader(stream));
-		}
-		
-		public void run() {
-			try {
-				while (!Thread.currentThread().isInterrupted()) {
-					String line = inputReader.readLine();
-					if (line == null) {
-						return;
-					}
-					buffer.append(line);
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-		
-		public String getLastMessages() {
-			StringBuffer messageBuffer = new StringBuffer();
-			for (String message: buffer)  {
-				messageBuffer.append(message);
-				messageBuffer.append("\n");
-			}
-			
-			return messageBuffer.toString();
+	private static synchronized WorkspaceBuilder getSymlinkBuilder() {
+		if (symlinkBuilder == null) {
+			symlinkBuilder = new WorkspaceBuilder(WorkspaceBuilder.LinkMode.SYMLINK, Runtime.getRuntime().availableProcessors());
 		}
+		return symlinkBuilder;
 	}
 	
 	public static Pair<Integer, Integer> readUtf8File(File file, int offset, int length, OutputStream stream) throws IOException {
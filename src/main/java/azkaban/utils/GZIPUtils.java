@@ -19,8 +19,13 @@ package azkaban.utils;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.io.IOUtils;
 
@@ -61,4 +66,37 @@ public class GZIPUtils {
 		byte[] response = unGzipBytes(bytes);
 		return new String(response, encType);
 	}
+	
+	/**
+	 * Raw deflate without the gzip header and crc. Lower levels are faster.
+	 */
+	public static byte[] deflateBytes(byte[] bytes, int offset, int length, int level) throws IOException {
+		ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream(Math.max(64, length / 4));
+		Deflater deflater = new Deflater(level, true);
+		DeflaterOutputStream deflateStream = new DeflaterOutputStream(byteOutputStream, deflater, 8192);
+		try {
+			deflateStream.write(bytes, offset, length);
+			deflateStream.close();
+		}
+		finally {
+			deflater.end();
+		}
+		return byteOutputStream.toByteArray();
+	}
+	
+	public static byte[] inflateBytes(byte[] bytes) throws IOException {
+		Inflater inflater = new Inflater(true);
+		// The raw inflater needs an extra byte of input to detect the end.
+		InflaterInputStream inflateStream = new InflaterInputStream(
+				new SequenceInputStream(new ByteArrayInputStream(bytes), new ByteArrayInputStream(new byte[1])), 
+				inflater);
+		try {
+			ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream(bytes.length * 4);
+			IOUtils.copy(inflateStream, byteOutputStream);
+			return byteOutputStream.toByteArray();
+		}
+		finally {
+			inflater.end();
+		}
+	}
 }
@@ -17,24 +17,33 @@
 package azkaban.utils;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.codehaus.jackson.JsonFactory;
-import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.ObjectWriter;
 
 public class JSONUtils {
+	// Both are thread safe once configured, and hold the serializer caches, so
+	// they're shared rather than built for every call.
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private static final ObjectWriter prettyWriter = mapper.writerWithDefaultPrettyPrinter();
+	private static final JsonFactory factory = mapper.getJsonFactory();
 
 	/**
 	 * The constructor. Cannot construct this class.
@@ -47,12 +56,9 @@ public class JSONUtils {
 	}
 
 	public static String toJSON(Object obj, boolean prettyPrint) {
-		ObjectMapper mapper = new ObjectMapper();
-
 		try {
 			if (prettyPrint) {
-				ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
-				return writer.writeValueAsString(obj);
+				return prettyWriter.writeValueAsString(obj);
 			}
 			return mapper.writeValueAsString(obj);
 		} catch (Exception e) {
@@ -60,16 +66,18 @@ public class JSONUtils {
 		}
 	}
 
+	/**
+	 * Writes the json straight to the stream, without building a String, and
+	 * closes it. Closing finishes a GZIPOutputStream.
+	 */
 	public static void toJSON(Object obj, OutputStream stream) {
 		toJSON(obj, stream, false);
 	}
 	
 	public static void toJSON(Object obj, OutputStream stream, boolean prettyPrint) {
-		ObjectMapper mapper = new ObjectMapper();
 		try {
 			if (prettyPrint) {
-				ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
-				writer.writeValue(stream, obj);
+				prettyWriter.writeValue(stream, obj);
 				return;
 			}
 			mapper.writeValue(stream, obj);
@@ -90,6 +98,25 @@ public class JSONUtils {
 			stream.close();
 		}
 	}
+
+	/**
+	 * UTF-8 json bytes, as stored in the db blobs.
+	 */
+	public static byte[] toJSONBytes(Object obj) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		toJSON(obj, bytes);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * The same as GZIPUtils.gzipString(toJSON(obj), "UTF-8"), but the json is
+	 * written straight into the gzip stream.
+	 */
+	public static byte[] toGzippedJSONBytes(Object obj) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		toJSON(obj, new GZIPOutputStream(bytes));
+		return bytes.toByteArray();
+	}
 	
 	public static Object parseJSONFromStringQuiet(String json) {
 		try {
@@ -101,70 +128,84 @@ public class JSONUtils {
 	}
 	
 	public static Object parseJSONFromString(String json) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		JsonFactory factory = new JsonFactory();
-		JsonParser parser = factory.createJsonParser(json);
-		JsonNode node = mapper.readTree(parser);
-
-		return toObjectFromJSONNode(node);
+		return parse(factory.createJsonParser(json));
 	}
 
 	public static Object parseJSONFromFile(File file) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		JsonFactory factory = new JsonFactory();
-		JsonParser parser = factory.createJsonParser(file);
-		JsonNode node = mapper.readTree(parser);
-
-		return toObjectFromJSONNode(node);
+		return parse(factory.createJsonParser(file));
 	}
 	
 	public static Object parseJSONFromReader(Reader reader) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		JsonFactory factory = new JsonFactory();
-		JsonParser parser = factory.createJsonParser(reader);
-		JsonNode node = mapper.readTree(parser);
+		return parse(factory.createJsonParser(reader));
+	}
+
+	/**
+	 * Parses json as it's read from the stream, and closes it.
+	 */
+	public static Object parseJSONFromStream(InputStream stream) throws IOException {
+		return parse(factory.createJsonParser(stream));
+	}
 
-		return toObjectFromJSONNode(node);
+	public static Object parseJSONFromBytes(byte[] data) throws IOException {
+		return parse(factory.createJsonParser(data));
 	}
 
-	private static Object toObjectFromJSONNode(JsonNode node) {
-		if (node.isObject()) {
-			HashMap<String, Object> obj = new HashMap<String, Object>();
-			Iterator<String> iter = node.getFieldNames();
-			while (iter.hasNext()) {
-				String fieldName = iter.next();
-				JsonNode subNode = node.get(fieldName);
-				Object subObj = toObjectFromJSONNode(subNode);
-				obj.put(fieldName, subObj);
+	public static Object parseJSONFromGzippedBytes(byte[] data) throws IOException {
+		return parseJSONFromStream(new GZIPInputStream(new ByteArrayInputStream(data)));
+	}
+
+	private static Object parse(JsonParser parser) throws IOException {
+		try {
+			if (parser.nextToken() == null) {
+				return null;
 			}
+			return toObjectFromParser(parser);
+		} finally {
+			parser.close();
+		}
+	}
 
+	/**
+	 * Reads the value at the parser's current token into the same maps, lists
+	 * and boxed values a JsonNode tree would have been converted to, without
+	 * building the tree first. Leaves the parser on the value's last token.
+	 */
+	private static Object toObjectFromParser(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case START_OBJECT:
+			HashMap<String, Object> obj = new HashMap<String, Object>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				obj.put(fieldName, toObjectFromParser(parser));
+			}
 			return obj;
-		} else if (node.isArray()) {
+		case START_ARRAY:
 			ArrayList<Object> array = new ArrayList<Object>();
-			Iterator<JsonNode> iter = node.getElements();
-			while (iter.hasNext()) {
-				JsonNode element = iter.next();
-				Object subObject = toObjectFromJSONNode(element);
-				array.add(subObject);
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				array.add(toObjectFromParser(parser));
 			}
 			return array;
-		} else if (node.isTextual()) {
-			return node.asText();
-		} else if (node.isNumber()) {
-			if (node.isInt()) {
-				return node.asInt();
-			} else if (node.isLong()) {
-				return node.asLong();
-			} else if (node.isDouble()) {
-				return node.asDouble();
-			} else {
+		case VALUE_STRING:
+			return parser.getText();
+		case VALUE_NUMBER_INT:
+			switch (parser.getNumberType()) {
+			case INT:
+				return parser.getIntValue();
+			case LONG:
+				return parser.getLongValue();
+			default:
 				System.err.println("ERROR What is this!? "
-						+ node.getNumberType());
+						+ parser.getNumberType());
 				return null;
 			}
-		} else if (node.isBoolean()) {
-			return node.asBoolean();
-		} else {
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDoubleValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		default:
 			return null;
 		}
 	}
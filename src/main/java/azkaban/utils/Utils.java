@@ -17,7 +17,6 @@
 package azkaban.utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -28,7 +27,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.Enumeration;
 import java.util.Random;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -50,6 +48,7 @@ import org.joda.time.Years;
  */
 public class Utils {
 	public static final Random RANDOM = new Random();
+	private static ZipExtractor zipExtractor;
 
 	/**
 	 * Private constructor.
@@ -180,28 +179,14 @@ public class Utils {
 	}
 
 	public static void unzip(ZipFile source, File dest) throws IOException {
-		Enumeration<?> entries = source.entries();
-		while (entries.hasMoreElements()) {
-			ZipEntry entry = (ZipEntry) entries.nextElement();
-			File newFile = new File(dest, entry.getName());
-			if (entry.isDirectory()) {
-				newFile.mkdirs();
-			} else {
-				newFile.getParentFile().mkdirs();
-				InputStream src = source.getInputStream(entry);
-				try {
-					OutputStream output = new BufferedOutputStream(
-							new FileOutputStream(newFile));
-					try {
-						IOUtils.copy(src, output);
-					} finally {
-						output.close();
-					}
-				} finally {
-					src.close();
-				}
-			}
+		getZipExtractor().extract(source, dest);
+	}
+
+	private static synchronized ZipExtractor getZipExtractor() {
+		if (zipExtractor == null) {
+			zipExtractor = new ZipExtractor(Runtime.getRuntime().availableProcessors());
 		}
+		return zipExtractor;
 	}
 
 	public static String flattenToString(Collection<?> collection, String delimiter) {
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Mirrors a directory tree into another directory. Directories are created,
+ * and files are linked to the source files instead of being copied, except
+ * where COPY_ON_WRITE can't safely link them. The tree is walked in parallel,
+ * with a task for each directory and for every batch of files in it.
+ */
+public class WorkspaceBuilder {
+	private static final int FILES_PER_TASK = 256;
+
+	public enum LinkMode {
+		/**
+		 * Files are symbolic links to the source files.
+		 */
+		SYMLINK,
+		/**
+		 * Files are hard links to the source files, or symbolic links where the
+		 * source is on another file system.
+		 */
+		HARDLINK,
+		/**
+		 * Files are hard links to read only source files, so a job can't change
+		 * them in place, but can replace them in its own directories. Sources
+		 * that could be written through a link, such as any file when running as
+		 * root, are copied instead, as are sources on another file system.
+		 */
+		COPY_ON_WRITE;
+
+		public static LinkMode fromString(String mode) {
+			return valueOf(mode.trim().toUpperCase());
+		}
+	}
+
+	private final LinkMode mode;
+	private final ForkJoinPool pool;
+
+	public WorkspaceBuilder(LinkMode mode, int parallelism) {
+		this.mode = mode;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	public LinkMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Mirrors sourceDir into destDir, which must already exist. Returns the
+	 * number of files linked.
+	 */
+	public int build(File sourceDir, File destDir) throws IOException {
+		if (!sourceDir.exists()) {
+			throw new IOException("Source directory " + sourceDir.getPath() + " doesn't exist");
+		}
+		else if (!destDir.exists()) {
+			throw new IOException("Destination directory " + destDir.getPath() + " doesn't exist");
+		}
+		else if (!sourceDir.isDirectory() || !destDir.isDirectory()) {
+			throw new IOException("Source or Destination is not a directory.");
+		}
+
+		// Links point at the real location, so they don't depend on the source
+		// directory itself being a link.
+		Path source = sourceDir.toPath().toRealPath();
+		Path dest = destDir.toPath().toAbsolutePath();
+		try {
+			return pool.invoke(new DirectoryTask(source, dest));
+		}
+		catch (LinkException e) {
+			throw e.getCause();
+		}
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private void linkFile(Path source, Path dest) throws IOException {
+		switch (mode) {
+		case SYMLINK:
+			Files.createSymbolicLink(dest, source);
+			break;
+		case HARDLINK:
+			if (!createLink(source, dest)) {
+				Files.createSymbolicLink(dest, source);
+			}
+			break;
+		case COPY_ON_WRITE:
+			if (Files.isWritable(source) || !createLink(source, dest)) {
+				Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+				dest.toFile().setWritable(true);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Hard links dest to source. Returns false if they are on different file
+	 * systems or the file system doesn't support hard links. Any other failure
+	 * is thrown.
+	 */
+	private static boolean createLink(Path source, Path dest) throws IOException {
+		try {
+			Files.createLink(dest, source);
+			return true;
+		}
+		catch (UnsupportedOperationException e) {
+			return false;
+		}
+		catch (FileSystemException e) {
+			// Linking across devices fails with a plain FileSystemException, so
+			// the stores are only compared once a link has failed.
+			if (e instanceof AccessDeniedException || e instanceof FileAlreadyExistsException || e instanceof NoSuchFileException
+					|| Files.getFileStore(source).equals(Files.getFileStore(dest.getParent()))) {
+				throw e;
+			}
+			return false;
+		}
+	}
+
+	private class DirectoryTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		private final Path source;
+		private final Path dest;
+
+		private DirectoryTask(Path source, Path dest) {
+			this.source = source;
+			this.dest = dest;
+		}
+
+		@Override
+		protected Integer compute() {
+			List<RecursiveTask<Integer>> subtasks = new ArrayList<RecursiveTask<Integer>>();
+			List<Path> files = new ArrayList<Path>();
+			try {
+				DirectoryStream<Path> stream = Files.newDirectoryStream(source);
+				try {
+					for (Path path: stream) {
+						Path destPath = dest.resolve(path.getFileName().toString());
+						if (Files.isDirectory(path)) {
+							if (!Files.isDirectory(destPath)) {
+								Files.createDirectory(destPath);
+							}
+							subtasks.add(new DirectoryTask(path, destPath));
+						}
+						else {
+							files.add(path);
+							if (files.size() == FILES_PER_TASK) {
+								subtasks.add(new FilesTask(files, dest));
+								files = new ArrayList<Path>();
+							}
+						}
+					}
+				}
+				finally {
+					stream.close();
+				}
+			}
+			catch (IOException e) {
+				throw new LinkException(e);
+			}
+
+			for (RecursiveTask<Integer> task: subtasks) {
+				task.fork();
+			}
+
+			// Every subtask is waited on even if one fails, so nothing is still
+			// being linked by the time the error is reported.
+			int count = 0;
+			RuntimeException error = null;
+			try {
+				count += new FilesTask(files, dest).compute();
+			}
+			catch (RuntimeException e) {
+				error = e;
+			}
+			for (RecursiveTask<Integer> task: subtasks) {
+				try {
+					count += task.join();
+				}
+				catch (RuntimeException e) {
+					if (error == null) {
+						error = e;
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+			return count;
+		}
+	}
+
+	private class FilesTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		private final List<Path> files;
+		private final Path destDir;
+
+		private FilesTask(List<Path> files, Path destDir) {
+			this.files = files;
+			this.destDir = destDir;
+		}
+
+		@Override
+		protected Integer compute() {
+			try {
+				for (Path file: files) {
+					linkFile(file, destDir.resolve(file.getFileName().toString()));
+				}
+			}
+			catch (IOException e) {
+				throw new LinkException(e);
+			}
+			return files.size();
+		}
+	}
+
+	/**
+	 * Carries an IOException out of a fork join task.
+	 */
+	private static class LinkException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private LinkException(IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException)super.getCause();
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts zip files with a pool of workers. The entries are listed from the
+ * central directory and checked before anything is written, so an entry can't
+ * be written outside of the destination. Directories are created up front,
+ * then the files are extracted in parallel. Small files are grouped, so each
+ * task writes about the same amount.
+ *
+ * Each worker copies through its own fixed size buffer, so the memory used
+ * doesn't depend on the size of the archive.
+ */
+public class ZipExtractor {
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	// Files are grouped until the group holds about this many compressed bytes.
+	private static final long BYTES_PER_TASK = 1024 * 1024;
+	private static final int FILES_PER_TASK = 64;
+
+	private final ForkJoinPool pool;
+	private final int bufferSize;
+	private final ThreadLocal<byte[]> buffers;
+
+	public ZipExtractor(int parallelism) {
+		this(parallelism, DEFAULT_BUFFER_SIZE);
+	}
+
+	public ZipExtractor(int parallelism, final int bufferSize) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.bufferSize = bufferSize;
+		this.buffers = new ThreadLocal<byte[]>() {
+			@Override
+			protected byte[] initialValue() {
+				return new byte[bufferSize];
+			}
+		};
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Extracts the zip file into dest. Returns the number of files extracted.
+	 * Throws an IOException without writing anything if an entry would end up
+	 * outside of dest.
+	 */
+	public int extract(ZipFile source, File dest) throws IOException {
+		Path destPath = dest.getAbsoluteFile().toPath().normalize();
+		// A later entry for the same file replaces an earlier one.
+		Map<File, ZipEntry> files = new LinkedHashMap<File, ZipEntry>();
+		Set<File> dirs = new LinkedHashSet<File>();
+		dirs.add(destPath.toFile());
+
+		Enumeration<? extends ZipEntry> entries = source.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			File file = getEntryFile(destPath, entry);
+			if (entry.isDirectory()) {
+				dirs.add(file);
+			}
+			else {
+				dirs.add(file.getParentFile());
+				files.put(file, entry);
+			}
+		}
+
+		for (File dir: dirs) {
+			if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+				throw new IOException("Error creating directory " + dir);
+			}
+		}
+
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		List<ZipEntry> group = new ArrayList<ZipEntry>();
+		long groupBytes = 0;
+		for (ZipEntry entry: files.values()) {
+			group.add(entry);
+			groupBytes += Math.max(0, entry.getCompressedSize());
+			if (groupBytes >= BYTES_PER_TASK || group.size() >= FILES_PER_TASK) {
+				futures.add(pool.submit(new ExtractTask(source, destPath, group)));
+				group = new ArrayList<ZipEntry>();
+				groupBytes = 0;
+			}
+		}
+		if (!group.isEmpty()) {
+			futures.add(pool.submit(new ExtractTask(source, destPath, group)));
+		}
+
+		// Every task is waited on even if one fails, so nothing is still being
+		// written by the time the error is reported.
+		int count = 0;
+		IOException error = null;
+		for (Future<Integer> future: futures) {
+			try {
+				count += future.get();
+			}
+			catch (ExecutionException e) {
+				if (error == null) {
+					error = e.getCause() instanceof IOException ? (IOException)e.getCause() : new IOException(e.getCause());
+				}
+			}
+			catch (InterruptedException e) {
+				if (error == null) {
+					error = new IOException("Interrupted extracting " + source.getName(), e);
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+		return count;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Resolves the entry against the destination. Names with .. or absolute
+	 * paths that lead out of it are rejected.
+	 */
+	private static File getEntryFile(Path destPath, ZipEntry entry) throws IOException {
+		Path path = destPath.resolve(entry.getName()).normalize();
+		if (!path.startsWith(destPath)) {
+			throw new IOException("Zip entry " + entry.getName() + " is outside of " + destPath);
+		}
+		return path.toFile();
+	}
+
+	private class ExtractTask implements Callable<Integer> {
+		private final ZipFile source;
+		private final Path destPath;
+		private final List<ZipEntry> entries;
+
+		private ExtractTask(ZipFile source, Path destPath, List<ZipEntry> entries) {
+			this.source = source;
+			this.destPath = destPath;
+			this.entries = entries;
+		}
+
+		@Override
+		public Integer call() throws IOException {
+			byte[] buffer = buffers.get();
+			for (ZipEntry entry: entries) {
+				InputStream input = source.getInputStream(entry);
+				try {
+					OutputStream output = new FileOutputStream(getEntryFile(destPath, entry));
+					try {
+						int size = 0;
+						while ((size = input.read(buffer)) >= 0) {
+							output.write(buffer, 0, size);
+						}
+					}
+					finally {
+						output.close();
+					}
+				}
+				finally {
+					input.close();
+				}
+			}
+			return entries.size();
+		}
+	}
+}
@@ -17,10 +17,27 @@
 package azkaban.utils.cache;
 
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Size and time bounded cache.
+ *
+ * The keys are spread over segments, each an insertion or access ordered map
+ * behind its own lock, so the element to eject is always at the head of its
+ * segment. Small caches use a single segment, which keeps the ejection order
+ * exact. Expiry is driven by a hashed timer wheel in each segment, which only
+ * looks at the elements that are due.
+ */
 public class Cache {
+	private static final int MAX_SEGMENTS = 16;
+	// Caches are only split once every segment can hold at least this many.
+	private static final int MIN_SEGMENT_SIZE = 64;
+	private static final int WHEEL_SLOTS = 64;
+	private static final long MIN_WHEEL_TICK_MS = 100;
+
 	private long nextUpdateTime = 0;
 	private long updateFrequency = 1 * 60 * 1000;
 	private int maxCacheSize = -1;
@@ -31,7 +48,12 @@ public class Cache {
 	private EjectionPolicy ejectionPolicy = EjectionPolicy.LRU;
 	private CacheManager manager = null;
 
-	private Map<Object, Element<?>> elementMap = new ConcurrentHashMap<Object, Element<?>>();
+	private volatile Segment[] segments;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong ejectionCount = new AtomicLong();
+	private final AtomicLong expiryCount = new AtomicLong();
 
 	public enum EjectionPolicy {
 		LRU, FIFO
@@ -39,38 +61,37 @@ public class Cache {
 
 	/* package */Cache(CacheManager manager) {
 		this.manager = manager;
+		segments = createSegments();
 	}
 
-	@SuppressWarnings("unchecked")
 	public <T> T get(Object key) {
-		Element<?> element = elementMap.get(key);
-		if (element == null) {
-			return null;
+		T item = segmentFor(key).<T>get(key, System.currentTimeMillis());
+		if (item == null) {
+			missCount.incrementAndGet();
 		}
-		return (T) element.getElement();
+		else {
+			hitCount.incrementAndGet();
+		}
+		return item;
 	}
 
 	public <T> void put(Object key, T item) {
-		Element<T> elem = new Element<T>(key, item);
-		elementMap.put(key, elem);
+		insertElement(key, item);
 	}
 
 	public boolean remove(Object key) {
-		Element<?> elem = elementMap.remove(key);
-		if (elem == null) {
-			return false;
-		}
-		
-		return true;
+		return segmentFor(key).remove(key);
 	}
 
 	public Cache setMaxCacheSize(int size) {
 		maxCacheSize = size;
+		rebuildSegments();
 		return this;
 	}
 
 	public Cache setEjectionPolicy(EjectionPolicy policy) {
 		ejectionPolicy = policy;
+		rebuildSegments();
 		return this;
 	}
 
@@ -81,6 +102,7 @@ public class Cache {
 
 	public Cache setExpiryTimeToLiveMs(long time) {
 		this.expireTimeToLive = time;
+		rebuildSegments();
 		if (time > 0) {
 			manager.update();
 		}
@@ -90,6 +112,7 @@ public class Cache {
 
 	public Cache setExpiryIdleTimeMs(long time) {
 		this.expireTimeToIdle = time;
+		rebuildSegments();
 		if (time > 0) {
 			manager.update();
 		}
@@ -97,7 +120,11 @@ public class Cache {
 	}
 
 	public int getSize() {
-		return elementMap.size();
+		int size = 0;
+		for (Segment segment: segments) {
+			size += segment.size();
+		}
+		return size;
 	}
 
 	public long getExpireTimeToLive() {
@@ -108,84 +135,242 @@ public class Cache {
 		return expireTimeToIdle;
 	}
 
-	public synchronized <T> void insertElement(Object key, T item) {
-		if (maxCacheSize < 0 || elementMap.size() < maxCacheSize) {
-			Element<T> elem = new Element<T>(key, item);
-			elementMap.put(key, elem);
-		} else {
-			internalExpireCache();
-
-			Element<T> elem = new Element<T>(key, item);
-			if (elementMap.size() < maxCacheSize) {
-				elementMap.put(key, elem);
-			} else {
-				Element<?> element = getNextExpiryElement();
-				if (element != null) {
-					elementMap.remove(element.getKey());
-				}
+	public long getHitCount() {
+		return hitCount.get();
+	}
 
-				elementMap.put(key, elem);
-			}
-		}
+	public long getMissCount() {
+		return missCount.get();
 	}
 
-	private Element<?> getNextExpiryElement() {
-		if (ejectionPolicy == EjectionPolicy.LRU) {
-			long latestAccessTime = Long.MAX_VALUE;
-			Element<?> ejectionCandidate = null;
-			for (Element<?> elem : elementMap.values()) {
-				if (latestAccessTime > elem.getLastUpdateTime()) {
-					latestAccessTime = elem.getLastUpdateTime();
-					ejectionCandidate = elem;
-				}
-			}
+	public long getEjectionCount() {
+		return ejectionCount.get();
+	}
 
-			return ejectionCandidate;
-		} else if (ejectionPolicy == EjectionPolicy.FIFO) {
-			long earliestCreateTime = Long.MAX_VALUE;
-			Element<?> ejectionCandidate = null;
-			for (Element<?> elem : elementMap.values()) {
-				if (earliestCreateTime > elem.getCreationTime()) {
-					earliestCreateTime = elem.getCreationTime();
-					ejectionCandidate = elem;
-				}
-			}
-			return ejectionCandidate;
-		}
+	public long getExpiryCount() {
+		return expiryCount.get();
+	}
 
-		return null;
+	public <T> void insertElement(Object key, T item) {
+		segmentFor(key).put(key, new Element<T>(key, item));
 	}
 
 	public synchronized void expireCache() {
 		long currentTime = System.currentTimeMillis();
 		if (nextUpdateTime < currentTime) {
-			internalExpireCache();
+			for (Segment segment: segments) {
+				segment.expire(currentTime);
+			}
 			nextUpdateTime = currentTime + updateFrequency;
 		}
 	}
 
-	private synchronized void internalExpireCache() {
-		ArrayList<Element<?>> elems = new ArrayList<Element<?>>(elementMap.values());
-		
-		for (Element<?> elem : elems) {
-			if (shouldExpire(elem)) {
-				elementMap.remove(elem.getKey());
+	private Segment segmentFor(Object key) {
+		Segment[] segments = this.segments;
+		int hash = key.hashCode();
+		// Spread the bits, so keys that only differ in their high bits don't
+		// land in the same segment.
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		hash ^= (hash >>> 7) ^ (hash >>> 4);
+		return segments[(hash & 0x7fffffff) % segments.length];
+	}
+
+	private Segment[] createSegments() {
+		int numSegments = 1;
+		if (maxCacheSize > 0) {
+			numSegments = Math.max(1, Math.min(MAX_SEGMENTS, maxCacheSize / MIN_SEGMENT_SIZE));
+		}
+		else if (maxCacheSize < 0) {
+			numSegments = MAX_SEGMENTS;
+		}
+
+		long tickMs = wheelTickMs();
+		Segment[] newSegments = new Segment[numSegments];
+		for (int i = 0; i < numSegments; ++i) {
+			int segmentSize = -1;
+			if (maxCacheSize >= 0) {
+				// Hand out the remainder so the segments add up to the max size.
+				segmentSize = maxCacheSize / numSegments + (i < maxCacheSize % numSegments ? 1 : 0);
 			}
+			newSegments[i] = new Segment(segmentSize, tickMs);
 		}
+		return newSegments;
 	}
 
-	private boolean shouldExpire(Element<?> elem) {
-		if (expireTimeToLive > -1) {
-			if (System.currentTimeMillis() - elem.getCreationTime() > expireTimeToLive) {
-				return true;
+	/**
+	 * The configuration is set after the cache is created, so the segments are
+	 * recreated and the elements moved over whenever it changes.
+	 */
+	private synchronized void rebuildSegments() {
+		Segment[] oldSegments = segments;
+		segments = createSegments();
+		for (Segment segment: oldSegments) {
+			for (Element<?> elem: segment.elements()) {
+				segmentFor(elem.getKey()).put(elem.getKey(), elem);
 			}
 		}
+	}
+
+	/**
+	 * A tick of a fraction of the shortest expiry time means elements are
+	 * reclaimed soon after they expire, without revisiting them too often.
+	 */
+	private long wheelTickMs() {
+		long shortest = Long.MAX_VALUE;
+		if (expireTimeToLive > 0) {
+			shortest = Math.min(shortest, expireTimeToLive);
+		}
+		if (expireTimeToIdle > 0) {
+			shortest = Math.min(shortest, expireTimeToIdle);
+		}
+		if (shortest == Long.MAX_VALUE) {
+			return -1;
+		}
+		return Math.max(MIN_WHEEL_TICK_MS, shortest / 8);
+	}
+
+	private long getExpiryTime(Element<?> elem) {
+		long expiryTime = Long.MAX_VALUE;
+		if (expireTimeToLive > -1) {
+			expiryTime = Math.min(expiryTime, elem.getCreationTime() + expireTimeToLive);
+		}
 		if (expireTimeToIdle > -1) {
-			if (System.currentTimeMillis() - elem.getLastUpdateTime() > expireTimeToIdle) {
-				return true;
+			expiryTime = Math.min(expiryTime, elem.getLastUpdateTime() + expireTimeToIdle);
+		}
+		return expiryTime;
+	}
+
+	private boolean shouldExpire(Element<?> elem, long currentTime) {
+		return currentTime > getExpiryTime(elem);
+	}
+
+	private class Segment {
+		private final int maxSize;
+		private final LinkedHashMap<Object, Element<?>> elementMap;
+
+		// Hashed timer wheel. An element sits in the slot of its expiry tick, and
+		// is looked at again when the wheel comes around to that slot. Elements
+		// that were touched or removed since are rescheduled or dropped then.
+		private final long tickMs;
+		private final List<List<Element<?>>> wheel;
+		private long currentTick = -1;
+
+		private Segment(int maxSize, long tickMs) {
+			this.maxSize = maxSize;
+			this.tickMs = tickMs;
+			this.elementMap = new LinkedHashMap<Object, Element<?>>(16, 0.75f, ejectionPolicy == EjectionPolicy.LRU);
+
+			if (tickMs > 0) {
+				wheel = new ArrayList<List<Element<?>>>(WHEEL_SLOTS);
+				for (int i = 0; i < WHEEL_SLOTS; ++i) {
+					wheel.add(new ArrayList<Element<?>>());
+				}
+			}
+			else {
+				wheel = null;
 			}
 		}
 
-		return false;
+		@SuppressWarnings("unchecked")
+		private synchronized <T> T get(Object key, long currentTime) {
+			Element<?> elem = elementMap.get(key);
+			if (elem == null) {
+				return null;
+			}
+			if (shouldExpire(elem, currentTime)) {
+				elementMap.remove(key);
+				elem.setRemoved();
+				expiryCount.incrementAndGet();
+				return null;
+			}
+			return (T) elem.getElement();
+		}
+
+		private synchronized void put(Object key, Element<?> elem) {
+			if (maxSize == 0) {
+				return;
+			}
+
+			// Removing first moves a replaced key to the back in FIFO order as well.
+			Element<?> old = elementMap.remove(key);
+			if (old != null) {
+				old.setRemoved();
+			}
+			elementMap.put(key, elem);
+			if (maxSize > 0 && elementMap.size() > maxSize) {
+				// The head is the least recently used, or the oldest, element.
+				Iterator<Element<?>> iter = elementMap.values().iterator();
+				iter.next().setRemoved();
+				iter.remove();
+				ejectionCount.incrementAndGet();
+			}
+			schedule(elem);
+		}
+
+		private synchronized boolean remove(Object key) {
+			Element<?> elem = elementMap.remove(key);
+			if (elem == null) {
+				return false;
+			}
+			elem.setRemoved();
+			return true;
+		}
+
+		private synchronized int size() {
+			return elementMap.size();
+		}
+
+		private synchronized List<Element<?>> elements() {
+			return new ArrayList<Element<?>>(elementMap.values());
+		}
+
+		private void schedule(Element<?> elem) {
+			if (wheel == null) {
+				return;
+			}
+
+			long expiryTick = getExpiryTime(elem) / tickMs;
+			if (currentTick < 0) {
+				currentTick = System.currentTimeMillis() / tickMs;
+			}
+			// Anything already due goes in the next slot to be processed.
+			expiryTick = Math.max(expiryTick, currentTick + 1);
+			wheel.get((int)(expiryTick % WHEEL_SLOTS)).add(elem);
+		}
+
+		private synchronized void expire(long currentTime) {
+			if (wheel == null || currentTick < 0) {
+				return;
+			}
+
+			long tick = currentTime / tickMs;
+			// Past a full turn, every slot gets visited once.
+			long firstTick = Math.max(currentTick + 1, tick - WHEEL_SLOTS + 1);
+			currentTick = tick;
+			for (long t = firstTick; t <= tick; ++t) {
+				List<Element<?>> slot = wheel.get((int)(t % WHEEL_SLOTS));
+				if (slot.isEmpty()) {
+					continue;
+				}
+
+				List<Element<?>> due = new ArrayList<Element<?>>(slot);
+				slot.clear();
+				for (Element<?> elem: due) {
+					// Skip elements that were removed or replaced since. Looking them
+					// up in the map would count as an access.
+					if (elem.isRemoved()) {
+						continue;
+					}
+					if (shouldExpire(elem, currentTime)) {
+						elementMap.remove(elem.getKey());
+						elem.setRemoved();
+						expiryCount.incrementAndGet();
+					}
+					else {
+						schedule(elem);
+					}
+				}
+			}
+		}
 	}
 }
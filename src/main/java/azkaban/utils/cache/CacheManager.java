@@ -16,8 +16,8 @@
 
 package azkaban.utils.cache;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class CacheManager {
 	// Thread that expires caches at
@@ -40,7 +40,7 @@ public class CacheManager {
 	
 	private CacheManager() {
 		updaterThread = new CacheManagerThread();
-		caches = new HashSet<Cache>();
+		caches = new CopyOnWriteArraySet<Cache>();
 
 		updaterThread.start();
 	}
@@ -63,6 +63,50 @@ public class CacheManager {
 		manager.internalRemoveCache(cache);
 	}
 
+	public int getNumCaches() {
+		return caches.size();
+	}
+
+	public long getNumCachedElements() {
+		long size = 0;
+		for (Cache cache : caches) {
+			size += cache.getSize();
+		}
+		return size;
+	}
+
+	public long getHitCount() {
+		long count = 0;
+		for (Cache cache : caches) {
+			count += cache.getHitCount();
+		}
+		return count;
+	}
+
+	public long getMissCount() {
+		long count = 0;
+		for (Cache cache : caches) {
+			count += cache.getMissCount();
+		}
+		return count;
+	}
+
+	public long getEjectionCount() {
+		long count = 0;
+		for (Cache cache : caches) {
+			count += cache.getEjectionCount();
+		}
+		return count;
+	}
+
+	public long getExpiryCount() {
+		long count = 0;
+		for (Cache cache : caches) {
+			count += cache.getExpiryCount();
+		}
+		return count;
+	}
+
 	private void internalUpdateFrequency(long updateFreq) {
 		updateFrequency = updateFreq;
 		updaterThread.interrupt();
@@ -21,6 +21,7 @@ public class Element<T> {
 	private T element;
 	private long creationTime = 0;
 	private long lastAccessTime = 0;
+	private boolean removed = false;
 
 	public Element(Object key, T element) {
 		this.key = key;
@@ -45,4 +46,12 @@ public class Element<T> {
 	public long getLastUpdateTime() {
 		return lastAccessTime;
 	}
+
+	/* package */boolean isRemoved() {
+		return removed;
+	}
+
+	/* package */void setRemoved() {
+		removed = true;
+	}
 }
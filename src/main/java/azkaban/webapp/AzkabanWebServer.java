@@ -271,6 +271,7 @@ public class AzkabanWebServer extends AzkabanServer {
 		logger.info("Loading built-in checker and action types");
 		if(triggerManager instanceof TriggerManager) {
 			SlaChecker.setExecutorManager(executorManager);
+			SlaChecker.setRecheckInterval(props.getLong("trigger.sla.recheck.interval.ms", SlaChecker.DEFAULT_RECHECK_INTERVAL_MS));
 			ExecuteFlowAction.setExecutorManager(executorManager);
 			ExecuteFlowAction.setProjectManager(projectManager);
 			ExecuteFlowAction.setTriggerManager(triggerManager);
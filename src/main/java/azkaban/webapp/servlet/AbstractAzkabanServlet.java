@@ -360,7 +360,7 @@ public abstract class AbstractAzkabanServlet extends HttpServlet {
 
 	protected void writeJSON(HttpServletResponse resp, Object obj, boolean pretty) throws IOException {
 		resp.setContentType(JSON_MIME_TYPE);
-		JSONUtils.toJSON(obj, resp.getOutputStream(), true);
+		JSONUtils.toJSON(obj, resp.getOutputStream(), pretty);
 	}
 	
 	/**
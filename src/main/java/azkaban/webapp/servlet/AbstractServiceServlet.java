@@ -1,13 +1,12 @@
 package azkaban.webapp.servlet;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.codehaus.jackson.map.ObjectMapper;
+import azkaban.utils.JSONUtils;
 import azkaban.webapp.AzkabanServer;
 
 public class AbstractServiceServlet extends HttpServlet{
@@ -29,9 +28,7 @@ public class AbstractServiceServlet extends HttpServlet{
 
 	protected void writeJSON(HttpServletResponse resp, Object obj) throws IOException {
 		resp.setContentType(JSON_MIME_TYPE);
-		ObjectMapper mapper = new ObjectMapper();
-		OutputStream stream = resp.getOutputStream();
-		mapper.writeValue(stream, obj);
+		JSONUtils.toJSON(obj, resp.getOutputStream());
 	}
 
 	public boolean hasParam(HttpServletRequest request, String param) {
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+/**
+ * Opaque token handed to clients to fetch the next page of a listing that is
+ * paged by key instead of by offset. It holds the sort keys of the last row
+ * of the page. Clients should pass it back as is.
+ */
+public class ContinuationToken {
+	private static final String SEPARATOR = "_";
+	private static final int RADIX = 36;
+
+	public static String create(long ... keys) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < keys.length; ++i) {
+			if (i > 0) {
+				builder.append(SEPARATOR);
+			}
+			builder.append(Long.toString(keys[i], RADIX));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the keys in the token, or throws IllegalArgumentException if it
+	 * doesn't hold the expected number of keys.
+	 */
+	public static long[] parse(String token, int numKeys) {
+		String[] split = token.split(SEPARATOR, -1);
+		if (split.length != numKeys) {
+			throw new IllegalArgumentException("Invalid continuation token " + token);
+		}
+
+		long[] keys = new long[numKeys];
+		try {
+			for (int i = 0; i < numKeys; ++i) {
+				keys[i] = Long.parseLong(split[i], RADIX);
+			}
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid continuation token " + token);
+		}
+		return keys;
+	}
+}
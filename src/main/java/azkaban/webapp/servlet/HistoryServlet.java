@@ -30,7 +30,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.joda.time.format.DateTimeFormat;
 
 
-import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.project.Project;
@@ -117,7 +117,19 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
 		if (pageNum < 0) {
 			pageNum = 1;
 		}
-		List<ExecutableFlow> history = null;
+		List<ExecutableFlowSummary> history = null;
+		// Pages by exec id when following the next link, and only falls back to
+		// an offset when jumping to a page number.
+		int beforeExecId = 0;
+		if (hasParam(req, "token")) {
+			try {
+				beforeExecId = (int)ContinuationToken.parse(getParam(req, "token"), 1)[0];
+			}
+			catch (IllegalArgumentException e) {
+				page.add("error", e.getMessage());
+			}
+		}
+		int skip = beforeExecId > 0 ? 0 : (pageNum - 1)*pageSize;
 		if(hasParam(req, "advfilter")) {
 			String projContain = getParam(req, "projcontain");
 			String flowContain = getParam(req, "flowcontain");
@@ -128,7 +140,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
 			String end = getParam(req, "end");
 			long endTime = end == "" ? -1 : DateTimeFormat.forPattern("MM/dd/yyyy-HH:mm").parseDateTime(end).getMillis();
 			try {
-				history = executorManager.getExecutableFlows(projContain, flowContain, userContain, status, beginTime, endTime, (pageNum - 1)*pageSize, pageSize);
+				history = executorManager.searchExecutableFlowSummaries(projContain, flowContain, userContain, status, beginTime, endTime, beforeExecId, skip, pageSize);
 			} catch (ExecutorManagerException e) {
 				page.add("error", e.getMessage());
 			}
@@ -136,7 +148,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
 		else if(hasParam(req, "search")) {
 			String searchTerm = getParam(req, "searchterm");
 			try {
-				history = executorManager.getExecutableFlows(searchTerm, (pageNum - 1)*pageSize, pageSize);
+				history = executorManager.searchExecutableFlowSummaries(null, searchTerm, null, 0, -1, -1, beforeExecId, skip, pageSize);
 			} catch (ExecutorManagerException e) {
 				// TODO Auto-generated catch block
 				page.add("error", e.getMessage());
@@ -144,12 +156,15 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
 		}
 		else {
 				try {
-					history = executorManager.getExecutableFlows((pageNum - 1)*pageSize, pageSize);
+					history = executorManager.searchExecutableFlowSummaries(null, null, null, 0, -1, -1, beforeExecId, skip, pageSize);
 				} catch (ExecutorManagerException e) {
 					e.printStackTrace();
 				}
 		}
 		page.add("flowHistory", history);
+		if (history != null && !history.isEmpty()) {
+			page.add("nextToken", ContinuationToken.create(history.get(history.size() - 1).getExecutionId()));
+		}
 		page.add("size", pageSize);
 		page.add("page", pageNum);
 		//keep the search terms so that we can navigate to later pages
@@ -44,6 +44,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowSummary;
 import azkaban.executor.ExecutableJobInfo;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
@@ -299,7 +300,17 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 		
 		List<ProjectLogEvent> logEvents = null;
 		try {
-			logEvents = projectManager.getProjectEventLogs(project, num, skip);
+			if (hasParam(req, "token")) {
+				// The token holds the time and id of the last event returned.
+				long[] keys = ContinuationToken.parse(getParam(req, "token"), 2);
+				logEvents = projectManager.getProjectEventLogsBefore(project, keys[0], keys[1], num);
+			}
+			else {
+				logEvents = projectManager.getProjectEventLogs(project, num, skip);
+			}
+		} catch (IllegalArgumentException e) {
+			ret.put("error", e.getMessage());
+			return;
 		} catch (ProjectManagerException e) {
 			throw new ServletException(e);
 		}
@@ -319,6 +330,11 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 		}
 		
 		ret.put("logData", eventData);
+		
+		if (logEvents != null && logEvents.size() == num) {
+			ProjectLogEvent last = logEvents.get(logEvents.size() - 1);
+			ret.put("nextToken", ContinuationToken.create(last.getTime(), last.getId()));
+		}
 	}
 
   private List<String> getFlowJobTypes(Flow flow) {
@@ -355,9 +371,9 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       HashMap<String, Object> ret, HttpServletRequest req)
       throws ServletException {
     String flowId = getParam(req, "flow");
-    List<ExecutableFlow> exFlows = null;
+    List<ExecutableFlowSummary> exFlows = null;
     try {
-			exFlows = executorManager.getExecutableFlows(
+			exFlows = executorManager.getExecutableFlowSummaries(
 					project.getId(), flowId, 0, 1, Status.SUCCEEDED);
 		}
 		catch (ExecutorManagerException e) {
@@ -383,11 +399,22 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 		int from = Integer.valueOf(getParam(req, "start"));
 		int length = Integer.valueOf(getParam(req, "length"));
 		
-		ArrayList<ExecutableFlow> exFlows = new ArrayList<ExecutableFlow>();
+		ArrayList<ExecutableFlowSummary> exFlows = new ArrayList<ExecutableFlowSummary>();
 		int total = 0;
 		try {
-			total = executorManager.getExecutableFlows(
-					project.getId(), flowId, from, length, exFlows);
+			if (hasParam(req, "token")) {
+				int beforeExecId = (int)ContinuationToken.parse(getParam(req, "token"), 1)[0];
+				exFlows.addAll(executorManager.getExecutableFlowSummariesBefore(
+						project.getId(), flowId, beforeExecId, length));
+				total = executorManager.getNumberOfExecutions(project, flowId);
+			}
+			else {
+				total = executorManager.getExecutableFlowSummaries(
+						project.getId(), flowId, from, length, exFlows);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			ret.put("error", e.getMessage());
 		}
     catch (ExecutorManagerException e) {
 			ret.put("error", "Error retrieving executable flows");
@@ -399,7 +426,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 		ret.put("length", length);
 		
 		ArrayList<Object> history = new ArrayList<Object>();
-		for (ExecutableFlow flow: exFlows) {
+		for (ExecutableFlowSummary flow: exFlows) {
 			HashMap<String, Object> flowInfo = new HashMap<String, Object>();
 			flowInfo.put("execId", flow.getExecutionId());
 			flowInfo.put("flowId", flow.getFlowId());
@@ -414,6 +441,10 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 		}
 		
 		ret.put("executions", history);
+		if (exFlows.size() == length) {
+			ret.put("nextToken", ContinuationToken.create(
+					exFlows.get(exFlows.size() - 1).getExecutionId()));
+		}
 	}
 	
 	private void handleRemoveProject(HttpServletRequest req, HttpServletResponse resp, Session session) throws ServletException, IOException {
@@ -938,12 +969,23 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 		try {
 			numResults = executorManager.getNumberOfJobExecutions(project, jobId);
 			int maxPage = (numResults / pageSize) + 1;
-			List<ExecutableJobInfo> jobInfo = executorManager.getExecutableJobs(project, jobId, skipPage, pageSize);
+			List<ExecutableJobInfo> jobInfo = null;
+			if (hasParam(req, "token")) {
+				long[] keys = ContinuationToken.parse(getParam(req, "token"), 2);
+				jobInfo = executorManager.getExecutableJobsBefore(project, jobId, (int)keys[0], (int)keys[1], pageSize);
+			}
+			else {
+				jobInfo = executorManager.getExecutableJobs(project, jobId, skipPage, pageSize);
+			}
 			
 			if (jobInfo == null || jobInfo.isEmpty()) {
 				jobInfo = null;
 			}
 			page.add("history", jobInfo);
+			if (jobInfo != null && jobInfo.size() == pageSize) {
+				ExecutableJobInfo last = jobInfo.get(jobInfo.size() - 1);
+				page.add("nextToken", ContinuationToken.create(last.getExecId(), last.getAttempt()));
+			}
 
 			page.add("previous", new PageSelection("Previous", pageSize, true, false, Math.max(pageNum - 1, 1)));
 			
@@ -960,6 +1002,8 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 			else {
 				page.add("dataSeries", "[]");
 			}
+		} catch (IllegalArgumentException e) {
+			page.add("errorMsg", e.getMessage());
 		} catch (ExecutorManagerException e) {
 			page.add("errorMsg", e.getMessage());
 		}
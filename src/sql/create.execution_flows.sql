@@ -18,3 +18,5 @@ CREATE INDEX ex_flows_start_time ON execution_flows(start_time);
 CREATE INDEX ex_flows_end_time ON execution_flows(end_time);
 CREATE INDEX ex_flows_time_range ON execution_flows(start_time, end_time);
 CREATE INDEX ex_flows_flows ON execution_flows(project_id, flow_id);
+CREATE INDEX ex_flows_flow_id ON execution_flows(flow_id);
+CREATE INDEX ex_flows_submit_user ON execution_flows(submit_user);
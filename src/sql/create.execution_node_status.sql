@@ -0,0 +1,10 @@
+CREATE TABLE execution_node_status (
+	exec_id INT NOT NULL,
+	node_id VARCHAR(255) NOT NULL,
+	attempt INT,
+	status TINYINT,
+	start_time BIGINT,
+	end_time BIGINT,
+	update_time BIGINT,
+	PRIMARY KEY (exec_id, node_id)
+);
@@ -0,0 +1,2 @@
+ALTER TABLE execution_flows ADD INDEX ex_flows_flow_id (flow_id);
+ALTER TABLE execution_flows ADD INDEX ex_flows_submit_user (submit_user);
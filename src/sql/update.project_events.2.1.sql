@@ -0,0 +1 @@
+ALTER TABLE project_events ADD COLUMN id BIGINT NOT NULL PRIMARY KEY AUTO_INCREMENT;
@@ -273,10 +273,17 @@ azkaban.ExecutionsView = Backbone.View.extend({
 			"start": page * pageSize,
 			"length": pageSize
 		};
+		// Moving to the next page can continue from the last page instead of
+		// using an offset.
+		if (this.model.get("nextToken") && this.model.get("nextTokenPage") == page) {
+			requestData.token = this.model.get("nextToken");
+		}
 		var successHandler = function(data) {
 			model.set({
 				"executions": data.executions,
-				"total": data.total
+				"total": data.total,
+				"nextToken": data.nextToken,
+				"nextTokenPage": page + 1
 			});
 			model.trigger("render");
 		};
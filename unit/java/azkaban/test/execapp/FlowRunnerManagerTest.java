@@ -0,0 +1,169 @@
+package azkaban.test.execapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.execapp.FlowRunnerManager;
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.flow.Flow;
+import azkaban.project.Project;
+import azkaban.utils.DirectoryFlowLoader;
+import azkaban.utils.Props;
+
+/**
+ * Runs jobf flows from executions/embedded2 through a FlowRunnerManager. The
+ * test job type isn't registered, so the flows fail as soon as they start.
+ */
+public class FlowRunnerManagerTest {
+	private File workingDir;
+	private ExecutorLoader fakeExecutorLoader;
+	private FlowRunnerManager manager;
+	private Logger logger = Logger.getLogger(FlowRunnerManagerTest.class);
+	private Map<String, Flow> flowMap;
+	private static int id = 701;
+
+	@Before
+	public void setUp() throws Exception {
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		workingDir.mkdirs();
+
+		// Installed already, so nothing is fetched from the project loader.
+		File dir = new File("unit/executions/embedded2");
+		DirectoryFlowLoader loader = new DirectoryFlowLoader(logger);
+		loader.loadProjectFlow(dir);
+		flowMap = loader.getFlowMap();
+		FileUtils.copyDirectory(dir, new File(workingDir, "projects/1.1"));
+
+		Props props = new Props();
+		props.put("azkaban.execution.dir", new File(workingDir, "executions").getPath());
+		props.put("azkaban.project.dir", new File(workingDir, "projects").getPath());
+		props.put("azkaban.jobtype.plugin.dir", new File(workingDir, "jobtypes").getPath());
+		props.put("executor.artifact.cache.enabled", "false");
+		fakeExecutorLoader = new MockExecutorLoader();
+		manager = new FlowRunnerManager(props, fakeExecutorLoader, new MockProjectLoader(workingDir), this.getClass().getClassLoader());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testUpdateStreamReturnsForNewFlows() throws Exception {
+		ExecutableFlow flowA = submitAndWait();
+		List<Integer> execIds = Collections.singletonList(flowA.getExecutionId());
+		List<Long> updateTimes = Collections.singletonList(flowA.getUpdateTime());
+		Assert.assertTrue(manager.getFlowUpdates(execIds, updateTimes).isEmpty());
+
+		// Nothing changes, so the stream is held for the whole wait.
+		long startTime = System.currentTimeMillis();
+		Assert.assertTrue(manager.waitForFlowUpdates(execIds, updateTimes, 500).isEmpty());
+		Assert.assertTrue(System.currentTimeMillis() - startTime >= 500);
+
+		// A flow submitted while the stream waits, which isn't in the request,
+		// ends the wait early so the caller can ask again with it included.
+		final int[] submitted = {-1};
+		Thread submitter = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(250);
+					submitted[0] = submit();
+				}
+				catch (Exception e) {
+					logger.error(e);
+				}
+			}
+		};
+		submitter.start();
+		startTime = System.currentTimeMillis();
+		Assert.assertTrue(manager.waitForFlowUpdates(execIds, updateTimes, 20000).isEmpty());
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 10000);
+
+		// Finishes before the working dir is deleted.
+		submitter.join();
+		waitForFinish(submitted[0]);
+	}
+
+	@Test
+	public void testUpdateStreamReturnsChangedFlows() throws Exception {
+		ExecutableFlow flowA = submitAndWait();
+		List<Integer> execIds = Arrays.asList(flowA.getExecutionId(), 999);
+		List<Long> updateTimes = Arrays.asList(flowA.getUpdateTime() - 1, 0L);
+
+		List<Object> updates = manager.waitForFlowUpdates(execIds, updateTimes, 20000);
+		Assert.assertEquals(2, updates.size());
+		Assert.assertEquals(flowA.getExecutionId(), ((Map<?, ?>)updates.get(0)).get(ConnectorParams.UPDATE_MAP_EXEC_ID));
+		Assert.assertNotNull(((Map<?, ?>)updates.get(1)).get(ConnectorParams.RESPONSE_ERROR));
+	}
+
+	@Test
+	public void testStageProjects() throws Exception {
+		// 1.1 is installed already, so there is nothing to stage.
+		Assert.assertTrue(manager.stageProjects("1.1, ,").isEmpty());
+
+		String[] malformed = {"1", "1.2.3", "a.1", "1.1,x"};
+		for (String projects: malformed) {
+			try {
+				manager.stageProjects(projects);
+				Assert.fail("Staged " + projects);
+			}
+			catch (ExecutorManagerException e) {
+			}
+		}
+	}
+
+	/**
+	 * Submits a flow and waits for it to fail.
+	 */
+	private ExecutableFlow submitAndWait() throws Exception {
+		return waitForFinish(submit());
+	}
+
+	private ExecutableFlow waitForFinish(int execId) throws Exception {
+		long endTime = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < endTime) {
+			ExecutableFlow flow = manager.getExecutableFlow(execId);
+			if (flow != null && Status.isStatusFinished(flow.getStatus())) {
+				return flow;
+			}
+			Thread.sleep(50);
+		}
+		Assert.fail("Flow " + execId + " didn't finish");
+		return null;
+	}
+
+	private int submit() throws Exception {
+		Project project = new Project(1, "testProject");
+		project.setVersion(1);
+		project.setFlows(flowMap);
+		int execId = id++;
+		ExecutableFlow exFlow = new ExecutableFlow(project, flowMap.get("jobf"));
+		exFlow.setExecutionId(execId);
+		fakeExecutorLoader.uploadExecutableFlow(exFlow);
+
+		manager.submitFlow(execId);
+		return execId;
+	}
+}
@@ -0,0 +1,118 @@
+package azkaban.test.execapp;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.commons.io.FileUtils;
+
+import azkaban.execapp.FlowRunner;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.Status;
+import azkaban.flow.Edge;
+import azkaban.flow.Flow;
+import azkaban.flow.Node;
+import azkaban.jobtype.JobTypeManager;
+import azkaban.project.Project;
+
+/**
+ * Measures what FlowRunner costs per node, outside of the jobs themselves. All
+ * jobs are noop jobs. The wide flow is a start job, a 1,000 way fan out and a
+ * job that joins them all. The deep flow is a chain of 1,000 jobs.
+ *
+ * Prints the wall time per node and the cpu time the flow thread spent per
+ * node, which is the scheduling overhead.
+ *
+ * Run with: java azkaban.test.execapp.FlowSchedulingBenchmark [width] [rounds]
+ */
+public class FlowSchedulingBenchmark {
+	public static void main(String[] args) throws Exception {
+		int width = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		File workDir = new File(FileUtils.getTempDirectory(), "azkaban-scheduling-benchmark-" + System.currentTimeMillis());
+		workDir.mkdirs();
+		try {
+			for (int i = 0; i < width + 2; ++i) {
+				FileUtils.writeStringToFile(new File(workDir, "job" + i + ".job"), "type=noop\n");
+			}
+
+			JobTypeManager jobtypeManager = new JobTypeManager(null, FlowSchedulingBenchmark.class.getClassLoader());
+			MockProjectLoader projectLoader = new MockProjectLoader(workDir);
+			ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+			System.out.println(String.format("%-8s %8s %14s %16s", "flow", "nodes", "wall ms/node", "flow cpu us/node"));
+			for (String shape: new String[] {"wide", "deep"}) {
+				long wallTime = 0;
+				long cpuTime = 0;
+				int numNodes = 0;
+				// The first round warms up.
+				for (int round = 0; round <= rounds; ++round) {
+					ExecutableFlow exFlow = shape.equals("wide") ? createWideFlow(width) : createDeepFlow(width);
+					exFlow.setExecutionId(round + 1);
+					exFlow.setExecutionPath(workDir.getPath());
+					numNodes = exFlow.getExecutableNodes().size();
+
+					MockExecutorLoader loader = new MockExecutorLoader();
+					loader.uploadExecutableFlow(exFlow);
+					FlowRunner runner = new FlowRunner(exFlow, loader, projectLoader, jobtypeManager);
+
+					long startCpu = threadBean.getCurrentThreadCpuTime();
+					long startTime = System.nanoTime();
+					runner.run();
+					if (exFlow.getStatus() != Status.SUCCEEDED) {
+						throw new IllegalStateException(shape + " flow finished with " + exFlow.getStatus());
+					}
+					if (round > 0) {
+						wallTime += System.nanoTime() - startTime;
+						cpuTime += threadBean.getCurrentThreadCpuTime() - startCpu;
+					}
+				}
+
+				System.out.println(String.format("%-8s %8d %14.3f %16.1f",
+						shape,
+						numNodes,
+						wallTime / 1e6 / rounds / numNodes,
+						cpuTime / 1e3 / rounds / numNodes));
+			}
+		}
+		finally {
+			FileUtils.deleteDirectory(workDir);
+		}
+	}
+
+	private static ExecutableFlow createWideFlow(int width) {
+		Flow flow = new Flow("wide");
+		flow.addNode(createNode(0));
+		flow.addNode(createNode(width + 1));
+		for (int i = 1; i <= width; ++i) {
+			flow.addNode(createNode(i));
+			flow.addEdge(new Edge("job0", "job" + i));
+			flow.addEdge(new Edge("job" + i, "job" + (width + 1)));
+		}
+		return createExecutableFlow(flow);
+	}
+
+	private static ExecutableFlow createDeepFlow(int depth) {
+		Flow flow = new Flow("deep");
+		flow.addNode(createNode(0));
+		for (int i = 1; i < depth; ++i) {
+			flow.addNode(createNode(i));
+			flow.addEdge(new Edge("job" + (i - 1), "job" + i));
+		}
+		return createExecutableFlow(flow);
+	}
+
+	private static Node createNode(int i) {
+		Node node = new Node("job" + i);
+		node.setType("noop");
+		node.setJobSource("job" + i + ".job");
+		return node;
+	}
+
+	private static ExecutableFlow createExecutableFlow(Flow flow) {
+		Project project = new Project(1, "benchmarkProject");
+		project.setVersion(1);
+		return new ExecutableFlow(project, flow);
+	}
+}
@@ -0,0 +1,79 @@
+package azkaban.test.execapp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.execapp.FlowUpdateWriter;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.Status;
+
+public class FlowUpdateWriterTest {
+
+	@Test
+	public void testCoalesceUpdates() throws Exception {
+		MockExecutorLoader loader = new MockExecutorLoader();
+		ExecutableFlow flow = createFlow(loader, 1);
+		ExecutableFlow flow2 = createFlow(loader, 2);
+
+		FlowUpdateWriter writer = new FlowUpdateWriter(loader, 200);
+		for (int i = 0; i < 10; ++i) {
+			writer.enqueue(flow, i, false);
+			writer.enqueue(flow2, i, true);
+		}
+		Assert.assertEquals(2, writer.getQueueDepth());
+		Assert.assertEquals(18, writer.getNumCoalescedUpdates());
+
+		waitForFlush(writer, 2, 2000);
+		Assert.assertEquals(0, writer.getQueueDepth());
+		Assert.assertEquals(2, writer.getNumFlushedUpdates());
+		// Two uploads and one write for each flow.
+		Assert.assertEquals(4, loader.getFlowUpdateCount());
+		writer.shutdown();
+	}
+
+	@Test
+	public void testFinishedFlowSkipsWindow() throws Exception {
+		MockExecutorLoader loader = new MockExecutorLoader();
+		ExecutableFlow flow = createFlow(loader, 1);
+
+		FlowUpdateWriter writer = new FlowUpdateWriter(loader, 60000);
+		writer.enqueue(flow, 0, false);
+		flow.setStatus(Status.SUCCEEDED);
+		writer.enqueue(flow, 0, true);
+
+		waitForFlush(writer, 1, 2000);
+		Assert.assertEquals(1, writer.getNumFlushedUpdates());
+		writer.shutdown();
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		MockExecutorLoader loader = new MockExecutorLoader();
+		ExecutableFlow flow = createFlow(loader, 1);
+
+		FlowUpdateWriter writer = new FlowUpdateWriter(loader, 100);
+		writer.enqueue(flow, 0, false);
+		writer.cancel(1);
+		Assert.assertEquals(0, writer.getQueueDepth());
+
+		Thread.sleep(300);
+		Assert.assertEquals(0, writer.getNumFlushedUpdates());
+		Assert.assertEquals(1, loader.getFlowUpdateCount());
+		writer.shutdown();
+	}
+
+	private ExecutableFlow createFlow(MockExecutorLoader loader, int execId) throws Exception {
+		ExecutableFlow flow = new ExecutableFlow();
+		flow.setExecutionId(execId);
+		flow.setStatus(Status.RUNNING);
+		loader.uploadExecutableFlow(flow);
+		return flow;
+	}
+
+	private void waitForFlush(FlowUpdateWriter writer, long numFlushed, long timeoutMs) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + timeoutMs;
+		while (writer.getNumFlushedUpdates() < numFlushed && System.currentTimeMillis() < endTime) {
+			Thread.sleep(10);
+		}
+	}
+}
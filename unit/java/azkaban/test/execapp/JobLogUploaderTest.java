@@ -0,0 +1,190 @@
+package azkaban.test.execapp;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.execapp.JobLogUploader;
+import azkaban.execapp.JobLogUploader.LogTail;
+import azkaban.execapp.JobLogUploader.TailedFileAppender;
+import azkaban.executor.ExecutorManagerException;
+
+public class JobLogUploaderTest {
+	private File workingDir;
+
+	@Before
+	public void setUp() throws Exception {
+		System.out.println("Create temp dir");
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		workingDir.mkdirs();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		System.out.println("Teardown temp dir");
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testUploadWhileRunning() throws Exception {
+		MockExecutorLoader loader = new MockExecutorLoader();
+		JobLogUploader uploader = new JobLogUploader(loader, 50, 1024*1024);
+
+		File logFile = new File(workingDir, "_job.1.test.log");
+		TailedFileAppender appender = new TailedFileAppender(new PatternLayout("%m\n"), logFile.getAbsolutePath(), true);
+		appender.setMaxBackupIndex(20);
+		appender.setMaxFileSize("1KB");
+		Logger logger = Logger.getLogger("JobLogUploaderTest.testUploadWhileRunning");
+		logger.setAdditivity(false);
+		logger.addAppender(appender);
+
+		LogTail tail = uploader.register(1, "test", 0, logFile, appender);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; ++i) {
+			String line = "Log line number " + i;
+			logger.info(line);
+			expected.append(line).append("\n");
+		}
+
+		// Uploaded in the background, across several rolled over files.
+		long endTime = System.currentTimeMillis() + 5000;
+		while (tail.getUploadedBytes() < expected.length() && System.currentTimeMillis() < endTime) {
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(appender.getRollovers() > 0);
+		Assert.assertEquals(expected.toString(), new String(loader.getLogData(1, "test", 0), "UTF-8"));
+
+		for (int i = 100; i < 150; ++i) {
+			String line = "Log line number " + i;
+			logger.info(line);
+			expected.append(line).append("\n");
+		}
+
+		logger.removeAppender(appender);
+		appender.close();
+		uploader.finish(tail);
+		Assert.assertEquals(0, uploader.getNumFollowedLogs());
+		Assert.assertEquals(expected.toString(), new String(loader.getLogData(1, "test", 0), "UTF-8"));
+		uploader.shutdown();
+	}
+
+	@Test
+	public void testPendingDataIsCapped() throws Exception {
+		// While uploads fail, reading stops once the cap is reached.
+		FailingLoader loader = new FailingLoader();
+		loader.failing = true;
+		JobLogUploader uploader = new JobLogUploader(loader, 50, 512);
+
+		File logFile = new File(workingDir, "_job.1.test.log");
+		TailedFileAppender appender = new TailedFileAppender(new PatternLayout("%m\n"), logFile.getAbsolutePath(), true);
+		appender.setMaxBackupIndex(20);
+		appender.setMaxFileSize("1KB");
+		Logger logger = Logger.getLogger("JobLogUploaderTest.testPendingDataIsCapped");
+		logger.setAdditivity(false);
+		logger.addAppender(appender);
+
+		LogTail tail = uploader.register(1, "test", 0, logFile, appender);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50; ++i) {
+			String line = "Log line number " + i;
+			logger.info(line);
+			expected.append(line).append("\n");
+		}
+
+		Thread.sleep(300);
+		int pendingBytes = tail.getPendingBytes();
+		Assert.assertTrue(pendingBytes >= 512);
+		for (int i = 50; i < 150; ++i) {
+			String line = "Log line number " + i;
+			logger.info(line);
+			expected.append(line).append("\n");
+		}
+		Thread.sleep(300);
+		Assert.assertEquals(pendingBytes, tail.getPendingBytes());
+		Assert.assertEquals(0, tail.getUploadedBytes());
+		Assert.assertTrue(uploader.getNumFailedUploads() > 0);
+
+		// Once uploads work again, the rest is read and uploaded.
+		loader.failing = false;
+		long endTime = System.currentTimeMillis() + 5000;
+		while (tail.getUploadedBytes() < expected.length() && System.currentTimeMillis() < endTime) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(expected.toString(), new String(loader.getLogData(1, "test", 0), "UTF-8"));
+
+		logger.removeAppender(appender);
+		appender.close();
+		uploader.finish(tail);
+		uploader.shutdown();
+	}
+
+	@Test
+	public void testFinalUploadFails() throws Exception {
+		// Nothing is uploaded before the job finishes, and the final upload fails.
+		FailingLoader loader = new FailingLoader();
+		loader.failing = true;
+		JobLogUploader uploader = new JobLogUploader(loader, 50, 512);
+
+		File logFile = new File(workingDir, "_job.1.test.log");
+		TailedFileAppender appender = new TailedFileAppender(new PatternLayout("%m\n"), logFile.getAbsolutePath(), true);
+		appender.setMaxBackupIndex(20);
+		appender.setMaxFileSize("1KB");
+		Logger logger = Logger.getLogger("JobLogUploaderTest.testFinalUploadFails");
+		logger.setAdditivity(false);
+		logger.addAppender(appender);
+
+		LogTail tail = uploader.register(1, "test", 0, logFile, appender);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 150; ++i) {
+			String line = "Log line number " + i;
+			logger.info(line);
+			expected.append(line).append("\n");
+		}
+
+		logger.removeAppender(appender);
+		appender.close();
+		try {
+			uploader.finish(tail);
+			Assert.fail("Final upload didn't fail");
+		}
+		catch (ExecutorManagerException e) {
+		}
+		Assert.assertEquals(1, uploader.getNumFollowedLogs());
+		Assert.assertEquals(expected.length(), tail.getPendingBytes());
+
+		// Retried in the background, and dropped once all of it is uploaded.
+		loader.failing = false;
+		long endTime = System.currentTimeMillis() + 5000;
+		while (uploader.getNumFollowedLogs() > 0 && System.currentTimeMillis() < endTime) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(0, uploader.getNumFollowedLogs());
+		Assert.assertEquals(expected.toString(), new String(loader.getLogData(1, "test", 0), "UTF-8"));
+		uploader.shutdown();
+	}
+
+	private static class FailingLoader extends MockExecutorLoader {
+		private volatile boolean failing = false;
+
+		@Override
+		public synchronized void appendLogData(int execId, String name, int attempt, int startByte, byte[] data, int length) throws ExecutorManagerException {
+			if (failing) {
+				throw new ExecutorManagerException("Failed on purpose");
+			}
+			super.appendLogData(execId, name, attempt, startByte, data, length);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package azkaban.test.execapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.execapp.FlowRunner;
+import azkaban.execapp.JobSlotScheduler;
+import azkaban.execapp.event.LocalFlowWatcher;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.Status;
+import azkaban.flow.Flow;
+import azkaban.jobtype.JobTypeManager;
+import azkaban.project.Project;
+import azkaban.project.ProjectLoader;
+import azkaban.test.executor.InteractiveTestJob;
+import azkaban.utils.DirectoryFlowLoader;
+
+/**
+ * Runs several jobf flows from executions/embedded2 in shared job slots. The
+ * flows start with joba and joba1. Jobs of each flow are told apart by the
+ * group flow parameter, so flow A's joba is A:joba.
+ */
+public class JobSlotSchedulerTest {
+	private File workingDir;
+	private JobTypeManager jobtypeManager;
+	private ProjectLoader fakeProjectLoader;
+	private ExecutorLoader fakeExecutorLoader;
+	private Logger logger = Logger.getLogger(JobSlotSchedulerTest.class);
+	private Map<String, Flow> flowMap;
+	private static int id = 501;
+
+	@Before
+	public void setUp() throws Exception {
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		workingDir.mkdirs();
+		jobtypeManager = new JobTypeManager(null, this.getClass().getClassLoader());
+		jobtypeManager.registerJobType("test", InteractiveTestJob.class);
+		fakeProjectLoader = new MockProjectLoader(workingDir);
+		fakeExecutorLoader = new MockExecutorLoader();
+
+		File dir = new File("unit/executions/embedded2");
+		DirectoryFlowLoader loader = new DirectoryFlowLoader(logger);
+		loader.loadProjectFlow(dir);
+		flowMap = loader.getFlowMap();
+		FileUtils.copyDirectory(dir, workingDir);
+
+		InteractiveTestJob.clearTestJobs();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testSlotLimitAndFairShare() throws Exception {
+		JobSlotScheduler scheduler = new JobSlotScheduler(2, 2);
+		FlowRunner runnerA = createFlowRunner(scheduler, "A", 1, 0);
+		FlowRunner runnerB = createFlowRunner(scheduler, "B", 1, 0);
+
+		new Thread(runnerA).start();
+		pause(250);
+		assertStatus(runnerA, "joba", Status.RUNNING);
+		assertStatus(runnerA, "joba1", Status.RUNNING);
+
+		// Flow B waits for a slot.
+		new Thread(runnerB).start();
+		pause(250);
+		assertStatus(runnerB, "joba", Status.QUEUED);
+		assertStatus(runnerB, "joba1", Status.QUEUED);
+		Assert.assertEquals(2, scheduler.getNumUsedSlots());
+		Assert.assertEquals(2, scheduler.getNumQueuedJobs());
+
+		// The free slot goes to B.
+		InteractiveTestJob.getTestJob("A:joba1").succeedJob();
+		pause(250);
+		Assert.assertEquals(2, scheduler.getNumUsedSlots());
+		Assert.assertEquals(1, scheduler.getNumQueuedJobs());
+		Assert.assertEquals(1, countRunning(runnerB, "joba", "joba1"));
+
+		// A now has jobb, jobc and jobd waiting, and B has a job running. Fair
+		// share gives the next slot to A even though B's job waited longer.
+		InteractiveTestJob.getTestJob("A:joba").succeedJob();
+		pause(250);
+		Assert.assertEquals(2, scheduler.getNumUsedSlots());
+		Assert.assertEquals(3, scheduler.getNumQueuedJobs());
+		Assert.assertEquals(4, scheduler.getNumStartedJobs());
+		Assert.assertTrue(scheduler.getAverageWaitTimeMs() > 0);
+
+		runnerA.kill("test");
+		runnerB.kill("test");
+		pause(250);
+		Assert.assertEquals(Status.KILLED, runnerA.getExecutableFlow().getStatus());
+		Assert.assertEquals(Status.KILLED, runnerB.getExecutableFlow().getStatus());
+		Assert.assertEquals(0, scheduler.getNumUsedSlots());
+		Assert.assertEquals(0, scheduler.getNumQueuedJobs());
+	}
+
+	@Test
+	public void testPriority() throws Exception {
+		JobSlotScheduler scheduler = new JobSlotScheduler(1, 1);
+		FlowRunner runnerA = createFlowRunner(scheduler, "A", 1, 0);
+		FlowRunner runnerB = createFlowRunner(scheduler, "B", 1, 5);
+
+		new Thread(runnerA).start();
+		pause(250);
+		new Thread(runnerB).start();
+		pause(250);
+		Assert.assertEquals(1, scheduler.getNumUsedSlots());
+		Assert.assertEquals(3, scheduler.getNumQueuedJobs());
+
+		// B's jobs go first, even though A's second job has waited longer.
+		Assert.assertEquals(1, countRunning(runnerA, "joba", "joba1"));
+		String running = runnerA.getExecutableFlow().getExecutableNode("joba").getStatus() == Status.RUNNING ? "A:joba" : "A:joba1";
+		InteractiveTestJob.getTestJob(running).succeedJob();
+		pause(250);
+		Assert.assertEquals(1, scheduler.getNumUsedSlots());
+		Assert.assertEquals(2, scheduler.getNumQueuedJobs());
+		Assert.assertEquals(1, countRunning(runnerB, "joba", "joba1"));
+		Assert.assertEquals(0, countRunning(runnerA, "joba", "joba1"));
+
+		runnerA.kill("test");
+		runnerB.kill("test");
+		pause(250);
+		Assert.assertEquals(Status.KILLED, runnerA.getExecutableFlow().getStatus());
+		Assert.assertEquals(Status.KILLED, runnerB.getExecutableFlow().getStatus());
+	}
+
+	@Test
+	public void testSlotsPerProject() throws Exception {
+		JobSlotScheduler scheduler = new JobSlotScheduler(4, 2);
+		FlowRunner runnerA = createFlowRunner(scheduler, "A", 1, 0);
+		FlowRunner runnerB = createFlowRunner(scheduler, "B", 1, 0);
+		FlowRunner runnerC = createFlowRunner(scheduler, "C", 2, 0);
+
+		new Thread(runnerA).start();
+		new Thread(runnerB).start();
+		new Thread(runnerC).start();
+		pause(500);
+
+		// A and B share project 1's two slots. C has its own project.
+		Assert.assertEquals(4, scheduler.getNumUsedSlots());
+		Assert.assertEquals(2, scheduler.getNumQueuedJobs());
+		assertStatus(runnerC, "joba", Status.RUNNING);
+		assertStatus(runnerC, "joba1", Status.RUNNING);
+
+		runnerA.kill("test");
+		runnerB.kill("test");
+		runnerC.kill("test");
+		pause(250);
+		Assert.assertEquals(0, scheduler.getNumUsedSlots());
+	}
+
+	@Test
+	public void testKilledJobsDontWaitForSlots() throws Exception {
+		JobSlotScheduler scheduler = new JobSlotScheduler(1, 1);
+		FlowRunner runnerA = createFlowRunner(scheduler, "A", 1, 0);
+		FlowRunner runnerB = createFlowRunner(scheduler, "B", 1, 0);
+
+		new Thread(runnerA).start();
+		pause(250);
+		Thread threadB = new Thread(runnerB);
+		threadB.start();
+		pause(250);
+		assertStatus(runnerB, "joba", Status.QUEUED);
+		assertStatus(runnerB, "joba1", Status.QUEUED);
+
+		// B finishes while A still holds the only slot.
+		runnerB.kill("test");
+		threadB.join(5000);
+		Assert.assertFalse(threadB.isAlive());
+		Assert.assertEquals(Status.KILLED, runnerB.getExecutableFlow().getStatus());
+		assertStatus(runnerB, "joba", Status.KILLED);
+		Assert.assertEquals(1, scheduler.getNumUsedSlots());
+		Assert.assertEquals(1, scheduler.getNumQueuedJobs());
+
+		runnerA.kill("test");
+		pause(250);
+		Assert.assertEquals(Status.KILLED, runnerA.getExecutableFlow().getStatus());
+	}
+
+	@Test
+	public void testPipelinedJobsGiveSlotsBack() throws Exception {
+		JobSlotScheduler scheduler = new JobSlotScheduler(1, 1);
+		FlowRunner runnerA = createFlowRunner(scheduler, "A", 1, 0);
+		FlowRunner runnerB = createFlowRunner(scheduler, "B", 1, 0, runnerA);
+
+		// B's jobs start first and wait on A's, without keeping the only slot.
+		new Thread(runnerB).start();
+		pause(250);
+		Assert.assertEquals(0, scheduler.getNumUsedSlots());
+		Assert.assertEquals(0, scheduler.getNumQueuedJobs());
+
+		new Thread(runnerA).start();
+		pause(250);
+		Assert.assertEquals(1, scheduler.getNumUsedSlots());
+		Assert.assertEquals(1, countRunning(runnerA, "joba", "joba1"));
+		Assert.assertNull(InteractiveTestJob.getTestJob("B:joba"));
+		Assert.assertNull(InteractiveTestJob.getTestJob("B:joba1"));
+
+		// Finish jobs as they get the slot, until B's have run after A's.
+		String[] testJobs = {"A:joba", "A:joba1", "B:joba", "B:joba1"};
+		for (int i = 0; i < 20 && countSucceeded(runnerB, "joba", "joba1") < 2; i++) {
+			Assert.assertTrue(scheduler.getNumUsedSlots() <= 1);
+			for (String testJob: testJobs) {
+				if (InteractiveTestJob.getTestJob(testJob) != null) {
+					InteractiveTestJob.getTestJob(testJob).succeedJob();
+				}
+			}
+			pause(250);
+		}
+		assertStatus(runnerA, "joba", Status.SUCCEEDED);
+		assertStatus(runnerA, "joba1", Status.SUCCEEDED);
+		assertStatus(runnerB, "joba", Status.SUCCEEDED);
+		assertStatus(runnerB, "joba1", Status.SUCCEEDED);
+
+		runnerA.kill("test");
+		runnerB.kill("test");
+		pause(250);
+		Assert.assertEquals(Status.KILLED, runnerA.getExecutableFlow().getStatus());
+		Assert.assertEquals(Status.KILLED, runnerB.getExecutableFlow().getStatus());
+		Assert.assertEquals(0, scheduler.getNumUsedSlots());
+		Assert.assertEquals(0, scheduler.getNumQueuedJobs());
+	}
+
+	private void assertStatus(FlowRunner runner, String jobId, Status status) {
+		Status actual = runner.getExecutableFlow().getExecutableNode(jobId).getStatus();
+		Assert.assertEquals(jobId + " of flow " + runner.getExecutableFlow().getExecutionId(), status, actual);
+	}
+
+	private int countRunning(FlowRunner runner, String ... jobIds) {
+		int running = 0;
+		for (String jobId: jobIds) {
+			if (runner.getExecutableFlow().getExecutableNode(jobId).getStatus() == Status.RUNNING) {
+				running++;
+			}
+		}
+		return running;
+	}
+
+	private int countSucceeded(FlowRunner runner, String ... jobIds) {
+		int succeeded = 0;
+		for (String jobId: jobIds) {
+			if (runner.getExecutableFlow().getExecutableNode(jobId).getStatus() == Status.SUCCEEDED) {
+				succeeded++;
+			}
+		}
+		return succeeded;
+	}
+
+	private void pause(long millisec) {
+		synchronized(this) {
+			try {
+				wait(millisec);
+			}
+			catch (InterruptedException e) {
+			}
+		}
+	}
+
+	private FlowRunner createFlowRunner(JobSlotScheduler scheduler, String group, int projectId, int priority) throws Exception {
+		return createFlowRunner(scheduler, group, projectId, priority, null);
+	}
+
+	/**
+	 * @param pipelineOf if not null, the flow's jobs wait on the same jobs of this flow
+	 */
+	private FlowRunner createFlowRunner(JobSlotScheduler scheduler, String group, int projectId, int priority, FlowRunner pipelineOf) throws Exception {
+		Project project = new Project(projectId, "testProject" + projectId);
+		project.setFlows(flowMap);
+		int exId = id++;
+		ExecutableFlow exFlow = new ExecutableFlow(project, flowMap.get("jobf"));
+		exFlow.setExecutionPath(workingDir.getPath());
+		exFlow.setExecutionId(exId);
+
+		Map<String, String> flowParam = new HashMap<String, String>();
+		flowParam.put("group", group);
+		ExecutionOptions options = exFlow.getExecutionOptions();
+		options.addAllFlowParameters(flowParam);
+		if (pipelineOf != null) {
+			options.setPipelineExecutionId(pipelineOf.getExecutableFlow().getExecutionId());
+			options.setPipelineLevel(1);
+		}
+		fakeExecutorLoader.uploadExecutableFlow(exFlow);
+
+		FlowRunner runner = new FlowRunner(fakeExecutorLoader.fetchExecutableFlow(exId), fakeExecutorLoader, fakeProjectLoader, jobtypeManager);
+		runner.setJobScheduler(scheduler, priority);
+		if (pipelineOf != null) {
+			runner.setFlowWatcher(new LocalFlowWatcher(pipelineOf));
+		}
+		return runner;
+	}
+}
@@ -1,11 +1,15 @@
 package azkaban.test.execapp;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowSummary;
 import azkaban.executor.ExecutableJobInfo;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionReference;
@@ -24,6 +28,7 @@ public class MockExecutorLoader implements ExecutorLoader {
 	int flowUpdateCount = 0;
 	HashMap<String, Integer> jobUpdateCount = new HashMap<String,Integer>();
 	Map<Integer, Pair<ExecutionReference, ExecutableFlow>> activeFlows = new HashMap<Integer, Pair<ExecutionReference,ExecutableFlow>>();
+	HashMap<String, ByteArrayOutputStream> logs = new HashMap<String, ByteArrayOutputStream>();
 	
 	@Override
 	public void uploadExecutableFlow(ExecutableFlow flow) throws ExecutorManagerException {
@@ -42,6 +47,17 @@ public class MockExecutorLoader implements ExecutorLoader {
 		return activeFlows;
 	}
 
+	@Override
+	public List<ExecutableFlow> fetchQueuedFlows(long submittedAfter) throws ExecutorManagerException {
+		ArrayList<ExecutableFlow> queued = new ArrayList<ExecutableFlow>();
+		for (ExecutableFlow flow: flows.values()) {
+			if (flow.getStatus() == Status.PREPARING && flow.getSubmitTime() >= submittedAfter && !refs.containsKey(flow.getExecutionId())) {
+				queued.add(flow);
+			}
+		}
+		return queued;
+	}
+
 	@Override
 	public List<ExecutableFlow> fetchFlowHistory(int projectId, String flowId, int skip, int num) throws ExecutorManagerException {
 		return null;
@@ -66,6 +82,25 @@ public class MockExecutorLoader implements ExecutorLoader {
 
 	}
 
+	@Override
+	public synchronized void appendLogData(int execId, String name, int attempt, int startByte, byte[] data, int length) throws ExecutorManagerException {
+		String key = execId + "." + name + "." + attempt;
+		ByteArrayOutputStream log = logs.get(key);
+		if (log == null) {
+			log = new ByteArrayOutputStream();
+			logs.put(key, log);
+		}
+		if (log.size() != startByte) {
+			throw new ExecutorManagerException("Log " + key + " has " + log.size() + " bytes, but got a chunk at " + startByte);
+		}
+		log.write(data, 0, length);
+	}
+	
+	public synchronized byte[] getLogData(int execId, String name, int attempt) {
+		ByteArrayOutputStream log = logs.get(execId + "." + name + "." + attempt);
+		return log == null ? new byte[0] : log.toByteArray();
+	}
+
 	@Override
 	public void updateExecutableFlow(ExecutableFlow flow) throws ExecutorManagerException {
 		ExecutableFlow toUpdate = flows.get(flow.getExecutionId());
@@ -74,6 +109,28 @@ public class MockExecutorLoader implements ExecutorLoader {
 		flowUpdateCount++;
 	}
 
+	@Override
+	public void updateExecutableFlows(List<ExecutableFlow> flows) throws ExecutorManagerException {
+		for (ExecutableFlow flow: flows) {
+			updateExecutableFlow(flow);
+		}
+	}
+	
+	@Override
+	public void updateExecutableFlowStatus(ExecutableFlow flow, long lastUpdateTime) throws ExecutorManagerException {
+		ExecutableFlow toUpdate = flows.get(flow.getExecutionId());
+		
+		toUpdate.applyUpdateObject(flow.toUpdateObject(lastUpdateTime - 1));
+		flowUpdateCount++;
+	}
+
+	@Override
+	public void updateExecutableFlowStatus(List<Pair<ExecutableFlow, Long>> flows) throws ExecutorManagerException {
+		for (Pair<ExecutableFlow, Long> pair: flows) {
+			updateExecutableFlowStatus(pair.getFirst(), pair.getSecond());
+		}
+	}
+
 	@Override
 	public void uploadExecutableNode(ExecutableNode node, Props inputParams) throws ExecutorManagerException {
 		ExecutableNode exNode = new ExecutableNode();
@@ -160,6 +217,12 @@ public class MockExecutorLoader implements ExecutorLoader {
 		return null;
 	}
 
+	@Override
+	public List<ExecutableJobInfo> fetchJobHistoryBefore(int projectId, String jobId, int beforeExecId, int beforeAttempt, int size)
+			throws ExecutorManagerException {
+		return null;
+	}
+
 	@Override
 	public int fetchNumExecutableNodes(int projectId, String jobId) throws ExecutorManagerException {
 		// TODO Auto-generated method stub
@@ -203,6 +266,54 @@ public class MockExecutorLoader implements ExecutorLoader {
 		return null;
 	}
 
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int skip, int num) throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int projectId, String flowId, int skip, int num) throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(int projectId, String flowId, int skip, int num, Status status) throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummariesBefore(int projectId, String flowId, int beforeExecId, int num) throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<ExecutableFlowSummary> fetchFlowSummaries(String projContain, String flowContains, String userNameContains, int status,
+			long startData, long endData, int skip, int num) throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<ExecutableFlowSummary> searchFlowSummaries(Collection<Integer> projectIds, Collection<String> flowIds,
+			Collection<String> submitUsers, int status, long startData, long endData, int beforeExecId, int skip, int num)
+			throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public Map<Integer, String> fetchProjectNames() throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<String> fetchExecutedFlowIds() throws ExecutorManagerException {
+		return null;
+	}
+
+	@Override
+	public List<String> fetchSubmitUsers() throws ExecutorManagerException {
+		return null;
+	}
+
 	@Override
 	public List<Object> fetchAttachments(int execId, String name, int attempt)
 			throws ExecutorManagerException {
@@ -2,6 +2,7 @@ package azkaban.test.execapp;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -10,12 +11,14 @@ import java.util.Map;
 import azkaban.flow.Flow;
 import azkaban.project.Project;
 import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectFileUploadStream;
 import azkaban.project.ProjectLoader;
 import azkaban.project.ProjectLogEvent;
 import azkaban.project.ProjectLogEvent.EventType;
 import azkaban.project.ProjectManagerException;
 import azkaban.user.Permission;
 import azkaban.user.User;
+import azkaban.utils.Md5Hasher;
 import azkaban.utils.Props;
 import azkaban.utils.Triple;
 
@@ -81,6 +84,12 @@ public class MockProjectLoader implements ProjectLoader {
 		return null;
 	}
 
+	@Override
+	public List<ProjectLogEvent> getProjectEventsBefore(Project project, long beforeTime,
+			long beforeId, int num) throws ProjectManagerException {
+		return null;
+	}
+
 	@Override
 	public void uploadProjectFile(Project project, int version,
 			String filetype, String filename, File localFile, String user)
@@ -89,6 +98,29 @@ public class MockProjectLoader implements ProjectLoader {
 		
 	}
 
+	@Override
+	public ProjectFileUploadStream openProjectFileUpload(Project project,
+			int version, String filetype, String filename, String user)
+			throws ProjectManagerException {
+		return new ProjectFileUploadStream() {
+			private final MessageDigest digest = Md5Hasher.getMd5Digest();
+
+			@Override
+			public void write(int b) {
+				digest.update((byte)b);
+			}
+
+			@Override
+			public byte[] commit() {
+				return digest.digest();
+			}
+
+			@Override
+			public void abort() {
+			}
+		};
+	}
+
 	@Override
 	public ProjectFileHandler getUploadedFile(Project project, int version)
 			throws ProjectManagerException {
@@ -103,6 +135,17 @@ public class MockProjectLoader implements ProjectLoader {
 		return null;
 	}
 
+	@Override
+	public ProjectFileHandler getUploadedFileInfo(int projectId, int version)
+			throws ProjectManagerException {
+		return null;
+	}
+
+	@Override
+	public void fetchUploadedFile(ProjectFileHandler handler, File localFile,
+			int numThreads) throws ProjectManagerException {
+	}
+
 	@Override
 	public void changeProjectVersion(Project project, int version, String user)
 			throws ProjectManagerException {
@@ -0,0 +1,195 @@
+package azkaban.test.execapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.execapp.ProjectArtifactCache;
+import azkaban.execapp.ProjectVersion;
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectManagerException;
+import azkaban.utils.Md5Hasher;
+
+public class ProjectArtifactCacheTest {
+	private File workingDir;
+	private File zipFile;
+
+	@Before
+	public void setUp() throws Exception {
+		System.out.println("Create temp dir");
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		workingDir.mkdirs();
+
+		zipFile = new File(workingDir, "project.zip");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+		zip.putNextEntry(new ZipEntry("lib/"));
+		zip.putNextEntry(new ZipEntry("lib/test.jar"));
+		zip.write("jar".getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry("test.job"));
+		zip.write("type=command".getBytes("UTF-8"));
+		zip.close();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		System.out.println("Teardown temp dir");
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testSharedArchive() throws Exception {
+		ArchiveLoader loader = new ArchiveLoader(workingDir);
+		ProjectArtifactCache cache = new ProjectArtifactCache(loader, new File(workingDir, "cache"), 2);
+
+		// Both versions were uploaded with the same archive.
+		File dir1 = cache.getProjectFiles(1, 1);
+		File dir2 = cache.getProjectFiles(1, 2);
+		Assert.assertEquals(dir1, dir2);
+		Assert.assertEquals(1, loader.fetchCount.get());
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertEquals(1, cache.getHitCount());
+
+		Assert.assertEquals("type=command", FileUtils.readFileToString(new File(dir1, "test.job")));
+		Assert.assertTrue(new File(dir1, "lib/test.jar").exists());
+
+		// Nothing but the cached entry is left behind.
+		Assert.assertEquals(1, cache.getCacheDir().listFiles().length);
+		Assert.assertEquals(FileUtils.sizeOfDirectory(dir1), cache.getSizeBytes());
+	}
+
+	@Test
+	public void testConcurrentFetch() throws Exception {
+		ArchiveLoader loader = new ArchiveLoader(workingDir);
+		final ProjectArtifactCache cache = new ProjectArtifactCache(loader, new File(workingDir, "cache"), 2);
+
+		final List<File> dirs = new ArrayList<File>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; ++i) {
+			final int version = i;
+			Thread thread = new Thread() {
+				public void run() {
+					try {
+						File dir = cache.getProjectFiles(1, version);
+						synchronized (dirs) {
+							dirs.add(dir);
+						}
+					}
+					catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread: threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(4, dirs.size());
+		Assert.assertEquals(1, loader.fetchCount.get());
+	}
+
+	@Test
+	public void testInstallFromCache() throws Exception {
+		ArchiveLoader loader = new ArchiveLoader(workingDir);
+		ProjectArtifactCache cache = new ProjectArtifactCache(loader, new File(workingDir, "cache"), 2);
+		File projectDir = new File(workingDir, "projects");
+		projectDir.mkdirs();
+		File execDir = new File(workingDir, "exec");
+		execDir.mkdirs();
+
+		ProjectVersion version = new ProjectVersion(1, 3);
+		version.setupProjectFiles(cache, projectDir, Logger.getLogger(ProjectArtifactCacheTest.class));
+		version.copyCreateSymlinkDirectory(execDir);
+		Assert.assertEquals("type=command", FileUtils.readFileToString(new File(execDir, "test.job")));
+
+		// Deleting the version only removes the link, not the cached files.
+		version.deleteDirectory();
+		Assert.assertFalse(new File(projectDir, "1.3").exists());
+		Assert.assertTrue(new File(cache.getProjectFiles(1, 3), "test.job").exists());
+	}
+
+	@Test
+	public void testReadOnlyFiles() throws Exception {
+		ArchiveLoader loader = new ArchiveLoader(workingDir);
+		File cacheDir = new File(workingDir, "cache");
+		ProjectArtifactCache cache = new ProjectArtifactCache(loader, cacheDir, 2, true);
+		File dir = cache.getProjectFiles(1, 1);
+		assertReadOnly(new File(dir, "test.job"));
+		assertReadOnly(new File(dir, "lib/test.jar"));
+		Assert.assertTrue(Files.getPosixFilePermissions(new File(dir, "lib").toPath()).contains(PosixFilePermission.OWNER_WRITE));
+
+		// Entries cached while files were writable are made read only on restart.
+		Files.setPosixFilePermissions(new File(dir, "test.job").toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+		new ProjectArtifactCache(loader, cacheDir, 2, true);
+		assertReadOnly(new File(dir, "test.job"));
+
+		// Removing an entry still works.
+		Assert.assertTrue(cache.remove(cache.getKeys().iterator().next()));
+		Assert.assertFalse(dir.exists());
+	}
+
+	private static void assertReadOnly(File file) throws IOException {
+		Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file.toPath());
+		Assert.assertFalse(permissions.contains(PosixFilePermission.OWNER_WRITE));
+		Assert.assertFalse(permissions.contains(PosixFilePermission.GROUP_WRITE));
+		Assert.assertFalse(permissions.contains(PosixFilePermission.OTHERS_WRITE));
+	}
+
+	/**
+	 * Serves the same zip file for every version.
+	 */
+	private class ArchiveLoader extends MockProjectLoader {
+		private final AtomicInteger fetchCount = new AtomicInteger();
+
+		public ArchiveLoader(File dir) {
+			super(dir);
+		}
+
+		@Override
+		public ProjectFileHandler getUploadedFileInfo(int projectId, int version) throws ProjectManagerException {
+			try {
+				return new ProjectFileHandler(projectId, version, 0, "test", "zip", "project.zip", 1, Md5Hasher.md5Hash(zipFile));
+			}
+			catch (IOException e) {
+				throw new ProjectManagerException("Error hashing", e);
+			}
+		}
+
+		@Override
+		public void fetchUploadedFile(ProjectFileHandler handler, File localFile, int numThreads) throws ProjectManagerException {
+			fetchCount.incrementAndGet();
+			try {
+				// Give concurrent requests a chance to pile up.
+				Thread.sleep(100);
+				FileUtils.copyFile(zipFile, localFile);
+			}
+			catch (Exception e) {
+				throw new ProjectManagerException("Error copying", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package azkaban.test.execapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.execapp.ProjectArtifactCache;
+import azkaban.execapp.ProjectVersion;
+import azkaban.execapp.ProjectVersionEvictor;
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectManagerException;
+import azkaban.utils.Md5Hasher;
+import azkaban.utils.Pair;
+
+public class ProjectVersionEvictorTest {
+	private static final Logger logger = Logger.getLogger(ProjectVersionEvictorTest.class);
+	private File workingDir;
+	private File projectDir;
+	private Map<Pair<Integer,Integer>, ProjectVersion> installedProjects;
+
+	@Before
+	public void setUp() throws Exception {
+		System.out.println("Create temp dir");
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		workingDir.mkdirs();
+		projectDir = new File(workingDir, "projects");
+		projectDir.mkdirs();
+		installedProjects = new ConcurrentHashMap<Pair<Integer,Integer>, ProjectVersion>();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		System.out.println("Teardown temp dir");
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws Exception {
+		long now = System.currentTimeMillis();
+		installDir(1, 1, now - 30000);
+		installDir(1, 2, now - 20000);
+		installDir(2, 1, now - 10000);
+
+		ProjectVersionEvictor evictor = new ProjectVersionEvictor(installedProjects, null, 2500, 1500);
+		Assert.assertEquals(3000, evictor.getFootprintBytes());
+
+		// The oldest is in use, so the next ones go instead.
+		Set<Pair<Integer,Integer>> active = Collections.singleton(new Pair<Integer,Integer>(1, 1));
+		Assert.assertEquals(2, evictor.evict(active));
+		Assert.assertEquals(1000, evictor.getFootprintBytes());
+		Assert.assertTrue(installedProjects.containsKey(new Pair<Integer,Integer>(1, 1)));
+		Assert.assertTrue(new File(projectDir, "1.1").exists());
+		Assert.assertFalse(new File(projectDir, "1.2").exists());
+		Assert.assertFalse(new File(projectDir, "2.1").exists());
+		Assert.assertEquals(2, evictor.getNumEvictedVersions());
+		Assert.assertEquals(2000, evictor.getEvictedBytes());
+
+		// Under the high watermark nothing is evicted.
+		Assert.assertEquals(0, evictor.evict(new HashSet<Pair<Integer,Integer>>()));
+	}
+
+	@Test
+	public void testEvictSharedArtifacts() throws Exception {
+		File bigZip = createZip("big.zip", 2000);
+		File smallZip = createZip("small.zip", 1000);
+		Map<Integer, File> archives = new HashMap<Integer, File>();
+		archives.put(1, bigZip);
+		archives.put(2, bigZip);
+		archives.put(3, smallZip);
+		ProjectArtifactCache cache = new ProjectArtifactCache(new ArchiveLoader(archives), new File(workingDir, "cache"), 1);
+
+		for (int version = 1; version <= 3; ++version) {
+			ProjectVersion projectVersion = new ProjectVersion(1, version);
+			projectVersion.setupProjectFiles(cache, projectDir, logger);
+			installedProjects.put(new Pair<Integer,Integer>(1, version), projectVersion);
+			Thread.sleep(20);
+		}
+		Assert.assertEquals(2, cache.getKeys().size());
+		Assert.assertEquals(3000, cache.getSizeBytes());
+
+		ProjectVersionEvictor evictor = new ProjectVersionEvictor(installedProjects, cache, 1500, 1000);
+		Assert.assertEquals(3000, evictor.getFootprintBytes());
+
+		// Version 1 is the least recently used, but shares its files with the
+		// running version 2.
+		Set<Pair<Integer,Integer>> active = Collections.singleton(new Pair<Integer,Integer>(1, 2));
+		Assert.assertEquals(1, evictor.evict(active));
+		Assert.assertEquals(2, installedProjects.size());
+		Assert.assertFalse(installedProjects.containsKey(new Pair<Integer,Integer>(1, 3)));
+		Assert.assertEquals(2000, evictor.getFootprintBytes());
+		Assert.assertEquals(1, evictor.getNumEvictedArtifacts());
+
+		Assert.assertEquals(2, evictor.evict(new HashSet<Pair<Integer,Integer>>()));
+		Assert.assertTrue(installedProjects.isEmpty());
+		Assert.assertEquals(0, cache.getSizeBytes());
+		Assert.assertEquals(0, cache.getCacheDir().listFiles().length);
+		Assert.assertEquals(0, projectDir.listFiles().length);
+		Assert.assertEquals(3, evictor.getNumEvictedVersions());
+		Assert.assertEquals(2, evictor.getNumEvictedArtifacts());
+		Assert.assertEquals(3000, evictor.getEvictedBytes());
+	}
+
+	private void installDir(int projectId, int version, long lastUsedTime) throws IOException {
+		File dir = new File(projectDir, projectId + "." + version);
+		dir.mkdirs();
+		FileUtils.writeByteArrayToFile(new File(dir, "data.bin"), new byte[1000]);
+		dir.setLastModified(lastUsedTime);
+		installedProjects.put(new Pair<Integer,Integer>(projectId, version), new ProjectVersion(projectId, version, dir));
+	}
+
+	private File createZip(String name, int size) throws IOException {
+		File zipFile = new File(workingDir, name);
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+		zip.putNextEntry(new ZipEntry("data.bin"));
+		zip.write(new byte[size]);
+		zip.close();
+		return zipFile;
+	}
+
+	/**
+	 * Serves a zip file for each version.
+	 */
+	private static class ArchiveLoader extends MockProjectLoader {
+		private final Map<Integer, File> archives;
+
+		public ArchiveLoader(Map<Integer, File> archives) {
+			super(null);
+			this.archives = archives;
+		}
+
+		@Override
+		public ProjectFileHandler getUploadedFileInfo(int projectId, int version) throws ProjectManagerException {
+			File archive = archives.get(version);
+			try {
+				return new ProjectFileHandler(projectId, version, 0, "test", "zip", archive.getName(), 1, Md5Hasher.md5Hash(archive));
+			}
+			catch (IOException e) {
+				throw new ProjectManagerException("Error hashing", e);
+			}
+		}
+
+		@Override
+		public void fetchUploadedFile(ProjectFileHandler handler, File localFile, int numThreads) throws ProjectManagerException {
+			try {
+				FileUtils.copyFile(archives.get(handler.getVersion()), localFile);
+			}
+			catch (IOException e) {
+				throw new ProjectManagerException("Error copying", e);
+			}
+		}
+	}
+}
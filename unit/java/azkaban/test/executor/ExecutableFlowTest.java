@@ -1,6 +1,7 @@
 package azkaban.test.executor;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -16,6 +17,7 @@ import org.junit.Test;
 
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableFlowBase;
+import azkaban.executor.ExecutableFlowBinaryCodec;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutionOptions.FailureAction;
@@ -24,6 +26,7 @@ import azkaban.flow.Flow;
 import azkaban.project.Project;
 import azkaban.utils.DirectoryFlowLoader;
 import azkaban.utils.JSONUtils;
+import azkaban.utils.Props;
 
 public class ExecutableFlowTest {
 	private Project project;
@@ -130,6 +133,67 @@ public class ExecutableFlowTest {
 		testEquals(exFlow, parsedExFlow);
 	}
 	
+	@Test
+	public void testExecutorFlowBinary() throws Exception {
+		Flow flow = project.getFlow("jobe");
+		Assert.assertNotNull(flow);
+
+		ExecutableFlow exFlow = new ExecutableFlow(project, flow);
+		exFlow.setExecutionId(101);
+		exFlow.setSubmitUser("testUser");
+		exFlow.setSubmitTime(1390000000000L);
+		exFlow.setStatus(Status.RUNNING);
+		exFlow.setStartTime(1390000001000L);
+		exFlow.addAllProxyUsers(Arrays.asList("proxy1", "proxy2"));
+
+		ExecutableNode joba = exFlow.getExecutableNode("joba");
+		joba.setStartTime(1390000002000L);
+		joba.setEndTime(1390000003000L);
+		joba.setStatus(Status.FAILED);
+		joba.resetForRetry();
+		joba.setStatus(Status.SUCCEEDED);
+		Props output = new Props();
+		output.put("key", "value");
+		joba.setOutputProps(output);
+
+		ExecutionOptions options = exFlow.getExecutionOptions();
+		Map<String, Object> nested = new HashMap<String, Object>();
+		nested.put("id", "jobb");
+		nested.put("children", Arrays.asList((Object)"innerJobA"));
+		options.setDisabledJobs(Arrays.asList(new Object[] {"bee", null, nested}));
+		options.setPipelineLevel(2);
+		options.setFailureEmails(Arrays.asList(new String[] {"doo", null, "daa"}));
+		HashMap<String, String> flowProps = new HashMap<String,String>();
+		flowProps.put("la", "fa");
+		options.addAllFlowParameters(flowProps);
+
+		byte[] data = ExecutableFlowBinaryCodec.encode(exFlow);
+		ExecutableFlow parsedExFlow = ExecutableFlowBinaryCodec.decode(data);
+		testEquals(exFlow, parsedExFlow);
+		Assert.assertEquals(101, parsedExFlow.getExecutionId());
+		Assert.assertEquals(exFlow.getProxyUsers(), parsedExFlow.getProxyUsers());
+
+		ExecutableNode parsedJoba = parsedExFlow.getExecutableNode("joba");
+		Assert.assertEquals(1, parsedJoba.getPastAttemptList().size());
+		Assert.assertEquals(Status.FAILED, parsedJoba.getPastAttemptList().get(0).getStatus());
+		Assert.assertEquals(1390000003000L, parsedJoba.getPastAttemptList().get(0).getEndTime());
+		Assert.assertEquals("value", parsedJoba.getOutputProps().get("key"));
+		Assert.assertEquals(joba.getInNodes(), parsedJoba.getInNodes());
+		Assert.assertEquals(joba.getOutNodes(), parsedJoba.getOutNodes());
+
+		// The same flow in json, so the two formats agree.
+		@SuppressWarnings("unchecked")
+		Map<String,Object> flowObjMap = (Map<String,Object>)JSONUtils.parseJSONFromString(JSONUtils.toJSON(exFlow.toObject()));
+		testEquals(parsedExFlow, ExecutableFlow.createExecutableFlowFromObject(flowObjMap));
+
+		try {
+			ExecutableFlowBinaryCodec.decode(Arrays.copyOf(data, data.length / 2));
+			Assert.fail("Decoded truncated data");
+		}
+		catch (IOException e) {
+		}
+	}
+
 	@SuppressWarnings("rawtypes")
 	@Test
 	public void testExecutorFlowUpdates() throws Exception {
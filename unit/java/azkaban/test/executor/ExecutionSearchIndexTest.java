@@ -0,0 +1,69 @@
+package azkaban.test.executor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionSearchIndex;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.flow.Flow;
+import azkaban.project.Project;
+import azkaban.test.execapp.MockExecutorLoader;
+
+public class ExecutionSearchIndexTest {
+
+	@Test
+	public void testFind() throws Exception {
+		ExecutionSearchIndex index = new ExecutionSearchIndex(new TermsLoader(), 60000);
+
+		Assert.assertEquals(new HashSet<Integer>(Arrays.asList(1, 3)), index.findProjects("Search"));
+		Assert.assertEquals(new HashSet<Integer>(Arrays.asList(2)), index.findProjects("ex"));
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("daily-report", "weekly-report")), index.findFlows("report"));
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("Alice")), index.findUsers("ALI"));
+
+		// No match at all, and a match on everything.
+		Assert.assertTrue(index.findFlows("nightly").isEmpty());
+		Assert.assertNull(index.findUsers("i"));
+		Assert.assertNull(index.findUsers(""));
+	}
+
+	@Test
+	public void testAddExecution() throws Exception {
+		ExecutionSearchIndex index = new ExecutionSearchIndex(new TermsLoader(), 60000);
+		Assert.assertTrue(index.findFlows("hourly").isEmpty());
+
+		ExecutableFlow flow = new ExecutableFlow(new Project(1, "search-backend"), new Flow("hourly-rollup"));
+		flow.setSubmitUser("carol");
+		index.addExecution(flow);
+
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("hourly-rollup")), index.findFlows("hourly"));
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("carol")), index.findUsers("car"));
+	}
+
+	private static class TermsLoader extends MockExecutorLoader {
+		@Override
+		public Map<Integer, String> fetchProjectNames() throws ExecutorManagerException {
+			Map<Integer, String> names = new HashMap<Integer, String>();
+			names.put(1, "search-backend");
+			names.put(2, "experiments");
+			names.put(3, "searchUI");
+			return names;
+		}
+
+		@Override
+		public List<String> fetchExecutedFlowIds() throws ExecutorManagerException {
+			return Arrays.asList("daily-report", "weekly-report", "cleanup");
+		}
+
+		@Override
+		public List<String> fetchSubmitUsers() throws ExecutorManagerException {
+			return Arrays.asList("Alice", "bill");
+		}
+	}
+}
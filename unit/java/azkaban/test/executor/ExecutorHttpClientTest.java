@@ -0,0 +1,164 @@
+package azkaban.test.executor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Map;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import azkaban.executor.ExecutorHttpClient;
+import azkaban.utils.Props;
+
+public class ExecutorHttpClientTest {
+	private HttpServer server;
+	private ExecutorHttpClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/json", new ResponseHandler(200, "{\"status\":\"success\"}", 0));
+		server.createContext("/error", new ResponseHandler(500, "error", 0));
+		server.createContext("/slow", new ResponseHandler(200, "slow", 1000));
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		if (client != null) {
+			client.shutdown();
+		}
+		server.stop(0);
+	}
+
+	@Test
+	public void testConnectionsAreReused() throws Exception {
+		client = new ExecutorHttpClient(new Props());
+		Assert.assertEquals("{\"status\":\"success\"}", client.httpGet(uri("/json")));
+		for (int i = 0; i < 4; ++i) {
+			Map<?, ?> response = (Map<?, ?>)client.httpGetJSON(uri("/json"));
+			Assert.assertEquals("success", response.get("status"));
+		}
+
+		Assert.assertEquals(5, client.getNumRequests());
+		Assert.assertEquals(0, client.getNumFailedRequests());
+		Assert.assertEquals(1, client.getNumConnectionsCreated());
+		Assert.assertEquals(4, client.getNumConnectionsReused());
+		Assert.assertEquals(0, client.getNumLeasedConnections());
+		Assert.assertEquals(1, client.getNumAvailableConnections());
+	}
+
+	@Test
+	public void testErrorResponses() throws Exception {
+		client = new ExecutorHttpClient(new Props());
+		for (int i = 0; i < 2; ++i) {
+			try {
+				client.httpGetJSON(uri("/error"));
+				Assert.fail("Parsed an error response");
+			}
+			catch (HttpResponseException e) {
+				Assert.assertEquals(500, e.getStatusCode());
+			}
+		}
+		client.httpGet(uri("/json"));
+
+		// The error bodies were read, so the connection stayed usable.
+		Assert.assertEquals(3, client.getNumRequests());
+		Assert.assertEquals(2, client.getNumFailedRequests());
+		Assert.assertEquals(1, client.getNumConnectionsCreated());
+		Assert.assertEquals(2, client.getNumConnectionsReused());
+		Assert.assertEquals(0, client.getNumLeasedConnections());
+	}
+
+	@Test
+	public void testFailedRequestsAreNotReuses() throws Exception {
+		// Nothing listens on the port once the socket is closed.
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+
+		client = new ExecutorHttpClient(new Props());
+		for (int i = 0; i < 3; ++i) {
+			try {
+				client.httpGet(new URI("http://localhost:" + port + "/json"));
+				Assert.fail("Connected to a closed port");
+			}
+			catch (IOException e) {
+			}
+		}
+
+		// Fails before a connection is leased.
+		try {
+			client.httpGet(new URI("/json"));
+			Assert.fail("Requested a uri without a host");
+		}
+		catch (Exception e) {
+		}
+
+		Assert.assertEquals(4, client.getNumRequests());
+		Assert.assertEquals(4, client.getNumFailedRequests());
+		Assert.assertEquals(0, client.getNumConnectionsReused());
+		Assert.assertEquals(0, client.getNumLeasedConnections());
+	}
+
+	@Test
+	public void testSocketTimeout() throws Exception {
+		Props props = new Props();
+		props.put(ExecutorHttpClient.SOCKET_TIMEOUT_MS, 200);
+		client = new ExecutorHttpClient(props);
+		try {
+			client.httpGet(uri("/slow"));
+			Assert.fail("Didn't time out");
+		}
+		catch (SocketTimeoutException e) {
+		}
+		Assert.assertEquals(1, client.getNumFailedRequests());
+		Assert.assertEquals(0, client.getNumLeasedConnections());
+	}
+
+	@Test
+	public void testNoSocketTimeoutByDefault() throws Exception {
+		client = new ExecutorHttpClient(new Props());
+		Assert.assertEquals("slow", client.httpGet(uri("/slow")));
+	}
+
+	private URI uri(String path) throws Exception {
+		return new URI("http://localhost:" + server.getAddress().getPort() + path);
+	}
+
+	private static class ResponseHandler implements HttpHandler {
+		private final int status;
+		private final byte[] body;
+		private final long delayMs;
+
+		private ResponseHandler(int status, String body, long delayMs) {
+			this.status = status;
+			this.body = body.getBytes();
+			this.delayMs = delayMs;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				Thread.sleep(delayMs);
+			}
+			catch (InterruptedException e) {
+			}
+			exchange.sendResponseHeaders(status, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		}
+	}
+}
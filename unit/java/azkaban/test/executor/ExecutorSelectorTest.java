@@ -0,0 +1,116 @@
+package azkaban.test.executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.ExecutorInfo;
+import azkaban.executor.ExecutorSelector;
+import azkaban.executor.ExecutorSelectors;
+
+public class ExecutorSelectorTest {
+	@Test
+	public void testLeastFlows() throws Exception {
+		ExecutorInfo a = createExecutor("a", 3, 10, 100);
+		ExecutorInfo b = createExecutor("b", 1, 10, 100);
+		ExecutorInfo c = createExecutor("c", 2, 10, 100);
+		List<ExecutorInfo> executors = Arrays.asList(a, b, c);
+
+		ExecutorSelector selector = ExecutorSelectors.create(ExecutorSelectors.LEAST_FLOWS);
+		Assert.assertSame(b, selector.select(executors, 1, 1));
+
+		// Executions sent since the last stats count.
+		b.addExecution(1, 1);
+		b.addExecution(1, 1);
+		Assert.assertSame(c, selector.select(executors, 1, 1));
+	}
+
+	@Test
+	public void testExecutorsWithoutStatsGoLast() throws Exception {
+		ExecutorInfo a = new ExecutorInfo("a", 1000);
+		ExecutorInfo b = createExecutor("b", 5, 10, 100);
+		List<ExecutorInfo> executors = Arrays.asList(a, b);
+
+		ExecutorSelector selector = ExecutorSelectors.create(ExecutorSelectors.LEAST_FLOWS);
+		Assert.assertSame(b, selector.select(executors, 1, 1));
+
+		// With no stats at all, the local counts spread the executions.
+		b.setStatsUnavailable(System.currentTimeMillis());
+		ExecutorInfo c = new ExecutorInfo("c", 1000);
+		executors = Arrays.asList(a, c);
+		List<ExecutorInfo> selected = new ArrayList<ExecutorInfo>();
+		for (int i = 0; i < 4; ++i) {
+			ExecutorInfo executor = selector.select(executors, 1, 1);
+			executor.addExecution(1, 1);
+			selected.add(executor);
+		}
+		Assert.assertEquals(Arrays.asList(a, c, a, c), selected);
+	}
+
+	@Test
+	public void testLeastMemory() throws Exception {
+		ExecutorInfo a = createExecutor("a", 0, 80, 100);
+		ExecutorInfo b = createExecutor("b", 5, 50, 100);
+		ExecutorInfo c = createExecutor("c", 1, 62, 100);
+		List<ExecutorInfo> executors = Arrays.asList(a, b, c);
+
+		ExecutorSelector selector = ExecutorSelectors.create(ExecutorSelectors.LEAST_MEMORY);
+		Assert.assertSame(b, selector.select(executors, 1, 1));
+
+		// Close memory use falls back to the running flows.
+		b.updateStats(createStats(5, 61, 100), System.currentTimeMillis());
+		Assert.assertSame(c, selector.select(executors, 1, 1));
+	}
+
+	@Test
+	public void testProjectAffinity() throws Exception {
+		ExecutorInfo a = createExecutor("a", 1, 10, 100);
+		ExecutorInfo b = createExecutor("b", 2, 10, 100, "7.3");
+		ExecutorInfo c = createExecutor("c", 5, 10, 100, "8.1");
+		List<ExecutorInfo> executors = Arrays.asList(a, b, c);
+
+		ExecutorSelector selector = ExecutorSelectors.create(ExecutorSelectors.PROJECT_AFFINITY);
+		Assert.assertSame(b, selector.select(executors, 7, 3));
+		Assert.assertSame(a, selector.select(executors, 7, 4));
+
+		// c has the version, but runs too many more flows than a.
+		Assert.assertSame(a, selector.select(executors, 8, 1));
+	}
+
+	@Test
+	public void testCustomSelector() throws Exception {
+		ExecutorSelector selector = ExecutorSelectors.create(LastSelector.class.getName());
+		ExecutorInfo a = createExecutor("a", 0, 10, 100);
+		ExecutorInfo b = createExecutor("b", 9, 10, 100);
+		Assert.assertSame(b, selector.select(Arrays.asList(a, b), 1, 1));
+	}
+
+	public static class LastSelector implements ExecutorSelector {
+		@Override
+		public ExecutorInfo select(List<ExecutorInfo> executors, int projectId, int version) {
+			return executors.get(executors.size() - 1);
+		}
+	}
+
+	private ExecutorInfo createExecutor(String host, int numFlows, long usedMemory, long totalMemory, String ... projects) {
+		ExecutorInfo executor = new ExecutorInfo(host, 12321);
+		executor.updateStats(createStats(numFlows, usedMemory, totalMemory, projects), System.currentTimeMillis());
+		return executor;
+	}
+
+	private Map<String, Object> createStats(int numFlows, long usedMemory, long totalMemory, String ... projects) {
+		HashMap<String, Object> stats = new HashMap<String, Object>();
+		stats.put(ConnectorParams.STATS_NUM_RUNNING_FLOWS, numFlows);
+		stats.put(ConnectorParams.STATS_NUM_RUNNING_JOBS, numFlows * 2);
+		stats.put(ConnectorParams.STATS_FREE_MEMORY, totalMemory - usedMemory);
+		stats.put(ConnectorParams.STATS_TOTAL_MEMORY, totalMemory);
+		stats.put(ConnectorParams.STATS_PROJECTS, Arrays.asList(projects));
+		return stats;
+	}
+}
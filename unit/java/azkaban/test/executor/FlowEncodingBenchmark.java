@@ -0,0 +1,146 @@
+package azkaban.test.executor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import azkaban.database.AbstractJdbcLoader.EncodingType;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowBinaryCodec;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.Status;
+import azkaban.flow.Edge;
+import azkaban.flow.Flow;
+import azkaban.flow.Node;
+import azkaban.project.Project;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
+
+/**
+ * Compares the execution flow encodings JdbcExecutorLoader can store: json
+ * gzipped (the default), plain json and the deflated binary format. The binary
+ * format before deflating is listed too. Prints the stored size and the time
+ * and memory allocated to encode and decode a flow with 5,000 nodes, half of
+ * them finished.
+ *
+ * Run with: java azkaban.test.executor.FlowEncodingBenchmark [numNodes] [rounds]
+ */
+public class FlowEncodingBenchmark {
+	private static final String[] FORMATS = {"json+gzip", "json", "binary raw", "binary"};
+
+	public static void main(String[] args) throws Exception {
+		int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		ExecutableFlow flow = createFlow(numNodes);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long[] sizes = new long[FORMATS.length];
+		long[] encodeTimes = new long[FORMATS.length];
+		long[] decodeTimes = new long[FORMATS.length];
+		long[] encodeBytes = new long[FORMATS.length];
+		long[] decodeBytes = new long[FORMATS.length];
+
+		// Every round goes through all the formats, and the first few warm up.
+		int warmup = Math.max(1, rounds / 4);
+		for (int round = 0; round < warmup + rounds; ++round) {
+			for (int i = 0; i < FORMATS.length; ++i) {
+				long allocated = threadBean.getThreadAllocatedBytes(threadId);
+				long startTime = System.nanoTime();
+				byte[] data = encode(flow, i);
+				long encodeTime = System.nanoTime() - startTime;
+				long encodeAllocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+
+				allocated = threadBean.getThreadAllocatedBytes(threadId);
+				startTime = System.nanoTime();
+				ExecutableFlow decoded = decode(data, i);
+				long decodeTime = System.nanoTime() - startTime;
+				long decodeAllocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+
+				if (decoded.getExecutableNodes().size() != numNodes) {
+					throw new IllegalStateException(FORMATS[i] + " lost nodes");
+				}
+				if (round >= warmup) {
+					sizes[i] = data.length;
+					encodeTimes[i] += encodeTime;
+					decodeTimes[i] += decodeTime;
+					encodeBytes[i] += encodeAllocated;
+					decodeBytes[i] += decodeAllocated;
+				}
+			}
+		}
+
+		System.out.println(numNodes + " nodes, average of " + rounds + " rounds");
+		System.out.println(String.format("%-12s %10s %10s %10s %12s %12s", "format", "bytes", "encode ms", "decode ms", "encode MB", "decode MB"));
+		for (int i = 0; i < FORMATS.length; ++i) {
+			System.out.println(String.format("%-12s %10d %10.2f %10.2f %12.2f %12.2f",
+					FORMATS[i],
+					sizes[i],
+					encodeTimes[i] / 1e6 / rounds,
+					decodeTimes[i] / 1e6 / rounds,
+					encodeBytes[i] / 1048576.0 / rounds,
+					decodeBytes[i] / 1048576.0 / rounds));
+		}
+	}
+
+	private static byte[] encode(ExecutableFlow flow, int format) throws Exception {
+		if (format == 2) {
+			return ExecutableFlowBinaryCodec.encode(flow);
+		}
+		else if (format == 3) {
+			return EncodingType.BINARY.encode(ExecutableFlowBinaryCodec.encode(flow));
+		}
+
+		byte[] data = JSONUtils.toJSON(flow.toObject()).getBytes("UTF-8");
+		return format == 0 ? GZIPUtils.gzipBytes(data) : data;
+	}
+
+	private static ExecutableFlow decode(byte[] data, int format) throws Exception {
+		if (format == 2) {
+			return ExecutableFlowBinaryCodec.decode(data);
+		}
+		else if (format == 3) {
+			return ExecutableFlowBinaryCodec.decode(EncodingType.BINARY.decode(data));
+		}
+
+		String json = format == 0 ? GZIPUtils.unGzipString(data, "UTF-8") : new String(data, "UTF-8");
+		return ExecutableFlow.createExecutableFlowFromObject(JSONUtils.parseJSONFromString(json));
+	}
+
+	/**
+	 * Each node depends on up to three earlier ones. The first half has run.
+	 */
+	public static ExecutableFlow createFlow(int numNodes) {
+		Random random = new Random(1);
+		Flow flow = new Flow("benchmarkFlow");
+		for (int i = 0; i < numNodes; ++i) {
+			Node node = new Node("job" + i);
+			node.setType("command");
+			node.setJobSource("jobs/group" + (i % 50) + "/job" + i + ".job");
+			node.setPropsSource("jobs/group" + (i % 50) + "/common.properties");
+			flow.addNode(node);
+			for (int j = 0; j < 3 && i > 0; ++j) {
+				flow.addEdge(new Edge("job" + random.nextInt(i), "job" + i));
+			}
+		}
+
+		Project project = new Project(1, "benchmarkProject");
+		project.setVersion(1);
+		ExecutableFlow exFlow = new ExecutableFlow(project, flow);
+		exFlow.setExecutionId(1000);
+		exFlow.setSubmitUser("azkaban");
+
+		long time = 1400000000000L;
+		exFlow.setSubmitTime(time);
+		exFlow.setStartTime(time);
+		exFlow.setStatus(Status.RUNNING);
+		for (int i = 0; i < numNodes / 2; ++i) {
+			ExecutableNode node = exFlow.getExecutableNode("job" + i);
+			node.setStartTime(time + i * 1000L);
+			node.setEndTime(time + i * 1000L + random.nextInt(60000));
+			node.setUpdateTime(node.getEndTime());
+			node.setStatus(Status.SUCCEEDED);
+		}
+		return exFlow;
+	}
+}
@@ -7,6 +7,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;	
+import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -21,6 +22,7 @@ import org.junit.Test;
 
 
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowSummary;
 import azkaban.executor.ExecutableJobInfo;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionReference;
@@ -160,6 +162,15 @@ public class JdbcExecutorLoaderTest {
 			DbUtils.closeQuietly(connection);
 			return;
 		}
+
+		try {
+			runner.update(connection, "DELETE FROM execution_node_status");
+		} catch (SQLException e) {
+			e.printStackTrace();
+			testDBExists = false;
+			DbUtils.closeQuietly(connection);
+			return;
+		}
 		
 		DbUtils.closeQuietly(connection);
 	}
@@ -223,6 +234,52 @@ public class JdbcExecutorLoaderTest {
 	}
 	
 	
+	@Test
+	public void testUpdateExecutionFlowStatus() throws Exception {
+		if (!isTestSetup()) {
+			return;
+		}
+		
+		ExecutorLoader loader = createLoader();
+		ExecutableFlow flow = createExecutableFlow("exec1");
+		flow.setUpdateTime(System.currentTimeMillis());
+		loader.uploadExecutableFlow(flow);
+		long lastUpdateTime = flow.getUpdateTime();
+		
+		ExecutableNode node = flow.getExecutableNode("job1");
+		node.setStatus(Status.SUCCEEDED);
+		node.setStartTime(lastUpdateTime + 1);
+		node.setEndTime(lastUpdateTime + 2);
+		node.setUpdateTime(lastUpdateTime + 2);
+		flow.setStatus(Status.RUNNING);
+		flow.setUpdateTime(lastUpdateTime + 3);
+		loader.updateExecutableFlowStatus(flow, lastUpdateTime);
+		
+		// Node state comes from the status rows since flow_data wasn't rewritten.
+		ExecutableFlow fetchFlow = loader.fetchExecutableFlow(flow.getExecutionId());
+		Assert.assertEquals(Status.RUNNING, fetchFlow.getStatus());
+		Assert.assertEquals(flow.getUpdateTime(), fetchFlow.getUpdateTime());
+		ExecutableNode fetchNode = fetchFlow.getExecutableNode("job1");
+		Assert.assertEquals(Status.SUCCEEDED, fetchNode.getStatus());
+		Assert.assertEquals(node.getStartTime(), fetchNode.getStartTime());
+		Assert.assertEquals(node.getEndTime(), fetchNode.getEndTime());
+		
+		// A second update of the same node replaces its row.
+		node.setStatus(Status.FAILED);
+		node.setUpdateTime(lastUpdateTime + 4);
+		flow.setUpdateTime(lastUpdateTime + 5);
+		loader.updateExecutableFlowStatus(flow, lastUpdateTime + 3);
+		fetchFlow = loader.fetchExecutableFlow(flow.getExecutionId());
+		Assert.assertEquals(Status.FAILED, fetchFlow.getExecutableNode("job1").getStatus());
+		
+		flow.setStatus(Status.FAILED);
+		flow.setUpdateTime(lastUpdateTime + 6);
+		loader.updateExecutableFlow(flow);
+		fetchFlow = loader.fetchExecutableFlow(flow.getExecutionId());
+		Assert.assertEquals(Status.FAILED, fetchFlow.getStatus());
+		Assert.assertEquals(Status.FAILED, fetchFlow.getExecutableNode("job1").getStatus());
+	}
+	
 	@Test
 	public void testUploadExecutableNode() throws Exception {
 		if (!isTestSetup()) {
@@ -321,6 +378,151 @@ public class JdbcExecutorLoaderTest {
 		Assert.assertFalse(activeFlows2.containsKey(flow2.getExecutionId()));
 	}
 	
+	@Test
+	public void testQueuedFlows() throws Exception {
+		if (!isTestSetup()) {
+			return;
+		}
+		
+		ExecutorLoader loader = createLoader();
+		long startTime = System.currentTimeMillis();
+		ExecutableFlow flow1 = createExecutableFlow("exec1");
+		loader.uploadExecutableFlow(flow1);
+		loader.addActiveExecutableReference(new ExecutionReference(flow1.getExecutionId(), "test", 1));
+		
+		ExecutableFlow flow2 = createExecutableFlow("exec1");
+		loader.uploadExecutableFlow(flow2);
+		
+		ExecutableFlow flow3 = createExecutableFlow("exec1");
+		loader.uploadExecutableFlow(flow3);
+		flow3.setStatus(Status.KILLED);
+		loader.updateExecutableFlow(flow3);
+		
+		List<ExecutableFlow> queued = loader.fetchQueuedFlows(startTime);
+		Assert.assertEquals(1, queued.size());
+		Assert.assertEquals(flow2.getExecutionId(), queued.get(0).getExecutionId());
+		Assert.assertEquals(Status.PREPARING, queued.get(0).getStatus());
+		
+		Assert.assertTrue(loader.fetchQueuedFlows(System.currentTimeMillis() + 1000).isEmpty());
+	}
+	
+	@Test
+	public void testFetchFlowSummaries() throws Exception {
+		if (!isTestSetup()) {
+			return;
+		}
+		
+		ExecutorLoader loader = createLoader();
+		int projectId = createProject("summaryProject" + System.currentTimeMillis());
+		ExecutableFlow flow1 = uploadExecutableFlow(loader, projectId, "summaryUser1");
+		ExecutableFlow flow2 = uploadExecutableFlow(loader, projectId, "summaryUser2");
+		ExecutableFlow flow3 = uploadExecutableFlow(loader, projectId, "summaryUser1");
+		flow3.setStatus(Status.SUCCEEDED);
+		flow3.setStartTime(System.currentTimeMillis());
+		flow3.setEndTime(flow3.getStartTime() + 1);
+		loader.updateExecutableFlow(flow3);
+		String flowId = flow1.getFlowId();
+		
+		List<ExecutableFlowSummary> summaries = loader.fetchFlowSummaries(projectId, flowId, 0, 10);
+		Assert.assertEquals(3, summaries.size());
+		assertSummary(flow3, summaries.get(0));
+		assertSummary(flow2, summaries.get(1));
+		assertSummary(flow1, summaries.get(2));
+		
+		summaries = loader.fetchFlowSummaries(projectId, flowId, 1, 1);
+		Assert.assertEquals(1, summaries.size());
+		assertSummary(flow2, summaries.get(0));
+		
+		summaries = loader.fetchFlowSummaries(projectId, flowId, 0, 10, Status.SUCCEEDED);
+		Assert.assertEquals(1, summaries.size());
+		assertSummary(flow3, summaries.get(0));
+		
+		summaries = loader.fetchFlowSummariesBefore(projectId, flowId, flow3.getExecutionId(), 1);
+		Assert.assertEquals(1, summaries.size());
+		assertSummary(flow2, summaries.get(0));
+		Assert.assertTrue(loader.fetchFlowSummariesBefore(projectId, flowId, flow1.getExecutionId(), 10).isEmpty());
+		
+		// Newest first, across every project.
+		summaries = loader.fetchFlowSummaries(0, 2);
+		Assert.assertEquals(2, summaries.size());
+		assertSummary(flow3, summaries.get(0));
+		assertSummary(flow2, summaries.get(1));
+	}
+	
+	@Test
+	public void testFetchFilteredFlowHistory() throws Exception {
+		if (!isTestSetup()) {
+			return;
+		}
+		
+		ExecutorLoader loader = createLoader();
+		String projectName = "filterProject" + System.currentTimeMillis();
+		int projectId = createProject(projectName);
+		ExecutableFlow flow1 = uploadExecutableFlow(loader, projectId, "filterUser1");
+		ExecutableFlow flow2 = uploadExecutableFlow(loader, projectId, "filterUser2");
+		ExecutableFlow flow3 = uploadExecutableFlow(loader, projectId, "filterUser1");
+		flow3.setStatus(Status.FAILED);
+		loader.updateExecutableFlow(flow3);
+		String flowId = flow1.getFlowId();
+		
+		// Joining on projects used to make the unaliased columns ambiguous.
+		List<ExecutableFlow> flows = loader.fetchFlowHistory(projectName, flowId, "filterUser1", 0, -1, -1, 0, 10);
+		Assert.assertEquals(2, flows.size());
+		Assert.assertEquals(flow3.getExecutionId(), flows.get(0).getExecutionId());
+		Assert.assertEquals(flow1.getExecutionId(), flows.get(1).getExecutionId());
+		Assert.assertEquals(Status.FAILED, flows.get(0).getStatus());
+		
+		List<ExecutableFlowSummary> summaries = loader.fetchFlowSummaries(projectName, flowId, "filterUser1", 0, -1, -1, 0, 10);
+		Assert.assertEquals(2, summaries.size());
+		assertSummary(flow3, summaries.get(0));
+		assertSummary(flow1, summaries.get(1));
+		
+		flows = loader.fetchFlowHistory(projectName, null, null, Status.FAILED.getNumVal(), -1, -1, 0, 10);
+		Assert.assertEquals(1, flows.size());
+		Assert.assertEquals(flow3.getExecutionId(), flows.get(0).getExecutionId());
+		
+		summaries = loader.fetchFlowSummaries(null, null, "filterUser2", 0, -1, -1, 0, 10);
+		Assert.assertEquals(1, summaries.size());
+		assertSummary(flow2, summaries.get(0));
+		
+		Assert.assertTrue(loader.fetchFlowHistory(projectName + "x", null, null, 0, -1, -1, 0, 10).isEmpty());
+		Assert.assertTrue(loader.fetchFlowSummaries(projectName + "x", null, null, 0, -1, -1, 0, 10).isEmpty());
+	}
+	
+	@Test
+	public void testFetchJobHistoryBefore() throws Exception {
+		if (!isTestSetup()) {
+			return;
+		}
+		
+		ExecutorLoader loader = createLoader();
+		int projectId = createProject("jobHistoryProject" + System.currentTimeMillis());
+		ExecutableFlow flow1 = uploadExecutableFlow(loader, projectId, "testUser");
+		ExecutableFlow flow2 = uploadExecutableFlow(loader, projectId, "testUser");
+		uploadJobAttempt(flow1, "job1", 0, loader);
+		uploadJobAttempt(flow2, "job1", 0, loader);
+		uploadJobAttempt(flow2, "job1", 1, loader);
+		
+		// Newest execution first, then newest attempt.
+		List<ExecutableJobInfo> history = loader.fetchJobHistoryBefore(projectId, "job1", Integer.MAX_VALUE, 0, 2);
+		Assert.assertEquals(2, history.size());
+		assertJobInfo(flow2.getExecutionId(), 1, history.get(0));
+		assertJobInfo(flow2.getExecutionId(), 0, history.get(1));
+		
+		// Continuing from the last run returned.
+		history = loader.fetchJobHistoryBefore(projectId, "job1", flow2.getExecutionId(), 0, 2);
+		Assert.assertEquals(1, history.size());
+		assertJobInfo(flow1.getExecutionId(), 0, history.get(0));
+		
+		history = loader.fetchJobHistoryBefore(projectId, "job1", flow2.getExecutionId(), 1, 10);
+		Assert.assertEquals(2, history.size());
+		assertJobInfo(flow2.getExecutionId(), 0, history.get(0));
+		assertJobInfo(flow1.getExecutionId(), 0, history.get(1));
+		
+		Assert.assertNull(loader.fetchJobHistoryBefore(projectId, "job1", flow1.getExecutionId(), 0, 10));
+		Assert.assertNull(loader.fetchJobHistoryBefore(projectId, "job2", Integer.MAX_VALUE, 0, 10));
+	}
+	
 	@Test
 	public void testSmallUploadLog() throws ExecutorManagerException {
 		File logDir = new File("unit/executions/logtest");
@@ -434,6 +636,49 @@ public class JdbcExecutorLoaderTest {
 		return execFlow;
 	}
 	
+	private ExecutableFlow uploadExecutableFlow(ExecutorLoader loader, int projectId, String submitUser) throws Exception {
+		ExecutableFlow flow = createExecutableFlow("exec1");
+		flow.setProjectId(projectId);
+		flow.setSubmitUser(submitUser);
+		loader.uploadExecutableFlow(flow);
+		return flow;
+	}
+	
+	private void uploadJobAttempt(ExecutableFlow flow, String jobId, int attempt, ExecutorLoader loader) throws Exception {
+		ExecutableNode node = flow.getExecutableNode(jobId);
+		node.setAttempt(attempt);
+		node.setStatus(Status.SUCCEEDED);
+		loader.uploadExecutableNode(node, null);
+	}
+	
+	private static void assertJobInfo(int execId, int attempt, ExecutableJobInfo info) {
+		Assert.assertEquals(execId, info.getExecId());
+		Assert.assertEquals(attempt, info.getAttempt());
+	}
+	
+	private static void assertSummary(ExecutableFlow flow, ExecutableFlowSummary summary) {
+		Assert.assertEquals(flow.getExecutionId(), summary.getExecutionId());
+		Assert.assertEquals(flow.getProjectId(), summary.getProjectId());
+		Assert.assertEquals(flow.getVersion(), summary.getVersion());
+		Assert.assertEquals(flow.getFlowId(), summary.getFlowId());
+		Assert.assertEquals(flow.getStatus(), summary.getStatus());
+		Assert.assertEquals(flow.getSubmitUser(), summary.getSubmitUser());
+		Assert.assertEquals(flow.getStartTime(), summary.getStartTime());
+		Assert.assertEquals(flow.getEndTime(), summary.getEndTime());
+	}
+	
+	/**
+	 * Adds a row to the projects table, so the project has an id of its own
+	 * and the filtered history can join on it.
+	 */
+	private static int createProject(String name) throws SQLException {
+		DataSource dataSource = DataSourceUtils.getMySQLDataSource(host, port, database, user, password, numConnections);
+		QueryRunner runner = new QueryRunner(dataSource);
+		long time = System.currentTimeMillis();
+		runner.update("INSERT INTO projects (name, active, modified_time, create_time, version, last_modified_by) values (?,?,?,?,?,?)", name, true, time, time, 1, "azkaban");
+		return runner.query("SELECT id FROM projects WHERE name=?", new IdHandler(), name);
+	}
+	
 	private ExecutorLoader createLoader() {
 		Props props = new Props();
 		props.put("database.type", "mysql");
@@ -470,4 +715,15 @@ public class JdbcExecutorLoaderTest {
 		}
 	}
 	
+	public static class IdHandler implements ResultSetHandler<Integer> {
+		@Override
+		public Integer handle(ResultSet rs) throws SQLException {
+			if (!rs.next()) {
+				return -1;
+			}
+			
+			return rs.getInt(1);
+		}
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package azkaban.test.executor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.Random;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.apache.commons.io.FileUtils;
+
+import azkaban.database.AbstractJdbcLoader.EncodingType;
+import azkaban.database.AzkabanDataSource;
+import azkaban.database.DataSourceUtils;
+import azkaban.executor.JdbcExecutorLoader;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Props;
+
+/**
+ * Measures log upload throughput into an embedded H2 db for different chunk
+ * sizes, batch sizes and encodings. Chunk 50K, batch 1, GZIP matches the old
+ * one insert per chunk behaviour.
+ *
+ * Run with: java azkaban.test.executor.LogUploadBenchmark [logSizeMB]
+ */
+public class LogUploadBenchmark {
+	private static final int[] CHUNK_SIZES = {50*1024, 256*1024, 1024*1024};
+	private static final int[] BATCH_SIZES = {1, 20};
+	private static final int RUNS = 3;
+
+	public static void main(String[] args) throws Exception {
+		int logSizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+
+		File workDir = new File(FileUtils.getTempDirectory(), "azkaban-log-benchmark-" + System.currentTimeMillis());
+		workDir.mkdirs();
+		try {
+			File logFile = new File(workDir, "job.log");
+			writeLog(logFile, logSizeMB * 1024L * 1024L);
+
+			Props props = new Props();
+			props.put("database.type", "h2");
+			props.put("h2.path", new File(workDir, "h2db").getAbsolutePath());
+			createTable(props);
+
+			JdbcExecutorLoader loader = new JdbcExecutorLoader(props);
+			System.out.println(String.format("%-8s %10s %6s %10s %10s", "encoding", "chunk", "batch", "MB/s", "stored MB"));
+
+			int execId = 0;
+			for (EncodingType encType: EncodingType.values()) {
+				for (int chunkSize: CHUNK_SIZES) {
+					for (int batchSize: BATCH_SIZES) {
+						loader.setLogEncodingType(encType);
+						loader.setLogChunkSize(chunkSize);
+						loader.setLogBatchSize(batchSize);
+
+						long bestTime = Long.MAX_VALUE;
+						for (int i = 0; i < RUNS; ++i) {
+							execId++;
+							long start = System.nanoTime();
+							loader.uploadLogFile(execId, "job", 0, logFile);
+							bestTime = Math.min(bestTime, System.nanoTime() - start);
+						}
+
+						verify(loader, execId, logFile);
+						double mbPerSec = logFile.length() / (1024.0 * 1024.0) / (bestTime / 1e9);
+						System.out.println(String.format("%-8s %10d %6d %10.1f %10.1f",
+								encType, chunkSize, batchSize, mbPerSec, storedBytes(props, execId) / (1024.0 * 1024.0)));
+					}
+				}
+			}
+		}
+		finally {
+			FileUtils.deleteDirectory(workDir);
+		}
+	}
+
+	private static void writeLog(File file, long size) throws IOException {
+		Random random = new Random(0);
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		try {
+			long written = 0;
+			while (written < size) {
+				String line = "2014/01/01 12:00:" + (10 + random.nextInt(50)) + " INFO [job] [Azkaban] Mapper task_"
+						+ random.nextInt(100000) + " processed " + random.nextInt(1 << 20) + " records\n";
+				writer.write(line);
+				written += line.length();
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private static void createTable(Props props) throws Exception {
+		AzkabanDataSource dataSource = DataSourceUtils.getDataSource(props);
+		String sql = FileUtils.readFileToString(new File("src/sql/create.execution_logs.sql"));
+		Connection connection = dataSource.getConnection();
+		try {
+			QueryRunner runner = new QueryRunner();
+			for (String statement: sql.split(";")) {
+				if (!statement.trim().isEmpty()) {
+					runner.update(connection, statement);
+				}
+			}
+		}
+		finally {
+			DbUtils.closeQuietly(connection);
+		}
+	}
+
+	private static long storedBytes(Props props, int execId) throws Exception {
+		AzkabanDataSource dataSource = DataSourceUtils.getDataSource(props);
+		QueryRunner runner = new QueryRunner(dataSource);
+		Number size = runner.query(
+				"SELECT SUM(LENGTH(log)) FROM execution_logs WHERE exec_id=?",
+				new ScalarHandler<Number>(),
+				execId);
+		return size == null ? 0 : size.longValue();
+	}
+
+	private static void verify(JdbcExecutorLoader loader, int execId, File logFile) throws Exception {
+		int offset = (int)(logFile.length() / 2);
+		LogData data = loader.fetchLogs(execId, "job", 0, offset, 4096);
+		String expected = FileUtils.readFileToString(logFile).substring(offset, offset + data.getLength());
+		if (data.getOffset() != offset || !expected.equals(data.getData())) {
+			throw new IllegalStateException("Log data read back doesn't match for exec " + execId);
+		}
+	}
+}
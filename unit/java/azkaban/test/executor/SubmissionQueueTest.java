@@ -0,0 +1,107 @@
+package azkaban.test.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.SubmissionQueue;
+
+public class SubmissionQueueTest {
+	@Test
+	public void testPriorityOrder() throws Exception {
+		SubmissionQueue queue = new SubmissionQueue(10, 10);
+		queue.add(createFlow(1), 0);
+		queue.add(createFlow(2), 10);
+		queue.add(createFlow(3), 0);
+		queue.add(createFlow(4), 10);
+		Assert.assertEquals(4, queue.getNumQueued());
+
+		// Higher priority first, then in the order added.
+		Assert.assertEquals(2, queue.take(0).getExecutionId());
+		Assert.assertEquals(4, queue.take(0).getExecutionId());
+		Assert.assertEquals(1, queue.take(0).getExecutionId());
+		Assert.assertEquals(3, queue.take(0).getExecutionId());
+		Assert.assertNull(queue.take(10));
+
+		Assert.assertEquals(0, queue.getNumQueued());
+		Assert.assertEquals(4, queue.getNumDispatching());
+		Assert.assertEquals(4, queue.getFlows().size());
+	}
+
+	@Test
+	public void testRejectWhenFull() throws Exception {
+		SubmissionQueue queue = new SubmissionQueue(2, 1);
+		queue.add(createFlow(1), 0);
+		queue.add(createFlow(2), 0);
+		try {
+			queue.add(createFlow(3), 10);
+			Assert.fail("Queue should be full");
+		}
+		catch (ExecutorManagerException e) {
+		}
+		Assert.assertEquals(1, queue.getNumRejected());
+		Assert.assertNull(queue.getFlow(3));
+
+		// Taken executions don't count against the queue size.
+		queue.take(0);
+		queue.add(createFlow(3), 0);
+		Assert.assertEquals(2, queue.getNumQueued());
+	}
+
+	@Test
+	public void testMaxDispatching() throws Exception {
+		final SubmissionQueue queue = new SubmissionQueue(10, 1);
+		queue.add(createFlow(1), 0);
+		queue.add(createFlow(2), 0);
+
+		Assert.assertEquals(1, queue.take(0).getExecutionId());
+		Assert.assertNull(queue.take(50));
+
+		// A dispatch finishing lets a waiting take through.
+		new Thread() {
+			public void run() {
+				pause(100);
+				queue.done(1);
+			}
+		}.start();
+		ExecutableFlow next = queue.take(5000);
+		Assert.assertNotNull(next);
+		Assert.assertEquals(2, next.getExecutionId());
+		Assert.assertNull(queue.getFlow(1));
+		Assert.assertTrue(queue.getMaxWaitTimeMs() >= 50);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		SubmissionQueue queue = new SubmissionQueue(10, 10);
+		queue.add(createFlow(1), 0);
+		queue.add(createFlow(2), 0);
+
+		Assert.assertTrue(queue.remove(2));
+		Assert.assertNull(queue.getFlow(2));
+		Assert.assertFalse(queue.remove(2));
+
+		// Executions being dispatched can't be removed.
+		queue.take(0);
+		Assert.assertFalse(queue.remove(1));
+		Assert.assertNotNull(queue.getFlow(1));
+		queue.done(1);
+		Assert.assertEquals(0, queue.getFlows().size());
+		Assert.assertEquals(0, queue.getNumDispatching());
+	}
+
+	private ExecutableFlow createFlow(int execId) {
+		ExecutableFlow flow = new ExecutableFlow();
+		flow.setExecutionId(execId);
+		return flow;
+	}
+
+	private static void pause(long millisec) {
+		try {
+			Thread.sleep(millisec);
+		}
+		catch (InterruptedException e) {
+		}
+	}
+}
@@ -4,6 +4,8 @@ import java.io.File;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -300,6 +302,48 @@ public class JdbcProjectLoaderTest {
 		Assert.assertEquals(event.getType(), type);
 	}
 
+	@Test
+	public void testProjectEventsBefore() throws Exception {
+		if (!isTestSetup()) {
+			return;
+		}
+
+		ProjectLoader loader = createLoader();
+		User user = new User("testUser");
+		Project project = loader.createNewProject("testProjectEventsBefore", "Events paged by time", user);
+		String[] messages = {"event1", "event2", "event3", "event4", "event5", "event6"};
+		long[] times = {300, 200, 200, 200, 200, 100};
+		for (int i = 0; i < messages.length; ++i) {
+			postEvent(project, times[i], messages[i]);
+		}
+
+		// Pages of two end partway through the events at time 200, so every
+		// page after the first starts with one of them.
+		List<ProjectLogEvent> page = loader.getProjectEvents(project, 2, 0);
+		List<String> seen = new ArrayList<String>();
+		long[] pageTimes = {300, 200, 200, 200, 200, 100};
+		while (!page.isEmpty()) {
+			for (ProjectLogEvent event: page) {
+				Assert.assertEquals(pageTimes[seen.size()], event.getTime());
+				seen.add(event.getMessage());
+			}
+			ProjectLogEvent last = page.get(page.size() - 1);
+			page = loader.getProjectEventsBefore(project, last.getTime(), last.getId(), 2);
+		}
+
+		// Events that share a time come newest id first, each of them once.
+		Assert.assertEquals(Arrays.asList("event1", "event5", "event4", "event3", "event2", "event6"), seen);
+
+		// The same order as the offset pages.
+		List<String> offsetMessages = new ArrayList<String>();
+		for (int skip = 0; skip < messages.length; skip += 4) {
+			for (ProjectLogEvent event: loader.getProjectEvents(project, 4, skip)) {
+				offsetMessages.add(event.getMessage());
+			}
+		}
+		Assert.assertEquals(seen, offsetMessages);
+	}
+
 	@Test
 	public void testFlowUpload() throws ProjectManagerException {
 		ProjectLoader loader = createLoader();
@@ -505,6 +549,17 @@ public class JdbcProjectLoaderTest {
 		}
 	}
 
+	/**
+	 * Posts an event at the given time, since postEvent always uses the current
+	 * time.
+	 */
+	private void postEvent(Project project, long time, String message) throws SQLException {
+		DataSource dataSource = DataSourceUtils.getMySQLDataSource(host, port, database, user, password, numConnections);
+		QueryRunner runner = new QueryRunner(dataSource);
+		runner.update("INSERT INTO project_events (project_id, event_type, event_time, username, message) values (?,?,?,?,?)",
+				project.getId(), EventType.UPLOADED.getNumVal(), time, "testUser", message);
+	}
+
 	private ProjectLoader createLoader() {
 		Props props = new Props();
 		props.put("database.type", "mysql");
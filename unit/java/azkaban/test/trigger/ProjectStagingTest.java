@@ -0,0 +1,156 @@
+package azkaban.test.trigger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.alert.Alerter;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutorManager;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.flow.Flow;
+import azkaban.project.Project;
+import azkaban.project.ProjectManager;
+import azkaban.project.ProjectManagerException;
+import azkaban.test.execapp.MockExecutorLoader;
+import azkaban.test.execapp.MockProjectLoader;
+import azkaban.trigger.Condition;
+import azkaban.trigger.ConditionChecker;
+import azkaban.trigger.Trigger;
+import azkaban.trigger.TriggerAction;
+import azkaban.trigger.TriggerManager;
+import azkaban.trigger.builtin.BasicTimeChecker;
+import azkaban.trigger.builtin.ExecuteFlowAction;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+
+public class ProjectStagingTest {
+	private File workingDir;
+	private StagingExecutorManager executorManager;
+	private TriggerManager triggerManager;
+
+	@Before
+	public void setup() throws Exception {
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		workingDir.mkdirs();
+
+		Props props = new Props();
+		props.put("executor.port", 12321);
+		props.put("trigger.project.stage.lookahead.ms", 60000);
+		props.put("trigger.project.stage.interval.ms", 50);
+		props.put("project.temp.dir", new File(workingDir, "temp").getPath());
+		ExecuteFlowAction.setProjectManager(new ProjectManager(new ProjectsLoader(workingDir), props));
+		executorManager = new StagingExecutorManager(props);
+		triggerManager = new TriggerManager(props, new MockTriggerLoader(), executorManager);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		triggerManager.shutdown();
+		ExecuteFlowAction.setProjectManager(null);
+		FileUtils.deleteDirectory(workingDir);
+	}
+
+	@Test
+	public void testUpcomingVersionsAreStagedOnce() throws Exception {
+		// Due within the lookahead, but not during the test.
+		long time = System.currentTimeMillis() + 30000;
+		triggerManager.insertTrigger(createTimeTrigger(time, 1));
+		triggerManager.insertTrigger(createTimeTrigger(time, 1));
+		// Beyond the lookahead.
+		triggerManager.insertTrigger(createTimeTrigger(time + 60000, 2));
+		triggerManager.start();
+
+		// Several passes later, the version was sent once.
+		pause(500);
+		Assert.assertEquals(1, executorManager.getCalls().size());
+		Set<Pair<Integer, Integer>> expected = new HashSet<Pair<Integer,Integer>>();
+		expected.add(new Pair<Integer, Integer>(1, 3));
+		Assert.assertEquals(expected, executorManager.getCalls().get(0));
+	}
+
+	private Trigger createTimeTrigger(long time, int projectId) {
+		Map<String, ConditionChecker> triggerCheckers = new HashMap<String, ConditionChecker>();
+		ConditionChecker checker = new BasicTimeChecker("time", time, DateTimeZone.getDefault(), false, false, null);
+		triggerCheckers.put(checker.getId(), checker);
+		Condition triggerCond = new Condition(triggerCheckers, checker.getId() + ".eval()");
+
+		Map<String, ConditionChecker> expireCheckers = new HashMap<String, ConditionChecker>();
+		ConditionChecker expireChecker = new BasicTimeChecker("expire", time + 24*60*60*1000, DateTimeZone.getDefault(), false, false, null);
+		expireCheckers.put(expireChecker.getId(), expireChecker);
+		Condition expireCond = new Condition(expireCheckers, expireChecker.getId() + ".eval()");
+
+		List<TriggerAction> actions = new ArrayList<TriggerAction>();
+		actions.add(new ExecuteFlowAction("executeFlowAction", projectId, "project" + projectId, "flow", "azkabanTest", new ExecutionOptions(), null));
+		return new Trigger("azkabanTest", "azkaban", triggerCond, expireCond, actions);
+	}
+
+	/**
+	 * Records the versions it is asked to stage instead of calling an executor.
+	 */
+	private static class StagingExecutorManager extends ExecutorManager {
+		private final List<Set<Pair<Integer, Integer>>> calls = new ArrayList<Set<Pair<Integer,Integer>>>();
+
+		public StagingExecutorManager(Props props) throws ExecutorManagerException {
+			super(props, new MockExecutorLoader(), new HashMap<String, Alerter>());
+		}
+
+		@Override
+		public synchronized List<String> stageProjects(Collection<Pair<Integer, Integer>> projectVersions) {
+			calls.add(new HashSet<Pair<Integer,Integer>>(projectVersions));
+			return new ArrayList<String>();
+		}
+
+		public synchronized List<Set<Pair<Integer, Integer>>> getCalls() {
+			return new ArrayList<Set<Pair<Integer,Integer>>>(calls);
+		}
+	}
+
+	/**
+	 * Has projects 1 and 2, both at version 3.
+	 */
+	private static class ProjectsLoader extends MockProjectLoader {
+		public ProjectsLoader(File dir) {
+			super(dir);
+		}
+
+		@Override
+		public List<Project> fetchAllActiveProjects() throws ProjectManagerException {
+			List<Project> projects = new ArrayList<Project>();
+			for (int projectId = 1; projectId <= 2; ++projectId) {
+				Project project = new Project(projectId, "project" + projectId);
+				project.setVersion(3);
+				project.setActive(true);
+				projects.add(project);
+			}
+			return projects;
+		}
+
+		@Override
+		public List<Flow> fetchAllProjectFlows(Project project) throws ProjectManagerException {
+			return Collections.emptyList();
+		}
+	}
+
+	private static void pause(long millisec) {
+		try {
+			Thread.sleep(millisec);
+		}
+		catch (InterruptedException e) {
+		}
+	}
+}
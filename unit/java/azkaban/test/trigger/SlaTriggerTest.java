@@ -0,0 +1,260 @@
+package azkaban.test.trigger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.alert.Alerter;
+import azkaban.execapp.event.Event;
+import azkaban.execapp.event.Event.Type;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutorManager;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.sla.SlaOption;
+import azkaban.test.execapp.MockExecutorLoader;
+import azkaban.trigger.Condition;
+import azkaban.trigger.ConditionChecker;
+import azkaban.trigger.Trigger;
+import azkaban.trigger.TriggerAction;
+import azkaban.trigger.TriggerManager;
+import azkaban.trigger.builtin.SlaChecker;
+import azkaban.utils.Props;
+
+public class SlaTriggerTest {
+	private CountingExecutorLoader loader;
+	private ExecutorManager executorManager;
+	private TriggerManager triggerManager;
+
+	@Before
+	public void setup() throws Exception {
+		Props props = new Props();
+		// Short, so polling would show up in the fetch counts.
+		props.put("trigger.scan.interval", 100);
+		props.put("executor.port", 12321);
+		props.put("trigger.project.stage.lookahead.ms", 0);
+		loader = new CountingExecutorLoader();
+		executorManager = new ExecutorManager(props, loader, new HashMap<String, Alerter>());
+		triggerManager = new TriggerManager(props, new MockTriggerLoader(), executorManager);
+		SlaChecker.setExecutorManager(executorManager);
+		triggerManager.start();
+	}
+
+	@After
+	public void tearDown() {
+		triggerManager.shutdown();
+		executorManager.shutdown();
+	}
+
+	@Test
+	public void testSlaMissedAtDeadline() throws Exception {
+		ExecutableFlow flow = createRunningFlow(1);
+		RecordingAction action = new RecordingAction();
+		triggerManager.insertTrigger(createSlaTrigger(flow, "1s", action));
+
+		// Checked once when added, then not until the deadline.
+		pause(500);
+		int fetches = loader.numFetches.get();
+		Assert.assertTrue(fetches > 0);
+		Assert.assertEquals(-1, action.fireTime);
+		pause(300);
+		Assert.assertEquals(fetches, loader.numFetches.get());
+
+		pause(700);
+		Assert.assertTrue(action.fireTime >= flow.getStartTime() + 1000);
+		Assert.assertTrue(action.fireTime < flow.getStartTime() + 1500);
+		Assert.assertTrue(triggerManager.getTriggers().isEmpty());
+	}
+
+	@Test
+	public void testSlaPassedOnFinish() throws Exception {
+		ExecutableFlow flow = createRunningFlow(2);
+		RecordingAction action = new RecordingAction();
+		triggerManager.insertTrigger(createSlaTrigger(flow, "1h", action));
+		pause(300);
+		Assert.assertEquals(1, triggerManager.getTriggers().size());
+
+		flow.setStatus(Status.SUCCEEDED);
+		flow.setEndTime(System.currentTimeMillis());
+		loader.updateExecutableFlow(flow);
+		executorManager.fireEventListeners(Event.create(flow, Type.FLOW_FINISHED));
+
+		// Expired as soon as the flow finished, without waiting for a scan.
+		pause(300);
+		Assert.assertTrue(triggerManager.getTriggers().isEmpty());
+		Assert.assertEquals(-1, action.fireTime);
+	}
+
+	@Test
+	public void testUpdatesDontWaitForScan() throws Exception {
+		final ExecutableFlow flow = createRunningFlow(3);
+		RecordingAction action = new RecordingAction();
+		triggerManager.insertTrigger(createSlaTrigger(flow, "1h", action));
+
+		// Holds the scanner in its pass until released.
+		BlockingChecker blockingChecker = new BlockingChecker();
+		Map<String, ConditionChecker> checkers = new HashMap<String, ConditionChecker>();
+		checkers.put(blockingChecker.getId(), blockingChecker);
+		Condition blockingCond = new Condition(checkers, blockingChecker.getId() + ".eval()");
+		Trigger blocking = new Trigger("azkaban", "azkaban", blockingCond, blockingCond, new ArrayList<TriggerAction>());
+		triggerManager.insertTrigger(blocking);
+		Assert.assertTrue(blockingChecker.started.await(5, TimeUnit.SECONDS));
+
+		try {
+			flow.setStatus(Status.SUCCEEDED);
+			flow.setEndTime(System.currentTimeMillis());
+			loader.updateExecutableFlow(flow);
+			Thread updater = new Thread() {
+				@Override
+				public void run() {
+					executorManager.fireEventListeners(Event.create(flow, Type.EXTERNAL_FLOW_UPDATED));
+				}
+			};
+			updater.start();
+			updater.join(1000);
+			Assert.assertFalse(updater.isAlive());
+		}
+		finally {
+			blockingChecker.release.countDown();
+		}
+
+		// The update is checked once the scanner is free.
+		pause(300);
+		triggerManager.removeTrigger(blocking);
+		Assert.assertTrue(triggerManager.getTriggers().isEmpty());
+		Assert.assertEquals(-1, action.fireTime);
+	}
+
+	private ExecutableFlow createRunningFlow(int execId) throws ExecutorManagerException {
+		ExecutableFlow flow = new ExecutableFlow();
+		flow.setExecutionId(execId);
+		flow.setExecutionOptions(new ExecutionOptions());
+		flow.setStatus(Status.RUNNING);
+		flow.setStartTime(System.currentTimeMillis());
+		loader.uploadExecutableFlow(flow);
+		return flow;
+	}
+
+	private Trigger createSlaTrigger(ExecutableFlow flow, String duration, TriggerAction action) {
+		Map<String, Object> info = new HashMap<String, Object>();
+		info.put(SlaOption.INFO_DURATION, duration);
+		SlaOption sla = new SlaOption(SlaOption.TYPE_FLOW_FINISH, new ArrayList<String>(), info);
+
+		SlaChecker failChecker = new SlaChecker("slaFailChecker", sla, flow.getExecutionId());
+		Map<String, ConditionChecker> triggerCheckers = new HashMap<String, ConditionChecker>();
+		triggerCheckers.put(failChecker.getId(), failChecker);
+		Condition triggerCond = new Condition(triggerCheckers, failChecker.getId() + ".isSlaFailed()");
+
+		SlaChecker passChecker = new SlaChecker("slaPassChecker", sla, flow.getExecutionId());
+		Map<String, ConditionChecker> expireCheckers = new HashMap<String, ConditionChecker>();
+		expireCheckers.put(passChecker.getId(), passChecker);
+		Condition expireCond = new Condition(expireCheckers, passChecker.getId() + ".isSlaPassed()");
+
+		List<TriggerAction> actions = new ArrayList<TriggerAction>();
+		actions.add(action);
+		Trigger t = new Trigger("azkaban_sla", "azkaban", triggerCond, expireCond, actions);
+		t.getInfo().put("monitored.finished.execution", String.valueOf(flow.getExecutionId()));
+		t.setResetOnTrigger(false);
+		t.setResetOnExpire(false);
+		return t;
+	}
+
+	private static class CountingExecutorLoader extends MockExecutorLoader {
+		private final AtomicInteger numFetches = new AtomicInteger();
+
+		@Override
+		public ExecutableFlow fetchExecutableFlow(int execId) throws ExecutorManagerException {
+			numFetches.incrementAndGet();
+			return super.fetchExecutableFlow(execId);
+		}
+	}
+
+	private static class RecordingAction extends DummyTriggerAction {
+		private volatile long fireTime = -1;
+
+		public RecordingAction() {
+			super("sla missed");
+		}
+
+		@Override
+		public void doAction() {
+			fireTime = System.currentTimeMillis();
+		}
+	}
+
+	private static class BlockingChecker implements ConditionChecker {
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public Object eval() {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+			}
+			return Boolean.FALSE;
+		}
+
+		@Override
+		public Object getNum() {
+			return null;
+		}
+
+		@Override
+		public void reset() {
+		}
+
+		@Override
+		public String getId() {
+			return "blocking";
+		}
+
+		@Override
+		public String getType() {
+			return "BlockingChecker";
+		}
+
+		@Override
+		public ConditionChecker fromJson(Object obj) throws Exception {
+			return null;
+		}
+
+		@Override
+		public Object toJson() {
+			return null;
+		}
+
+		@Override
+		public void stopChecker() {
+		}
+
+		@Override
+		public void setContext(Map<String, Object> context) {
+		}
+
+		@Override
+		public long getNextCheckTime() {
+			return 0;
+		}
+	}
+
+	private static void pause(long millisec) {
+		try {
+			Thread.sleep(millisec);
+		}
+		catch (InterruptedException e) {
+		}
+	}
+}
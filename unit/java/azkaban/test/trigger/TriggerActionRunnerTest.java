@@ -0,0 +1,175 @@
+package azkaban.test.trigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.trigger.Condition;
+import azkaban.trigger.ConditionChecker;
+import azkaban.trigger.Trigger;
+import azkaban.trigger.TriggerAction;
+import azkaban.trigger.TriggerActionRunner;
+
+public class TriggerActionRunnerTest {
+	private TriggerActionRunner runner;
+
+	@After
+	public void tearDown() {
+		if (runner != null) {
+			runner.shutdown();
+		}
+	}
+
+	@Test
+	public void testTriggerActionsRunInOrder() throws Exception {
+		runner = new TriggerActionRunner(4, 0);
+		List<String> done = Collections.synchronizedList(new ArrayList<String>());
+		Trigger t = createTrigger(1);
+		runner.fire(t, Arrays.<TriggerAction>asList(new SleepAction("a", 200, done), new SleepAction("b", 0, done)), System.currentTimeMillis());
+		runner.fire(t, Arrays.<TriggerAction>asList(new SleepAction("c", 0, done)), System.currentTimeMillis());
+		Assert.assertEquals(2, runner.getNumPendingFirings());
+
+		waitForFirings();
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), done);
+		Assert.assertEquals(2, runner.getNumFirings());
+	}
+
+	@Test
+	public void testTriggersRunConcurrently() throws Exception {
+		runner = new TriggerActionRunner(4, 0);
+		CountDownLatch latch = new CountDownLatch(1);
+		List<String> done = Collections.synchronizedList(new ArrayList<String>());
+		runner.fire(createTrigger(1), Arrays.<TriggerAction>asList(new LatchAction(latch)), System.currentTimeMillis());
+		runner.fire(createTrigger(2), Arrays.<TriggerAction>asList(new SleepAction("b", 0, done)), System.currentTimeMillis());
+
+		// The second trigger doesn't wait for the first one's blocked action.
+		pause(500);
+		Assert.assertEquals(Arrays.asList("b"), done);
+		latch.countDown();
+		waitForFirings();
+	}
+
+	@Test
+	public void testActionTimeout() throws Exception {
+		runner = new TriggerActionRunner(4, 200);
+		List<String> done = Collections.synchronizedList(new ArrayList<String>());
+		Trigger t = createTrigger(1);
+		runner.fire(t, Arrays.<TriggerAction>asList(new SleepAction("slow", 10000, done), new SleepAction("next", 0, done)), System.currentTimeMillis());
+
+		waitForFirings();
+		Assert.assertEquals(Arrays.asList("next"), done);
+		Assert.assertEquals(1, runner.getNumTimedOutActions());
+	}
+
+	@Test
+	public void testTimeoutStartsWithAction() throws Exception {
+		runner = new TriggerActionRunner(1, 500);
+		List<String> done = Collections.synchronizedList(new ArrayList<String>());
+		runner.fire(createTrigger(1), Arrays.<TriggerAction>asList(new SleepAction("a", 300, done)), System.currentTimeMillis());
+		runner.fire(createTrigger(2), Arrays.<TriggerAction>asList(new SleepAction("b", 300, done)), System.currentTimeMillis());
+		runner.fire(createTrigger(3), Arrays.<TriggerAction>asList(new SleepAction("c", 0, done)), System.currentTimeMillis());
+
+		// The later triggers wait longer than the timeout for the only thread, but
+		// their actions don't run that long.
+		waitForFirings();
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), done);
+		Assert.assertEquals(0, runner.getNumTimedOutActions());
+	}
+
+	@Test
+	public void testLatenessAndFailures() throws Exception {
+		runner = new TriggerActionRunner(0, 0);
+		List<String> done = new ArrayList<String>();
+		runner.fire(createTrigger(1), Arrays.<TriggerAction>asList(new FailingAction(), new SleepAction("a", 0, done)), System.currentTimeMillis() - 1000);
+
+		// Without threads the actions ran before fire returned.
+		Assert.assertEquals(Arrays.asList("a"), done);
+		Assert.assertEquals(1, runner.getNumFailedActions());
+		Assert.assertTrue(runner.getMaxLatenessMs() >= 1000);
+		Assert.assertTrue(runner.getAverageLatenessMs() >= 1000);
+	}
+
+	private void waitForFirings() {
+		long endTime = System.currentTimeMillis() + 5000;
+		while (runner.getNumPendingFirings() > 0 && System.currentTimeMillis() < endTime) {
+			pause(10);
+		}
+		Assert.assertEquals(0, runner.getNumPendingFirings());
+	}
+
+	private Trigger createTrigger(int triggerId) {
+		Condition cond = new Condition(new HashMap<String, ConditionChecker>(), "true");
+		Trigger t = new Trigger("azkabanTest", "azkaban", cond, cond, new ArrayList<TriggerAction>());
+		t.setTriggerId(triggerId);
+		return t;
+	}
+
+	private static class SleepAction extends DummyTriggerAction {
+		private final String name;
+		private final long sleepMs;
+		private final List<String> done;
+
+		public SleepAction(String name, long sleepMs, List<String> done) {
+			super(name);
+			this.name = name;
+			this.sleepMs = sleepMs;
+			this.done = done;
+		}
+
+		@Override
+		public void doAction() {
+			try {
+				Thread.sleep(sleepMs);
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			done.add(name);
+		}
+	}
+
+	private static class LatchAction extends DummyTriggerAction {
+		private final CountDownLatch latch;
+
+		public LatchAction(CountDownLatch latch) {
+			super("latch");
+			this.latch = latch;
+		}
+
+		@Override
+		public void doAction() {
+			try {
+				latch.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+			}
+		}
+	}
+
+	private static class FailingAction extends DummyTriggerAction {
+		public FailingAction() {
+			super("fail");
+		}
+
+		@Override
+		public void doAction() {
+			throw new RuntimeException("Failed on purpose");
+		}
+	}
+
+	private static void pause(long millisec) {
+		try {
+			Thread.sleep(millisec);
+		}
+		catch (InterruptedException e) {
+		}
+	}
+}
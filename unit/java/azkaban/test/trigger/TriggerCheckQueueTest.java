@@ -0,0 +1,78 @@
+package azkaban.test.trigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.trigger.Condition;
+import azkaban.trigger.ConditionChecker;
+import azkaban.trigger.Trigger;
+import azkaban.trigger.TriggerAction;
+import azkaban.trigger.TriggerCheckQueue;
+
+public class TriggerCheckQueueTest {
+	@Test
+	public void testPollDue() throws Exception {
+		TriggerCheckQueue queue = new TriggerCheckQueue();
+		Trigger a = createTrigger();
+		Trigger b = createTrigger();
+		Trigger c = createTrigger();
+		queue.schedule(a, 300);
+		queue.schedule(b, 100);
+		queue.schedule(c, 200);
+		Assert.assertEquals(100, queue.getNextDueTime());
+
+		Assert.assertEquals(Arrays.asList(b, c), queue.pollDue(200));
+		Assert.assertEquals(300, queue.getNextDueTime());
+		Assert.assertTrue(queue.pollDue(200).isEmpty());
+
+		// Polled triggers stay in the queue until removed.
+		Assert.assertEquals(3, queue.size());
+		Assert.assertTrue(queue.contains(b));
+		queue.remove(b);
+		Assert.assertFalse(queue.contains(b));
+		Assert.assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testReschedule() throws Exception {
+		TriggerCheckQueue queue = new TriggerCheckQueue();
+		Trigger a = createTrigger();
+		Trigger b = createTrigger();
+		queue.schedule(a, 100);
+		queue.schedule(b, 200);
+
+		// Only the latest due time counts.
+		queue.schedule(a, 500);
+		Assert.assertEquals(200, queue.getNextDueTime());
+		Assert.assertEquals(Arrays.asList(b), queue.pollDue(400));
+		queue.schedule(b, 50);
+		Assert.assertEquals(Arrays.asList(b, a), queue.pollDue(1000));
+
+		queue.remove(a);
+		queue.remove(b);
+		Assert.assertEquals(Long.MAX_VALUE, queue.getNextDueTime());
+		Assert.assertTrue(queue.pollDue(Long.MAX_VALUE).isEmpty());
+	}
+
+	@Test
+	public void testSameDueTimeInScheduleOrder() throws Exception {
+		TriggerCheckQueue queue = new TriggerCheckQueue();
+		List<Trigger> triggers = new ArrayList<Trigger>();
+		for (int i = 0; i < 10; ++i) {
+			Trigger t = createTrigger();
+			triggers.add(t);
+			queue.schedule(t, 100);
+		}
+		Assert.assertEquals(triggers, queue.pollDue(100));
+	}
+
+	private Trigger createTrigger() {
+		Condition cond = new Condition(new HashMap<String, ConditionChecker>(), "true");
+		return new Trigger("azkabanTest", "azkaban", cond, cond, new ArrayList<TriggerAction>());
+	}
+}
@@ -0,0 +1,144 @@
+package azkaban.test.trigger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTimeZone;
+
+import azkaban.alert.Alerter;
+import azkaban.executor.ExecutorManager;
+import azkaban.test.execapp.MockExecutorLoader;
+import azkaban.trigger.Condition;
+import azkaban.trigger.ConditionChecker;
+import azkaban.trigger.Trigger;
+import azkaban.trigger.TriggerAction;
+import azkaban.trigger.TriggerManager;
+import azkaban.trigger.builtin.BasicTimeChecker;
+import azkaban.utils.Props;
+
+/**
+ * Measures what the trigger scanner costs with many schedules. Adds 100,000
+ * time triggers spread over the next day, and 100 more due during the run,
+ * then lets the scanner run for 20 seconds with a 1 second scan interval.
+ *
+ * Prints the cpu time the scanner thread spent, and how late the triggers due
+ * during the run fired. Per trigger logging is turned off, so the cost is the
+ * checking itself.
+ *
+ * Run with: java azkaban.test.trigger.TriggerScanBenchmark [triggers] [seconds] [scan interval ms]
+ */
+public class TriggerScanBenchmark {
+	private static final String SCANNER_THREAD = "TriggerRunnerManager-Trigger-Scanner-Thread";
+
+	public static void main(String[] args) throws Exception {
+		int numTriggers = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		long scanInterval = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+		int numDue = 100;
+
+		Logger.getRootLogger().setLevel(Level.WARN);
+
+		Props props = new Props();
+		props.put("trigger.scan.interval", scanInterval);
+		props.put("executor.port", 12321);
+		props.put("trigger.project.stage.lookahead.ms", 0);
+		ExecutorManager executorManager = new ExecutorManager(props, new MockExecutorLoader(), new HashMap<String, Alerter>());
+		TriggerManager triggerManager = new TriggerManager(props, new MockTriggerLoader(), executorManager);
+
+		Random random = new Random(1);
+		long now = System.currentTimeMillis();
+		AtomicInteger numFired = new AtomicInteger();
+		AtomicLong totalLateness = new AtomicLong();
+		AtomicLong maxLateness = new AtomicLong();
+		for (int i = 0; i < numTriggers; ++i) {
+			long time = now + 60*60*1000 + (long)(random.nextDouble() * 23*60*60*1000);
+			triggerManager.insertTrigger(createTimeTrigger(time, numFired, totalLateness, maxLateness));
+		}
+		triggerManager.start();
+
+		// Due after the first second, so the scanner is past loading them.
+		now = System.currentTimeMillis();
+		for (int i = 0; i < numDue; ++i) {
+			long time = now + 1000 + (long)(random.nextDouble() * (seconds - 2) * 1000);
+			triggerManager.insertTrigger(createTimeTrigger(time, numFired, totalLateness, maxLateness));
+		}
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		long scannerThreadId = -1;
+		for (Thread thread: Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(SCANNER_THREAD)) {
+				scannerThreadId = thread.getId();
+			}
+		}
+
+		// The first second warms up.
+		Thread.sleep(1000);
+		long startCpu = threadBean.getThreadCpuTime(scannerThreadId);
+		Thread.sleep((seconds - 1) * 1000);
+		long cpuTime = threadBean.getThreadCpuTime(scannerThreadId) - startCpu;
+		triggerManager.shutdown();
+		executorManager.shutdown();
+
+		System.out.println(String.format("%10s %10s %16s %8s %16s %16s", "triggers", "scan ms", "scanner cpu ms/s", "fired", "avg late ms", "max late ms"));
+		System.out.println(String.format("%10d %10d %16.2f %8d %16.1f %16d",
+				numTriggers + numDue,
+				scanInterval,
+				cpuTime / 1e6 / (seconds - 1),
+				numFired.get(),
+				numFired.get() == 0 ? 0 : (double)totalLateness.get() / numFired.get(),
+				maxLateness.get()));
+		System.exit(0);
+	}
+
+	private static Trigger createTimeTrigger(long time, AtomicInteger numFired, AtomicLong totalLateness, AtomicLong maxLateness) {
+		Map<String, ConditionChecker> triggerCheckers = new HashMap<String, ConditionChecker>();
+		ConditionChecker checker = new BasicTimeChecker("time", time, DateTimeZone.UTC, false, false, null);
+		triggerCheckers.put(checker.getId(), checker);
+		Condition triggerCond = new Condition(triggerCheckers, checker.getId() + ".eval()");
+
+		Map<String, ConditionChecker> expireCheckers = new HashMap<String, ConditionChecker>();
+		ConditionChecker expireChecker = new BasicTimeChecker("expire", time + 24*60*60*1000, DateTimeZone.UTC, false, false, null);
+		expireCheckers.put(expireChecker.getId(), expireChecker);
+		Condition expireCond = new Condition(expireCheckers, expireChecker.getId() + ".eval()");
+
+		List<TriggerAction> actions = new ArrayList<TriggerAction>();
+		actions.add(new LatenessAction(time, numFired, totalLateness, maxLateness));
+		Trigger t = new Trigger("benchmark", "azkaban", triggerCond, expireCond, actions);
+		t.setResetOnTrigger(false);
+		return t;
+	}
+
+	private static class LatenessAction extends DummyTriggerAction {
+		private final long dueTime;
+		private final AtomicInteger numFired;
+		private final AtomicLong totalLateness;
+		private final AtomicLong maxLateness;
+
+		public LatenessAction(long dueTime, AtomicInteger numFired, AtomicLong totalLateness, AtomicLong maxLateness) {
+			super("fired");
+			this.dueTime = dueTime;
+			this.numFired = numFired;
+			this.totalLateness = totalLateness;
+			this.maxLateness = maxLateness;
+		}
+
+		@Override
+		public void doAction() {
+			long lateness = System.currentTimeMillis() - dueTime;
+			numFired.incrementAndGet();
+			totalLateness.addAndGet(lateness);
+			if (lateness > maxLateness.get()) {
+				maxLateness.set(lateness);
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package azkaban.test.trigger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.alert.Alerter;
+import azkaban.executor.ExecutorManager;
+import azkaban.test.execapp.MockExecutorLoader;
+import azkaban.trigger.Condition;
+import azkaban.trigger.ConditionChecker;
+import azkaban.trigger.Trigger;
+import azkaban.trigger.TriggerAction;
+import azkaban.trigger.TriggerManager;
+import azkaban.trigger.builtin.BasicTimeChecker;
+import azkaban.utils.Props;
+
+public class TriggerSchedulingTest {
+	private TriggerManager triggerManager;
+
+	@Before
+	public void setup() throws Exception {
+		Props props = new Props();
+		// Long enough that only waking at the due time fires the triggers in time.
+		props.put("trigger.scan.interval", 60000);
+		props.put("executor.port", 12321);
+		props.put("trigger.project.stage.lookahead.ms", 0);
+		ExecutorManager executorManager = new ExecutorManager(props, new MockExecutorLoader(), new HashMap<String, Alerter>());
+		triggerManager = new TriggerManager(props, new MockTriggerLoader(), executorManager);
+		triggerManager.start();
+	}
+
+	@After
+	public void tearDown() {
+		triggerManager.shutdown();
+	}
+
+	@Test
+	public void testTriggersFireWhenDue() throws Exception {
+		long now = System.currentTimeMillis();
+		RecordingAction late = new RecordingAction();
+		RecordingAction early = new RecordingAction();
+		triggerManager.insertTrigger(createTimeTrigger(now + 1000, late));
+		triggerManager.insertTrigger(createTimeTrigger(now + 500, early));
+
+		pause(2000);
+		Assert.assertTrue(early.fireTime >= now + 500);
+		Assert.assertTrue(early.fireTime < now + 1000);
+		Assert.assertTrue(late.fireTime >= now + 1000);
+		Assert.assertTrue(late.fireTime < now + 1500);
+
+		// Fired azkaban triggers that don't reset are removed.
+		Assert.assertTrue(triggerManager.getTriggers().isEmpty());
+	}
+
+	@Test
+	public void testRemovedTriggerDoesntFire() throws Exception {
+		RecordingAction action = new RecordingAction();
+		Trigger t = createTimeTrigger(System.currentTimeMillis() + 500, action);
+		triggerManager.insertTrigger(t);
+		triggerManager.removeTrigger(t);
+
+		pause(1000);
+		Assert.assertEquals(-1, action.fireTime);
+	}
+
+	private Trigger createTimeTrigger(long time, RecordingAction action) {
+		Map<String, ConditionChecker> triggerCheckers = new HashMap<String, ConditionChecker>();
+		ConditionChecker checker = new BasicTimeChecker("time", time, DateTimeZone.getDefault(), false, false, null);
+		triggerCheckers.put(checker.getId(), checker);
+		Condition triggerCond = new Condition(triggerCheckers, checker.getId() + ".eval()");
+
+		Map<String, ConditionChecker> expireCheckers = new HashMap<String, ConditionChecker>();
+		ConditionChecker expireChecker = new BasicTimeChecker("expire", time + 24*60*60*1000, DateTimeZone.getDefault(), false, false, null);
+		expireCheckers.put(expireChecker.getId(), expireChecker);
+		Condition expireCond = new Condition(expireCheckers, expireChecker.getId() + ".eval()");
+
+		List<TriggerAction> actions = new ArrayList<TriggerAction>();
+		actions.add(action);
+		Trigger t = new Trigger("azkabanTest", "azkaban", triggerCond, expireCond, actions);
+		t.setResetOnTrigger(false);
+		return t;
+	}
+
+	private static class RecordingAction extends DummyTriggerAction {
+		private volatile long fireTime = -1;
+
+		public RecordingAction() {
+			super("fired");
+		}
+
+		@Override
+		public void doAction() {
+			fireTime = System.currentTimeMillis();
+		}
+	}
+
+	private static void pause(long millisec) {
+		try {
+			Thread.sleep(millisec);
+		}
+		catch (InterruptedException e) {
+		}
+	}
+}
@@ -1,12 +1,21 @@
 package azkaban.test.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 
+import azkaban.flow.Flow;
 import azkaban.utils.DirectoryFlowLoader;
+import azkaban.utils.Props;
 
 public class DirectoryFlowLoaderTest {
 
@@ -41,4 +50,66 @@ public class DirectoryFlowLoaderTest {
 		// Should be 3 errors: jobe->innerFlow, innerFlow->jobe, innerFlow
 		Assert.assertEquals(3, loader.getErrors().size());
 	}
+	
+	@Test
+	public void testZipLoad() throws Exception {
+		Logger logger = Logger.getLogger(this.getClass());
+		DirectoryFlowLoader dirLoader = new DirectoryFlowLoader(logger);
+		dirLoader.loadProjectFlow(new File("unit/executions/embedded2"));
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream zip = new ZipOutputStream(bytes);
+		for (File file: new File("unit/executions/embedded2").listFiles()) {
+			zip.putNextEntry(new ZipEntry("project/" + file.getName()));
+			zip.write(FileUtils.readFileToByteArray(file));
+		}
+		zip.close();
+		
+		DirectoryFlowLoader zipLoader = new DirectoryFlowLoader(logger);
+		zipLoader.loadProjectFlow(new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		
+		Assert.assertEquals(dirLoader.getErrors(), zipLoader.getErrors());
+		Assert.assertEquals(dirLoader.getFlowMap().keySet(), zipLoader.getFlowMap().keySet());
+		for (Flow flow: dirLoader.getFlowMap().values()) {
+			Flow zipFlow = zipLoader.getFlowMap().get(flow.getId());
+			Assert.assertEquals(flow.getNodes().size(), zipFlow.getNodes().size());
+			Assert.assertEquals(flow.getEdges().size(), zipFlow.getEdges().size());
+		}
+		Assert.assertEquals(dirLoader.getJobProps().keySet(), zipLoader.getJobProps().keySet());
+		for (String job: dirLoader.getJobProps().keySet()) {
+			Props props = dirLoader.getJobProps().get(job);
+			Props zipProps = zipLoader.getJobProps().get(job);
+			Assert.assertEquals("project/" + props.getSource(), zipProps.getSource());
+			Assert.assertEquals(props.toProperties(), zipProps.toProperties());
+		}
+	}
+	
+	@Test
+	public void testZipLoadInheritsParentProps() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream zip = new ZipOutputStream(bytes);
+		zip.putNextEntry(new ZipEntry("sub/"));
+		zip.putNextEntry(new ZipEntry("sub/b.job"));
+		zip.write("type=command\ndependencies=a".getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry("sub/.hidden.job"));
+		zip.write("type=command".getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry("a.job"));
+		zip.write("type=command".getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry("lib/data.bin"));
+		zip.write(new byte[1024]);
+		zip.putNextEntry(new ZipEntry("common.properties"));
+		zip.write("key=value".getBytes("UTF-8"));
+		zip.close();
+		
+		DirectoryFlowLoader loader = new DirectoryFlowLoader(Logger.getLogger(this.getClass()));
+		loader.loadProjectFlow(new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		
+		Assert.assertEquals(0, loader.getErrors().size());
+		Assert.assertEquals(2, loader.getJobProps().size());
+		Assert.assertEquals(1, loader.getFlowMap().size());
+		Assert.assertEquals("value", loader.getJobProps().get("b").getString("key"));
+		Assert.assertEquals("sub/b.job", loader.getJobProps().get("b").getSource());
+		Assert.assertEquals("common.properties", loader.getFlowMap().get("b").getNode("b").getPropsSource());
+		Assert.assertEquals(1, loader.getProps().size());
+	}
 }
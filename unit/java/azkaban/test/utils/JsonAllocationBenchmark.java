@@ -0,0 +1,168 @@
+package azkaban.test.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import azkaban.test.executor.FlowEncodingBenchmark;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
+
+/**
+ * Measures the memory allocated and the time taken by the json paths that
+ * JSONUtils used to take, which went through a String and a JsonNode tree,
+ * against the streaming ones. The payloads are a 5,000 node execution flow,
+ * as stored in the db, and a 4MB log chunk, as the executor sends it to the
+ * web server.
+ *
+ * Run with: java azkaban.test.utils.JsonAllocationBenchmark [rounds]
+ */
+public class JsonAllocationBenchmark {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+		final Object flowObj = FlowEncodingBenchmark.createFlow(5000).toObject();
+		final byte[] flowBlob = JSONUtils.toGzippedJSONBytes(flowObj);
+
+		Map<String, Object> logObj = new HashMap<String, Object>();
+		logObj.put("offset", 0);
+		logObj.put("length", 4 * 1024 * 1024);
+		logObj.put("data", createLog(4 * 1024 * 1024));
+		final Object log = logObj;
+		final byte[] logResponse = JSONUtils.toJSONBytes(logObj);
+
+		Case[] cases = {
+			new Case("flow blob write") {
+				void runOld() throws Exception {
+					GZIPUtils.gzipBytes(JSONUtils.toJSON(flowObj).getBytes("UTF-8"));
+				}
+				void runNew() throws Exception {
+					JSONUtils.toGzippedJSONBytes(flowObj);
+				}
+			},
+			new Case("flow blob read") {
+				void runOld() throws Exception {
+					toObjectFromJSONNode(mapper.readTree(GZIPUtils.unGzipString(flowBlob, "UTF-8")));
+				}
+				void runNew() throws Exception {
+					JSONUtils.parseJSONFromGzippedBytes(flowBlob);
+				}
+			},
+			new Case("log response write") {
+				void runOld() throws Exception {
+					new ObjectMapper().writeValue(new NullOutputStream(), log);
+				}
+				void runNew() throws Exception {
+					JSONUtils.toJSON(log, new NullOutputStream());
+				}
+			},
+			new Case("log response read") {
+				void runOld() throws Exception {
+					// The http client handed back the body as a String.
+					toObjectFromJSONNode(mapper.readTree(new String(logResponse, "UTF-8")));
+				}
+				void runNew() throws Exception {
+					JSONUtils.parseJSONFromStream(new ByteArrayInputStream(logResponse));
+				}
+			},
+		};
+
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		System.out.println(String.format("%-20s %12s %12s %10s %10s", "case", "old MB", "new MB", "old ms", "new ms"));
+		for (Case c: cases) {
+			long[] bytes = new long[2];
+			long[] times = new long[2];
+			// The first rounds warm up. Old and new take turns.
+			int warmup = Math.max(1, rounds / 4);
+			for (int round = 0; round < warmup + rounds; ++round) {
+				for (int i = 0; i < 2; ++i) {
+					long allocated = threadBean.getThreadAllocatedBytes(threadId);
+					long startTime = System.nanoTime();
+					if (i == 0) {
+						c.runOld();
+					}
+					else {
+						c.runNew();
+					}
+					if (round >= warmup) {
+						times[i] += System.nanoTime() - startTime;
+						bytes[i] += threadBean.getThreadAllocatedBytes(threadId) - allocated;
+					}
+				}
+			}
+			System.out.println(String.format("%-20s %12.2f %12.2f %10.2f %10.2f",
+					c.name,
+					bytes[0] / 1048576.0 / rounds,
+					bytes[1] / 1048576.0 / rounds,
+					times[0] / 1e6 / rounds,
+					times[1] / 1e6 / rounds));
+		}
+	}
+
+	private static String createLog(int size) {
+		Random random = new Random(1);
+		ByteArrayOutputStream log = new ByteArrayOutputStream(size);
+		while (log.size() < size) {
+			String line = "2014/01/01 00:00:00.000 -0800 INFO job line " + random.nextInt() + " \"quoted\"\ttabbed\n";
+			log.write(line.getBytes(), 0, line.length());
+		}
+		return log.toString();
+	}
+
+	/**
+	 * What JSONUtils used to do after building the tree.
+	 */
+	private static Object toObjectFromJSONNode(JsonNode node) {
+		if (node.isObject()) {
+			HashMap<String, Object> obj = new HashMap<String, Object>();
+			Iterator<String> iter = node.getFieldNames();
+			while (iter.hasNext()) {
+				String fieldName = iter.next();
+				obj.put(fieldName, toObjectFromJSONNode(node.get(fieldName)));
+			}
+			return obj;
+		} else if (node.isArray()) {
+			ArrayList<Object> array = new ArrayList<Object>();
+			Iterator<JsonNode> iter = node.getElements();
+			while (iter.hasNext()) {
+				array.add(toObjectFromJSONNode(iter.next()));
+			}
+			return array;
+		} else if (node.isTextual()) {
+			return node.asText();
+		} else if (node.isInt()) {
+			return node.asInt();
+		} else if (node.isLong()) {
+			return node.asLong();
+		} else if (node.isDouble()) {
+			return node.asDouble();
+		} else if (node.isBoolean()) {
+			return node.asBoolean();
+		}
+		return null;
+	}
+
+	private static abstract class Case {
+		private final String name;
+
+		private Case(String name) {
+			this.name = name;
+		}
+
+		abstract void runOld() throws Exception;
+
+		abstract void runNew() throws Exception;
+	}
+}
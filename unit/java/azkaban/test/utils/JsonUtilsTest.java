@@ -1,13 +1,17 @@
 package azkaban.test.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 
 public class JsonUtilsTest {
@@ -44,6 +48,43 @@ public class JsonUtilsTest {
 		checkInAndOut(test, result);
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void parseTypesTest() throws IOException {
+		String json = "{\"int\": 1, \"long\": 12345678901, \"double\": 1.5, \"bool\": true, " +
+				"\"null\": null, \"list\": [\"a\", {\"nested\": false}, []], \"empty\": {}}";
+		Map<String, Object> result = (Map<String, Object>)JSONUtils.parseJSONFromString(json);
+
+		Assert.assertEquals(7, result.size());
+		Assert.assertEquals(Integer.valueOf(1), result.get("int"));
+		Assert.assertEquals(Long.valueOf(12345678901L), result.get("long"));
+		Assert.assertEquals(Double.valueOf(1.5), result.get("double"));
+		Assert.assertEquals(Boolean.TRUE, result.get("bool"));
+		Assert.assertTrue(result.containsKey("null"));
+		Assert.assertNull(result.get("null"));
+		Assert.assertTrue(result.get("empty") instanceof HashMap);
+
+		List<Object> list = (List<Object>)result.get("list");
+		Assert.assertEquals("a", list.get(0));
+		Assert.assertEquals(Boolean.FALSE, ((Map<String, Object>)list.get(1)).get("nested"));
+		Assert.assertTrue(((List<Object>)list.get(2)).isEmpty());
+
+		Assert.assertNull(JSONUtils.parseJSONFromString(""));
+	}
+
+	@Test
+	public void bytesRoundTripTest() throws IOException {
+		Map<String, Object> obj = new HashMap<String, Object>();
+		obj.put("id", "jobA \u00e9\u4e2d");
+		obj.put("time", 1390000000000L);
+		obj.put("nodes", Arrays.asList("a", "b"));
+
+		Assert.assertEquals(obj, JSONUtils.parseJSONFromBytes(JSONUtils.toJSONBytes(obj)));
+		Assert.assertEquals(obj, JSONUtils.parseJSONFromGzippedBytes(JSONUtils.toGzippedJSONBytes(obj)));
+		Assert.assertEquals(obj, JSONUtils.parseJSONFromString(GZIPUtils.unGzipString(JSONUtils.toGzippedJSONBytes(obj), "UTF-8")));
+		Assert.assertEquals(obj, JSONUtils.parseJSONFromStream(new ByteArrayInputStream(JSONUtils.toJSON(obj).getBytes("UTF-8"))));
+	}
+	
 	private static void checkInAndOut(Map<String, String> before, Map<String, String> after) {
 		for (Map.Entry<String, String> entry: before.entrySet()) {
 			String key = entry.getKey();
@@ -0,0 +1,101 @@
+package azkaban.test.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+
+import azkaban.utils.WorkspaceBuilder;
+import azkaban.utils.WorkspaceBuilder.LinkMode;
+
+/**
+ * Times building execution directories for a project tree with many files,
+ * for each link mode and a few thread counts. For comparison, it also times
+ * the shell out to ln -s that the builder replaced.
+ *
+ * Run with: java azkaban.test.utils.WorkspaceBuilderBenchmark [numFiles] [rounds]
+ */
+public class WorkspaceBuilderBenchmark {
+	private static final int FILES_PER_DIR = 100;
+	private static final int[] THREADS = {1, 4, 8};
+
+	public static void main(String[] args) throws Exception {
+		int numFiles = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		File workingDir = new File("_AzkabanBenchmarkDir_" + System.currentTimeMillis());
+		File sourceDir = new File(workingDir, "source");
+		try {
+			createTree(sourceDir, numFiles);
+			System.out.println("Tree of " + numFiles + " files in " + (numFiles / FILES_PER_DIR) + " directories");
+			System.out.println(String.format("%-14s %8s %12s", "mode", "threads", "avg ms"));
+
+			long total = 0;
+			for (int round = 0; round < rounds; ++round) {
+				File destDir = new File(workingDir, "shell" + round);
+				destDir.mkdirs();
+				long startTime = System.nanoTime();
+				shellSymlink(sourceDir, destDir);
+				total += System.nanoTime() - startTime;
+				FileUtils.deleteDirectory(destDir);
+			}
+			System.out.println(String.format("%-14s %8s %12.1f", "sh ln -s", "-", total / 1e6 / rounds));
+
+			for (LinkMode mode: LinkMode.values()) {
+				for (int numThreads: THREADS) {
+					WorkspaceBuilder builder = new WorkspaceBuilder(mode, numThreads);
+					total = 0;
+					// The first round warms up.
+					for (int round = 0; round <= rounds; ++round) {
+						File destDir = new File(workingDir, mode + "." + numThreads + "." + round);
+						destDir.mkdirs();
+						long startTime = System.nanoTime();
+						builder.build(sourceDir, destDir);
+						if (round > 0) {
+							total += System.nanoTime() - startTime;
+						}
+						FileUtils.deleteDirectory(destDir);
+					}
+					builder.shutdown();
+					System.out.println(String.format("%-14s %8d %12.1f", mode, numThreads, total / 1e6 / rounds));
+				}
+			}
+		}
+		finally {
+			FileUtils.deleteDirectory(workingDir);
+		}
+	}
+
+	private static void createTree(File sourceDir, int numFiles) throws IOException {
+		for (int i = 0; i < numFiles; ++i) {
+			File dir = new File(sourceDir, "dir" + (i / FILES_PER_DIR) % 10 + "/sub" + (i / FILES_PER_DIR));
+			dir.mkdirs();
+			FileUtils.writeStringToFile(new File(dir, "file" + i + ".jar"), String.valueOf(i));
+		}
+	}
+
+	/**
+	 * What FileIOUtils.createDeepSymlink used to do: one ln -s per directory,
+	 * run in a single sh.
+	 */
+	private static void shellSymlink(File sourceDir, File destDir) throws Exception {
+		StringBuilder command = new StringBuilder();
+		appendLinks(sourceDir, sourceDir, destDir, command);
+		Process process = new ProcessBuilder().command("sh", "-c", command.toString()).directory(destDir).redirectErrorStream(true).start();
+		process.getOutputStream().close();
+		while (process.getInputStream().read() >= 0) {
+		}
+		process.waitFor();
+	}
+
+	private static void appendLinks(File baseDir, File sourceDir, File destDir, StringBuilder command) {
+		String path = sourceDir.getPath().substring(baseDir.getPath().length());
+		command.append("ln -s ").append(sourceDir.getAbsolutePath()).append("/* .").append(path).append(";");
+		for (File file: sourceDir.listFiles()) {
+			if (file.isDirectory()) {
+				new File(destDir, file.getName()).mkdirs();
+				appendLinks(baseDir, file, new File(destDir, file.getName()), command);
+			}
+		}
+	}
+}
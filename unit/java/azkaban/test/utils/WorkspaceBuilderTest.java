@@ -0,0 +1,219 @@
+package azkaban.test.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.utils.WorkspaceBuilder;
+import azkaban.utils.WorkspaceBuilder.LinkMode;
+
+public class WorkspaceBuilderTest {
+	private File workingDir;
+	private File sourceDir;
+	private File destDir;
+
+	@Before
+	public void setUp() throws Exception {
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		sourceDir = new File(workingDir, "source");
+		destDir = new File(workingDir, "dest");
+		destDir.mkdirs();
+
+		FileUtils.writeStringToFile(new File(sourceDir, "test.job"), "type=command");
+		FileUtils.writeStringToFile(new File(sourceDir, ".hidden"), "hidden");
+		FileUtils.writeStringToFile(new File(sourceDir, "lib/a.jar"), "a");
+		FileUtils.writeStringToFile(new File(sourceDir, "lib/deep/b.jar"), "b");
+		new File(sourceDir, "empty").mkdirs();
+		// Enough files in one directory to be split over several tasks.
+		for (int i = 0; i < 600; ++i) {
+			FileUtils.writeStringToFile(new File(sourceDir, "many/file" + i), String.valueOf(i));
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testSymlink() throws Exception {
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.SYMLINK, 4);
+		Assert.assertEquals(604, builder.build(sourceDir, destDir));
+		builder.shutdown();
+
+		checkTree();
+		Assert.assertTrue(Files.isSymbolicLink(new File(destDir, "lib/deep/b.jar").toPath()));
+		Assert.assertFalse(Files.isSymbolicLink(new File(destDir, "lib/deep").toPath()));
+	}
+
+	@Test
+	public void testHardlink() throws Exception {
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.HARDLINK, 4);
+		Assert.assertEquals(604, builder.build(sourceDir, destDir));
+		builder.shutdown();
+
+		checkTree();
+		Assert.assertEquals(2, Files.getAttribute(new File(sourceDir, "lib/a.jar").toPath(), "unix:nlink"));
+	}
+
+	@Test
+	public void testCopyOnWrite() throws Exception {
+		// Like the artifact cache with read only files.
+		setReadOnly(sourceDir);
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.COPY_ON_WRITE, 4);
+		Assert.assertEquals(604, builder.build(sourceDir, destDir));
+		builder.shutdown();
+
+		checkTree();
+		File job = new File(destDir, "test.job");
+		File cachedJob = new File(sourceDir, "test.job");
+		if (Files.isWritable(cachedJob.toPath())) {
+			// Permissions aren't enforced, as for root, so the file was copied.
+			Assert.assertEquals(1, Files.getAttribute(cachedJob.toPath(), "unix:nlink"));
+		}
+		else {
+			Assert.assertEquals(2, Files.getAttribute(cachedJob.toPath(), "unix:nlink"));
+		}
+
+		// Writing in place either fails or goes to a copy.
+		try {
+			FileUtils.writeStringToFile(job, "type=javaprocess");
+		}
+		catch (IOException e) {
+		}
+		Assert.assertEquals("type=command", FileUtils.readFileToString(cachedJob));
+
+		// Replacing a file, or adding one, only changes the workspace.
+		Assert.assertTrue(job.delete());
+		FileUtils.writeStringToFile(job, "type=javaprocess");
+		FileUtils.writeStringToFile(new File(destDir, "lib/new.jar"), "new");
+		Assert.assertEquals("type=javaprocess", FileUtils.readFileToString(job));
+		Assert.assertEquals("type=command", FileUtils.readFileToString(cachedJob));
+		Assert.assertFalse(new File(sourceDir, "lib/new.jar").exists());
+	}
+
+	@Test
+	public void testWritableSourcesAreCopied() throws Exception {
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.COPY_ON_WRITE, 4);
+		builder.build(sourceDir, destDir);
+		builder.shutdown();
+
+		checkTree();
+		FileUtils.writeStringToFile(new File(destDir, "test.job"), "type=javaprocess");
+		Assert.assertEquals("type=command", FileUtils.readFileToString(new File(sourceDir, "test.job")));
+	}
+
+	@Test
+	public void testOtherFileSystem() throws Exception {
+		File shm = new File("/dev/shm");
+		if (!shm.isDirectory() || Files.getFileStore(shm.toPath()).equals(Files.getFileStore(workingDir.getAbsoluteFile().toPath()))) {
+			System.err.println("Skipping test because there is no other file system.");
+			return;
+		}
+
+		File otherDir = new File(shm, workingDir.getName());
+		try {
+			FileUtils.copyDirectory(sourceDir, otherDir);
+			sourceDir = otherDir;
+
+			// Hard links fall back to symbolic links.
+			WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.HARDLINK, 4);
+			builder.build(otherDir, destDir);
+			builder.shutdown();
+			checkTree();
+			Assert.assertTrue(Files.isSymbolicLink(new File(destDir, "test.job").toPath()));
+
+			// Copy on write copies instead.
+			FileUtils.deleteDirectory(destDir);
+			destDir.mkdirs();
+			setReadOnly(otherDir);
+			builder = new WorkspaceBuilder(LinkMode.COPY_ON_WRITE, 4);
+			builder.build(otherDir, destDir);
+			builder.shutdown();
+			checkTree();
+			File job = new File(destDir, "test.job");
+			Assert.assertFalse(Files.isSymbolicLink(job.toPath()));
+			FileUtils.writeStringToFile(job, "type=javaprocess");
+			Assert.assertEquals("type=command", FileUtils.readFileToString(new File(otherDir, "test.job")));
+		}
+		finally {
+			FileUtils.deleteDirectory(otherDir);
+		}
+	}
+
+	@Test
+	public void testLinkedSourceDir() throws Exception {
+		File link = new File(workingDir, "link");
+		Files.createSymbolicLink(link.toPath(), sourceDir.getAbsoluteFile().toPath());
+
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.SYMLINK, 2);
+		builder.build(link, destDir);
+		builder.shutdown();
+
+		checkTree();
+		// The links point at the files, not through the linked directory.
+		Assert.assertEquals(sourceDir.toPath().toRealPath().resolve("test.job"),
+				Files.readSymbolicLink(new File(destDir, "test.job").toPath()));
+	}
+
+	@Test
+	public void testMissingSource() {
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.SYMLINK, 2);
+		try {
+			builder.build(new File(sourceDir, "idonotexist"), destDir);
+			Assert.fail("Expected an exception");
+		}
+		catch (IOException e) {
+		}
+		finally {
+			builder.shutdown();
+		}
+	}
+
+	@Test
+	public void testExistingFile() throws Exception {
+		FileUtils.writeStringToFile(new File(destDir, "test.job"), "already here");
+		WorkspaceBuilder builder = new WorkspaceBuilder(LinkMode.SYMLINK, 2);
+		try {
+			builder.build(sourceDir, destDir);
+			Assert.fail("Expected an exception");
+		}
+		catch (IOException e) {
+		}
+		finally {
+			builder.shutdown();
+		}
+	}
+
+	private static void setReadOnly(File dir) {
+		for (File file: dir.listFiles()) {
+			if (file.isDirectory()) {
+				setReadOnly(file);
+			}
+			else {
+				file.setWritable(false, false);
+			}
+		}
+	}
+
+	private void checkTree() throws IOException {
+		Assert.assertEquals("type=command", FileUtils.readFileToString(new File(destDir, "test.job")));
+		Assert.assertEquals("hidden", FileUtils.readFileToString(new File(destDir, ".hidden")));
+		Assert.assertEquals("b", FileUtils.readFileToString(new File(destDir, "lib/deep/b.jar")));
+		Assert.assertEquals("599", FileUtils.readFileToString(new File(destDir, "many/file599")));
+		Assert.assertTrue(new File(destDir, "empty").isDirectory());
+		Assert.assertEquals(600, new File(destDir, "many").list().length);
+	}
+}
@@ -0,0 +1,132 @@
+package azkaban.test.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import azkaban.utils.ZipExtractor;
+
+/**
+ * Times extracting synthetic project archives with the sequential unzip that
+ * Utils.unzip used to do, and with ZipExtractor for a few thread counts. One
+ * archive has many small jars, the other a few large ones.
+ *
+ * Run with: java azkaban.test.utils.ZipExtractorBenchmark [rounds]
+ */
+public class ZipExtractorBenchmark {
+	private static final int[] THREADS = {1, 2, 4, 8};
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+		File workingDir = new File("_AzkabanBenchmarkDir_" + System.currentTimeMillis());
+		workingDir.mkdirs();
+		try {
+			File manySmall = createArchive(new File(workingDir, "small.zip"), 3000, 32 * 1024);
+			File fewLarge = createArchive(new File(workingDir, "large.zip"), 16, 16 * 1024 * 1024);
+
+			for (File archive: new File[] {manySmall, fewLarge}) {
+				ZipFile source = new ZipFile(archive);
+				System.out.println(archive.getName() + ": " + source.size() + " entries, " + archive.length() + " bytes");
+				System.out.println(String.format("%-12s %8s %12s", "unzip", "threads", "avg ms"));
+
+				// Index 0 is the sequential unzip.
+				ZipExtractor[] extractors = new ZipExtractor[THREADS.length + 1];
+				for (int i = 0; i < THREADS.length; ++i) {
+					extractors[i + 1] = new ZipExtractor(THREADS[i]);
+				}
+
+				// The rounds go through every configuration in turn, so each sees
+				// the same file system state. The first round warms up.
+				long[] totals = new long[extractors.length];
+				for (int round = 0; round <= rounds; ++round) {
+					for (int i = 0; i < extractors.length; ++i) {
+						File destDir = new File(workingDir, "dest" + i + "." + round);
+						long startTime = System.nanoTime();
+						if (extractors[i] == null) {
+							sequentialUnzip(source, destDir);
+						}
+						else {
+							extractors[i].extract(source, destDir);
+						}
+						if (round > 0) {
+							totals[i] += System.nanoTime() - startTime;
+						}
+						FileUtils.deleteDirectory(destDir);
+					}
+				}
+
+				System.out.println(String.format("%-12s %8s %12.1f", "sequential", "1", totals[0] / 1e6 / rounds));
+				for (int i = 0; i < THREADS.length; ++i) {
+					extractors[i + 1].shutdown();
+					System.out.println(String.format("%-12s %8d %12.1f", "extractor", THREADS[i], totals[i + 1] / 1e6 / rounds));
+				}
+				source.close();
+			}
+		}
+		finally {
+			FileUtils.deleteDirectory(workingDir);
+		}
+	}
+
+	/**
+	 * Random data is hard to deflate, so half of each file is text.
+	 */
+	private static File createArchive(File archive, int numFiles, int fileSize) throws IOException {
+		Random random = new Random(1);
+		byte[] data = new byte[fileSize];
+		ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+		try {
+			for (int i = 0; i < numFiles; ++i) {
+				random.nextBytes(data);
+				for (int j = 0; j < fileSize / 2; ++j) {
+					data[j] = (byte)('a' + j % 26);
+				}
+				zip.putNextEntry(new ZipEntry("lib" + (i % 10) + "/file" + i + ".jar"));
+				zip.write(data);
+			}
+		}
+		finally {
+			zip.close();
+		}
+		return archive;
+	}
+
+	/**
+	 * What Utils.unzip used to do.
+	 */
+	private static void sequentialUnzip(ZipFile source, File dest) throws IOException {
+		Enumeration<?> entries = source.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = (ZipEntry) entries.nextElement();
+			File newFile = new File(dest, entry.getName());
+			if (entry.isDirectory()) {
+				newFile.mkdirs();
+			} else {
+				newFile.getParentFile().mkdirs();
+				InputStream src = source.getInputStream(entry);
+				try {
+					OutputStream output = new BufferedOutputStream(new FileOutputStream(newFile));
+					try {
+						IOUtils.copy(src, output);
+					} finally {
+						output.close();
+					}
+				} finally {
+					src.close();
+				}
+			}
+		}
+	}
+}
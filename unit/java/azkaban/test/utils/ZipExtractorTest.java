@@ -0,0 +1,122 @@
+package azkaban.test.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import azkaban.utils.ZipExtractor;
+
+public class ZipExtractorTest {
+	private File workingDir;
+	private File destDir;
+	private ZipExtractor extractor;
+
+	@Before
+	public void setUp() throws Exception {
+		workingDir = new File("_AzkabanTestDir_" + System.currentTimeMillis());
+		if (workingDir.exists()) {
+			FileUtils.deleteDirectory(workingDir);
+		}
+		destDir = new File(workingDir, "dest");
+		workingDir.mkdirs();
+		// A small buffer, so files take more than one read.
+		extractor = new ZipExtractor(4, 1024);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		extractor.shutdown();
+		if (workingDir != null) {
+			FileUtils.deleteDirectory(workingDir);
+			workingDir = null;
+		}
+	}
+
+	@Test
+	public void testExtract() throws Exception {
+		byte[] big = new byte[3 * 1024 * 1024];
+		new Random(1).nextBytes(big);
+
+		File zipFile = new File(workingDir, "test.zip");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+		zip.putNextEntry(new ZipEntry("test.job"));
+		zip.write("type=command".getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry("empty/"));
+		zip.putNextEntry(new ZipEntry("lib/big.jar"));
+		zip.write(big);
+		// Files in directories without their own entry.
+		for (int i = 0; i < 300; ++i) {
+			zip.putNextEntry(new ZipEntry("many/sub" + (i % 3) + "/file" + i));
+			zip.write(String.valueOf(i).getBytes("UTF-8"));
+		}
+		zip.close();
+
+		ZipFile source = new ZipFile(zipFile);
+		Assert.assertEquals(302, extractor.extract(source, destDir));
+		source.close();
+
+		Assert.assertEquals("type=command", FileUtils.readFileToString(new File(destDir, "test.job")));
+		Assert.assertTrue(new File(destDir, "empty").isDirectory());
+		Assert.assertArrayEquals(big, FileUtils.readFileToByteArray(new File(destDir, "lib/big.jar")));
+		for (int i = 0; i < 300; ++i) {
+			Assert.assertEquals(String.valueOf(i), FileUtils.readFileToString(new File(destDir, "many/sub" + (i % 3) + "/file" + i)));
+		}
+	}
+
+	@Test
+	public void testEntryOutsideOfDest() throws Exception {
+		checkRejected("../evil.txt");
+		checkRejected("lib/../../evil.txt");
+		checkRejected("/tmp/evil.txt");
+	}
+
+	@Test
+	public void testEntryInsideOfDest() throws Exception {
+		File zipFile = new File(workingDir, "test.zip");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+		zip.putNextEntry(new ZipEntry("./"));
+		zip.putNextEntry(new ZipEntry("lib/../test.job"));
+		zip.write("type=command".getBytes("UTF-8"));
+		zip.close();
+
+		ZipFile source = new ZipFile(zipFile);
+		Assert.assertEquals(1, extractor.extract(source, destDir));
+		source.close();
+		Assert.assertEquals("type=command", FileUtils.readFileToString(new File(destDir, "test.job")));
+	}
+
+	private void checkRejected(String name) throws IOException {
+		File zipFile = new File(workingDir, "evil.zip");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+		zip.putNextEntry(new ZipEntry("good.txt"));
+		zip.write("good".getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write("evil".getBytes("UTF-8"));
+		zip.close();
+
+		ZipFile source = new ZipFile(zipFile);
+		try {
+			extractor.extract(source, destDir);
+			Assert.fail("Extracted " + name);
+		}
+		catch (IOException e) {
+			// Nothing is written, not even the entries before it.
+			Assert.assertFalse(destDir.exists());
+			Assert.assertFalse(new File(workingDir, "evil.txt").exists());
+		}
+		finally {
+			source.close();
+			zipFile.delete();
+		}
+	}
+}
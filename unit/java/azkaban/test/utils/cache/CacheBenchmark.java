@@ -0,0 +1,80 @@
+package azkaban.test.utils.cache;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import azkaban.utils.cache.Cache;
+import azkaban.utils.cache.Cache.EjectionPolicy;
+import azkaban.utils.cache.CacheManager;
+
+/**
+ * Measures lookup throughput of a session sized cache with several threads
+ * reading, and occasionally adding, sessions. The cache is kept full, so
+ * every insert ejects an element.
+ *
+ * Run with: java azkaban.test.utils.cache.CacheBenchmark [seconds]
+ */
+public class CacheBenchmark {
+	private static final int CACHE_SIZE = 10000;
+	private static final int NUM_KEYS = 12000;
+	// One in this many operations adds a session instead of looking one up.
+	private static final int INSERT_RATIO = 100;
+	private static final int[] THREADS = {1, 4, 8, 16};
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+		System.out.println(String.format("%-6s %8s %14s %10s %10s", "policy", "threads", "ops/s", "hit %", "ejections"));
+		for (EjectionPolicy policy: EjectionPolicy.values()) {
+			for (int numThreads: THREADS) {
+				// Warm up, then measure.
+				run(policy, numThreads, 1, false);
+				run(policy, numThreads, seconds, true);
+			}
+		}
+		CacheManager.shutdown();
+	}
+
+	private static void run(EjectionPolicy policy, int numThreads, int seconds, boolean print) throws Exception {
+		final Cache cache = CacheManager.getInstance().createCache();
+		cache.setEjectionPolicy(policy);
+		cache.setMaxCacheSize(CACHE_SIZE);
+		cache.setExpiryTimeToLiveMs(24*60*60*1000L);
+		for (int i = 0; i < CACHE_SIZE; ++i) {
+			cache.put("session-" + i, new Object());
+		}
+
+		final long endTime = System.currentTimeMillis() + seconds * 1000L;
+		final AtomicLong ops = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(numThreads);
+		for (int t = 0; t < numThreads; ++t) {
+			final Random random = new Random(t);
+			new Thread() {
+				public void run() {
+					long count = 0;
+					while ((count & 0xfff) != 0 || System.currentTimeMillis() < endTime) {
+						String key = "session-" + random.nextInt(NUM_KEYS);
+						if (random.nextInt(INSERT_RATIO) == 0) {
+							cache.put(key, new Object());
+						}
+						else {
+							cache.get(key);
+						}
+						count++;
+					}
+					ops.addAndGet(count);
+					done.countDown();
+				}
+			}.start();
+		}
+		done.await();
+
+		if (print) {
+			long lookups = cache.getHitCount() + cache.getMissCount();
+			System.out.println(String.format("%-6s %8d %14d %10.1f %10d",
+					policy, numThreads, ops.get() / seconds, 100.0 * cache.getHitCount() / lookups, cache.getEjectionCount()));
+		}
+		CacheManager.getInstance().removeCache(cache);
+	}
+}
@@ -142,4 +142,60 @@ public class CacheTest {
 
 		Assert.assertNull(cache.get("key2"));
 	}
+
+	@Test
+	public void testPutSizeBound() {
+		CacheManager manager = CacheManager.getInstance();
+		Cache cache = manager.createCache();
+		cache.setEjectionPolicy(EjectionPolicy.LRU);
+		cache.setMaxCacheSize(4);
+
+		for (int i = 0; i < 10; ++i) {
+			cache.put("key" + i, "val" + i);
+		}
+		Assert.assertEquals(4, cache.getSize());
+		Assert.assertEquals(6, cache.getEjectionCount());
+		Assert.assertNull(cache.get("key5"));
+		Assert.assertEquals("val9", cache.get("key9"));
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testLargeCacheSizeBound() {
+		CacheManager manager = CacheManager.getInstance();
+		Cache cache = manager.createCache();
+		cache.setEjectionPolicy(EjectionPolicy.LRU);
+		cache.setMaxCacheSize(1000);
+
+		for (int i = 0; i < 5000; ++i) {
+			cache.put("key" + i, "val" + i);
+			// Keep one key in use, so it should never be ejected.
+			Assert.assertEquals("val0", cache.get("key0"));
+		}
+		Assert.assertTrue(cache.getSize() <= 1000);
+	}
+
+	@Test
+	public void testExpiryWithoutAccess() {
+		CacheManager manager = CacheManager.getInstance();
+		CacheManager.setUpdateFrequency(50);
+		Cache cache = manager.createCache();
+
+		cache.setUpdateFrequencyMs(50);
+		cache.setExpiryTimeToLiveMs(300);
+		cache.insertElement("key1", "val1");
+		cache.insertElement("key2", "val2");
+		Assert.assertEquals(2, cache.getSize());
+
+		synchronized (this) {
+			try {
+				wait(1500);
+			} catch (InterruptedException e) {
+			}
+		}
+		// Nothing read the elements, so the timer wheel must have removed them.
+		Assert.assertEquals(0, cache.getSize());
+		Assert.assertEquals(2, cache.getExpiryCount());
+	}
 }
@@ -0,0 +1,49 @@
+package azkaban.test.webapp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import azkaban.webapp.servlet.ContinuationToken;
+
+public class ContinuationTokenTest {
+	@Test
+	public void testRoundTrip() {
+		long[][] keysList = {
+				{0},
+				{12345},
+				{1404764940123L, 3},
+				{-1, Long.MAX_VALUE, Long.MIN_VALUE}
+		};
+		for (long[] keys: keysList) {
+			String token = ContinuationToken.create(keys);
+			Assert.assertArrayEquals(token, keys, ContinuationToken.parse(token, keys.length));
+		}
+	}
+
+	@Test
+	public void testWrongNumberOfKeys() {
+		String token = ContinuationToken.create(1404764940123L, 3);
+		assertInvalid(token, 1);
+		assertInvalid(token, 3);
+		assertInvalid(ContinuationToken.create(17), 2);
+	}
+
+	@Test
+	public void testMalformedTokens() {
+		String[] tokens = {"", "_", "abc_", "_abc", "a b", "a.b", "!", "zzzzzzzzzzzzzzzzzzzz"};
+		for (String token: tokens) {
+			assertInvalid(token, 1);
+		}
+		assertInvalid("abc__def", 2);
+		assertInvalid("abc_!", 2);
+	}
+
+	private static void assertInvalid(String token, int numKeys) {
+		try {
+			ContinuationToken.parse(token, numKeys);
+			Assert.fail("Parsed " + token + " as " + numKeys + " keys");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+}